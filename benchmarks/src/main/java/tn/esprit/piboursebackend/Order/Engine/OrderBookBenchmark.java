@@ -0,0 +1,114 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opérations du carnet sur le thread du séquenceur, carnet stable de 100 niveaux par côté
+ * (10 ordres de 100 par niveau) : insertion + annulation, exécution d'un maker puis d'un balayage
+ * de 5 niveaux (carnet regarni à l'identique), mise à jour de profondeur et snapshot agrégé.
+ * Même package que le moteur pour mesurer drainUpdate, qui n'est pas public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+    private static final long STOCK = 1;
+    private static final int LEVELS = 100;
+    private static final int ORDERS_PER_LEVEL = 10;
+    private static final long TICK = FixedPoint.ONE / 100;
+    private static final long MID = FixedPoint.of(100);
+    private static final long LOT = FixedPoint.of(100);
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private LimitOrderBook book;
+    private LimitOrderBook tracked;     // carnet qui note ses niveaux modifiés (abonnés au flux)
+    private long nextId;
+    private int level;
+
+    @Setup
+    public void setUp() {
+        book = build();
+        tracked = build();
+        tracked.trackChanges(true);
+        tracked.drainUpdate(List.of());
+    }
+
+    private LimitOrderBook build() {
+        LimitOrderBook b = new LimitOrderBook(STOCK);
+        for (int l = 1; l <= LEVELS; l++) {
+            for (int k = 0; k < ORDERS_PER_LEVEL; k++) {
+                b.rest(limit(OrderSide.BUY, MID - l * TICK, LOT));
+                b.rest(limit(OrderSide.SELL, MID + l * TICK, LOT));
+            }
+        }
+        return b;
+    }
+
+    private RestingOrder limit(OrderSide side, long price, long quantity) {
+        return new RestingOrder(++nextId, STOCK, side, OrderType.LIMIT, TimeInForce.GTC, price, quantity, quantity, NOW);
+    }
+
+    // Prix passif tournant sur les niveaux existants
+    private long passiveBid() {
+        level = level == LEVELS ? 1 : level + 1;
+        return MID - level * TICK;
+    }
+
+    @Benchmark
+    public RestingOrder insertAndCancel() {
+        RestingOrder order = limit(OrderSide.BUY, passiveBid(), LOT);
+        book.process(order);
+        return book.cancel(order.getOrderId());
+    }
+
+    @Benchmark
+    public MatchResult matchOneMaker() {
+        long price = book.bestAsk().getPrice();
+        MatchResult result = book.process(new RestingOrder(++nextId, STOCK, OrderSide.BUY, OrderType.LIMIT,
+                TimeInForce.IOC, price, LOT, LOT, NOW));
+        book.rest(limit(OrderSide.SELL, price, LOT));
+        return result;
+    }
+
+    @Benchmark
+    public MatchResult sweepFiveLevels() {
+        long quantity = 5 * ORDERS_PER_LEVEL * LOT;
+        MatchResult result = book.process(new RestingOrder(++nextId, STOCK, OrderSide.BUY, OrderType.MARKET,
+                TimeInForce.IOC, FixedPoint.NULL, quantity, quantity, NOW));
+        for (int l = 1; l <= 5; l++) {
+            for (int k = 0; k < ORDERS_PER_LEVEL; k++) book.rest(limit(OrderSide.SELL, MID + l * TICK, LOT));
+        }
+        return result;
+    }
+
+    // Insertion + annulation suivies chacune de la mise à jour publiée aux abonnés
+    @Benchmark
+    public BookUpdate insertAndCancelWithUpdates() {
+        RestingOrder order = limit(OrderSide.BUY, passiveBid(), LOT);
+        tracked.process(order);
+        tracked.drainUpdate(List.of());
+        tracked.cancel(order.getOrderId());
+        return tracked.drainUpdate(List.of());
+    }
+
+    @Benchmark
+    public BookUpdate depthSnapshotTop10() {
+        return book.depthSnapshot(10);
+    }
+
+    @Benchmark
+    public BookUpdate depthSnapshotFull() {
+        return book.depthSnapshot(0);
+    }
+}
@@ -0,0 +1,86 @@
+package tn.esprit.piboursebackend.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare deux résultats JSON de JMH (référence, courant) benchmark par benchmark et paramètres.
+ * Une régression est un écart défavorable supérieur au seuil (10 % par défaut) et aux marges
+ * d'erreur cumulées des deux mesures ; code de sortie 1 s'il y en a au moins une.
+ *   java -cp benchmarks/target/benchmarks.jar tn.esprit.piboursebackend.bench.BenchmarkCompare base.json new.json [seuil %]
+ */
+public final class BenchmarkCompare {
+
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkCompare <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, JsonNode> baseline = load(Path.of(args[0]));
+        Map<String, JsonNode> current = load(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> e : current.entrySet()) {
+            JsonNode before = baseline.get(e.getKey());
+            JsonNode after = e.getValue();
+            String unit = after.path("primaryMetric").path("scoreUnit").asText();
+            double now = score(after);
+            if (before == null) {
+                System.out.printf("  NEW        %-70s %12.3f %s%n", e.getKey(), now, unit);
+                continue;
+            }
+            double was = score(before);
+            // Débit : plus haut = mieux ; temps moyen / échantillonné / unique : plus bas = mieux
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double change = was == 0 ? 0 : (now - was) / was;
+            double worse = higherIsBetter ? -change : change;
+            double noise = error(before) + error(after);
+            boolean regressed = worse > threshold && Math.abs(now - was) > noise;
+            if (regressed) regressions++;
+            System.out.printf("  %-10s %-70s %12.3f -> %12.3f %s (%+.1f %%)%n",
+                    regressed ? "REGRESSED" : worse < -threshold ? "IMPROVED" : "ok",
+                    e.getKey(), was, now, unit, change * 100);
+        }
+        for (String missing : baseline.keySet()) {
+            if (!current.containsKey(missing)) System.out.printf("  MISSING    %s%n", missing);
+        }
+        System.out.printf("%d benchmarks compared, %d regressions over %.0f %%%n",
+                current.size(), regressions, threshold * 100);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    // Clé : benchmark + mode + paramètres
+    private static Map<String, JsonNode> load(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText())
+                    .append(" [").append(run.path("mode").asText()).append(']');
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> p = params.next();
+                key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText());
+            }
+            results.put(key.toString().replace("tn.esprit.piboursebackend.", ""), run);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode run) {
+        return run.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double error(JsonNode run) {
+        double error = run.path("primaryMetric").path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
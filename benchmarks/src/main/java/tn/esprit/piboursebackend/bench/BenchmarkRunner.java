@@ -0,0 +1,44 @@
+package tn.esprit.piboursebackend.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point d'entrée du jar de benchmarks : JMH avec résultats JSON par défaut, un fichier par exécution
+ * dans jmh-results/ (ou -rff). Mêmes options que JMH, par exemple :
+ *   java -jar benchmarks/target/benchmarks.jar OrderBook -rff base.json
+ * Comparaison de deux exécutions : voir BenchmarkCompare.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean query = options.stream().anyMatch(o -> o.equals("-l") || o.equals("-lp") || o.equals("-h")
+                || o.equals("-lprof") || o.equals("-lrf"));
+        if (!query && !options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!query && !options.contains("-rff")) {
+            options.add("-rff");
+            options.add(defaultResultFile().toString());
+        }
+        org.openjdk.jmh.Main.main(options.toArray(String[]::new));
+    }
+
+    private static Path defaultResultFile() throws IOException {
+        Path dir = Files.createDirectories(Path.of("jmh-results"));
+        String commit = System.getenv().getOrDefault("GIT_COMMIT", "");
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        return dir.resolve(commit.isBlank() ? stamp + ".json" : stamp + "-" + commit + ".json");
+    }
+}
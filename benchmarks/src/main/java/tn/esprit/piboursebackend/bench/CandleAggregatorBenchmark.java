@@ -0,0 +1,59 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Marche.Services.CandleAggregator;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrégation trade -> bougies faite sur le thread du séquenceur (5 intervalles mis à jour par trade),
+ * 20 titres, un trade toutes les 10 ms par titre. Sans base : les barres terminées restent en file,
+ * l'agrégateur est recréé à chaque itération.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CandleAggregatorBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final int STOCKS = 20;
+
+    private BookUpdate[] updates;
+    private CandleAggregator aggregator;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 6, 9, 0);
+        updates = new BookUpdate[SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            long price = FixedPoint.of(100) + rnd.nextInt(200) * FixedPoint.ONE / 100;
+            Fill fill = new Fill((long) k, (long) k + SIZE, OrderSide.BUY, price, FixedPoint.of(1 + rnd.nextInt(100)));
+            updates[k] = new BookUpdate((long) (k % STOCKS), k, false, true, price, 0, FixedPoint.NULL, 0, price,
+                    new long[0], new long[0], new int[0], new long[0], new long[0], new int[0], List.of(fill),
+                    start.plusNanos((k / STOCKS) * 10_000_000L));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newAggregator() {
+        aggregator = new CandleAggregator(null, null, null, null, 500);
+    }
+
+    @Benchmark
+    public CandleAggregator onTrade() {
+        aggregator.onBookUpdate(updates[i++ & (SIZE - 1)]);
+        return aggregator;
+    }
+}
@@ -0,0 +1,84 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Étape élémentaire de matching (comparaison de prix, min des quantités, décréments,
+ * montant prix x quantité) : chemin BigDecimal historique vs virgule fixe long.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FixedPointBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private BigDecimal[] bdPrices;
+    private BigDecimal[] bdQuantities;
+    private long[] fxPrices;
+    private long[] fxQuantities;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        bdPrices = new BigDecimal[SIZE];
+        bdQuantities = new BigDecimal[SIZE];
+        fxPrices = new long[SIZE];
+        fxQuantities = new long[SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            BigDecimal price = BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2).setScale(6, RoundingMode.HALF_UP);
+            BigDecimal qty = BigDecimal.valueOf(1 + rnd.nextInt(1_000)).setScale(6, RoundingMode.HALF_UP);
+            bdPrices[k] = price;
+            bdQuantities[k] = qty;
+            fxPrices[k] = FixedPoint.of(price);
+            fxQuantities[k] = FixedPoint.of(qty);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimalMatchStep(Blackhole bh) {
+        int a = i++ & (SIZE - 1);
+        int b = (a + 1) & (SIZE - 1);
+        boolean crosses = bdPrices[a].compareTo(bdPrices[b]) >= 0;
+        BigDecimal qty = bdQuantities[a].min(bdQuantities[b]);
+        BigDecimal takerLeft = bdQuantities[a].subtract(qty).setScale(6, RoundingMode.HALF_UP);
+        BigDecimal makerLeft = bdQuantities[b].subtract(qty).setScale(6, RoundingMode.HALF_UP);
+        BigDecimal notional = bdPrices[b].multiply(qty).setScale(6, RoundingMode.HALF_UP);
+        bh.consume(crosses);
+        bh.consume(takerLeft);
+        bh.consume(makerLeft);
+        bh.consume(notional);
+    }
+
+    @Benchmark
+    public void fixedPointMatchStep(Blackhole bh) {
+        int a = i++ & (SIZE - 1);
+        int b = (a + 1) & (SIZE - 1);
+        boolean crosses = fxPrices[a] >= fxPrices[b];
+        long qty = Math.min(fxQuantities[a], fxQuantities[b]);
+        long takerLeft = FixedPoint.subtract(fxQuantities[a], qty);
+        long makerLeft = FixedPoint.subtract(fxQuantities[b], qty);
+        long notional = FixedPoint.multiply(fxPrices[b], qty);
+        bh.consume(crosses);
+        bh.consume(takerLeft);
+        bh.consume(makerLeft);
+        bh.consume(notional);
+    }
+
+    // Normalisation faite par Order.prePersist / Trade.onPersist à chaque écriture
+    @Benchmark
+    public BigDecimal bigDecimalPrePersistScale() {
+        return bdQuantities[i++ & (SIZE - 1)].multiply(BigDecimal.ONE).setScale(6, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,67 @@
+package tn.esprit.piboursebackend.bench;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Order.Engine.MatchingProbe;
+import tn.esprit.piboursebackend.Order.Services.TradingMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Surcoût de l'instrumentation du séquenceur par commande (3 LatencyRecorder + 1 compteur,
+ * 20 symboles) comparé à la sonde vide et à un Timer Micrometer avec percentiles. Allocation à vérifier avec -prof gc
+ * (gc.alloc.rate.norm attendu ~0 B/op) :
+ *   java -jar benchmarks/target/benchmarks.jar MetricsBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    private static final int STOCKS = 20;
+
+    private final Long[] stockIds = new Long[STOCKS];
+    private MatchingProbe probe;
+    private Timer timer;
+    private int i;
+    private long nanos = 1_000;
+
+    @Setup
+    public void setUp() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        TradingMetrics metrics = new TradingMetrics(registry, null, true, new double[]{0.5, 0.99, 0.999}, 10_000);
+        for (int k = 0; k < STOCKS; k++) {
+            stockIds[k] = 1_000L + k;
+            metrics.onCommand(stockIds[k], 0, 0, 0, 0);     // compteurs du symbole créés hors mesure
+        }
+        probe = metrics;
+        timer = Timer.builder("bench.timer").publishPercentiles(0.5, 0.99, 0.999).register(registry);
+    }
+
+    // Durées variées pour toucher plusieurs seaux de l'histogramme
+    private long nextNanos() {
+        nanos = nanos * 6364136223846793005L + 1442695040888963407L;
+        return 100 + (nanos >>> 44);
+    }
+
+    @Benchmark
+    public void emptyProbe() {
+        MatchingProbe.NONE.onCommand(stockIds[i++ % STOCKS], nextNanos(), nextNanos(), nextNanos(), 1);
+    }
+
+    @Benchmark
+    public void tradingMetricsProbe() {
+        probe.onCommand(stockIds[i++ % STOCKS], nextNanos(), nextNanos(), nextNanos(), 1);
+    }
+
+    // Référence : Timer Micrometer à percentiles client, une seule durée
+    @Benchmark
+    public void micrometerTimerRecord() {
+        timer.record(nextNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,62 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalisation BigDecimal d'Order.prePersist (échelle 6 sur quantité, reliquat, prix) pour des
+ * valeurs telles que reçues de l'API (prix à 2 décimales, quantités entières), comparée à la
+ * conversion en virgule fixe faite à l'entrée du moteur.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderPrePersistBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private BigDecimal[] prices;
+    private BigDecimal[] quantities;
+    private Order order;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        prices = new BigDecimal[SIZE];
+        quantities = new BigDecimal[SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            prices[k] = BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2);
+            quantities[k] = BigDecimal.valueOf(1 + rnd.nextInt(1_000));
+        }
+        order = Order.builder().type(OrderType.LIMIT).side(OrderSide.BUY).build();
+    }
+
+    @Benchmark
+    public Order prePersist() {
+        int k = i++ & (SIZE - 1);
+        order.setPrice(prices[k]);
+        order.setQuantity(quantities[k]);
+        order.setRemainingQuantity(null);
+        order.prePersist();
+        return order;
+    }
+
+    @Benchmark
+    public void fixedPointConversion(Blackhole bh) {
+        int k = i++ & (SIZE - 1);
+        bh.consume(FixedPoint.of(prices[k]));
+        bh.consume(FixedPoint.of(quantities[k]));
+    }
+}
@@ -0,0 +1,45 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Portfolio.Entity.Portfolio;
+import tn.esprit.piboursebackend.Portfolio.Entity.Position;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Portfolio.calculateTotalValue : somme BigDecimal (stream + reduce) des valeurs de positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PortfolioValueBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int positions;
+
+    private Portfolio portfolio;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        portfolio = new Portfolio();
+        portfolio.setPositions(new ArrayList<>());
+        for (int k = 0; k < positions; k++) {
+            portfolio.addPosition(Position.builder()
+                    .quantity(1 + rnd.nextInt(1_000))
+                    .currentValue(BigDecimal.valueOf(rnd.nextInt(10_000_000), 2).setScale(6))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalValue() {
+        return portfolio.calculateTotalValue();
+    }
+}
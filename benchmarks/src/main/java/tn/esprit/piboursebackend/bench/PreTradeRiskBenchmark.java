@@ -0,0 +1,55 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.PreTradeRisk;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'un contrôle pré-négociation : réservation (CAS sur le disponible) puis libération,
+ * achat (liquidités) et vente (titres), 10 000 joueurs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreTradeRiskBenchmark {
+
+    private static final int PLAYERS = 10_000;
+    private static final long STOCK = 1;
+
+    private PreTradeRisk gate;
+    private long orderId;
+    private int player;
+
+    @Setup
+    public void setUp() {
+        gate = new PreTradeRisk();
+        for (long p = 1; p <= PLAYERS; p++) {
+            gate.credit(p, FixedPoint.of(1_000_000));
+            gate.creditShares(p, STOCK, FixedPoint.of(10_000));
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndReleaseBuy() {
+        long id = ++orderId;
+        long p = 1 + (player++ % PLAYERS);
+        boolean ok = gate.reserve(id, p, STOCK, OrderSide.BUY, FixedPoint.of(125), FixedPoint.of(10), false);
+        gate.release(id);
+        return ok;
+    }
+
+    @Benchmark
+    public boolean reserveAndReleaseSell() {
+        long id = ++orderId;
+        long p = 1 + (player++ % PLAYERS);
+        boolean ok = gate.reserve(id, p, STOCK, OrderSide.SELL, 0, FixedPoint.of(10), false);
+        gate.release(id);
+        return ok;
+    }
+}
@@ -0,0 +1,78 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioExposure;
+import tn.esprit.piboursebackend.Portfolio.Services.ReturnMatrix;
+import tn.esprit.piboursebackend.Portfolio.Services.RiskRun;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calcul de risque complet (VaR historique, VaR Monte Carlo, Sharpe) de tous les portefeuilles,
+ * en fonction du nombre de portefeuilles et de la profondeur d'historique.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RiskRunBenchmark {
+
+    private static final int STOCKS = 200;
+    private static final int POSITIONS = 10;
+
+    @Param({"1000", "5000"})
+    private int portfolios;
+
+    @Param({"250", "1000"})
+    private int days;
+
+    @Param({"2000"})
+    private int paths;
+
+    private RiskRun run;
+    private List<PortfolioExposure> exposures;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        Map<Long, double[]> returns = new HashMap<>();
+        for (long s = 1; s <= STOCKS; s++) {
+            double[] r = new double[days];
+            for (int t = 0; t < days; t++) r[t] = rnd.nextGaussian() * 0.02;
+            returns.put(s, r);
+        }
+        exposures = new ArrayList<>(portfolios);
+        for (long p = 1; p <= portfolios; p++) {
+            long[] stockIds = new long[POSITIONS];
+            double[] values = new double[POSITIONS];
+            for (int i = 0; i < POSITIONS; i++) {
+                stockIds[i] = 1 + rnd.nextInt(STOCKS);
+                values[i] = 100 + rnd.nextInt(10_000);
+            }
+            exposures.add(new PortfolioExposure(p, stockIds, values));
+        }
+        run = new RiskRun(new ReturnMatrix(returns, days, LocalDate.now()),
+                new RiskRun.Settings(0.95, 10, paths, 0.03, 42L));
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public RiskRun.Result allPortfolios() {
+        return run.run(exposures, pool, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,112 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Order.Engine.BookSnapshot;
+import tn.esprit.piboursebackend.Order.Engine.EventJournal;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.JournalRecord;
+import tn.esprit.piboursebackend.Order.Engine.JournalReplayer;
+import tn.esprit.piboursebackend.Order.Engine.JournalStore;
+import tn.esprit.piboursebackend.Order.Engine.LimitOrderBook;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Temps de démarrage pour un carnet de N ordres au repos (1M par défaut, 100 symboles) :
+ * rejeu complet du journal vs chargement du snapshot, plus la copie faite sur le séquenceur.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SnapshotRecoveryBenchmark {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int STOCKS = 100;
+
+    @Param({"1000000"})
+    public int orders;
+
+    private Path journalOnly;
+    private Path withSnapshot;
+    private JournalReplayer rebuilt;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalOnly = Files.createTempDirectory("bench-journal");
+        withSnapshot = Files.createTempDirectory("bench-snapshot");
+        long last = writeJournal(journalOnly);
+        writeJournal(withSnapshot);
+
+        rebuilt = new JournalReplayer();
+        JournalStore store = new JournalStore(withSnapshot, SEGMENT_SIZE, false, 2);
+        store.recover(rebuilt);
+        store.openWriters(1)[0].close();
+        store.writeSnapshot(new ByteBuffer[]{BookSnapshot.encode(rebuilt.getBooks().values(), last)});
+    }
+
+    // Ordres LIMIT GTC qui ne se croisent pas : bids sous 100, asks au-dessus
+    private long writeJournal(Path dir) throws IOException {
+        Random rnd = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        EventJournal journal = new JournalStore(dir, SEGMENT_SIZE, false, 2).openWriters(1)[0];
+        for (int i = 1; i <= orders; i++) {
+            boolean buy = (i & 1) == 0;
+            long ticks = 1 + rnd.nextInt(1_000);
+            long price = FixedPoint.of(100) + (buy ? -ticks : ticks) * FixedPoint.ONE / 100;
+            long qty = FixedPoint.of(1 + rnd.nextInt(500));
+            journal.appendOrder(JournalRecord.Type.NEW, new RestingOrder((long) i, (long) (i % STOCKS),
+                    buy ? OrderSide.BUY : OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC,
+                    price, qty, qty, now.plusNanos(i * 1_000L)));
+        }
+        long last = journal.lastSequence();
+        journal.close();
+        return last;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(journalOnly);
+        delete(withSnapshot);
+    }
+
+    @Benchmark
+    public int recoverFromJournal() throws IOException {
+        JournalReplayer replayer = new JournalReplayer();
+        new JournalStore(journalOnly, SEGMENT_SIZE, false, 2).recover(replayer);
+        return replayer.openOrders();
+    }
+
+    @Benchmark
+    public int recoverFromSnapshot() throws IOException {
+        JournalReplayer replayer = new JournalReplayer();
+        new JournalStore(withSnapshot, SEGMENT_SIZE, false, 2).recover(replayer);
+        return replayer.openOrders();
+    }
+
+    // Pause vue par le séquenceur lors d'un snapshot périodique
+    @Benchmark
+    public ByteBuffer encodeSnapshot() {
+        return BookSnapshot.encode(rebuilt.getBooks().values(), 0);
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
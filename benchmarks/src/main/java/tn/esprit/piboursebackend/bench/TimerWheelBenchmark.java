@@ -0,0 +1,49 @@
+package tn.esprit.piboursebackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.piboursebackend.Marche.Services.TimerWheel;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Roue temporelle de l'horloge de marché : planification d'un million d'échéances réparties sur
+ * une journée simulée (tick 1 s), puis avance jusqu'au bout de la journée.
+ * Avec 4096 cases chaque échéance est revisitée ~21 fois (tours) ; 65536 cases couvrent 18 h.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerWheelBenchmark {
+
+    private static final int TIMERS = 1_000_000;
+    private static final long DAY_MS = 86_400_000L;
+
+    @Param({"4096", "65536"})
+    public int wheelSize;
+
+    private long[] deadlines;
+    private long fired;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        deadlines = new long[TIMERS];
+        for (int i = 0; i < TIMERS; i++) {
+            deadlines[i] = random.nextLong(DAY_MS);
+        }
+    }
+
+    @Benchmark
+    public long scheduleAndFireMillion() {
+        TimerWheel<Runnable> wheel = new TimerWheel<>(1000, wheelSize, 0);
+        Runnable task = () -> fired++;
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, task);
+        }
+        return wheel.advance(DAY_MS, Runnable::run);
+    }
+}
@@ -0,0 +1,110 @@
+package tn.esprit.piboursebackend.Credit.Entity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Order.Repository.TradeRepository;
+import tn.esprit.piboursebackend.Player.Repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caractéristiques de crédit de chaque joueur, calculées en bloc à partir de trois agrégats
+ * (dépôts / retraits, achats et ventes par titre) puis gardées en mémoire pendant la durée de vie
+ * configurée : le scoring d'un lot de prêts ne fait aucune requête par joueur.
+ * - capital : liquidités nettes + titres détenus au prix moyen d'achat
+ * - winRate : part des titres vendus au-dessus du prix moyen d'achat
+ * - volatility : dispersion des rendements réalisés par titre (0..1)
+ * Un joueur sans historique a capital 0, winRate 0.5, volatility 0.5.
+ */
+@Component
+public class CreditFeatureCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditFeatureCache.class);
+
+    public record PlayerFeatures(double capital, double volatility, double winRate) {
+        public static final PlayerFeatures UNKNOWN = new PlayerFeatures(0, 0.5, 0.5);
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final TradeRepository tradeRepository;
+    private final long ttlMillis;
+    private volatile Map<Long, PlayerFeatures> features = Map.of();
+    private volatile long loadedAt = Long.MIN_VALUE / 2;
+
+    public CreditFeatureCache(TransactionRepository transactionRepository, TradeRepository tradeRepository,
+                              @Value("${pibourse.credit.feature-ttl-ms:600000}") long ttlMillis) {
+        this.transactionRepository = transactionRepository;
+        this.tradeRepository = tradeRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public PlayerFeatures get(Long playerId) {
+        if (playerId == null) return PlayerFeatures.UNKNOWN;
+        return features.getOrDefault(playerId, PlayerFeatures.UNKNOWN);
+    }
+
+    /** Recharge si le cache a expiré ; appelé au début de chaque passage de scoring. */
+    @Transactional(readOnly = true)
+    public synchronized void refreshIfStale() {
+        if (System.currentTimeMillis() - loadedAt < ttlMillis) return;
+        long start = System.nanoTime();
+        Map<Long, double[]> cash = new HashMap<>();                 // joueur -> [liquidités]
+        Map<Long, Map<Long, double[]>> books = new HashMap<>();     // joueur -> titre -> [qAchat, mAchat, qVente, mVente]
+        for (Object[] row : transactionRepository.sumCashByPlayer()) {
+            cash.computeIfAbsent((Long) row[0], id -> new double[1])[0] += ((Number) row[1]).doubleValue();
+        }
+        for (Object[] row : tradeRepository.sumBoughtByPlayer()) {
+            double[] b = books.computeIfAbsent((Long) row[0], id -> new HashMap<>()).computeIfAbsent((Long) row[1], id -> new double[4]);
+            b[0] += number(row[2]);
+            b[1] += number(row[3]);
+        }
+        for (Object[] row : tradeRepository.sumSoldByPlayer()) {
+            double[] b = books.computeIfAbsent((Long) row[0], id -> new HashMap<>()).computeIfAbsent((Long) row[1], id -> new double[4]);
+            b[2] += number(row[2]);
+            b[3] += number(row[3]);
+        }
+
+        Map<Long, PlayerFeatures> loaded = new HashMap<>(Math.max(cash.size(), books.size()) * 2);
+        cash.keySet().forEach(id -> loaded.put(id, null));
+        books.keySet().forEach(id -> loaded.put(id, null));
+        for (Long playerId : loaded.keySet()) {
+            double capital = cash.getOrDefault(playerId, new double[1])[0];
+            double sold = 0;
+            double won = 0;
+            double sum = 0;
+            double squares = 0;
+            int realized = 0;
+            for (double[] b : books.getOrDefault(playerId, Map.of()).values()) {
+                double avgBuy = b[0] > 0 ? b[1] / b[0] : 0;
+                capital += b[3] - b[1] + Math.max(0, b[0] - b[2]) * avgBuy;
+                if (b[2] > 0 && avgBuy > 0) {
+                    double r = (b[3] / b[2]) / avgBuy - 1;
+                    if (r > 0) won += b[2];
+                    sold += b[2];
+                    sum += r;
+                    squares += r * r;
+                    realized++;
+                }
+            }
+            double winRate = sold > 0 ? won / sold : PlayerFeatures.UNKNOWN.winRate();
+            double volatility = PlayerFeatures.UNKNOWN.volatility();
+            if (realized > 1) {
+                double mean = sum / realized;
+                volatility = Math.min(1, Math.sqrt(Math.max(0, squares / realized - mean * mean)));
+            }
+            loaded.put(playerId, new PlayerFeatures(capital, volatility, winRate));
+        }
+        features = loaded;
+        loadedAt = System.currentTimeMillis();
+        log.info("Credit features loaded for {} players in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static double number(Object value) {
+        return value instanceof BigDecimal d ? d.doubleValue() : ((Number) value).doubleValue();
+    }
+}
@@ -1,41 +1,131 @@
 package tn.esprit.piboursebackend.Credit.Entity;
 
 
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import java.util.List;
-import java.util.stream.Collectors;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Évaluation des prêts en attente par lots : lecture paginée par clé (id > dernier id lu),
+ * score calculé en parallèle à partir du cache de caractéristiques des joueurs, puis statut
+ * APPROVED / REJECTED et loanRiskScore écrits en un batch JDBC par page.
+ */
 @Service
 public class CreditManager {
 
+    private static final Logger log = LoggerFactory.getLogger(CreditManager.class);
+
+    private static final String PAGE_SQL = """
+            SELECT id, player_id, amount FROM loan
+             WHERE status = 'PENDING' AND id > ?
+             ORDER BY id LIMIT ?
+            """;
+
+    private static final String UPDATE_SQL = "UPDATE loan SET status = ?, loan_risk_score = ? WHERE id = ? AND status = 'PENDING'";
+
     private final CreditRiskEngine riskEngine;
+    private final CreditFeatureCache featureCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final int pageSize;
+    private final ForkJoinPool pool;
 
-    public CreditManager(CreditRiskEngine riskEngine) {
+    public CreditManager(CreditRiskEngine riskEngine, CreditFeatureCache featureCache, JdbcTemplate jdbcTemplate,
+                         @Value("${pibourse.credit.page-size:5000}") int pageSize,
+                         @Value("${pibourse.credit.parallelism:0}") int parallelism) {
         this.riskEngine = riskEngine;
+        this.featureCache = featureCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageSize = pageSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
     }
 
-    /*public void evaluateLoan(Loan loan) {
-        double score = riskEngine.calculateRiskScore(loan.getPlayer(), loan);
-        if (riskEngine.isHighRisk(score)) {
-            rejectLoan(loan);
-        } else {
-            approveLoan(loan);
-        }
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
     }
 
-    public void approveLoan(Loan loan) {
-        loan.setStatus("APPROVED");
-        System.out.println("Prêt approuvé pour " + loan.getPlayer().getUsername());
+    /** Évalue tous les prêts PENDING ; renvoie le nombre de prêts traités. */
+    @Scheduled(fixedDelayString = "${pibourse.credit.scoring-interval-ms:60000}")
+    public int evaluatePendingLoans() {
+        featureCache.refreshIfStale();
+        long start = System.nanoTime();
+        long lastId = 0;
+        int total = 0;
+        int rejected = 0;
+        Page page = new Page(pageSize);
+        while (true) {
+            page.size = 0;
+            jdbcTemplate.query(PAGE_SQL, rs -> {
+                int i = page.size++;
+                page.ids[i] = rs.getLong(1);
+                long playerId = rs.getLong(2);
+                page.players[i] = rs.wasNull() ? null : playerId;
+                page.amounts[i] = rs.getDouble(3);
+            }, lastId, pageSize);
+            if (page.size == 0) break;
+            pool.submit(() -> IntStream.range(0, page.size).parallel().forEach(i ->
+                    page.scores[i] = riskEngine.calculateRiskScore(featureCache.get(page.players[i]), page.amounts[i])))
+                    .join();
+            rejected += write(page);
+            total += page.size;
+            lastId = page.ids[page.size - 1];
+            if (page.size < pageSize) break;
+        }
+        if (total > 0) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("Scored {} pending loans ({} rejected) in {} ms, {} loans/s", total, rejected,
+                    Math.round(seconds * 1000), Math.round(total / seconds));
+        }
+        return total;
     }
 
-    public void rejectLoan(Loan loan) {
-        loan.setStatus("REJECTED");
-        System.out.println("Prêt rejeté pour " + loan.getPlayer().getUsername());
+    private int write(Page page) {
+        int rejected = 0;
+        String[] statuses = new String[page.size];
+        for (int i = 0; i < page.size; i++) {
+            boolean highRisk = riskEngine.isHighRisk(page.scores[i]);
+            statuses[i] = highRisk ? "REJECTED" : "APPROVED";
+            if (highRisk) rejected++;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, statuses[i]);
+                ps.setDouble(2, page.scores[i]);
+                ps.setLong(3, page.ids[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return page.size;
+            }
+        });
+        return rejected;
     }
 
-    public List<Loan> getLoanHistory(List<Loan> allLoans, Long playerId) {
-        return allLoans.stream()
-                .filter(l -> l.getPlayer().getId().equals(playerId))
-                .collect(Collectors.toList());
-    }*/
-}
\ No newline at end of file
+    /** Une page de prêts en colonnes, réutilisée d'une page à l'autre. */
+    private static final class Page {
+        final long[] ids;
+        final Long[] players;
+        final double[] amounts;
+        final double[] scores;
+        int size;
+
+        Page(int capacity) {
+            ids = new long[capacity];
+            players = new Long[capacity];
+            amounts = new double[capacity];
+            scores = new double[capacity];
+        }
+    }
+}
@@ -6,16 +6,14 @@ import org.springframework.stereotype.Component;
 @Component
 public class CreditRiskEngine {
 
-    // Calcule le score de risque d’un prêt
-    /*public double calculateRiskScore(Player player, Loan loan) {
-        // Exemple simple : plus la volatilité et le montant sont élevés, plus le risque est grand
-        double base = (loan.getAmount().doubleValue() / (player.getCapital() + 1)) * 0.5;
-        double volatilityFactor = player.getVolatility() * 0.3;
-        double returnFactor = (1 - player.getWinRate()) * 0.2;
-        double score = Math.min(1.0, base + volatilityFactor + returnFactor);
-        loan.setLoanRiskScore(score);
-        return score;
-    }*/
+    // Calcule le score de risque d’un prêt à partir des caractéristiques précalculées du joueur
+    // Plus le montant (rapporté au capital) et la volatilité sont élevés, plus le risque est grand
+    public double calculateRiskScore(CreditFeatureCache.PlayerFeatures player, double amount) {
+        double base = (amount / (Math.max(0, player.capital()) + 1)) * 0.5;
+        double volatilityFactor = player.volatility() * 0.3;
+        double returnFactor = (1 - player.winRate()) * 0.2;
+        return Math.min(1.0, base + volatilityFactor + returnFactor);
+    }
 
     // Vérifie si un score est considéré comme risqué
     public boolean isHighRisk(double score) {
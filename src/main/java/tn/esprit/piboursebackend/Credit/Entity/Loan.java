@@ -1,6 +1,7 @@
 package tn.esprit.piboursebackend.Credit.Entity;
 import jakarta.persistence.*;
 import lombok.*;
+import tn.esprit.piboursebackend.Player.Entities.Player;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -30,10 +31,10 @@ public class Loan {
     private BigDecimal penaltyAmount;
     private double loanRiskScore;
 
-    // 🔗 Relation : un prêt appartient à un joueur
-    /*@ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "player_id", nullable = false)
-    private Player player;*/
+    // 🔗 Relation : un prêt appartient à un joueur (nullable : prêts créés avant la relation)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "player_id")
+    private Player player;
 
     // --- Méthodes métier ---
     public BigDecimal calculateTotalToRepay() {
@@ -58,6 +59,29 @@ public class Loan {
         return false;
     }
 
+    // Arrêté à une date : total dû, retard (jusqu'au remboursement ou à la date si non remboursé),
+    // pénalité et passage en LATE. Renvoie true si quelque chose a changé.
+    public boolean accrue(LocalDate asOf) {
+        BigDecimal previousTotal = totalToRepay;
+        BigDecimal previousPenalty = penaltyAmount;
+        int previousDelay = delayDays;
+        String previousStatus = status;
+
+        totalToRepay = calculateTotalToRepay();
+        LocalDate end = repaymentDate != null ? repaymentDate : asOf;
+        delayDays = dueDate != null && end.isAfter(dueDate)
+                ? (int) java.time.temporal.ChronoUnit.DAYS.between(dueDate, end) : 0;
+        calculatePenalty();
+        if (delayDays > 0) status = "LATE";
+
+        return !sameAmount(previousTotal, totalToRepay) || !sameAmount(previousPenalty, penaltyAmount)
+                || previousDelay != delayDays || !status.equals(previousStatus);
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
     public void updateStatus(String newStatus) {
         this.status = newStatus;
     }
@@ -0,0 +1,26 @@
+package tn.esprit.piboursebackend.Credit.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Point de reprise du calcul quotidien des intérêts / pénalités : un enregistrement par date d'arrêté
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanAccrualCheckpoint {
+    @Id
+    private LocalDate runDate;
+
+    private long lastLoanId;        // tous les prêts d'id <= lastLoanId sont traités
+    private long maxLoanId;         // borne fixée au démarrage du passage
+    private long rowsScanned;
+    private long rowsUpdated;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt; // null tant que le passage n'est pas terminé
+}
@@ -0,0 +1,222 @@
+package tn.esprit.piboursebackend.Credit.Entity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Arrêté quotidien des prêts en cours (APPROVED / LATE) : total dû, jours de retard, pénalité et
+ * passage en LATE, selon les règles de Loan.accrue, sans passer par le contexte de persistance.
+ * Les prêts sont découpés en tranches d'id lues en JDBC et réécrites en batch (seules les lignes
+ * modifiées) ; plusieurs tranches sont traitées en parallèle. Après chaque vague de tranches, le
+ * dernier id traité est enregistré dans loan_accrual_checkpoint : un passage interrompu reprend là
+ * où il s'est arrêté (au démarrage suivant ou au prochain déclenchement). Le calcul est idempotent,
+ * une tranche rejouée donne le même résultat.
+ * Métriques : prêts arrêtés, prêts modifiés, tranches traitées et durée de chaque passage.
+ */
+@Service
+public class LoanAccrualJob {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanAccrualJob.class);
+
+    private static final String CHUNK_SQL = """
+            SELECT id, amount, interest_rate, due_date, repayment_date, total_to_repay,
+                   delay_days, penalty_amount, status
+              FROM loan
+             WHERE id > ? AND id <= ? AND status IN ('APPROVED', 'LATE')
+            """;
+
+    private static final String UPDATE_SQL = """
+            UPDATE loan SET total_to_repay = ?, delay_days = ?, penalty_amount = ?, status = ?
+             WHERE id = ?
+            """;
+
+    /** Bilan du dernier passage (ou de la dernière reprise) de ce processus. */
+    public record Run(LocalDate runDate, long rowsScanned, long rowsUpdated, long millis, double rowsPerSecond) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final Counter loansAccrued;
+    private final Counter loansUpdated;
+    private final Counter chunks;
+    private final Timer runTimer;
+    private volatile Run lastRun;
+
+    public LoanAccrualJob(JdbcTemplate jdbcTemplate, MeterRegistry registry,
+                          @Value("${pibourse.credit.accrual.chunk-size:5000}") int chunkSize,
+                          @Value("${pibourse.credit.accrual.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.loansAccrued = Counter.builder("pibourse.credit.accrual.loans")
+                .description("Open loans scanned and accrued")
+                .register(registry);
+        this.loansUpdated = Counter.builder("pibourse.credit.accrual.updated")
+                .description("Accrued loans whose row changed")
+                .register(registry);
+        this.chunks = Counter.builder("pibourse.credit.accrual.chunks")
+                .description("Loan id chunks processed")
+                .register(registry);
+        this.runTimer = Timer.builder("pibourse.credit.accrual.run")
+                .description("Loan accrual run, start or resume to completion")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public Run lastRun() {
+        return lastRun;
+    }
+
+    @Scheduled(cron = "${pibourse.credit.accrual.cron:0 30 1 * * *}")
+    public void runDaily() {
+        accrue(LocalDate.now());
+    }
+
+    /** Reprise d'un passage interrompu (arrêt du serveur pendant l'arrêté). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<LocalDate> pending = jdbcTemplate.queryForList(
+                "SELECT run_date FROM loan_accrual_checkpoint WHERE finished_at IS NULL ORDER BY run_date",
+                LocalDate.class);
+        for (LocalDate runDate : pending) {
+            log.info("Resuming interrupted loan accrual of {}", runDate);
+            accrue(runDate);
+        }
+    }
+
+    /** Arrêté à la date donnée ; sans effet si ce passage est déjà terminé. */
+    public synchronized Run accrue(LocalDate asOf) {
+        Checkpoint checkpoint = checkpoint(asOf);
+        if (checkpoint.finished()) return lastRun;
+
+        long start = System.nanoTime();
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        long totalScanned = 0;
+        long totalUpdated = 0;
+        long from = checkpoint.lastLoanId();
+        long window = (long) chunkSize * parallelism;
+        while (from < checkpoint.maxLoanId()) {
+            long low = from;
+            long high = Math.min(checkpoint.maxLoanId(), low + window);
+            pool.submit(() -> LongStream.iterate(low, l -> l < high, l -> l + chunkSize).parallel()
+                            .forEach(l -> accrueChunk(asOf, l, Math.min(high, l + chunkSize), scanned, updated)))
+                    .join();
+            long windowScanned = scanned.getAndSet(0);
+            long windowUpdated = updated.getAndSet(0);
+            loansAccrued.increment(windowScanned);
+            totalScanned += windowScanned;
+            totalUpdated += windowUpdated;
+            from = high;
+            jdbcTemplate.update("""
+                    UPDATE loan_accrual_checkpoint
+                       SET last_loan_id = ?, rows_scanned = rows_scanned + ?, rows_updated = rows_updated + ?
+                     WHERE run_date = ?
+                    """, from, windowScanned, windowUpdated, Date.valueOf(asOf));
+        }
+        jdbcTemplate.update("UPDATE loan_accrual_checkpoint SET finished_at = ? WHERE run_date = ?",
+                Timestamp.valueOf(LocalDateTime.now()), Date.valueOf(asOf));
+
+        long nanos = System.nanoTime() - start;
+        runTimer.record(nanos, TimeUnit.NANOSECONDS);
+        long millis = nanos / 1_000_000;
+        Run run = new Run(asOf, totalScanned, totalUpdated, millis,
+                millis == 0 ? totalScanned : totalScanned * 1000.0 / millis);
+        lastRun = run;
+        log.info("Loan accrual of {} done: {} loans scanned, {} updated in {} ms, {} rows/s",
+                asOf, run.rowsScanned(), run.rowsUpdated(), millis, Math.round(run.rowsPerSecond()));
+        return run;
+    }
+
+    private void accrueChunk(LocalDate asOf, long low, long high, AtomicLong scanned, AtomicLong updated) {
+        List<Loan> changed = new ArrayList<>();
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            scanned.incrementAndGet();
+            Date repayment = rs.getDate(5);
+            Date due = rs.getDate(4);
+            Loan loan = Loan.builder()
+                    .id(rs.getLong(1))
+                    .amount(rs.getBigDecimal(2))
+                    .interestRate(rs.getDouble(3))
+                    .dueDate(due == null ? null : due.toLocalDate())
+                    .repaymentDate(repayment == null ? null : repayment.toLocalDate())
+                    .totalToRepay(rs.getBigDecimal(6))
+                    .delayDays(rs.getInt(7))
+                    .penaltyAmount(rs.getBigDecimal(8))
+                    .status(rs.getString(9))
+                    .build();
+            if (loan.getAmount() != null && loan.accrue(asOf)) changed.add(loan);
+        }, low, high);
+        chunks.increment();
+        if (changed.isEmpty()) return;
+        jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Loan loan = changed.get(i);
+                ps.setBigDecimal(1, loan.getTotalToRepay());
+                ps.setInt(2, loan.getDelayDays());
+                ps.setBigDecimal(3, loan.getPenaltyAmount());
+                ps.setString(4, loan.getStatus());
+                ps.setLong(5, loan.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changed.size();
+            }
+        });
+        updated.addAndGet(changed.size());
+        loansUpdated.increment(changed.size());
+    }
+
+    // Point de reprise du jour, créé avec la borne haute des ids au premier lancement
+    private Checkpoint checkpoint(LocalDate asOf) {
+        List<Checkpoint> existing = jdbcTemplate.query("""
+                SELECT last_loan_id, max_loan_id, finished_at
+                  FROM loan_accrual_checkpoint WHERE run_date = ?
+                """, (rs, i) -> new Checkpoint(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3) != null),
+                Date.valueOf(asOf));
+        if (!existing.isEmpty()) return existing.get(0);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM loan", Long.class);
+        long max = maxId == null ? 0 : maxId;
+        jdbcTemplate.update("""
+                INSERT INTO loan_accrual_checkpoint (run_date, last_loan_id, max_loan_id, rows_scanned, rows_updated, started_at)
+                VALUES (?, 0, ?, 0, 0, ?)
+                """, Date.valueOf(asOf), max, Timestamp.valueOf(LocalDateTime.now()));
+        return new Checkpoint(0, max, false);
+    }
+
+    private record Checkpoint(long lastLoanId, long maxLoanId, boolean finished) {
+    }
+}
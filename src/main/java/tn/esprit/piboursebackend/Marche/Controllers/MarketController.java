@@ -0,0 +1,45 @@
+package tn.esprit.piboursebackend.Marche.Controllers;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.piboursebackend.Marche.Services.MarketClock;
+import tn.esprit.piboursebackend.Marche.Services.MarketSessionService;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/markets")
+public class MarketController {
+
+    private final MarketSessionService marketSessionService;
+    private final MarketClock marketClock;
+
+    public MarketController(MarketSessionService marketSessionService, MarketClock marketClock) {
+        this.marketSessionService = marketSessionService;
+        this.marketClock = marketClock;
+    }
+
+    @PostMapping("/{id}/open")
+    public void openSession(@PathVariable Long id) {
+        marketSessionService.openSession(id);
+    }
+
+    // Renvoie le nombre d'ordres DAY expirés
+    @PostMapping("/{id}/close")
+    public int closeSession(@PathVariable Long id) {
+        return marketSessionService.closeSession(id);
+    }
+
+    // Date simulée courante du marché
+    @GetMapping("/{id}/clock")
+    public LocalDateTime clock(@PathVariable Long id) {
+        return marketClock.now(id);
+    }
+
+    // Avance rapide (backtest) ; renvoie le nombre d'échéances déclenchées
+    @PostMapping("/{id}/clock/fast-forward")
+    public int fastForward(@PathVariable Long id,
+                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+        return marketClock.fastForward(id, until);
+    }
+}
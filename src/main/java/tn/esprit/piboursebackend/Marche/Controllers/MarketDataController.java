@@ -0,0 +1,76 @@
+package tn.esprit.piboursebackend.Marche.Controllers;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tn.esprit.piboursebackend.Marche.Dto.CandleDto;
+import tn.esprit.piboursebackend.Marche.Dto.MarketDataMessage;
+import tn.esprit.piboursebackend.Marche.Entity.CandleInterval;
+import tn.esprit.piboursebackend.Marche.Services.CandleAggregator;
+import tn.esprit.piboursebackend.Marche.Services.DepthCache;
+import tn.esprit.piboursebackend.Marche.Services.MarketDataFeed;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/marketdata")
+public class MarketDataController {
+
+    private final MarketDataFeed marketDataFeed;
+    private final DepthCache depthCache;
+    private final CandleAggregator candleAggregator;
+
+    public MarketDataController(MarketDataFeed marketDataFeed, DepthCache depthCache,
+                                CandleAggregator candleAggregator) {
+        this.marketDataFeed = marketDataFeed;
+        this.depthCache = depthCache;
+        this.candleAggregator = candleAggregator;
+    }
+
+    // Flux SSE : événement "snapshot" puis "update" ; channel = l1 ou depth
+    @GetMapping(value = "/{stockId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable Long stockId, @RequestParam(defaultValue = "l1") String channel) {
+        return marketDataFeed.subscribe(stockId, parse(c -> MarketDataFeed.Channel.valueOf(c.toUpperCase(Locale.ROOT)),
+                channel, "Canal"));
+    }
+
+    // Profondeur agrégée par niveau, servie par le cache mémoire (remplace les requêtes top 50 triées)
+    @GetMapping("/{stockId}/depth")
+    public MarketDataMessage depth(@PathVariable Long stockId, @RequestParam(defaultValue = "20") int levels) {
+        return depthCache.depth(stockId, levels);
+    }
+
+    // Bougies pré-agrégées (interval = 1s, 1m, 5m, 1h, 1d) ; par défaut les 24 dernières heures
+    @GetMapping("/{stockId}/candles")
+    public List<CandleDto> candles(@PathVariable Long stockId,
+                                   @RequestParam(defaultValue = "1m") String interval,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return candleAggregator.candles(stockId, parse(CandleInterval::fromCode, interval, "Intervalle"), start, end);
+    }
+
+    // Canal ou intervalle inconnu : 400 (indépendant de l'Accept, un client SSE le reçoit aussi)
+    private static <T> T parse(Function<String, T> parser, String value, String what) {
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, what + " inconnu : " + value);
+        }
+    }
+
+    // Symbole inconnu : 404 sans corps, valable aussi pour un client SSE
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<Void> notFound() {
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,19 @@
+package tn.esprit.piboursebackend.Marche.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class CandleDto {
+    private LocalDateTime dateTime;     // début de la barre
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private Long volume;
+    private boolean closed;             // false : barre en cours, encore en mémoire
+}
@@ -0,0 +1,16 @@
+package tn.esprit.piboursebackend.Marche.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Clôture d'une barre, projection légère de PriceHistory pour les calculs de rendements. */
+@Getter
+@AllArgsConstructor
+public class ClosePoint {
+    private Long stockId;
+    private LocalDateTime dateTime;
+    private BigDecimal closePrice;
+}
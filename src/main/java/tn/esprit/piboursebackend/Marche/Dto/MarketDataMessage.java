@@ -0,0 +1,97 @@
+package tn.esprit.piboursebackend.Marche.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message du flux de marché d'un symbole.
+ * snapshot : profondeur complète à la séquence donnée ; update : L1, niveaux modifiés
+ * (quantité agrégée absolue, 0 = niveau supprimé) et trades, séquence précédente + 1.
+ * Sur le canal depth, un trou de séquence impose de repartir d'un snapshot.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MarketDataMessage {
+    private Long stockId;
+    private long sequence;
+    private boolean snapshot;
+    private BigDecimal bestBid;
+    private BigDecimal bestBidQuantity;
+    private BigDecimal bestAsk;
+    private BigDecimal bestAskQuantity;
+    private BigDecimal last;
+    private List<Level> bids;
+    private List<Level> asks;
+    private List<Tick> trades;
+    private LocalDateTime time;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Level {
+        private BigDecimal price;
+        private BigDecimal quantity;
+        private int orders;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Tick {
+        private BigDecimal price;
+        private BigDecimal quantity;
+        private OrderSide aggressor;
+    }
+
+    /** Conversion d'une mise à jour du moteur ; sans depth, seuls L1 et trades sont repris. */
+    public static MarketDataMessage of(BookUpdate update, boolean depth) {
+        return MarketDataMessage.builder()
+                .stockId(update.getStockId())
+                .sequence(update.getSequence())
+                .snapshot(update.isSnapshot())
+                .bestBid(price(update.getBestBid()))
+                .bestBidQuantity(quantity(update.getBestBid(), update.getBestBidQuantity()))
+                .bestAsk(price(update.getBestAsk()))
+                .bestAskQuantity(quantity(update.getBestAsk(), update.getBestAskQuantity()))
+                .last(price(update.getLastPrice()))
+                .bids(depth ? levels(update.getBidPrices(), update.getBidQuantities(), update.getBidOrders()) : null)
+                .asks(depth ? levels(update.getAskPrices(), update.getAskQuantities(), update.getAskOrders()) : null)
+                .trades(update.getTrades().isEmpty() ? null : ticks(update.getTrades()))
+                .time(update.getTime())
+                .build();
+    }
+
+    private static BigDecimal price(long value) {
+        return value == FixedPoint.NULL ? null : FixedPoint.toBigDecimal(value);
+    }
+
+    private static BigDecimal quantity(long price, long quantity) {
+        return price == FixedPoint.NULL ? null : FixedPoint.toBigDecimal(quantity);
+    }
+
+    private static List<Level> levels(long[] prices, long[] quantities, int[] orders) {
+        List<Level> levels = new ArrayList<>(prices.length);
+        for (int i = 0; i < prices.length; i++) {
+            levels.add(new Level(FixedPoint.toBigDecimal(prices[i]), FixedPoint.toBigDecimal(quantities[i]), orders[i]));
+        }
+        return levels;
+    }
+
+    private static List<Tick> ticks(List<Fill> fills) {
+        List<Tick> ticks = new ArrayList<>(fills.size());
+        for (Fill f : fills) {
+            ticks.add(new Tick(FixedPoint.toBigDecimal(f.getPrice()), FixedPoint.toBigDecimal(f.getQuantity()), f.getTakerSide()));
+        }
+        return ticks;
+    }
+}
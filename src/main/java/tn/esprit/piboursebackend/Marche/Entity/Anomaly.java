@@ -2,6 +2,7 @@ package tn.esprit.piboursebackend.Marche.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import tn.esprit.piboursebackend.Player.Entities.Player;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -18,11 +19,15 @@ public class Anomaly {
     private Long id;
 
     private LocalDateTime detectedAt;
-    private String type;             // PUMP_AND_DUMP, SPOOFING, etc.
+    private String type;             // PUMP_AND_DUMP, SPOOFING, WASH_TRADING
     private BigDecimal severity;         // Score d’anomalie
     private String description;      // Détails
 
     @ManyToOne
     @JoinColumn(name = "stock_id")
     private Stock stock;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "player_id")
+    private Player player;           // joueur en cause, null pour une anomalie de marché
 }
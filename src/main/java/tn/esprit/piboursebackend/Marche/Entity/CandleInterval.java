@@ -0,0 +1,43 @@
+package tn.esprit.piboursebackend.Marche.Entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/** Périodes des bougies OHLCV ; une barre commence à l'heure tronquée à sa période. */
+public enum CandleInterval {
+    S1("1s", 1),
+    M1("1m", 60),
+    M5("5m", 300),
+    H1("1h", 3_600),
+    D1("1d", 86_400);
+
+    private final String code;
+    private final long seconds;
+
+    CandleInterval(String code, long seconds) {
+        this.code = code;
+        this.seconds = seconds;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    /** Début de la barre contenant t. */
+    public LocalDateTime start(LocalDateTime t) {
+        LocalDateTime day = t.truncatedTo(ChronoUnit.DAYS);
+        long s = ChronoUnit.SECONDS.between(day, t);
+        return day.plusSeconds(s - s % seconds);
+    }
+
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval i : values()) {
+            if (i.code.equalsIgnoreCase(code) || i.name().equalsIgnoreCase(code)) return i;
+        }
+        throw new IllegalArgumentException("Intervalle de bougie inconnu : " + code);
+    }
+}
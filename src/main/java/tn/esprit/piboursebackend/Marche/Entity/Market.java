@@ -19,6 +19,7 @@ public class Market {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "`current_date`")     // mot réservé (MySQL, H2)
     private LocalDateTime currentDate;    // Date courante simulée
     private Boolean isOpen;               // Marché ouvert/fermé
     private BigDecimal timeCompressionRatio;  // Ex: 1h réelle = 1 semaine simulée
@@ -12,13 +12,18 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_price_history_bar",
+        columnNames = {"stock_id", "bar_interval", "date_time"}))
 public class PriceHistory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private LocalDateTime dateTime;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bar_interval", length = 3)
+    private CandleInterval barInterval;     // "interval" est un mot réservé MySQL
+
+    private LocalDateTime dateTime;         // début de la barre
     private BigDecimal openPrice;
     private BigDecimal closePrice;
     private BigDecimal highPrice;
@@ -8,6 +8,7 @@ import tn.esprit.piboursebackend.Portfolio.Entity.Position;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
 @Getter
@@ -15,6 +16,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(indexes = @Index(name = "idx_stock_symbol_key", columnList = "symbol_key"))
 public class Stock {
 
     @Id
@@ -22,6 +24,11 @@ public class Stock {
     private Long id;
 
     private String symbol;            // Ex: AAPL
+
+    // Symbole normalisé (majuscules, sans espaces) : recherche indexée, sans UPPER() sur la colonne
+    @Column(name = "symbol_key")
+    private String symbolKey;
+
     private String companyName;       // Nom de l’entreprise
     private String sector;            // Ex: Technology
     private BigDecimal marketCap;         // Capitalisation boursière
@@ -36,4 +43,14 @@ public class Stock {
 
    /* @OneToOne(mappedBy = "stock", cascade = CascadeType.ALL)
     private OrderBook orderBook;      // Lien vers le carnet d’ordres*/
+
+    @PrePersist
+    @PreUpdate
+    public void normalizeSymbol() {
+        symbolKey = normalize(symbol);
+    }
+
+    public static String normalize(String symbol) {
+        return symbol == null ? null : symbol.trim().toUpperCase(Locale.ROOT);
+    }
 }
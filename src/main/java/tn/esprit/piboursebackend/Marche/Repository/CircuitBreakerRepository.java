@@ -0,0 +1,21 @@
+package tn.esprit.piboursebackend.Marche.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Marche.Entity.CircuitBreaker;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CircuitBreakerRepository extends JpaRepository<CircuitBreaker, Long> {
+
+    List<CircuitBreaker> findByActiveTrue();
+
+    @Modifying
+    @Query("UPDATE CircuitBreaker c SET c.active = false WHERE c.id IN :ids")
+    int deactivate(@Param("ids") Collection<Long> ids);
+}
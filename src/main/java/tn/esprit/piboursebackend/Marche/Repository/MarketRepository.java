@@ -0,0 +1,21 @@
+package tn.esprit.piboursebackend.Marche.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Marche.Entity.Market;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface MarketRepository extends JpaRepository<Market, Long> {
+
+    // Date simulée écrite par l'horloge de marché
+    @Transactional
+    @Modifying
+    @Query("UPDATE Market m SET m.currentDate = :date WHERE m.id = :id")
+    int updateCurrentDate(@Param("id") Long id, @Param("date") LocalDateTime date);
+}
@@ -0,0 +1,14 @@
+package tn.esprit.piboursebackend.Marche.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Marche.Entity.OrderBook;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderBookRepository extends JpaRepository<OrderBook, Long> {
+
+    List<OrderBook> findByStockIdIn(Collection<Long> stockIds);
+}
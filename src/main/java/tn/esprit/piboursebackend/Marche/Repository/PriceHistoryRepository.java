@@ -0,0 +1,29 @@
+package tn.esprit.piboursebackend.Marche.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Marche.Dto.ClosePoint;
+import tn.esprit.piboursebackend.Marche.Entity.CandleInterval;
+import tn.esprit.piboursebackend.Marche.Entity.PriceHistory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long> {
+
+    // Barres pré-agrégées pour les graphiques (index unique stock / intervalle / début)
+    List<PriceHistory> findByStockIdAndBarIntervalAndDateTimeBetweenOrderByDateTimeAsc(
+            Long stockId, CandleInterval barInterval, LocalDateTime from, LocalDateTime to);
+
+    // Dernière barre avant une date (clôture de la veille pour les coupe-circuits)
+    Optional<PriceHistory> findFirstByStockIdAndBarIntervalAndDateTimeBeforeOrderByDateTimeDesc(
+            Long stockId, CandleInterval barInterval, LocalDateTime before);
+
+    // Clôtures de tous les titres depuis une date (matrice de rendements du calcul de risque)
+    @Query("SELECT new tn.esprit.piboursebackend.Marche.Dto.ClosePoint(p.stock.id, p.dateTime, p.closePrice) "
+            + "FROM PriceHistory p WHERE p.barInterval = :barInterval AND p.dateTime >= :since ORDER BY p.dateTime")
+    List<ClosePoint> findCloses(CandleInterval barInterval, LocalDateTime since);
+}
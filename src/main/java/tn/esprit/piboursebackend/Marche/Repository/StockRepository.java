@@ -0,0 +1,15 @@
+package tn.esprit.piboursebackend.Marche.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+
+import java.util.List;
+
+@Repository
+public interface StockRepository extends JpaRepository<Stock, Long> {
+
+    @Query("SELECT s.id FROM Stock s")
+    List<Long> findAllIds();
+}
@@ -0,0 +1,240 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Détection incrémentale d'anomalies sur le flux ordres / annulations / trades.
+ * Un seul thread l'alimente ; chaque événement coûte O(1) amorti : fenêtres glissantes découpées
+ * en seaux d'une seconde, état borné par joueur (nombre de joueurs suivis plafonné) et par symbole.
+ * - SPOOFING : beaucoup d'annulations pour peu d'exécutions sur la fenêtre (ratio annulations / fills).
+ * - WASH_TRADING : trade dont l'acheteur et le vendeur sont le même joueur.
+ * - PUMP_AND_DUMP : variation de prix rapide accompagnée d'un pic de volume par rapport à la moyenne.
+ * Une même alerte n'est pas répétée pendant le délai de grâce. Temps en ms fournis par l'appelant.
+ */
+public class AnomalyDetector {
+
+    public enum Type { SPOOFING, WASH_TRADING, PUMP_AND_DUMP }
+
+    public record Finding(Type type, long stockId, long playerId, double severity, String description, long time) {
+    }
+
+    public record Settings(int windowSeconds, int spoofMinCancels, double spoofRatio,
+                           int velocitySeconds, int baselineSeconds, double velocityPercent,
+                           double volumeMultiple, long cooldownMs, int maxPlayers) {
+
+        public static Settings defaults() {
+            return new Settings(60, 20, 10, 10, 300, 5, 5, 60_000, 100_000);
+        }
+    }
+
+    private final Settings settings;
+    private final Consumer<Finding> findings;
+    private final Map<Long, PlayerStats> players = new HashMap<>();
+    private final Map<Long, SymbolStats> symbols = new HashMap<>();
+    private long events;
+    private long untracked;             // événements de joueurs ignorés faute de place
+    private long lastSweep;
+
+    public AnomalyDetector(Settings settings, Consumer<Finding> findings) {
+        this.settings = settings;
+        this.findings = findings;
+    }
+
+    public void onOrder(long time, long stockId, long playerId) {
+        events++;
+        PlayerStats p = player(playerId, time);
+        if (p != null) p.orders.add(second(time), 1);
+    }
+
+    public void onCancel(long time, long stockId, long playerId) {
+        events++;
+        PlayerStats p = player(playerId, time);
+        if (p == null) return;
+        long s = second(time);
+        p.cancels.add(s, 1);
+        long cancels = p.cancels.total(s);
+        long fills = p.fills.total(s);
+        if (cancels >= settings.spoofMinCancels() && cancels >= settings.spoofRatio() * Math.max(1, fills)
+                && p.mayAlert(Type.SPOOFING, time, settings.cooldownMs())) {
+            findings.accept(new Finding(Type.SPOOFING, stockId, playerId, (double) cancels / Math.max(1, fills),
+                    "Joueur " + playerId + " : " + cancels + " annulations pour " + fills + " exécutions en "
+                            + settings.windowSeconds() + " s", time));
+        }
+    }
+
+    /** Prix et quantité en virgule fixe ; buyer / seller = 0 si inconnus. */
+    public void onTrade(long time, long stockId, long price, long quantity, long buyer, long seller) {
+        events++;
+        long s = second(time);
+        PlayerStats b = player(buyer, time);
+        PlayerStats v = buyer == seller ? b : player(seller, time);
+        if (b != null) b.fills.add(s, 1);
+        if (v != null && v != b) v.fills.add(s, 1);
+        if (buyer != 0 && buyer == seller && b != null) {
+            b.washes.add(s, 1);
+            if (b.mayAlert(Type.WASH_TRADING, time, settings.cooldownMs())) {
+                findings.accept(new Finding(Type.WASH_TRADING, stockId, buyer, b.washes.total(s),
+                        "Joueur " + buyer + " achète à lui-même (" + b.washes.total(s) + " trades en "
+                                + settings.windowSeconds() + " s)", time));
+            }
+        }
+
+        SymbolStats sym = symbols.computeIfAbsent(stockId, id -> new SymbolStats(settings));
+        sym.trade(s, price, quantity);
+        long reference = sym.priceAgo(s);
+        if (reference <= 0) return;
+        double move = 100.0 * (price - reference) / reference;
+        if (Math.abs(move) < settings.velocityPercent()) return;
+        long recent = sym.shortVolume.total(s);
+        long older = sym.longVolume.total(s) - recent;
+        double slices = (double) (settings.baselineSeconds() - settings.velocitySeconds()) / settings.velocitySeconds();
+        double baseline = older / slices;
+        if (older > 0 && recent >= settings.volumeMultiple() * baseline && time - sym.lastAlert >= settings.cooldownMs()) {
+            sym.lastAlert = time;
+            findings.accept(new Finding(Type.PUMP_AND_DUMP, stockId, 0, Math.abs(move) * recent / baseline,
+                    String.format("%s de %.1f %% en %d s avec un volume %.1f fois supérieur à la moyenne",
+                            move > 0 ? "Hausse" : "Baisse", Math.abs(move), settings.velocitySeconds(),
+                            recent / baseline), time));
+        }
+    }
+
+    public long events() {
+        return events;
+    }
+
+    public long untracked() {
+        return untracked;
+    }
+
+    public int trackedPlayers() {
+        return players.size();
+    }
+
+    private static long second(long time) {
+        return Math.floorDiv(time, 1000);
+    }
+
+    private PlayerStats player(long playerId, long time) {
+        if (playerId == 0) return null;
+        PlayerStats p = players.get(playerId);
+        if (p == null) {
+            if (players.size() >= settings.maxPlayers() && !evictIdle(time)) {
+                untracked++;
+                return null;
+            }
+            p = new PlayerStats(settings.windowSeconds());
+            players.put(playerId, p);
+        }
+        p.lastSeen = time;
+        return p;
+    }
+
+    // Oublie les joueurs inactifs depuis plus d'une fenêtre ; au plus un balayage par seconde
+    private boolean evictIdle(long time) {
+        if (time - lastSweep < 1000) return false;
+        lastSweep = time;
+        long idleBefore = time - settings.windowSeconds() * 1000L;
+        for (Iterator<PlayerStats> it = players.values().iterator(); it.hasNext(); ) {
+            if (it.next().lastSeen < idleBefore) it.remove();
+        }
+        return players.size() < settings.maxPlayers();
+    }
+
+    /** Compteur sur une fenêtre glissante de n secondes, en seaux d'une seconde. */
+    static final class Window {
+        private final long[] buckets;
+        private long total;
+        private long last = Long.MIN_VALUE;
+
+        Window(int seconds) {
+            this.buckets = new long[seconds];
+        }
+
+        void add(long second, long value) {
+            advance(second);
+            buckets[(int) Math.floorMod(last, buckets.length)] += value;    // événement en retard : seau courant
+            total += value;
+        }
+
+        long total(long second) {
+            advance(second);
+            return total;
+        }
+
+        private void advance(long second) {
+            if (last == Long.MIN_VALUE) {
+                last = second;
+                return;
+            }
+            if (second <= last) return;
+            long steps = Math.min(second - last, buckets.length);
+            for (long i = 1; i <= steps; i++) {
+                int b = (int) Math.floorMod(last + i, buckets.length);
+                total -= buckets[b];
+                buckets[b] = 0;
+            }
+            last = second;
+        }
+    }
+
+    private static final class PlayerStats {
+        final Window orders;
+        final Window cancels;
+        final Window fills;
+        final Window washes;
+        final long[] lastAlert = new long[Type.values().length];
+        long lastSeen;
+
+        PlayerStats(int windowSeconds) {
+            orders = new Window(windowSeconds);
+            cancels = new Window(windowSeconds);
+            fills = new Window(windowSeconds);
+            washes = new Window(windowSeconds);
+            Arrays.fill(lastAlert, Long.MIN_VALUE / 2);
+        }
+
+        boolean mayAlert(Type type, long time, long cooldownMs) {
+            if (time - lastAlert[type.ordinal()] < cooldownMs) return false;
+            lastAlert[type.ordinal()] = time;
+            return true;
+        }
+    }
+
+    private static final class SymbolStats {
+        final Window shortVolume;
+        final Window longVolume;
+        final long[] closes;        // dernier prix de chaque seconde, reporté sur les secondes sans trade
+        long lastSecond = Long.MIN_VALUE;
+        long lastPrice;
+        long lastAlert = Long.MIN_VALUE / 2;
+
+        SymbolStats(Settings settings) {
+            shortVolume = new Window(settings.velocitySeconds());
+            longVolume = new Window(settings.baselineSeconds());
+            closes = new long[settings.velocitySeconds() + 1];
+        }
+
+        void trade(long second, long price, long quantity) {
+            shortVolume.add(second, quantity);
+            longVolume.add(second, quantity);
+            if (lastSecond != Long.MIN_VALUE && second > lastSecond) {
+                long steps = Math.min(second - lastSecond, closes.length);
+                for (long i = 1; i < steps; i++) {
+                    closes[(int) Math.floorMod(lastSecond + i, closes.length)] = lastPrice;
+                }
+            }
+            if (second >= lastSecond) lastSecond = second;
+            lastPrice = price;
+            closes[(int) Math.floorMod(lastSecond, closes.length)] = price;
+        }
+
+        /** Prix à la fin de la seconde située velocitySeconds plus tôt, 0 si pas encore d'historique. */
+        long priceAgo(long second) {
+            return closes[(int) Math.floorMod(second - (closes.length - 1), closes.length)];
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.piboursebackend.Marche.Dto.CandleDto;
+import tn.esprit.piboursebackend.Marche.Entity.CandleInterval;
+import tn.esprit.piboursebackend.Marche.Entity.PriceHistory;
+import tn.esprit.piboursebackend.Marche.Repository.PriceHistoryRepository;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MarketTime;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bougies OHLCV 1s/1m/5m/1h/1d construites au fil des trades publiés par le moteur.
+ * Chaque trade met à jour la barre courante de chaque intervalle (thread du séquenceur, sans I/O).
+ * Les périodes suivent l'heure simulée du marché du symbole, celle qui horodate le flux du moteur.
+ * Les barres terminées (trade dans la période suivante ou échéance passée) sont écrites en batch JDBC
+ * dans price_history ; l'upsert fusionne une barre déjà écrite en partie (arrêt en cours de période).
+ * Le volume étant cumulé par l'upsert, chaque batch est écrit dans une seule transaction : un échec
+ * n'en laisse aucune ligne appliquée et le batch peut être réécrit sans compter deux fois.
+ * Les graphiques lisent ces barres plus la barre en cours, jamais les trades bruts.
+ */
+@Service
+public class CandleAggregator implements MarketDataListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleAggregator.class);
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO price_history (stock_id, bar_interval, date_time, open_price, high_price, low_price,
+                                       close_price, volume)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE high_price = GREATEST(high_price, VALUES(high_price)),
+                                    low_price = LEAST(low_price, VALUES(low_price)),
+                                    close_price = VALUES(close_price),
+                                    volume = volume + VALUES(volume)
+            """;
+
+    private final MatchingEngine matchingEngine;
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final Map<Long, Bar[]> open = new ConcurrentHashMap<>();    // barre courante par intervalle
+    private final Queue<Bar> closed = new ConcurrentLinkedQueue<>();
+
+    public CandleAggregator(MatchingEngine matchingEngine, PriceHistoryRepository priceHistoryRepository,
+                            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            @Value("${pibourse.candles.batch-size:500}") int batchSize) {
+        this.matchingEngine = matchingEngine;
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        if (update.getTrades().isEmpty()) return;
+        Bar[] bars = open.computeIfAbsent(update.getStockId(), id -> new Bar[INTERVALS.length]);
+        synchronized (bars) {
+            for (Fill fill : update.getTrades()) {
+                for (int i = 0; i < INTERVALS.length; i++) {
+                    LocalDateTime start = INTERVALS[i].start(update.getTime());
+                    Bar bar = bars[i];
+                    if (bar != null && !bar.start.equals(start)) {
+                        closed.offer(bar);
+                        bar = null;
+                    }
+                    if (bar == null) {
+                        bars[i] = new Bar(update.getStockId(), INTERVALS[i], start, fill.getPrice(), fill.getQuantity());
+                    } else {
+                        bar.add(fill.getPrice(), fill.getQuantity());
+                    }
+                }
+            }
+        }
+    }
+
+    // --- Écriture des barres terminées ---
+
+    @Scheduled(fixedDelayString = "${pibourse.candles.flush-interval-ms:1000}")
+    public void flush() {
+        MarketTime time = matchingEngine.getMarketTime();
+        for (Map.Entry<Long, Bar[]> e : open.entrySet()) {
+            closeExpired(e.getValue(), time.now(e.getKey()));
+        }
+        write();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Barres en cours écrites telles quelles ; l'upsert les complétera au redémarrage
+        rollAll();
+    }
+
+    /** Ferme et écrit toutes les barres en cours (arrêt). */
+    public void rollAll() {
+        open.values().forEach(bars -> closeExpired(bars, LocalDateTime.MAX));
+        write();
+    }
+
+    /** Ferme et écrit les barres en cours des symboles d'un marché (clôture de sa séance simulée). */
+    public void roll(Collection<Long> stockIds) {
+        for (Long stockId : stockIds) {
+            Bar[] bars = open.get(stockId);
+            if (bars != null) closeExpired(bars, LocalDateTime.MAX);
+        }
+        write();
+    }
+
+    private void closeExpired(Bar[] bars, LocalDateTime now) {
+        synchronized (bars) {
+            for (int i = 0; i < bars.length; i++) {
+                Bar bar = bars[i];
+                if (bar != null && (now == LocalDateTime.MAX || !now.isBefore(bar.end()))) {
+                    closed.offer(bar);
+                    bars[i] = null;
+                }
+            }
+        }
+    }
+
+    private synchronized void write() {
+        List<Bar> pending = new ArrayList<>();
+        Bar bar;
+        while ((bar = closed.poll()) != null) pending.add(bar);
+        for (int i = 0; i < pending.size(); i += batchSize) {
+            writeBatch(pending.subList(i, Math.min(i + batchSize, pending.size())));
+        }
+    }
+
+    private void writeBatch(List<Bar> batch) {
+        try {
+            tx.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, b) -> {
+                ps.setLong(1, b.stockId);
+                ps.setString(2, b.interval.name());
+                ps.setTimestamp(3, Timestamp.valueOf(b.start));
+                ps.setBigDecimal(4, FixedPoint.toBigDecimal(b.open));
+                ps.setBigDecimal(5, FixedPoint.toBigDecimal(b.high));
+                ps.setBigDecimal(6, FixedPoint.toBigDecimal(b.low));
+                ps.setBigDecimal(7, FixedPoint.toBigDecimal(b.close));
+                ps.setLong(8, b.volumeUnits());
+            }));
+        } catch (RuntimeException e) {
+            // Transaction annulée : rien n'a été cumulé, le batch entier est réessayé au prochain passage
+            log.warn("Writing {} candles failed, will retry", batch.size(), e);
+            closed.addAll(batch);
+        }
+    }
+
+    // --- Lecture pour les graphiques ---
+
+    public List<CandleDto> candles(Long stockId, CandleInterval interval, LocalDateTime from, LocalDateTime to) {
+        List<CandleDto> candles = new ArrayList<>();
+        for (PriceHistory p : priceHistoryRepository
+                .findByStockIdAndBarIntervalAndDateTimeBetweenOrderByDateTimeAsc(stockId, interval, from, to)) {
+            candles.add(CandleDto.builder()
+                    .dateTime(p.getDateTime())
+                    .open(p.getOpenPrice())
+                    .high(p.getHighPrice())
+                    .low(p.getLowPrice())
+                    .close(p.getClosePrice())
+                    .volume(p.getVolume())
+                    .closed(true)
+                    .build());
+        }
+        Bar[] bars = open.get(stockId);
+        if (bars != null) {
+            synchronized (bars) {
+                Bar bar = bars[interval.ordinal()];
+                if (bar != null && !bar.start.isBefore(from) && !bar.start.isAfter(to)) {
+                    candles.add(bar.toDto());
+                }
+            }
+        }
+        return candles;
+    }
+
+    /** Barre en virgule fixe ; modifiée sous le verrou du tableau de son symbole. */
+    private static final class Bar {
+        final Long stockId;
+        final CandleInterval interval;
+        final LocalDateTime start;
+        final long open;
+        long high;
+        long low;
+        long close;
+        long volume;
+
+        Bar(Long stockId, CandleInterval interval, LocalDateTime start, long price, long quantity) {
+            this.stockId = stockId;
+            this.interval = interval;
+            this.start = start;
+            this.open = price;
+            this.high = price;
+            this.low = price;
+            this.close = price;
+            this.volume = quantity;
+        }
+
+        void add(long price, long quantity) {
+            if (price > high) high = price;
+            if (price < low) low = price;
+            close = price;
+            volume = FixedPoint.add(volume, quantity);
+        }
+
+        LocalDateTime end() {
+            return start.plusSeconds(interval.seconds());
+        }
+
+        // PriceHistory.volume est un entier : arrondi à l'unité la plus proche, une barre de 0,6 ne vaut pas 0
+        long volumeUnits() {
+            return FixedPoint.toUnits(volume);
+        }
+
+        CandleDto toDto() {
+            return CandleDto.builder()
+                    .dateTime(start)
+                    .open(FixedPoint.toBigDecimal(open))
+                    .high(FixedPoint.toBigDecimal(high))
+                    .low(FixedPoint.toBigDecimal(low))
+                    .close(FixedPoint.toBigDecimal(close))
+                    .volume(volumeUnits())
+                    .closed(false)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Marche.Entity.CandleInterval;
+import tn.esprit.piboursebackend.Marche.Entity.CircuitBreaker;
+import tn.esprit.piboursebackend.Marche.Entity.Market;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Marche.Repository.CircuitBreakerRepository;
+import tn.esprit.piboursebackend.Marche.Repository.MarketRepository;
+import tn.esprit.piboursebackend.Marche.Repository.PriceHistoryRepository;
+import tn.esprit.piboursebackend.Marche.Repository.StockRepository;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.TradingHalts;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Coupe-circuits par symbole, évalués sur chaque trade publié par le moteur.
+ * Pour chaque symbole on garde un prix de référence (clôture de la veille, sinon premier trade de
+ * la séance) et les prix de déclenchement de chaque niveau, calculés une fois : un trade coûte
+ * une comparaison. Un niveau franchi suspend la cotation (TradingHalts, lu par les séquenceurs)
+ * pour sa durée de pause, comptée en heure simulée du marché du symbole (MarketClock) ; 0 = jusqu'à
+ * la clôture. Déclenchements et levées sont écrits en différé dans CircuitBreaker.
+ */
+@Service
+public class CircuitBreakerMonitor implements MarketDataListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakerMonitor.class);
+
+    private record Event(Long stockId, int level, LocalDateTime at, boolean trigger) {
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final TradingHalts halts;
+    private final StockRepository stockRepository;
+    private final MarketRepository marketRepository;
+    private final MarketClock clock;
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final CircuitBreakerRepository circuitBreakerRepository;
+    private final BigDecimal[] thresholds;          // baisses en %, croissantes : 7, 13, 20
+    private final int[] pauseMinutes;
+    private final Map<Long, Tracker> trackers = new ConcurrentHashMap<>();
+    private final Map<Long, Long> markets = new ConcurrentHashMap<>();     // stockId -> marketId
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Long> activeRows = new HashMap<>();    // stockId -> ligne CircuitBreaker active
+
+    // Horloge paresseuse : elle dépend elle-même des séances, qui dépendent de ce suivi
+    public CircuitBreakerMonitor(MatchingEngine matchingEngine, StockRepository stockRepository,
+                                 MarketRepository marketRepository, @Lazy MarketClock clock,
+                                 PriceHistoryRepository priceHistoryRepository,
+                                 CircuitBreakerRepository circuitBreakerRepository,
+                                 @Value("${pibourse.circuit-breaker.thresholds:7,13,20}") BigDecimal[] thresholds,
+                                 @Value("${pibourse.circuit-breaker.pause-minutes:15,15,0}") int[] pauseMinutes) {
+        if (thresholds.length != pauseMinutes.length) {
+            throw new IllegalArgumentException("Un temps de pause par seuil de coupe-circuit est requis");
+        }
+        this.matchingEngine = matchingEngine;
+        this.halts = matchingEngine.halts();
+        this.stockRepository = stockRepository;
+        this.marketRepository = marketRepository;
+        this.clock = clock;
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.circuitBreakerRepository = circuitBreakerRepository;
+        this.thresholds = thresholds;
+        this.pauseMinutes = pauseMinutes;
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    // Références = clôtures de la veille (jour simulé du marché) ; les suspensions ne survivent pas à un redémarrage
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadReferences() {
+        List<CircuitBreaker> stale = circuitBreakerRepository.findByActiveTrue();
+        if (!stale.isEmpty()) {
+            circuitBreakerRepository.deactivate(stale.stream().map(CircuitBreaker::getId).toList());
+        }
+        Map<Long, LocalDate> days = new HashMap<>();
+        for (Market market : marketRepository.findAll()) {
+            LocalDate day = marketDay(market);
+            for (Stock stock : market.getStocks()) {
+                markets.put(stock.getId(), market.getId());
+                days.put(stock.getId(), day);
+            }
+        }
+        for (Long stockId : stockRepository.findAllIds()) {
+            LocalDateTime today = days.getOrDefault(stockId, LocalDate.now()).atStartOfDay();
+            priceHistoryRepository
+                    .findFirstByStockIdAndBarIntervalAndDateTimeBeforeOrderByDateTimeDesc(stockId, CandleInterval.D1, today)
+                    .ifPresent(bar -> trackers.putIfAbsent(stockId, new Tracker(FixedPoint.of(bar.getClosePrice()))));
+        }
+    }
+
+    /** Ouverture de séance : le dernier prix devient la référence, niveaux et suspensions remis à zéro. */
+    public void openSession(Long marketId, Collection<Long> stockIds) {
+        for (Long stockId : stockIds) {
+            markets.put(stockId, marketId);
+            Tracker previous = trackers.get(stockId);
+            long reference = previous == null ? FixedPoint.NULL : previous.last;
+            trackers.put(stockId, new Tracker(reference));
+            lift(stockId);
+        }
+    }
+
+    /** Clôture : les suspensions « jusqu'à la clôture » sont levées. */
+    public void closeSession(Collection<Long> stockIds) {
+        stockIds.forEach(this::lift);
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        if (update.getTrades().isEmpty()) return;
+        Tracker tracker = trackers.computeIfAbsent(update.getStockId(), id -> new Tracker(FixedPoint.NULL));
+        if (tracker.reference == FixedPoint.NULL) {
+            // Remplacé d'un bloc ; si une ouverture de séance vient de le remplacer, elle garde la main
+            Tracker seeded = new Tracker(update.getTrades().get(0).getPrice());
+            tracker = trackers.replace(update.getStockId(), tracker, seeded) ? seeded : trackers.get(update.getStockId());
+        }
+        tracker.last = update.getLastPrice();
+        long low = Long.MAX_VALUE;
+        for (Fill fill : update.getTrades()) {
+            low = Math.min(low, fill.getPrice());
+        }
+        int level = tracker.level;
+        while (level < thresholds.length && low <= tracker.triggers[level]) level++;
+        if (level > tracker.level) {
+            tracker.level = level;
+            int pause = pauseMinutes[level - 1];
+            halts.halt(update.getStockId(),
+                    pause == 0 ? TradingHalts.UNTIL_CLOSE : now(update.getStockId()) + pause * 60_000L);
+            events.offer(new Event(update.getStockId(), level, update.getTime(), true));
+            log.warn("Circuit breaker level {} triggered on stock {} at {} (reference {})", level,
+                    update.getStockId(), FixedPoint.toString(low), FixedPoint.toString(tracker.reference));
+        }
+    }
+
+    // --- Levées à échéance et écriture différée ---
+
+    @Scheduled(fixedDelayString = "${pibourse.circuit-breaker.check-interval-ms:1000}")
+    @Transactional
+    public void flush() {
+        for (Map.Entry<Long, Long> halt : halts.current().entrySet()) {
+            if (halt.getValue() <= now(halt.getKey())) lift(halt.getKey());
+        }
+        if (events.isEmpty()) return;
+        List<Long> expired = new ArrayList<>();
+        Event event;
+        synchronized (activeRows) {
+            while ((event = events.poll()) != null) {
+                Long previous = activeRows.remove(event.stockId());
+                if (previous != null) expired.add(previous);
+                if (event.trigger()) {
+                    activeRows.put(event.stockId(), circuitBreakerRepository.save(toEntity(event)).getId());
+                }
+            }
+        }
+        if (!expired.isEmpty()) circuitBreakerRepository.deactivate(expired);
+    }
+
+    // Heure simulée du marché du symbole ; heure réelle pour un symbole hors de tout marché cadencé
+    private long now(Long stockId) {
+        Long marketId = markets.get(stockId);
+        if (marketId != null) {
+            try {
+                return clock.nowMillis(marketId);
+            } catch (EntityNotFoundException e) {
+                // Marché pas encore enregistré auprès de l'horloge
+            }
+        }
+        return System.currentTimeMillis();
+    }
+
+    // Jour simulé du marché ; celui enregistré en base tant que l'horloge ne l'a pas chargé
+    private LocalDate marketDay(Market market) {
+        try {
+            return clock.now(market.getId()).toLocalDate();
+        } catch (EntityNotFoundException e) {
+            return market.getCurrentDate() != null ? market.getCurrentDate().toLocalDate() : LocalDate.now();
+        }
+    }
+
+    private void lift(Long stockId) {
+        if (halts.resume(stockId)) {
+            events.offer(new Event(stockId, 0, LocalDateTime.now(), false));
+            log.info("Trading resumed on stock {}", stockId);
+        }
+    }
+
+    private CircuitBreaker toEntity(Event event) {
+        int i = event.level() - 1;
+        return CircuitBreaker.builder()
+                .stock(stockRepository.getReferenceById(event.stockId()))
+                .dropPercentage(thresholds[i].negate())
+                .level(String.valueOf(event.level()))
+                .pauseDurationMinutes(pauseMinutes[i])
+                .triggeredAt(event.at())
+                .active(true)
+                .build();
+    }
+
+    /**
+     * Séance d'un symbole. Référence et seuils sont figés : une nouvelle référence (ouverture, premier trade)
+     * remplace le tracker entier dans la map, qui le publie. level n'est lu et écrit que par le séquenceur
+     * du symbole ; last est écrit par lui et relu à l'ouverture suivante.
+     */
+    private final class Tracker {
+        final long reference;
+        final long[] triggers;
+        volatile long last = FixedPoint.NULL;
+        int level;
+
+        Tracker(long reference) {
+            this.reference = reference;
+            this.triggers = new long[thresholds.length];
+            for (int i = 0; i < thresholds.length; i++) {
+                triggers[i] = reference == FixedPoint.NULL ? Long.MIN_VALUE
+                        : FixedPoint.of(FixedPoint.toBigDecimal(reference)
+                        .multiply(BigDecimal.valueOf(100).subtract(thresholds[i]))
+                        .divide(BigDecimal.valueOf(100), FixedPoint.SCALE, RoundingMode.HALF_UP));
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Marche.Dto.MarketDataMessage;
+import tn.esprit.piboursebackend.Marche.Entity.OrderBook;
+import tn.esprit.piboursebackend.Marche.Repository.OrderBookRepository;
+import tn.esprit.piboursebackend.Marche.Repository.StockRepository;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Vue mémoire de la profondeur agrégée par symbole (quantité totale et nombre d'ordres par niveau).
+ * Amorcée par un snapshot du séquenceur puis tenue à jour par les deltas du flux de marché,
+ * sur le thread du séquenceur. Un delta manquant (séquence non contiguë) fait réamorcer la vue. Les lectures (profondeur N, spread, liquidité) ne touchent ni la base
+ * ni le moteur : parcours des premiers niveaux d'une ConcurrentSkipListMap.
+ * currentPrice / spread / liquidity de l'entité OrderBook sont recopiés périodiquement.
+ * Une lecture ne crée d'entrée (et de carnet moteur) que pour un symbole existant en base.
+ */
+@Service
+public class DepthCache implements MarketDataListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DepthCache.class);
+
+    private record Level(long quantity, int orders) {
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final StockRepository stockRepository;
+    private final OrderBookRepository orderBookRepository;
+    private final Map<Long, Depth> depths = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public DepthCache(MatchingEngine matchingEngine, StockRepository stockRepository,
+                      OrderBookRepository orderBookRepository) {
+        this.matchingEngine = matchingEngine;
+        this.stockRepository = stockRepository;
+        this.orderBookRepository = orderBookRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    // Amorçage de tous les symboles connus ; les commandes attendent le démarrage des séquenceurs
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedAll() {
+        stockRepository.findAllIds().forEach(this::depthOf);
+    }
+
+    /** Profondeur agrégée (levels niveaux par côté, 0 = tous), cohérente niveau par niveau. */
+    public MarketDataMessage depth(Long stockId, int levels) {
+        Depth d = readable(stockId);
+        d.seeded.join();
+        Map.Entry<Long, Level> bid = d.bids.firstEntry();
+        Map.Entry<Long, Level> ask = d.asks.firstEntry();
+        return MarketDataMessage.builder()
+                .stockId(stockId)
+                .sequence(d.sequence)
+                .snapshot(true)
+                .bestBid(bid == null ? null : FixedPoint.toBigDecimal(bid.getKey()))
+                .bestBidQuantity(bid == null ? null : FixedPoint.toBigDecimal(bid.getValue().quantity()))
+                .bestAsk(ask == null ? null : FixedPoint.toBigDecimal(ask.getKey()))
+                .bestAskQuantity(ask == null ? null : FixedPoint.toBigDecimal(ask.getValue().quantity()))
+                .last(d.lastPrice == FixedPoint.NULL ? null : FixedPoint.toBigDecimal(d.lastPrice))
+                .bids(levels(d.bids, levels))
+                .asks(levels(d.asks, levels))
+                .time(matchingEngine.getMarketTime().now(stockId))
+                .build();
+    }
+
+    /** Meilleure offre - meilleure demande, null si un côté est vide. */
+    public BigDecimal spread(Long stockId) {
+        Depth d = readable(stockId);
+        d.seeded.join();
+        return d.spread();
+    }
+
+    /** Quantité totale au repos, achats + ventes. */
+    public BigDecimal liquidity(Long stockId) {
+        Depth d = readable(stockId);
+        d.seeded.join();
+        return FixedPoint.toBigDecimal(d.liquidity);
+    }
+
+    private static List<MarketDataMessage.Level> levels(NavigableMap<Long, Level> side, int levels) {
+        List<MarketDataMessage.Level> out = new ArrayList<>();
+        Iterator<Map.Entry<Long, Level>> it = side.entrySet().iterator();
+        while (it.hasNext() && (levels <= 0 || out.size() < levels)) {
+            Map.Entry<Long, Level> e = it.next();
+            out.add(new MarketDataMessage.Level(FixedPoint.toBigDecimal(e.getKey()),
+                    FixedPoint.toBigDecimal(e.getValue().quantity()), e.getValue().orders()));
+        }
+        return out;
+    }
+
+    // Identifiant venu d'une requête : pas d'entrée ni de carnet pour un symbole inconnu
+    private Depth readable(Long stockId) {
+        Depth d = depths.get(stockId);
+        if (d != null) return d;
+        if (!stockRepository.existsById(stockId)) {
+            throw new EntityNotFoundException("Stock introuvable : " + stockId);
+        }
+        return depthOf(stockId);
+    }
+
+    private Depth depthOf(Long stockId) {
+        Depth d = depths.get(stockId);
+        if (d != null) return d;
+        Depth created = new Depth();
+        d = depths.putIfAbsent(stockId, created);
+        if (d != null) return d;
+        // Jamais depuis le séquenceur lui-même : sa file peut être pleine
+        CompletableFuture.runAsync(() -> matchingEngine.depth(stockId, 0).whenComplete((snapshot, e) -> {
+            if (e != null) {
+                log.error("Depth cache seeding failed for stock {}", stockId, e);
+                depths.remove(stockId, created);
+                created.seeded.completeExceptionally(e);
+            } else {
+                created.seed(snapshot);
+                dirty.add(stockId);
+            }
+        }));
+        return created;
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        Depth d = depthOf(update.getStockId());
+        if (!d.apply(update)) {
+            // Vue écartée : les lecteurs attendent le nouveau snapshot, qui inclut ce delta
+            log.warn("Depth cache gap on stock {} ({} after {}), reseeding", update.getStockId(),
+                    update.getSequence(), d.sequence);
+            depths.remove(update.getStockId(), d);
+            depthOf(update.getStockId()).apply(update);
+        }
+        dirty.add(update.getStockId());
+    }
+
+    // --- Recopie dans l'entité OrderBook ---
+
+    @Scheduled(fixedDelayString = "${pibourse.depth.flush-interval-ms:1000}")
+    @Transactional
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        Set<Long> ids = new HashSet<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            Long id = it.next();
+            it.remove();
+            Depth d = depths.get(id);
+            if (d != null && d.seeded.isDone() && !d.seeded.isCompletedExceptionally()) ids.add(id);
+        }
+        if (ids.isEmpty()) return;
+        Map<Long, OrderBook> existing = orderBookRepository.findByStockIdIn(ids).stream()
+                .collect(Collectors.toMap(b -> b.getStock().getId(), Function.identity()));
+        List<OrderBook> changed = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Depth d = depths.get(id);
+            OrderBook book = existing.get(id);
+            if (book == null) {
+                if (!stockRepository.existsById(id)) continue;
+                book = OrderBook.builder().stock(stockRepository.getReferenceById(id)).build();
+            }
+            book.setCurrentPrice(d.lastPrice == FixedPoint.NULL ? book.getCurrentPrice() : FixedPoint.toBigDecimal(d.lastPrice));
+            book.setSpread(d.spread());
+            book.setLiquidity(FixedPoint.toBigDecimal(d.liquidity));
+            changed.add(book);
+        }
+        orderBookRepository.saveAll(changed);
+    }
+
+    /** Profondeur d'un symbole : un seul écrivain (séquenceur ou amorçage), lecteurs concurrents. */
+    private static final class Depth {
+        final ConcurrentSkipListMap<Long, Level> bids = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+        final ConcurrentSkipListMap<Long, Level> asks = new ConcurrentSkipListMap<>();
+        final CompletableFuture<Void> seeded = new CompletableFuture<>();
+        final List<BookUpdate> pending = new ArrayList<>();     // deltas arrivés avant le snapshot
+        volatile long sequence;
+        volatile long lastPrice = FixedPoint.NULL;
+        volatile long liquidity;
+
+        synchronized void seed(BookUpdate snapshot) {
+            bids.clear();
+            asks.clear();
+            liquidity = 0;
+            applyLevels(snapshot);
+            for (BookUpdate update : pending) {
+                if (update.getSequence() > snapshot.getSequence()) applyLevels(update);
+            }
+            pending.clear();
+            seeded.complete(null);
+        }
+
+        // false si des deltas manquent entre la vue et cette mise à jour (rien n'est appliqué)
+        synchronized boolean apply(BookUpdate update) {
+            if (!seeded.isDone()) {
+                pending.add(update);
+            } else if (update.getSequence() > sequence + 1) {
+                return false;
+            } else if (update.getSequence() > sequence) {
+                applyLevels(update);
+            }
+            return true;
+        }
+
+        private void applyLevels(BookUpdate update) {
+            long total = liquidity;
+            total += levels(bids, update.getBidPrices(), update.getBidQuantities(), update.getBidOrders());
+            total += levels(asks, update.getAskPrices(), update.getAskQuantities(), update.getAskOrders());
+            liquidity = total;
+            if (update.getLastPrice() != FixedPoint.NULL) lastPrice = update.getLastPrice();
+            sequence = update.getSequence();
+        }
+
+        // Quantités absolues : renvoie la variation de liquidité
+        private static long levels(NavigableMap<Long, Level> side, long[] prices, long[] quantities, int[] orders) {
+            long delta = 0;
+            for (int i = 0; i < prices.length; i++) {
+                Level old = quantities[i] == 0 ? side.remove(prices[i]) : side.put(prices[i], new Level(quantities[i], orders[i]));
+                delta += quantities[i] - (old == null ? 0 : old.quantity());
+            }
+            return delta;
+        }
+
+        BigDecimal spread() {
+            Map.Entry<Long, Level> bid = bids.firstEntry();
+            Map.Entry<Long, Level> ask = asks.firstEntry();
+            if (bid == null || ask == null) return null;
+            return FixedPoint.toBigDecimal(ask.getKey() - bid.getKey());
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Credit.Entity.LoanAccrualJob;
+import tn.esprit.piboursebackend.Marche.Entity.Market;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Marche.Repository.MarketRepository;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Horloge simulée des marchés : chaque marché avance de (temps réel écoulé x timeCompressionRatio)
+ * à partir de sa currentDate. Ouverture, clôture (expiration des ordres DAY et roulement des bougies)
+ * et arrêté quotidien des prêts sont des échéances d'une roue temporelle par marché, avancée par un
+ * seul thread "market-clock" ; les traitements partent sur un thread dédié, dans l'ordre.
+ * En mode manuel (backtest) rien n'avance seul : fastForward rejoue les échéances jusqu'à une date,
+ * de façon synchrone et aussi vite que possible.
+ * La séance est du lundi au vendredi entre open-time et close-time (heure simulée).
+ */
+@Service
+public class MarketClock {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketClock.class);
+
+    private final MarketRepository marketRepository;
+    private final MarketSessionService sessionService;
+    private final CandleAggregator candleAggregator;
+    private final LoanAccrualJob loanAccrualJob;
+    private final MatchingEngine matchingEngine;
+    private final boolean live;
+    private final long tickNanos;
+    private final long wheelTickMillis;
+    private final int wheelSize;
+    private final LocalTime openTime;
+    private final LocalTime closeTime;
+    private final Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Long, Long> markets = new ConcurrentHashMap<>();     // stockId -> marketId
+    private final ExecutorService events = Executors.newSingleThreadExecutor(r -> new Thread(r, "market-clock-events"));
+
+    private volatile Long accrualMarketId;      // l'arrêté des prêts suit le premier marché
+    private volatile boolean running;
+    private Thread thread;
+
+    public MarketClock(MarketRepository marketRepository, MarketSessionService sessionService,
+                       CandleAggregator candleAggregator, LoanAccrualJob loanAccrualJob, MatchingEngine matchingEngine,
+                       @Value("${pibourse.clock.live:true}") boolean live,
+                       @Value("${pibourse.clock.tick-ms:10}") long tickMs,
+                       @Value("${pibourse.clock.wheel-tick-ms:1000}") long wheelTickMillis,
+                       @Value("${pibourse.clock.wheel-size:65536}") int wheelSize,
+                       @Value("${pibourse.clock.open-time:09:00}") LocalTime openTime,
+                       @Value("${pibourse.clock.close-time:17:30}") LocalTime closeTime) {
+        this.marketRepository = marketRepository;
+        this.sessionService = sessionService;
+        this.candleAggregator = candleAggregator;
+        this.loanAccrualJob = loanAccrualJob;
+        this.matchingEngine = matchingEngine;
+        this.live = live;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.wheelTickMillis = wheelTickMillis;
+        this.wheelSize = wheelSize;
+        this.openTime = openTime;
+        this.closeTime = closeTime;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        for (Market market : marketRepository.findAll()) {
+            register(market);
+        }
+        // Flux du moteur, et donc bougies, horodatés à l'heure simulée du marché de chaque symbole
+        matchingEngine.setMarketTime(this::stockTime);
+        log.info("Market clock started for {} markets ({})", timelines.size(), live ? "live" : "manual");
+        if (live) {
+            running = true;
+            thread = new Thread(this::run, "market-clock");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) thread.join(1000);
+        events.shutdown();
+        events.awaitTermination(5, TimeUnit.SECONDS);
+        persist();
+    }
+
+    /** Démarre (ou redémarre) l'horloge d'un marché à partir de son état en base. */
+    public void register(Market market) {
+        LocalDateTime start = market.getCurrentDate() != null ? market.getCurrentDate() : LocalDateTime.now();
+        BigDecimal ratio = market.getTimeCompressionRatio() != null ? market.getTimeCompressionRatio() : BigDecimal.ONE;
+        Timeline timeline = new Timeline(market.getId(), millis(start), ratio.doubleValue(),
+                new TimerWheel<>(wheelTickMillis, wheelSize, millis(start)));
+        timelines.put(market.getId(), timeline);
+        for (Stock stock : market.getStocks()) {
+            markets.put(stock.getId(), market.getId());
+        }
+        if (accrualMarketId == null || market.getId() < accrualMarketId) accrualMarketId = market.getId();
+
+        synchronized (timeline) {
+            boolean open = Boolean.TRUE.equals(market.getOpen());
+            boolean inSession = inSession(start);
+            // État en base incohérent avec l'heure simulée : corrigé au premier tick
+            LocalDateTime nextOpen = inSession && !open ? start : nextOpen(start);
+            LocalDateTime nextClose = !inSession && open ? start : nextClose(start);
+            LocalDateTime midnight = start.toLocalDate().plusDays(1).atStartOfDay();
+            timeline.schedule(nextOpen, () -> open(timeline, nextOpen));
+            timeline.schedule(nextClose, () -> close(timeline, nextClose));
+            timeline.schedule(midnight, () -> endOfDay(timeline, midnight));
+        }
+    }
+
+    public LocalDateTime now(Long marketId) {
+        return dateTime(timeline(marketId).now);
+    }
+
+    // Thread du séquenceur : symbole hors marché (ou marché pas encore chargé) à l'heure réelle
+    private LocalDateTime stockTime(Long stockId) {
+        Long marketId = markets.get(stockId);
+        Timeline timeline = marketId == null ? null : timelines.get(marketId);
+        return timeline == null ? LocalDateTime.now() : dateTime(timeline.now);
+    }
+
+    /** Heure simulée d'un marché en millisecondes (UTC), pour les échéances exprimées en durée. */
+    public long nowMillis(Long marketId) {
+        return timeline(marketId).now;
+    }
+
+    /** Planifie une tâche à une date simulée ; déclenchée sur le thread des événements. */
+    public TimerWheel.Timeout<Runnable> schedule(Long marketId, LocalDateTime at, Runnable task) {
+        Timeline timeline = timeline(marketId);
+        synchronized (timeline) {
+            return timeline.schedule(at, task);
+        }
+    }
+
+    /**
+     * Avance immédiatement l'horloge d'un marché jusqu'à until (backtest, rattrapage) ; les échéances
+     * sont exécutées sur le thread appelant, dans l'ordre. Renvoie le nombre d'échéances déclenchées.
+     */
+    public int fastForward(Long marketId, LocalDateTime until) {
+        Timeline timeline = timeline(marketId);
+        synchronized (timeline) {
+            long target = millis(until);
+            if (target <= timeline.now) return 0;
+            long start = System.nanoTime();
+            timeline.now = target;
+            int fired = timeline.wheel.advance(target, Runnable::run);
+            timeline.lastNanos = System.nanoTime();
+            log.info("Market {} fast-forwarded to {}: {} events in {} ms", marketId, until, fired,
+                    (timeline.lastNanos - start) / 1_000_000);
+            return fired;
+        }
+    }
+
+    // --- Thread "market-clock" ---
+
+    private void run() {
+        long now = System.nanoTime();
+        for (Timeline timeline : timelines.values()) timeline.lastNanos = now;
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            for (Timeline timeline : timelines.values()) {
+                synchronized (timeline) {
+                    long nanos = System.nanoTime();
+                    long elapsed = nanos - timeline.lastNanos;
+                    long advance = (long) (elapsed / 1_000_000.0 * timeline.ratio);
+                    if (advance <= 0) continue;     // reliquat < 1 ms simulée : gardé pour le tick suivant
+                    timeline.lastNanos = nanos;
+                    timeline.now += advance;
+                    timeline.wheel.advance(timeline.now, events::execute);
+                }
+            }
+        }
+    }
+
+    // --- Échéances récurrentes ---
+
+    // Chaque échéance reçoit sa date simulée : en avance rapide, l'horloge est déjà au bout
+    private void open(Timeline timeline, LocalDateTime at) {
+        try {
+            sessionService.openSession(timeline.marketId);
+            log.debug("Market {} opened at {}", timeline.marketId, at);
+        } catch (RuntimeException e) {
+            log.warn("Opening market {} failed", timeline.marketId, e);
+        }
+        LocalDateTime next = nextOpen(at);
+        reschedule(timeline, next, () -> open(timeline, next));
+    }
+
+    private void close(Timeline timeline, LocalDateTime at) {
+        try {
+            sessionService.closeSession(timeline.marketId);
+            log.debug("Market {} closed at {}", timeline.marketId, at);
+            // Les bougies suivent l'heure simulée du marché : sa séance ferme les barres de ses symboles
+            candleAggregator.roll(stocks(timeline.marketId));
+        } catch (RuntimeException e) {
+            log.warn("Closing market {} failed", timeline.marketId, e);
+        }
+        LocalDateTime next = nextClose(at);
+        reschedule(timeline, next, () -> close(timeline, next));
+    }
+
+    private void endOfDay(Timeline timeline, LocalDateTime midnight) {
+        LocalDate day = midnight.toLocalDate().minusDays(1);
+        if (timeline.marketId.equals(accrualMarketId)) {
+            try {
+                loanAccrualJob.accrue(day);
+            } catch (RuntimeException e) {
+                log.warn("Loan accrual of {} failed", day, e);
+            }
+        }
+        LocalDateTime next = midnight.plusDays(1);
+        reschedule(timeline, next, () -> endOfDay(timeline, next));
+    }
+
+    private static void reschedule(Timeline timeline, LocalDateTime at, Runnable task) {
+        synchronized (timeline) {
+            timeline.schedule(at, task);
+        }
+    }
+
+    // --- Persistance de la date simulée ---
+
+    @Scheduled(fixedDelayString = "${pibourse.clock.persist-interval-ms:5000}")
+    public void persist() {
+        for (Timeline timeline : timelines.values()) {
+            marketRepository.updateCurrentDate(timeline.marketId, dateTime(timeline.now));
+        }
+    }
+
+    // --- Calendrier de séance ---
+
+    private boolean inSession(LocalDateTime t) {
+        return isTradingDay(t.toLocalDate()) && !t.toLocalTime().isBefore(openTime) && t.toLocalTime().isBefore(closeTime);
+    }
+
+    private LocalDateTime nextOpen(LocalDateTime after) {
+        return nextSessionTime(after, openTime);
+    }
+
+    private LocalDateTime nextClose(LocalDateTime after) {
+        return nextSessionTime(after, closeTime);
+    }
+
+    private static LocalDateTime nextSessionTime(LocalDateTime after, LocalTime time) {
+        LocalDate day = after.toLocalDate();
+        if (!after.toLocalTime().isBefore(time)) day = day.plusDays(1);
+        while (!isTradingDay(day)) day = day.plusDays(1);
+        return day.atTime(time);
+    }
+
+    private static boolean isTradingDay(LocalDate day) {
+        return day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    private List<Long> stocks(Long marketId) {
+        List<Long> stockIds = new ArrayList<>();
+        markets.forEach((stockId, id) -> {
+            if (id.equals(marketId)) stockIds.add(stockId);
+        });
+        return stockIds;
+    }
+
+    private Timeline timeline(Long marketId) {
+        Timeline timeline = timelines.get(marketId);
+        if (timeline == null) throw new EntityNotFoundException("Marché introuvable : " + marketId);
+        return timeline;
+    }
+
+    private static long millis(LocalDateTime t) {
+        return t.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime dateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    /** Temps simulé d'un marché ; modifié sous son verrou. */
+    private static final class Timeline {
+        final Long marketId;
+        final double ratio;
+        final TimerWheel<Runnable> wheel;
+        volatile long now;          // millisecondes simulées
+        long lastNanos = System.nanoTime();
+
+        Timeline(Long marketId, long now, double ratio, TimerWheel<Runnable> wheel) {
+            this.marketId = marketId;
+            this.now = now;
+            this.ratio = ratio;
+            this.wheel = wheel;
+        }
+
+        TimerWheel.Timeout<Runnable> schedule(LocalDateTime at, Runnable task) {
+            return wheel.schedule(millis(at), task);
+        }
+    }
+}
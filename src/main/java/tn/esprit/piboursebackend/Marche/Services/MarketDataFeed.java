@@ -0,0 +1,286 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tn.esprit.piboursebackend.Marche.Dto.MarketDataMessage;
+import tn.esprit.piboursebackend.Marche.Repository.StockRepository;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.RingBuffer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Diffusion du flux de marché par symbole (SSE), canaux l1 (meilleurs prix, dernier prix, trades)
+ * et depth (l1 + deltas de profondeur agrégée).
+ * Les séquenceurs déposent leurs mises à jour dans une file bornée sans jamais attendre ; un thread
+ * de publication encode chaque mise à jour une seule fois par canal et dépose la même trame dans la
+ * file bornée de chaque abonné, vidée par un petit pool d'envoi.
+ * Un abonné reçoit d'abord un snapshot pris par le séquenceur, puis les deltas de séquence supérieure.
+ * S'il prend du retard (file pleine) ou si une mise à jour a été perdue, il repart d'un nouveau snapshot.
+ */
+@Service
+public class MarketDataFeed implements MarketDataListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataFeed.class);
+
+    public enum Channel { L1, DEPTH }
+
+    private record Frame(long sequence, String name, String json) {
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final StockRepository stockRepository;
+    private final ObjectMapper objectMapper;
+    private final RingBuffer<BookUpdate> queue;
+    private final ExecutorService senders;
+    private final int subscriberQueue;
+    private final Map<Long, Topic> topics = new ConcurrentHashMap<>();
+    private final Queue<Topic> stale = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running;
+    private Thread publisher;
+
+    public MarketDataFeed(MatchingEngine matchingEngine, StockRepository stockRepository, ObjectMapper objectMapper,
+                          @Value("${pibourse.marketdata.queue-capacity:65536}") int queueCapacity,
+                          @Value("${pibourse.marketdata.sender-threads:4}") int senderThreads,
+                          @Value("${pibourse.marketdata.subscriber-queue:1024}") int subscriberQueue) {
+        this.matchingEngine = matchingEngine;
+        this.stockRepository = stockRepository;
+        this.objectMapper = objectMapper;
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.subscriberQueue = subscriberQueue;
+        AtomicInteger n = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "marketdata-sender-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        publisher = new Thread(this::run, "marketdata-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    // Avant l'arrêt gracieux du serveur, qui attendrait sinon la fin des flux ouverts
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        topics.values().forEach(t -> t.subscribers.forEach(s -> s.emitter.complete()));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(publisher);
+        publisher.join();
+        senders.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long stockId, Channel channel) {
+        // Ni sujet ni carnet moteur pour un symbole inconnu
+        if (!topics.containsKey(stockId) && !stockRepository.existsById(stockId)) {
+            throw new EntityNotFoundException("Stock introuvable : " + stockId);
+        }
+        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        Topic topic = topics.computeIfAbsent(stockId, Topic::new);
+        Subscriber subscriber = new Subscriber(topic, channel, emitter);
+        emitter.onCompletion(() -> topic.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> topic.subscribers.remove(subscriber));
+        emitter.onError(e -> topic.subscribers.remove(subscriber));
+        // Inscrit avant la demande de snapshot : aucun delta postérieur ne peut manquer
+        topic.subscribers.add(subscriber);
+        subscriber.resync();
+        return emitter;
+    }
+
+    // --- Thread du séquenceur : aucune attente ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        Topic topic = topics.get(update.getStockId());
+        if (topic == null || topic.subscribers.isEmpty()) return;
+        if (!queue.offer(update) && !topic.stale) {
+            topic.stale = true;
+            stale.offer(topic);
+        }
+    }
+
+    // --- Thread de publication ---
+
+    private void run() {
+        while (running) {
+            int n = queue.drain(this::publish, 1024);
+            Topic topic;
+            while ((topic = stale.poll()) != null) {
+                topic.stale = false;
+                log.warn("Market data queue overflow, resyncing stock {}", topic.stockId);
+                topic.subscribers.forEach(Subscriber::resync);
+            }
+            if (n == 0) LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private void publish(BookUpdate update) {
+        Topic topic = topics.get(update.getStockId());
+        if (topic == null) return;
+        Frame l1 = null;
+        Frame depth = null;
+        for (Subscriber s : topic.subscribers) {
+            if (s.channel == Channel.DEPTH) {
+                if (depth == null) depth = encode(update, Channel.DEPTH);
+                s.offer(depth);
+            } else if (update.isTopChanged()) {
+                if (l1 == null) l1 = encode(update, Channel.L1);
+                s.offer(l1);
+            }
+        }
+    }
+
+    private Frame encode(BookUpdate update, Channel channel) {
+        try {
+            String json = objectMapper.writeValueAsString(MarketDataMessage.of(update, channel == Channel.DEPTH));
+            return new Frame(update.getSequence(), update.isSnapshot() ? "snapshot" : "update", json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Encodage du flux de marché impossible", e);
+        }
+    }
+
+    private static final class Topic {
+        final Long stockId;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        volatile boolean stale;
+
+        Topic(Long stockId) {
+            this.stockId = stockId;
+        }
+    }
+
+    // Snapshot reçu pour une demande donnée (epoch) : une réponse d'une demande abandonnée est ignorée
+    private record Snapshot(long epoch, Frame frame) {
+    }
+
+    /**
+     * Tout l'état de séquence (file vidée, séquence du snapshot, demande de snapshot) n'est modifié
+     * que par drain(), exécuté par un seul thread d'envoi à la fois ; resync() ne fait que le demander.
+     */
+    private final class Subscriber {
+        final Topic topic;
+        final Channel channel;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Frame> frames = new ArrayBlockingQueue<>(subscriberQueue);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean resyncRequested = new AtomicBoolean();
+        final AtomicReference<Snapshot> pendingSnapshot = new AtomicReference<>();
+        long epoch;                                 // drain() uniquement
+        long snapshotSequence = -1;                 // drain() uniquement ; -1 : en attente de snapshot
+
+        Subscriber(Topic topic, Channel channel, SseEmitter emitter) {
+            this.topic = topic;
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        void offer(Frame frame) {
+            if (frames.offer(frame)) {
+                schedule();
+            } else {
+                resync();
+            }
+        }
+
+        // Abonné trop lent ou mise à jour perdue : on repartira d'un snapshot, au prochain drain
+        void resync() {
+            resyncRequested.set(true);
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        // Les deltas jetés ici sont antérieurs à la demande, donc couverts par le snapshot demandé
+        private void restart() {
+            frames.clear();
+            snapshotSequence = -1;
+            long requested = ++epoch;
+            matchingEngine.depth(topic.stockId, 0).whenCompleteAsync((update, e) -> {
+                if (e != null) {
+                    log.warn("Market data snapshot failed for stock {}", topic.stockId, e);
+                    emitter.completeWithError(e);
+                    return;
+                }
+                Snapshot snapshot = new Snapshot(requested, encode(update, channel));
+                pendingSnapshot.accumulateAndGet(snapshot, (cur, next) -> cur == null || cur.epoch() < next.epoch() ? next : cur);
+                schedule();
+            }, senders);
+        }
+
+        private void drain() {
+            try {
+                if (resyncRequested.getAndSet(false)) restart();
+                Snapshot snapshot = pendingSnapshot.getAndSet(null);
+                if (snapshot != null && snapshot.epoch() == epoch) {
+                    send(snapshot.frame());
+                    snapshotSequence = snapshot.frame().sequence();
+                }
+                Frame frame;
+                while (snapshotSequence >= 0 && !resyncRequested.get() && (frame = frames.poll()) != null) {
+                    if (frame.sequence() > snapshotSequence) send(frame);
+                }
+            } catch (IOException | IllegalStateException e) {
+                topic.subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (resyncRequested.get() || pendingSnapshot.get() != null
+                    || (snapshotSequence >= 0 && !frames.isEmpty())) {
+                schedule();
+            }
+        }
+
+        private void send(Frame frame) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(frame.sequence()))
+                    .name(frame.name())
+                    .data(frame.json(), MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Marche.Entity.Market;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Marche.Repository.MarketRepository;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ouverture / clôture de séance d'un marché. La clôture expire en masse les ordres DAY
+ * directement dans les carnets mémoire ; les coupe-circuits repartent de zéro à chaque séance.
+ */
+@Service
+public class MarketSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketSessionService.class);
+
+    private final MarketRepository marketRepository;
+    private final MatchingEngine matchingEngine;
+    private final CircuitBreakerMonitor circuitBreakerMonitor;
+
+    public MarketSessionService(MarketRepository marketRepository, MatchingEngine matchingEngine,
+                                CircuitBreakerMonitor circuitBreakerMonitor) {
+        this.marketRepository = marketRepository;
+        this.matchingEngine = matchingEngine;
+        this.circuitBreakerMonitor = circuitBreakerMonitor;
+    }
+
+    @Transactional
+    public Market openSession(Long marketId) {
+        Market market = findMarket(marketId);
+        market.setOpen(true);
+        circuitBreakerMonitor.openSession(marketId, stockIds(market));
+        return market;
+    }
+
+    @Transactional
+    public int closeSession(Long marketId) {
+        Market market = findMarket(marketId);
+        market.setOpen(false);
+        Set<Long> stockIds = stockIds(market);
+        circuitBreakerMonitor.closeSession(stockIds);
+        int expired = matchingEngine.expireDayOrders(stockIds).join();
+        log.info("Market {} closed: {} DAY orders expired", marketId, expired);
+        return expired;
+    }
+
+    private static Set<Long> stockIds(Market market) {
+        return market.getStocks().stream().map(Stock::getId).collect(Collectors.toSet());
+    }
+
+    private Market findMarket(Long marketId) {
+        return marketRepository.findById(marketId)
+                .orElseThrow(() -> new EntityNotFoundException("Marché introuvable : " + marketId));
+    }
+}
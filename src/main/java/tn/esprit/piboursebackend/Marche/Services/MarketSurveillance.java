@@ -0,0 +1,201 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tn.esprit.piboursebackend.Order.Engine.ExecutionSink;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.OrderCommand;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Engine.RingBuffer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Surveillance de marché : les séquenceurs déposent ordres, annulations et trades dans une file
+ * bornée sans jamais attendre (file pleine = événement perdu et compté) ; un thread dédié alimente
+ * l'AnomalyDetector et écrit les anomalies trouvées dans la table anomaly par batch JDBC.
+ */
+@Service
+public class MarketSurveillance {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketSurveillance.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO anomaly (detected_at, type, severity, description, stock_id, player_id)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private enum Kind { ORDER, CANCEL, TRADE }
+
+    private record Event(Kind kind, long time, long stockId, long price, long quantity, long playerId, long counterparty) {
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final RingBuffer<Event> queue;
+    private final AnomalyDetector detector;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final List<AnomalyDetector.Finding> pending = new ArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public MarketSurveillance(MatchingEngine matchingEngine, JdbcTemplate jdbcTemplate, MeterRegistry registry,
+                              @Value("${pibourse.surveillance.queue-capacity:65536}") int queueCapacity,
+                              @Value("${pibourse.surveillance.batch-size:100}") int batchSize,
+                              @Value("${pibourse.surveillance.flush-interval-ms:1000}") long flushIntervalMs,
+                              @Value("${pibourse.surveillance.window-seconds:60}") int windowSeconds,
+                              @Value("${pibourse.surveillance.spoof-min-cancels:20}") int spoofMinCancels,
+                              @Value("${pibourse.surveillance.spoof-ratio:10}") double spoofRatio,
+                              @Value("${pibourse.surveillance.velocity-seconds:10}") int velocitySeconds,
+                              @Value("${pibourse.surveillance.baseline-seconds:300}") int baselineSeconds,
+                              @Value("${pibourse.surveillance.velocity-percent:5}") double velocityPercent,
+                              @Value("${pibourse.surveillance.volume-multiple:5}") double volumeMultiple,
+                              @Value("${pibourse.surveillance.cooldown-ms:60000}") long cooldownMs,
+                              @Value("${pibourse.surveillance.max-players:100000}") int maxPlayers) {
+        this.matchingEngine = matchingEngine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.detector = new AnomalyDetector(new AnomalyDetector.Settings(windowSeconds, spoofMinCancels, spoofRatio,
+                velocitySeconds, baselineSeconds, velocityPercent, volumeMultiple, cooldownMs, maxPlayers), pending::add);
+        Gauge.builder("pibourse.surveillance.queue.depth", queue, RingBuffer::size)
+                .description("Events waiting for the surveillance thread")
+                .register(registry);
+        FunctionCounter.builder("pibourse.surveillance.dropped", dropped, AtomicLong::get)
+                .description("Events dropped because the surveillance queue was full")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "market-surveillance");
+        thread.setDaemon(true);
+        thread.start();
+        matchingEngine.addExecutionListener(new Listener());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /** Événements perdus faute de place dans la file depuis le démarrage. */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    // --- Thread du séquenceur : aucune attente ---
+
+    private final class Listener implements ExecutionSink {
+
+        @Override
+        public void onResult(OrderCommand command, MatchResult result) {
+            RestingOrder taker = result.getTaker();
+            long now = System.currentTimeMillis();
+            switch (command.getType()) {
+                case NEW -> offer(new Event(Kind.ORDER, now, taker.getStockId(), 0, 0, owner(taker), 0));
+                case CANCEL -> offer(new Event(Kind.CANCEL, now, taker.getStockId(), 0, 0, owner(taker), 0));
+                default -> {
+                }
+            }
+            List<Fill> fills = result.getFills();
+            for (int i = 0; i < fills.size(); i++) {
+                Fill fill = fills.get(i);
+                long takerOwner = owner(taker);
+                long makerOwner = owner(result.getTouchedMakers().get(i));
+                boolean takerBuys = taker.isBuy();
+                offer(new Event(Kind.TRADE, now, taker.getStockId(), fill.getPrice(), fill.getQuantity(),
+                        takerBuys ? takerOwner : makerOwner, takerBuys ? makerOwner : takerOwner));
+            }
+        }
+
+        @Override
+        public void onExpired(List<RestingOrder> expired) {
+            // Expirations de fin de séance : pas une décision du joueur
+        }
+
+        private void offer(Event event) {
+            if (!queue.offer(event)) dropped.incrementAndGet();
+        }
+
+        private long owner(RestingOrder order) {
+            return order.getPlayerId() == null ? 0 : order.getPlayerId();
+        }
+    }
+
+    // --- Thread de surveillance ---
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        long lastDropped = 0;
+        while (running || queue.size() > 0) {
+            int n = queue.drain(this::detect, 4096);
+            if (pending.size() >= batchSize || (!pending.isEmpty() && System.nanoTime() - lastFlush >= flushIntervalNanos)) {
+                write();
+                lastFlush = System.nanoTime();
+                long d = dropped.get();
+                if (d > lastDropped) {
+                    log.warn("Market surveillance queue overflow, {} events dropped so far", d);
+                    lastDropped = d;
+                }
+            }
+            if (n == 0) LockSupport.parkNanos(1_000_000);
+        }
+        if (!pending.isEmpty()) write();
+    }
+
+    private void detect(Event e) {
+        switch (e.kind()) {
+            case ORDER -> detector.onOrder(e.time(), e.stockId(), e.playerId());
+            case CANCEL -> detector.onCancel(e.time(), e.stockId(), e.playerId());
+            case TRADE -> detector.onTrade(e.time(), e.stockId(), e.price(), e.quantity(), e.playerId(), e.counterparty());
+        }
+    }
+
+    private void write() {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, pending, pending.size(), (ps, f) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(f.time()), ZoneId.systemDefault())));
+                ps.setString(2, f.type().name());
+                ps.setBigDecimal(3, BigDecimal.valueOf(f.severity()).setScale(2, RoundingMode.HALF_UP));
+                ps.setString(4, f.description());
+                if (f.stockId() == 0) ps.setNull(5, Types.BIGINT); else ps.setLong(5, f.stockId());
+                if (f.playerId() == 0) ps.setNull(6, Types.BIGINT); else ps.setLong(6, f.playerId());
+            });
+            pending.forEach(f -> log.warn("Anomaly {} on stock {}: {}", f.type(), f.stockId(), f.description()));
+        } catch (RuntimeException e) {
+            // Les alertes ne bloquent rien : en cas d'échec elles sont seulement journalisées
+            log.error("Writing {} anomalies failed", pending.size(), e);
+            pending.forEach(f -> log.warn("Unsaved anomaly {} on stock {}: {}", f.type(), f.stockId(), f.description()));
+        }
+        pending.clear();
+    }
+}
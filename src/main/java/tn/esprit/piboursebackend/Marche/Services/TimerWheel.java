@@ -0,0 +1,138 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import java.util.function.Consumer;
+
+/**
+ * Roue temporelle hachée (Varghese &amp; Lauck) : une case par tick, chaque échéance est chaînée dans
+ * la case (échéance / tick) modulo la taille de la roue avec le nombre de tours restants.
+ * Ajout et annulation en O(1), avance en O(ticks + échéances dues) : des millions d'échéances
+ * sans un thread ni une entrée de file de priorité chacune.
+ * Temps exprimé en millisecondes (simulées pour l'horloge de marché). Non thread-safe : l'appelant
+ * sérialise les accès.
+ */
+public final class TimerWheel<T> {
+
+    private final long tickMillis;
+    private final long origin;
+    private final Timeout<T>[] buckets;     // tête de chaque case
+    private final Timeout<T>[] tails;       // queue : ordre d'ajout conservé dans une case
+    private final int mask;
+    private long tick;          // prochain tick à traiter
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis <= 0");
+        int n = Integer.highestOneBit(Math.max(2, wheelSize - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.origin = startMillis;
+        this.buckets = (Timeout<T>[]) new Timeout[n];
+        this.tails = (Timeout<T>[]) new Timeout[n];
+        this.mask = n - 1;
+    }
+
+    /** Échéance passée ou dans un tick déjà traité : déclenchée avec le prochain tick à traiter. */
+    public Timeout<T> schedule(long deadlineMillis, T task) {
+        long at = Math.max(tickOf(deadlineMillis), tick);
+        Timeout<T> t = new Timeout<>(this, deadlineMillis, task, (at - tick) / buckets.length);
+        int idx = (int) (at & mask);
+        t.bucket = idx;
+        t.prev = tails[idx];
+        if (t.prev != null) t.prev.next = t;
+        else buckets[idx] = t;
+        tails[idx] = t;
+        size++;
+        return t;
+    }
+
+    /**
+     * Traite tous les ticks jusqu'à now inclus ; fire reçoit les tâches échues dans l'ordre des ticks.
+     * Une tâche replanifiée depuis fire pour une échéance déjà atteinte part au tick suivant.
+     * @return le nombre de tâches déclenchées
+     */
+    public int advance(long nowMillis, Consumer<T> fire) {
+        long target = tickOf(nowMillis);
+        int fired = 0;
+        while (tick <= target) {
+            if (size == 0) {
+                tick = target + 1;
+                break;
+            }
+            Timeout<T> due = null;
+            Timeout<T> last = null;
+            Timeout<T> t = buckets[(int) (tick & mask)];
+            while (t != null) {
+                Timeout<T> next = t.next;
+                if (t.rounds <= 0) {
+                    unlink(t);
+                    if (last == null) due = t;
+                    else last.next = t;
+                    last = t;
+                } else {
+                    t.rounds--;
+                }
+                t = next;
+            }
+            tick++;
+            for (Timeout<T> d = due; d != null; ) {
+                Timeout<T> next = d.next;
+                d.next = null;
+                fire.accept(d.task);
+                fired++;
+                d = next;
+            }
+        }
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis - origin, tickMillis);
+    }
+
+    private void unlink(Timeout<T> t) {
+        if (t.prev != null) t.prev.next = t.next;
+        else buckets[t.bucket] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        else tails[t.bucket] = t.prev;
+        t.prev = null;
+        t.next = null;
+        t.wheel = null;
+        size--;
+    }
+
+    /** Échéance planifiée ; cancel est sans effet une fois déclenchée. */
+    public static final class Timeout<T> {
+        private TimerWheel<T> wheel;
+        private final long deadline;
+        private final T task;
+        private long rounds;
+        private int bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimerWheel<T> wheel, long deadline, T task, long rounds) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+            this.rounds = rounds;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        public T task() {
+            return task;
+        }
+
+        public boolean cancel() {
+            if (wheel == null) return false;
+            wheel.unlink(this);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package tn.esprit.piboursebackend.Order.Controllers;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tn.esprit.piboursebackend.Order.Dto.JournalVerificationReport;
+import tn.esprit.piboursebackend.Order.Services.JournalVerifier;
+
+@RestController
+@RequestMapping("/journal")
+public class JournalController {
+
+    private final JournalVerifier journalVerifier;
+
+    public JournalController(JournalVerifier journalVerifier) {
+        this.journalVerifier = journalVerifier;
+    }
+
+    // Rejoue le journal et compare l'état reconstruit aux tables Order/Trade
+    @GetMapping("/verify")
+    public JournalVerificationReport verify() {
+        return journalVerifier.verify();
+    }
+
+    // Même contrôle, puis réécriture en base de ce que le journal a et la base non (fait aussi au démarrage)
+    @PostMapping("/repair")
+    public JournalVerificationReport repair() {
+        return journalVerifier.repair();
+    }
+}
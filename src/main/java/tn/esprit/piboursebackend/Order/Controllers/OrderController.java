@@ -0,0 +1,43 @@
+package tn.esprit.piboursebackend.Order.Controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.piboursebackend.Order.Dto.OrderAmendRequest;
+import tn.esprit.piboursebackend.Order.Dto.OrderRequest;
+import tn.esprit.piboursebackend.Order.Dto.OrderResponse;
+import tn.esprit.piboursebackend.Order.Services.IOrderService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/orders")
+public class OrderController {
+
+    private final IOrderService orderService;
+
+    public OrderController(IOrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @PostMapping
+    public OrderResponse placeOrder(@RequestBody OrderRequest request) {
+        return orderService.placeOrder(request);
+    }
+
+    @PutMapping("/{id}")
+    public OrderResponse amendOrder(@PathVariable Long id, @RequestBody OrderAmendRequest request) {
+        return orderService.amendOrder(id, request.getPrice(), request.getQuantity());
+    }
+
+    @DeleteMapping("/{id}")
+    public OrderResponse cancelOrder(@PathVariable Long id) {
+        return orderService.cancelOrder(id);
+    }
+
+    // Requête invalide (champ manquant, prix ou quantité hors virgule fixe) : 400 et non 500
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(IllegalArgumentException e) {
+        return Map.of("error", e.getMessage());
+    }
+}
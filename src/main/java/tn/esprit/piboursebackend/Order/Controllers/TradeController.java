@@ -0,0 +1,34 @@
+package tn.esprit.piboursebackend.Order.Controllers;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.piboursebackend.Order.Dto.TradeResponse;
+import tn.esprit.piboursebackend.Order.Services.TradeHistory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/trades")
+public class TradeController {
+
+    private final TradeHistory tradeHistory;
+
+    public TradeController(TradeHistory tradeHistory) {
+        this.tradeHistory = tradeHistory;
+    }
+
+    // Dernières transactions d'un titre (table puis archives si besoin)
+    @GetMapping("/{stockId}/latest")
+    public List<TradeResponse> latest(@PathVariable Long stockId, @RequestParam(defaultValue = "50") int limit) {
+        return tradeHistory.latest(stockId, Math.min(Math.max(limit, 1), 1000));
+    }
+
+    // Historique sur intervalle, ex. ?from=2026-01-01T00:00:00&to=2026-01-31T23:59:59
+    @GetMapping("/{stockId}")
+    public List<TradeResponse> between(@PathVariable Long stockId,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return tradeHistory.between(stockId, from, to);
+    }
+}
@@ -0,0 +1,25 @@
+package tn.esprit.piboursebackend.Order.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class JournalVerificationReport {
+    private long snapshotOrders;
+    private long records;
+    private long commands;
+    private long trades;
+    private int books;
+    private int openOrders;
+    private int ordersChecked;
+    private int tradePairsChecked;
+    private int mismatchCount;
+    private List<String> mismatches;    // premiers écarts seulement
+
+    public boolean isConsistent() {
+        return mismatchCount == 0;
+    }
+}
@@ -0,0 +1,15 @@
+package tn.esprit.piboursebackend.Order.Dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderAmendRequest {
+    private BigDecimal price;     // null = inchangé
+    private BigDecimal quantity;  // nouvelle quantité totale, null = inchangée
+}
@@ -0,0 +1,23 @@
+package tn.esprit.piboursebackend.Order.Dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderRequest {
+    private Long stockId;
+    private Long playerId;        // donneur d'ordre, facultatif
+    private OrderSide side;
+    private OrderType type;
+    private TimeInForce tif;      // DAY par défaut
+    private BigDecimal price;     // requis pour LIMIT
+    private BigDecimal quantity;
+}
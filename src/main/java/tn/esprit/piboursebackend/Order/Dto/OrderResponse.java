@@ -0,0 +1,25 @@
+package tn.esprit.piboursebackend.Order.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class OrderResponse {
+    private Long id;
+    private Long stockId;
+    private OrderSide side;
+    private OrderType type;
+    private TimeInForce tif;
+    private OrderStatus status;
+    private BigDecimal price;
+    private BigDecimal quantity;
+    private BigDecimal remainingQuantity;
+    private int fills;
+}
@@ -0,0 +1,19 @@
+package tn.esprit.piboursebackend.Order.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class TradeResponse {
+    private Long id;
+    private Long stockId;
+    private Long buyOrderId;
+    private Long sellOrderId;
+    private BigDecimal price;
+    private BigDecimal quantity;
+    private LocalDateTime executedAt;
+}
@@ -0,0 +1,157 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.zip.CRC32;
+
+/**
+ * Image binaire compacte des carnets d'un shard, à une séquence de journal donnée.
+ * [magic][version][dernière séquence][nb carnets] puis par carnet : stockId, nb niveaux, et par niveau
+ * (bids du meilleur au pire, puis asks) : côté, prix, nb ordres, ordres dans l'ordre FIFO,
+ * avec le propriétaire de chaque ordre (0 = inconnu).
+ * Le prix, le côté et le symbole ne sont pas répétés par ordre. Crc32 de l'ensemble en fin de fichier.
+ */
+public final class BookSnapshot {
+
+    private static final int MAGIC = 0x50425348;      // "PBSH"
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8 + 4;
+    private static final int LEVEL_SIZE = 1 + 8 + 4;
+    private static final int ORDER_SIZE = 8 + 1 + 1 + 8 + 8 + 8 + 4 + 8;
+
+    private BookSnapshot() {
+    }
+
+    /**
+     * Sérialise les carnets dans un tampon mémoire. Appelé sur le thread du séquenceur :
+     * simple parcours séquentiel, le crc et les écritures disque sont faits ailleurs.
+     */
+    public static ByteBuffer encode(Collection<LimitOrderBook> books, long lastSequence) {
+        int size = HEADER + 4;
+        for (LimitOrderBook book : books) {
+            size += 8 + 4 + (book.bids().size() + book.asks().size()) * LEVEL_SIZE + book.size() * ORDER_SIZE;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putLong(lastSequence).putInt(books.size());
+        for (LimitOrderBook book : books) {
+            out.putLong(book.getStockId());
+            out.putInt(book.bids().size() + book.asks().size());
+            putLevels(out, book.bids(), (byte) OrderSide.BUY.ordinal());
+            putLevels(out, book.asks(), (byte) OrderSide.SELL.ordinal());
+        }
+        return out;
+    }
+
+    private static void putLevels(ByteBuffer out, NavigableMap<Long, PriceLevel> side, byte sideCode) {
+        for (Map.Entry<Long, PriceLevel> e : side.entrySet()) {
+            PriceLevel level = e.getValue();
+            out.put(sideCode).putLong(level.getPrice()).putInt(level.getOrderCount());
+            for (RestingOrder o = level.getHead(); o != null; o = o.next) {
+                out.putLong(o.getOrderId());
+                out.put((byte) o.getType().ordinal());
+                out.put(o.getTif() == null ? -1 : (byte) o.getTif().ordinal());
+                out.putLong(o.getQuantity());
+                out.putLong(o.getRemainingQuantity());
+                out.putLong(o.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+                out.putInt(o.getCreatedAt().getNano());
+                out.putLong(o.getPlayerId() == null ? 0 : o.getPlayerId());
+            }
+        }
+    }
+
+    /** Écrit l'image suivie de son crc, puis force le fichier sur disque. */
+    public static void write(Path file, ByteBuffer image) throws IOException {
+        ByteBuffer data = image.duplicate().flip();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) channel.write(data);
+            while (trailer.hasRemaining()) channel.write(trailer);
+            channel.force(true);
+        }
+    }
+
+    /** Contrôle du crc sans rien charger. */
+    public static boolean isValid(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.limit() < HEADER + 4) return false;
+            CRC32 crc = new CRC32();
+            crc.update(in.slice(0, in.limit() - 4));
+            return (int) crc.getValue() == in.getInt(in.limit() - 4);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Dernière séquence couverte, lue dans l'en-tête sans charger l'image. */
+    public static long lastSequence(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            checkHeader(header, file);
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Recharge une image dans le rejoueur (ordres reposés dans leur ordre de priorité).
+     * @return dernière séquence du journal couverte par l'image
+     */
+    public static long load(Path file, JournalReplayer replayer) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.limit() < HEADER + 4) throw new IllegalStateException("Snapshot tronqué : " + file);
+        CRC32 crc = new CRC32();
+        crc.update(in.slice(0, in.limit() - 4));
+        if ((int) crc.getValue() != in.getInt(in.limit() - 4)) {
+            throw new IllegalStateException("Snapshot corrompu (crc) : " + file);
+        }
+        checkHeader(in, file);
+        long lastSequence = in.getLong();
+        int books = in.getInt();
+        for (int b = 0; b < books; b++) {
+            long stockId = in.getLong();
+            int levels = in.getInt();
+            for (int l = 0; l < levels; l++) {
+                byte side = in.get();
+                long price = in.getLong();
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    long orderId = in.getLong();
+                    byte type = in.get();
+                    byte tif = in.get();
+                    long quantity = in.getLong();
+                    long remaining = in.getLong();
+                    LocalDateTime createdAt = EventJournal.readTime(in);
+                    long playerId = in.getLong();
+                    replayer.restore(new RestingOrder(orderId, stockId, EventJournal.side(side),
+                            EventJournal.orderType(type), EventJournal.tif(tif), price, quantity, remaining, createdAt,
+                            playerId == 0 ? null : playerId));
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    private static void checkHeader(ByteBuffer in, Path file) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IllegalStateException("Format de snapshot inconnu : " + file);
+        }
+    }
+}
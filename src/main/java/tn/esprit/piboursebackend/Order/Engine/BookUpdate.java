@@ -0,0 +1,36 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Changement d'un carnet après une commande, pour le flux de marché : meilleurs prix (L1),
+ * niveaux modifiés avec leur quantité agrégée absolue (0 = niveau retiré) et trades.
+ * La séquence est propre au symbole et croît de 1 à chaque mise à jour ; un snapshot porte
+ * la séquence de la dernière mise à jour qu'il inclut et la liste complète des niveaux.
+ */
+@Getter
+@AllArgsConstructor
+public class BookUpdate {
+
+    private final Long stockId;
+    private final long sequence;
+    private final boolean snapshot;
+    private final boolean topChanged;       // L1 modifié ou trade : utile aux abonnés L1 seuls
+    private final long bestBid;             // FixedPoint.NULL si côté vide
+    private final long bestBidQuantity;
+    private final long bestAsk;
+    private final long bestAskQuantity;
+    private final long lastPrice;           // FixedPoint.NULL tant qu'aucun trade
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final int[] bidOrders;
+    private final long[] askPrices;
+    private final long[] askQuantities;
+    private final int[] askOrders;
+    private final List<Fill> trades;
+    private final LocalDateTime time;
+}
@@ -0,0 +1,233 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'événements en ajout seul d'un séquenceur, sur segments mappés en mémoire.
+ * Un enregistrement = [longueur int][crc32 int][séquence long][type byte][charge utile] ;
+ * la longueur est écrite en dernier et sert de marqueur de validité. Un segment plein est
+ * clos et le suivant est nommé d'après sa première séquence.
+ * L'écriture dans le mapping survit à un crash du processus ; avec fsync, {@link #commit()}
+ * force aussi les pages sur disque avant l'acquittement. Mono-écrivain : thread du séquenceur.
+ */
+public class EventJournal implements Closeable {
+
+    static final int HEADER = 8;                // longueur + crc
+    static final int RECORD_HEADER = 9;         // séquence + type, couverts par le crc
+    static final String SEGMENT_SUFFIX = ".log";
+
+    static final int ORDER_SIZE = 8 + 8 + 3 + 8 + 8 + 8 + 8 + 4 + 8;
+    static final int CANCEL_SIZE = 16;
+    static final int AMEND_SIZE = 32;
+    static final int TRADE_SIZE = 8 * 6 + 4;
+    private static final int EXPIRE_CHUNK = 4096;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer buf;
+    private long nextSequence;
+    private int syncedUpTo;
+
+    private EventJournal(Path dir, int segmentSize, boolean fsync) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /** Ouvre le journal d'un répertoire de shard et se positionne après le dernier enregistrement valide. */
+    public static EventJournal open(Path dir, int segmentSize, boolean fsync) throws IOException {
+        Files.createDirectories(dir);
+        EventJournal journal = new EventJournal(dir, segmentSize, fsync);
+        List<Path> segments = JournalReader.segments(dir);
+        if (segments.isEmpty()) {
+            journal.nextSequence = 1;
+            journal.map(journal.segmentPath(1), segmentSize);
+            return journal;
+        }
+        Path last = segments.get(segments.size() - 1);
+        JournalReader.Tail tail = JournalReader.scan(last);
+        journal.map(last, (int) Files.size(last));
+        journal.nextSequence = tail.lastSequence() + 1;
+        journal.buf.position(tail.position());
+        if (tail.torn()) {
+            // Écriture interrompue par un crash : on efface la fin pour ne pas laisser de déchets
+            for (int i = tail.position(); i < journal.buf.limit(); i++) journal.buf.put(i, (byte) 0);
+            journal.buf.force();
+        }
+        journal.syncedUpTo = tail.position();
+        return journal;
+    }
+
+    public long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    public long appendOrder(JournalRecord.Type type, RestingOrder o) {
+        return appendOrder(type, o, o.getRemainingQuantity());
+    }
+
+    /** Ordre journalisé avec son reliquat d'entrée (l'ordre a pu s'exécuter depuis). */
+    public long appendOrder(JournalRecord.Type type, RestingOrder o, long remainingQuantity) {
+        int start = begin(type, ORDER_SIZE);
+        buf.putLong(o.getOrderId());
+        buf.putLong(o.getStockId());
+        buf.put(code(o.getSide()));
+        buf.put(code(o.getType()));
+        buf.put(code(o.getTif()));
+        buf.putLong(o.getPrice());
+        buf.putLong(o.getQuantity());
+        buf.putLong(remainingQuantity);
+        putTime(o.getCreatedAt());
+        buf.putLong(o.getPlayerId() == null ? 0 : o.getPlayerId());
+        return end(start);
+    }
+
+    public long appendCancel(Long stockId, Long orderId) {
+        int start = begin(JournalRecord.Type.CANCEL, CANCEL_SIZE);
+        buf.putLong(stockId);
+        buf.putLong(orderId);
+        return end(start);
+    }
+
+    public long appendAmend(Long stockId, Long orderId, long newPrice, long newQuantity) {
+        int start = begin(JournalRecord.Type.AMEND, AMEND_SIZE);
+        buf.putLong(stockId);
+        buf.putLong(orderId);
+        buf.putLong(newPrice);
+        buf.putLong(newQuantity);
+        return end(start);
+    }
+
+    public void appendExpired(List<RestingOrder> expired) {
+        for (int from = 0; from < expired.size(); from += EXPIRE_CHUNK) {
+            List<RestingOrder> chunk = expired.subList(from, Math.min(expired.size(), from + EXPIRE_CHUNK));
+            int start = begin(JournalRecord.Type.EXPIRE, 4 + chunk.size() * 16);
+            buf.putInt(chunk.size());
+            for (RestingOrder o : chunk) {
+                buf.putLong(o.getStockId());
+                buf.putLong(o.getOrderId());
+            }
+            end(start);
+        }
+    }
+
+    public long appendTrade(Long stockId, Fill fill, LocalDateTime time) {
+        int start = begin(JournalRecord.Type.TRADE, TRADE_SIZE);
+        buf.putLong(stockId);
+        buf.putLong(fill.getBuyOrderId());
+        buf.putLong(fill.getSellOrderId());
+        buf.putLong(fill.getPrice());
+        buf.putLong(fill.getQuantity());
+        putTime(time);
+        return end(start);
+    }
+
+    /** Point de durabilité avant acquittement : force les pages écrites depuis le dernier commit. */
+    public void commit() {
+        int position = buf.position();
+        if (fsync && position > syncedUpTo) {
+            buf.force(syncedUpTo, position - syncedUpTo);
+        }
+        syncedUpTo = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buf == null) return;
+        buf.force();
+        buf = null;
+    }
+
+    private int begin(JournalRecord.Type type, int payloadSize) {
+        int size = HEADER + RECORD_HEADER + payloadSize;
+        if (size > buf.remaining()) {
+            if (size > segmentSize) {
+                throw new IllegalStateException("Enregistrement de " + size + " octets plus grand qu'un segment");
+            }
+            roll();
+        }
+        int start = buf.position();
+        buf.position(start + HEADER);
+        buf.putLong(nextSequence);
+        buf.put((byte) type.ordinal());
+        return start;
+    }
+
+    private long end(int start) {
+        int length = buf.position() - start - HEADER;
+        crc.reset();
+        crc.update(buf.slice(start + HEADER, length));
+        buf.putInt(start + 4, (int) crc.getValue());
+        buf.putInt(start, length);
+        return nextSequence++;
+    }
+
+    private void roll() {
+        try {
+            commit();
+            close();
+            map(segmentPath(nextSequence), segmentSize);
+            syncedUpTo = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rotation du journal impossible dans " + dir, e);
+        }
+    }
+
+    private void map(Path segment, int size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            if (file.length() < size) file.setLength(size);
+            // Le mapping reste valide après fermeture du fichier
+            buf = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return dir.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private void putTime(LocalDateTime time) {
+        buf.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buf.putInt(time.getNano());
+    }
+
+    private static byte code(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    static LocalDateTime readTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static OrderSide side(byte code) {
+        return code < 0 ? null : OrderSide.values()[code];
+    }
+
+    static OrderType orderType(byte code) {
+        return code < 0 ? null : OrderType.values()[code];
+    }
+
+    static TimeInForce tif(byte code) {
+        return code < 0 ? null : TimeInForce.values()[code];
+    }
+}
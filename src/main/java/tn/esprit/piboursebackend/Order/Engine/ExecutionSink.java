@@ -0,0 +1,15 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.util.List;
+
+/**
+ * Reçoit, sur le thread du séquenceur et dans l'ordre de traitement,
+ * le résultat de chaque commande appliquée au carnet.
+ */
+public interface ExecutionSink {
+
+    void onResult(OrderCommand command, MatchResult result);
+
+    /** Ordres DAY retirés en masse à la clôture de séance. */
+    void onExpired(List<RestingOrder> expired);
+}
@@ -0,0 +1,37 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.math.BigDecimal;
+
+/**
+ * Une exécution produite par le moteur, toujours au prix du maker (virgule fixe).
+ */
+@Getter
+@AllArgsConstructor
+public class Fill {
+
+    private final Long takerOrderId;
+    private final Long makerOrderId;
+    private final OrderSide takerSide;
+    private final long price;
+    private final long quantity;
+
+    public Long getBuyOrderId() {
+        return takerSide == OrderSide.BUY ? takerOrderId : makerOrderId;
+    }
+
+    public Long getSellOrderId() {
+        return takerSide == OrderSide.SELL ? takerOrderId : makerOrderId;
+    }
+
+    public BigDecimal priceDecimal() {
+        return FixedPoint.toBigDecimal(price);
+    }
+
+    public BigDecimal quantityDecimal() {
+        return FixedPoint.toBigDecimal(quantity);
+    }
+}
@@ -0,0 +1,106 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Virgule fixe à 6 décimales portée par un {@code long} (même échelle que les colonnes
+ * {@code precision = 19, scale = 6} des entités). Utilisée dans le moteur pour éviter
+ * toute allocation ; la conversion en BigDecimal ne se fait qu'aux frontières JPA/REST.
+ * Toutes les opérations sont vérifiées : un dépassement lève une {@link ArithmeticException}.
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+
+    /** Valeur absente (prix d'un ordre MARKET, champ non modifié d'un amend). */
+    public static final long NULL = Long.MIN_VALUE;
+
+    /** Plus grande valeur acceptée en entrée (prix, quantité) : 10^9 unités, marge laissée aux agrégats du carnet. */
+    public static final long MAX_INPUT = 1_000_000_000L * ONE;
+
+    private static final BigInteger BIG_ONE = BigInteger.valueOf(ONE);
+    private static final BigDecimal MAX_INPUT_DECIMAL = BigDecimal.valueOf(MAX_INPUT, SCALE);
+    private static final BigDecimal MAX_DECIMAL = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+    private FixedPoint() {
+    }
+
+    public static long of(BigDecimal value) {
+        if (value == null) return NULL;
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /** Vrai si la valeur se convertit sans arrondi (6 décimales au plus) et ne dépasse pas {@link #MAX_INPUT}. */
+    public static boolean fits(BigDecimal value) {
+        return value != null
+                && value.stripTrailingZeros().scale() <= SCALE
+                && value.abs().compareTo(MAX_INPUT_DECIMAL) <= 0;
+    }
+
+    /** Vrai si le produit arrondi (ex. montant prix x quantité) tient dans un long. */
+    public static boolean fitsProduct(BigDecimal a, BigDecimal b) {
+        return a.multiply(b).setScale(SCALE, RoundingMode.HALF_UP).abs().compareTo(MAX_DECIMAL) <= 0;
+    }
+
+    public static long of(long units) {
+        return Math.multiplyExact(units, ONE);
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return value == NULL ? null : BigDecimal.valueOf(value, SCALE);
+    }
+
+    public static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /** Produit arrondi HALF_UP à 6 décimales (ex. prix x quantité = montant). */
+    public static long multiply(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return roundedDiv(lo);
+        }
+        // Produit hors 64 bits : chemin lent, résultat revérifié
+        BigInteger p = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b));
+        BigInteger[] qr = p.divideAndRemainder(BIG_ONE);
+        BigInteger q = qr[0];
+        if (qr[1].abs().shiftLeft(1).compareTo(BIG_ONE) >= 0) {
+            q = q.add(BigInteger.valueOf(p.signum()));
+        }
+        return q.longValueExact();
+    }
+
+    /** Valeur arrondie HALF_UP à l'unité (ex. volume en quantités entières). */
+    public static long toUnits(long value) {
+        return roundedDiv(value);
+    }
+
+    public static boolean isNull(long value) {
+        return value == NULL;
+    }
+
+    public static String toString(long value) {
+        return value == NULL ? "null" : toBigDecimal(value).toPlainString();
+    }
+
+    private static long roundedDiv(long v) {
+        long q = v / ONE;
+        long r = v % ONE;
+        if (Math.abs(r) * 2 >= ONE) {
+            q += v < 0 ? -1 : 1;
+        }
+        return q;
+    }
+}
@@ -0,0 +1,158 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Lecture séquentielle d'un journal de shard : vérifie crc et continuité des séquences.
+ * Un enregistrement invalide en fin du dernier segment est une écriture interrompue (fin du journal) ;
+ * ailleurs c'est une corruption et la lecture échoue.
+ */
+public final class JournalReader {
+
+    /** Fin des données valides d'un segment. */
+    record Tail(int position, long lastSequence, boolean torn) {}
+
+    private JournalReader() {
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(EventJournal.SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /** Relit tous les segments d'un shard dans l'ordre. @return dernière séquence lue (0 si vide) */
+    public static long read(Path dir, Consumer<JournalRecord> consumer) throws IOException {
+        return read(dir, 1, consumer);
+    }
+
+    /**
+     * Relit un shard à partir d'une séquence (reprise après snapshot) : les segments entièrement
+     * antérieurs sont sautés, les enregistrements plus anciens du premier segment lu sont vérifiés mais ignorés.
+     */
+    public static long read(Path dir, long fromSequence, Consumer<JournalRecord> consumer) throws IOException {
+        List<Path> segments = segments(dir);
+        int first = 0;
+        while (first + 1 < segments.size() && firstSequence(segments.get(first + 1)) <= fromSequence) {
+            first++;
+        }
+        Consumer<JournalRecord> filtered = r -> {
+            if (r.getSequence() >= fromSequence) consumer.accept(r);
+        };
+        long last = 0;
+        for (int i = first; i < segments.size(); i++) {
+            boolean lastSegment = i == segments.size() - 1;
+            Tail tail = readSegment(segments.get(i), filtered);
+            if (tail.torn() && !lastSegment) {
+                throw new IllegalStateException("Journal corrompu : " + segments.get(i) + " @" + tail.position());
+            }
+            if (last > 0 && firstSequence(segments.get(i)) != last + 1) {
+                throw new IllegalStateException("Journal discontinu avant " + segments.get(i));
+            }
+            last = tail.lastSequence();
+        }
+        return last;
+    }
+
+    static Tail scan(Path segment) throws IOException {
+        return readSegment(segment, null);
+    }
+
+    private static Tail readSegment(Path segment, Consumer<JournalRecord> consumer) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 crc = new CRC32();
+        long expected = firstSequence(segment);
+        int position = 0;
+        boolean torn = false;
+        while (buf.limit() - position >= EventJournal.HEADER + EventJournal.RECORD_HEADER) {
+            int length = buf.getInt(position);
+            if (length == 0) break;
+            if (length < EventJournal.RECORD_HEADER || length > buf.limit() - position - EventJournal.HEADER) {
+                torn = true;
+                break;
+            }
+            crc.reset();
+            crc.update(buf.slice(position + EventJournal.HEADER, length));
+            long sequence = buf.getLong(position + EventJournal.HEADER);
+            if ((int) crc.getValue() != buf.getInt(position + 4) || sequence != expected) {
+                torn = true;
+                break;
+            }
+            if (consumer != null) {
+                consumer.accept(decode(buf.slice(position + EventJournal.HEADER, length)));
+            }
+            position += EventJournal.HEADER + length;
+            expected++;
+        }
+        return new Tail(position, expected - 1, torn);
+    }
+
+    private static JournalRecord decode(ByteBuffer in) {
+        long sequence = in.getLong();
+        JournalRecord.Type type = JournalRecord.Type.of(in.get());
+        switch (type) {
+            case NEW, REST -> {
+                long orderId = in.getLong();
+                long stockId = in.getLong();
+                OrderSide side = EventJournal.side(in.get());
+                OrderType orderType = EventJournal.orderType(in.get());
+                TimeInForce tif = EventJournal.tif(in.get());
+                long price = in.getLong();
+                long quantity = in.getLong();
+                long remaining = in.getLong();
+                LocalDateTime createdAt = EventJournal.readTime(in);
+                long playerId = in.getLong();
+                RestingOrder order = new RestingOrder(orderId, stockId, side, orderType, tif,
+                        price, quantity, remaining, createdAt, playerId == 0 ? null : playerId);
+                return JournalRecord.order(sequence, type, order);
+            }
+            case CANCEL -> {
+                return JournalRecord.cancel(sequence, in.getLong(), in.getLong());
+            }
+            case AMEND -> {
+                return JournalRecord.amend(sequence, in.getLong(), in.getLong(), in.getLong(), in.getLong());
+            }
+            case EXPIRE -> {
+                int n = in.getInt();
+                long[] stockIds = new long[n];
+                long[] orderIds = new long[n];
+                for (int i = 0; i < n; i++) {
+                    stockIds[i] = in.getLong();
+                    orderIds[i] = in.getLong();
+                }
+                return JournalRecord.expire(sequence, stockIds, orderIds);
+            }
+            case TRADE -> {
+                return JournalRecord.trade(sequence, in.getLong(), in.getLong(), in.getLong(),
+                        in.getLong(), in.getLong(), EventJournal.readTime(in));
+            }
+            default -> throw new IllegalStateException("Type d'enregistrement inconnu : " + type);
+        }
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - EventJournal.SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,92 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Enregistrement décodé du journal. Selon le type, seuls certains champs sont renseignés :
+ * NEW/REST -> order ; CANCEL/AMEND -> stockId, orderId (+ newPrice/newQuantity) ;
+ * EXPIRE -> stockIds/orderIds ; TRADE -> stockId, buy/sell, price, quantity, time.
+ */
+@Getter
+public class JournalRecord {
+
+    public enum Type {
+        NEW,        // commande nouvel ordre, rejouée par matching
+        REST,       // ordre posé directement au carnet (amorçage depuis la base)
+        CANCEL,
+        AMEND,
+        EXPIRE,     // ordres DAY retirés en fin de séance
+        TRADE;      // exécution résultante (audit/vérification, non rejouée)
+
+        private static final Type[] VALUES = values();
+
+        static Type of(byte code) {
+            return VALUES[code];
+        }
+    }
+
+    private final long sequence;
+    private final Type type;
+    private RestingOrder order;
+    private Long stockId;
+    private Long orderId;
+    private long newPrice = FixedPoint.NULL;
+    private long newQuantity = FixedPoint.NULL;
+    private long[] stockIds;
+    private long[] orderIds;
+    private Long buyOrderId;
+    private Long sellOrderId;
+    private long price;
+    private long quantity;
+    private LocalDateTime time;
+
+    JournalRecord(long sequence, Type type) {
+        this.sequence = sequence;
+        this.type = type;
+    }
+
+    static JournalRecord order(long sequence, Type type, RestingOrder order) {
+        JournalRecord r = new JournalRecord(sequence, type);
+        r.order = order;
+        r.stockId = order.getStockId();
+        r.orderId = order.getOrderId();
+        return r;
+    }
+
+    static JournalRecord cancel(long sequence, Long stockId, Long orderId) {
+        JournalRecord r = new JournalRecord(sequence, Type.CANCEL);
+        r.stockId = stockId;
+        r.orderId = orderId;
+        return r;
+    }
+
+    static JournalRecord amend(long sequence, Long stockId, Long orderId, long newPrice, long newQuantity) {
+        JournalRecord r = new JournalRecord(sequence, Type.AMEND);
+        r.stockId = stockId;
+        r.orderId = orderId;
+        r.newPrice = newPrice;
+        r.newQuantity = newQuantity;
+        return r;
+    }
+
+    static JournalRecord expire(long sequence, long[] stockIds, long[] orderIds) {
+        JournalRecord r = new JournalRecord(sequence, Type.EXPIRE);
+        r.stockIds = stockIds;
+        r.orderIds = orderIds;
+        return r;
+    }
+
+    static JournalRecord trade(long sequence, Long stockId, Long buyOrderId, Long sellOrderId,
+                               long price, long quantity, LocalDateTime time) {
+        JournalRecord r = new JournalRecord(sequence, Type.TRADE);
+        r.stockId = stockId;
+        r.buyOrderId = buyOrderId;
+        r.sellOrderId = sellOrderId;
+        r.price = price;
+        r.quantity = quantity;
+        r.time = time;
+        return r;
+    }
+}
@@ -0,0 +1,85 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Rejoue les enregistrements du journal dans des carnets neufs. Le matching étant déterministe,
+ * rejouer les commandes dans l'ordre reproduit exactement l'état des carnets et les exécutions.
+ * Un écouteur optionnel reçoit chaque enregistrement avec son résultat (null pour TRADE).
+ */
+public class JournalReplayer implements Consumer<JournalRecord> {
+
+    @Getter
+    private final Map<Long, LimitOrderBook> books = new HashMap<>();
+    private final BiConsumer<JournalRecord, MatchResult> listener;
+
+    @Getter
+    private long commands;
+    @Getter
+    private long trades;
+    @Getter
+    private long restored;
+
+    public JournalReplayer() {
+        this((r, result) -> { });
+    }
+
+    public JournalReplayer(BiConsumer<JournalRecord, MatchResult> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void accept(JournalRecord r) {
+        switch (r.getType()) {
+            case NEW -> listener.accept(r, book(r.getStockId()).process(r.getOrder()));
+            case REST -> {
+                book(r.getStockId()).rest(r.getOrder());
+                listener.accept(r, new MatchResult(r.getOrder(), r.getOrder().fillStatus(), List.of(), List.of()));
+            }
+            case CANCEL -> {
+                RestingOrder removed = book(r.getStockId()).cancel(r.getOrderId());
+                listener.accept(r, removed == null ? null : cancelled(removed));
+            }
+            case AMEND -> listener.accept(r, book(r.getStockId()).amend(r.getOrderId(), r.getNewPrice(), r.getNewQuantity()));
+            case EXPIRE -> {
+                for (int i = 0; i < r.getOrderIds().length; i++) {
+                    RestingOrder removed = book(r.getStockIds()[i]).cancel(r.getOrderIds()[i]);
+                    if (removed != null) listener.accept(r, cancelled(removed));
+                }
+            }
+            case TRADE -> {
+                trades++;
+                listener.accept(r, null);
+                return;
+            }
+        }
+        commands++;
+    }
+
+    /** Ordre rechargé depuis un snapshot : reposé tel quel, notifié comme un REST. */
+    public void restore(RestingOrder order) {
+        book(order.getStockId()).rest(order);
+        restored++;
+        listener.accept(JournalRecord.order(0, JournalRecord.Type.REST, order),
+                new MatchResult(order, order.fillStatus(), List.of(), List.of()));
+    }
+
+    public int openOrders() {
+        return books.values().stream().mapToInt(LimitOrderBook::size).sum();
+    }
+
+    private LimitOrderBook book(Long stockId) {
+        return books.computeIfAbsent(stockId, LimitOrderBook::new);
+    }
+
+    private static MatchResult cancelled(RestingOrder order) {
+        return new MatchResult(order, OrderStatus.CANCELLED, List.of(), List.of());
+    }
+}
@@ -0,0 +1,208 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Arborescence des journaux : base/gen-NNNNNN-shards-K/shard-i/*.log.
+ * Une génération correspond à un nombre de séquenceurs donné : un symbole n'écrit que dans
+ * un shard par génération, donc on rejoue les générations dans l'ordre et, à l'intérieur,
+ * les shards l'un après l'autre sans perdre l'ordre par symbole.
+ * Si le nombre de shards change au redémarrage, une nouvelle génération est ouverte.
+ * Les snapshots (gen/snapshot-N/shard-i.snap + marqueur "complete") couvrent tout ce qui précède :
+ * la reprise charge le dernier snapshot complet puis ne rejoue que la fin du journal, et les
+ * segments ou générations déjà couverts sont supprimés.
+ */
+public class JournalStore {
+
+    private static final Pattern GENERATION = Pattern.compile("gen-(\\d+)-shards-(\\d+)");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-\\d{20}");
+    private static final String COMPLETE = "complete";
+
+    /** Résultat de la reprise : snapshot chargé (null si aucun) et enregistrements rejoués ensuite. */
+    public record Recovery(Path snapshot, long restoredOrders, long records) {
+        public boolean isEmpty() {
+            return snapshot == null && records == 0;
+        }
+    }
+
+    @Getter
+    private final Path baseDir;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final int retainedSnapshots;
+    private Path current;                       // génération ouverte en écriture
+
+    public JournalStore(Path baseDir, int segmentSize, boolean fsync, int retainedSnapshots) {
+        this.baseDir = baseDir;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.retainedSnapshots = Math.max(1, retainedSnapshots);
+    }
+
+    /**
+     * Reprise : dernier snapshot complet lisible, puis enregistrements postérieurs de sa génération
+     * et générations suivantes en entier. Sans snapshot, rejeu complet.
+     */
+    public Recovery recover(JournalReplayer replayer) throws IOException {
+        List<Path> generations = generations();
+        long[] count = {0};
+        Consumer<JournalRecord> counting = r -> {
+            count[0]++;
+            replayer.accept(r);
+        };
+        Path snapshot = null;
+        int next = 0;
+        for (int g = generations.size() - 1; g >= 0 && snapshot == null; g--) {
+            List<Path> candidates = completeSnapshots(generations.get(g));
+            for (int c = candidates.size() - 1; c >= 0; c--) {
+                if (isReadable(candidates.get(c), shardsOf(generations.get(g)))) {
+                    snapshot = candidates.get(c);
+                    next = g;
+                    break;
+                }
+            }
+        }
+        if (snapshot != null) {
+            Path generation = generations.get(next);
+            for (int i = 0; i < shardsOf(generation); i++) {
+                long covered = BookSnapshot.load(snapshot.resolve(snapshotFile(i)), replayer);
+                JournalReader.read(generation.resolve(shardDir(i)), covered + 1, counting);
+            }
+            next++;
+        }
+        for (int g = next; g < generations.size(); g++) {
+            for (int i = 0; i < shardsOf(generations.get(g)); i++) {
+                JournalReader.read(generations.get(g).resolve(shardDir(i)), counting);
+            }
+        }
+        return new Recovery(snapshot, replayer.getRestored(), count[0]);
+    }
+
+    /** Ouvre un journal par séquenceur, dans la dernière génération si elle a le même nombre de shards. */
+    public EventJournal[] openWriters(int shards) throws IOException {
+        List<Path> generations = generations();
+        Path current;
+        if (!generations.isEmpty() && shardsOf(generations.get(generations.size() - 1)) == shards) {
+            current = generations.get(generations.size() - 1);
+        } else {
+            int next = generations.isEmpty() ? 1 : numberOf(generations.get(generations.size() - 1)) + 1;
+            current = baseDir.resolve(String.format("gen-%06d-shards-%d", next, shards));
+        }
+        EventJournal[] journals = new EventJournal[shards];
+        for (int i = 0; i < shards; i++) {
+            journals[i] = EventJournal.open(current.resolve(shardDir(i)), segmentSize, fsync);
+        }
+        this.current = current;
+        return journals;
+    }
+
+    /**
+     * Écrit un snapshot (une image par shard de la génération courante), le marque complet,
+     * puis supprime ce qu'il rend inutile. Appelé par un seul thread à la fois.
+     */
+    public Path writeSnapshot(ByteBuffer[] images) throws IOException {
+        if (current == null) throw new IllegalStateException("Journal non ouvert");
+        long id = System.currentTimeMillis();
+        Path dir;
+        while (Files.exists(dir = current.resolve(String.format("snapshot-%020d", id)))) id++;
+        Files.createDirectories(dir);
+        for (int i = 0; i < images.length; i++) {
+            BookSnapshot.write(dir.resolve(snapshotFile(i)), images[i]);
+        }
+        Files.createFile(dir.resolve(COMPLETE));
+        prune();
+        return dir;
+    }
+
+    private void prune() throws IOException {
+        List<Path> complete = completeSnapshots(current);
+        List<Path> kept = complete.subList(Math.max(0, complete.size() - retainedSnapshots), complete.size());
+        for (Path g : generations()) {
+            if (g.compareTo(current) < 0) deleteRecursively(g);
+        }
+        for (Path dir : snapshotDirs(current)) {
+            if (!kept.contains(dir)) deleteRecursively(dir);
+        }
+        // Segments entièrement couverts par le plus ancien snapshot conservé (jamais le segment courant)
+        Path oldest = kept.get(0);
+        for (int i = 0; i < shardsOf(current); i++) {
+            long covered = BookSnapshot.lastSequence(oldest.resolve(snapshotFile(i)));
+            List<Path> segments = JournalReader.segments(current.resolve(shardDir(i)));
+            for (int j = 0; j + 1 < segments.size(); j++) {
+                if (JournalReader.firstSequence(segments.get(j + 1)) <= covered + 1) Files.delete(segments.get(j));
+            }
+        }
+    }
+
+    private static boolean isReadable(Path snapshot, int shards) {
+        for (int i = 0; i < shards; i++) {
+            if (!BookSnapshot.isValid(snapshot.resolve(snapshotFile(i)))) return false;
+        }
+        return true;
+    }
+
+    private static List<Path> completeSnapshots(Path generation) throws IOException {
+        List<Path> complete = new ArrayList<>();
+        for (Path dir : snapshotDirs(generation)) {
+            if (Files.exists(dir.resolve(COMPLETE))) complete.add(dir);
+        }
+        return complete;
+    }
+
+    private static List<Path> snapshotDirs(Path generation) throws IOException {
+        try (Stream<Path> dirs = Files.list(generation)) {
+            return dirs.filter(p -> SNAPSHOT.matcher(p.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    private static String shardDir(int shard) {
+        return "shard-" + shard;
+    }
+
+    private static String snapshotFile(int shard) {
+        return "shard-" + shard + ".snap";
+    }
+
+    List<Path> generations() throws IOException {
+        if (!Files.isDirectory(baseDir)) return List.of();
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            return dirs.filter(p -> GENERATION.matcher(p.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int numberOf(Path generation) {
+        return Integer.parseInt(match(generation).group(1));
+    }
+
+    private static int shardsOf(Path generation) {
+        return Integer.parseInt(match(generation).group(2));
+    }
+
+    private static Matcher match(Path generation) {
+        Matcher m = GENERATION.matcher(generation.getFileName().toString());
+        if (!m.matches()) throw new IllegalArgumentException("Génération de journal invalide : " + generation);
+        return m;
+    }
+}
@@ -0,0 +1,341 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Carnet d'ordres résident d'un instrument.
+ * Niveaux de prix triés (bids décroissants, asks croissants), FIFO dans chaque niveau,
+ * meilleurs prix mis en cache pour un accès en O(1). Prix et quantités en virgule fixe.
+ * Non thread-safe : un seul thread doit le modifier.
+ * Si le suivi est activé, les niveaux modifiés sont notés pour produire des deltas de profondeur.
+ */
+public class LimitOrderBook {
+
+    @Getter
+    private final Long stockId;
+
+    private final NavigableMap<Long, PriceLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<Long, PriceLevel> asks = new TreeMap<>();
+    private final Map<Long, RestingOrder> ordersById = new HashMap<>();
+
+    private PriceLevel bestBid;
+    private PriceLevel bestAsk;
+    private int dayOrders;
+
+    // Suivi des changements pour le flux de marché
+    private boolean trackChanges;
+    private final List<PriceLevel> changedBids = new ArrayList<>();
+    private final List<PriceLevel> changedAsks = new ArrayList<>();
+    private long updateSequence;
+    private long lastPrice = FixedPoint.NULL;
+    private long publishedBid = FixedPoint.NULL;
+    private long publishedBidQuantity;
+    private long publishedAsk = FixedPoint.NULL;
+    private long publishedAskQuantity;
+
+    public LimitOrderBook(Long stockId) {
+        this.stockId = stockId;
+    }
+
+    public PriceLevel bestBid() {
+        return bestBid;
+    }
+
+    public PriceLevel bestAsk() {
+        return bestAsk;
+    }
+
+    public int size() {
+        return ordersById.size();
+    }
+
+    public RestingOrder get(Long orderId) {
+        return ordersById.get(orderId);
+    }
+
+    public Collection<RestingOrder> orders() {
+        return Collections.unmodifiableCollection(ordersById.values());
+    }
+
+    public NavigableMap<Long, PriceLevel> bids() {
+        return Collections.unmodifiableNavigableMap(bids);
+    }
+
+    public NavigableMap<Long, PriceLevel> asks() {
+        return Collections.unmodifiableNavigableMap(asks);
+    }
+
+    /**
+     * Exécute l'ordre entrant contre le côté opposé (prix puis FIFO) selon son TimeInForce :
+     * FOK est vérifié d'abord sur la liquidité agrégée des niveaux sans toucher au carnet,
+     * le reliquat d'un IOC ou d'un MARKET est annulé en mémoire, seul un LIMIT DAY/GTC reste au carnet.
+     * Un MARKET muni d'un prix de protection s'arrête aux niveaux qui le dépassent.
+     */
+    public MatchResult process(RestingOrder taker) {
+        if (taker.getTif() == TimeInForce.FOK && !canFill(taker)) {
+            return new MatchResult(taker, OrderStatus.CANCELLED, List.of(), List.of());
+        }
+
+        List<Fill> fills = new ArrayList<>();
+        List<RestingOrder> makers = new ArrayList<>();
+
+        PriceLevel level = taker.isBuy() ? bestAsk : bestBid;
+        while (!taker.isFilled() && level != null && crosses(taker, level.getPrice())) {
+            RestingOrder maker = level.getHead();
+            long qty = Math.min(taker.getRemainingQuantity(), maker.getRemainingQuantity());
+
+            level.reduce(maker, qty);
+            taker.reduce(qty);
+            changed(level, maker.isBuy());
+            lastPrice = level.getPrice();
+            fills.add(new Fill(taker.getOrderId(), maker.getOrderId(), taker.getSide(), level.getPrice(), qty));
+            makers.add(maker);
+
+            if (maker.isFilled()) {
+                unlink(maker);
+                level = taker.isBuy() ? bestAsk : bestBid;
+            }
+        }
+
+        OrderStatus status;
+        if (taker.isFilled()) {
+            status = OrderStatus.FILLED;
+        } else if (!canRest(taker)) {
+            // IOC / MARKET : le reliquat est annulé sans jamais entrer dans le carnet
+            status = OrderStatus.CANCELLED;
+        } else {
+            rest(taker);
+            status = taker.fillStatus();
+        }
+        return new MatchResult(taker, status, fills, makers);
+    }
+
+    /**
+     * Pré-contrôle FOK : cumule la quantité agrégée des niveaux compatibles jusqu'à couvrir l'ordre.
+     * O(niveaux parcourus), aucune mutation.
+     */
+    public boolean canFill(RestingOrder taker) {
+        long needed = taker.getRemainingQuantity();
+        for (PriceLevel level : (taker.isBuy() ? asks : bids).values()) {
+            if (!crosses(taker, level.getPrice())) return false;
+            needed -= level.getTotalQuantity();
+            if (needed <= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Expiration en masse des ordres DAY (clôture de séance). Parcourt les niveaux une seule fois
+     * et renvoie les ordres retirés.
+     */
+    public List<RestingOrder> expireDayOrders() {
+        if (dayOrders == 0) return List.of();
+        List<RestingOrder> expired = new ArrayList<>(dayOrders);
+        expireDay(bids, expired, true);
+        expireDay(asks, expired, false);
+        refreshBest(true);
+        refreshBest(false);
+        return expired;
+    }
+
+    private void expireDay(NavigableMap<Long, PriceLevel> side, List<RestingOrder> expired, boolean buySide) {
+        Iterator<PriceLevel> it = side.values().iterator();
+        while (it.hasNext()) {
+            PriceLevel level = it.next();
+            RestingOrder o = level.getHead();
+            while (o != null) {
+                RestingOrder next = o.next;
+                if (o.getTif() == TimeInForce.DAY) {
+                    changed(level, buySide);
+                    level.remove(o);
+                    ordersById.remove(o.getOrderId());
+                    dayOrders--;
+                    expired.add(o);
+                }
+                o = next;
+            }
+            if (level.isEmpty()) it.remove();
+        }
+    }
+
+    private static boolean canRest(RestingOrder order) {
+        return order.getType() == OrderType.LIMIT
+                && (order.getTif() == TimeInForce.DAY || order.getTif() == TimeInForce.GTC);
+    }
+
+    /** Place un ordre sans matching (reconstruction du carnet). */
+    public void rest(RestingOrder order) {
+        NavigableMap<Long, PriceLevel> side = order.isBuy() ? bids : asks;
+        PriceLevel level = side.computeIfAbsent(order.getPrice(), PriceLevel::new);
+        level.append(order);
+        changed(level, order.isBuy());
+        ordersById.put(order.getOrderId(), order);
+        if (order.getTif() == TimeInForce.DAY) dayOrders++;
+        refreshBest(order.isBuy());
+    }
+
+    /**
+     * Modification d'un ordre au carnet. Une simple réduction de quantité conserve la priorité ;
+     * tout changement de prix ou hausse de quantité revient à annuler/remplacer (perte de priorité,
+     * le nouvel ordre peut s'exécuter immédiatement).
+     */
+    public MatchResult amend(Long orderId, long newPrice, long newQuantity) {
+        RestingOrder order = ordersById.get(orderId);
+        if (order == null) return null;
+
+        long filled = FixedPoint.subtract(order.getQuantity(), order.getRemainingQuantity());
+        long price = FixedPoint.isNull(newPrice) ? order.getPrice() : newPrice;
+        long quantity = FixedPoint.isNull(newQuantity) ? order.getQuantity() : newQuantity;
+
+        if (quantity <= filled) {
+            unlink(order);
+            return new MatchResult(order, OrderStatus.CANCELLED, List.of(), List.of());
+        }
+        if (price == order.getPrice() && quantity <= order.getQuantity()) {
+            changed(order.level, order.isBuy());
+            order.level.reduce(order, FixedPoint.subtract(order.getQuantity(), quantity));
+            order.setQuantity(quantity);
+            return new MatchResult(order, order.fillStatus(), List.of(), List.of());
+        }
+
+        unlink(order);
+        RestingOrder replacement = new RestingOrder(order.getOrderId(), stockId, order.getSide(), order.getType(),
+                order.getTif(), price, quantity, FixedPoint.subtract(quantity, filled), order.getCreatedAt(),
+                order.getPlayerId());
+        return process(replacement);
+    }
+
+    public RestingOrder cancel(Long orderId) {
+        RestingOrder order = ordersById.get(orderId);
+        if (order == null) return null;
+        unlink(order);
+        return order;
+    }
+
+    private void unlink(RestingOrder order) {
+        PriceLevel level = order.level;
+        changed(level, order.isBuy());
+        level.remove(order);
+        ordersById.remove(order.getOrderId());
+        if (order.getTif() == TimeInForce.DAY) dayOrders--;
+        if (level.isEmpty()) {
+            (order.isBuy() ? bids : asks).remove(level.getPrice());
+            refreshBest(order.isBuy());
+        }
+    }
+
+    // --- Flux de marché ---
+
+    void trackChanges(boolean enabled) {
+        this.trackChanges = enabled;
+    }
+
+    private void changed(PriceLevel level, boolean buySide) {
+        if (trackChanges && !level.changed) {
+            level.changed = true;
+            (buySide ? changedBids : changedAsks).add(level);
+        }
+    }
+
+    /**
+     * Mise à jour accumulée depuis l'appel précédent (niveaux modifiés + trades), null si rien n'a bougé.
+     * Un niveau vidé puis recréé au même prix apparaît deux fois, dans l'ordre : 0 puis la nouvelle quantité.
+     * Horodatée à l'heure du marché du symbole (simulée), pas à l'heure réelle.
+     */
+    BookUpdate drainUpdate(List<Fill> trades, MarketTime time) {
+        if (changedBids.isEmpty() && changedAsks.isEmpty() && trades.isEmpty()) return null;
+        int nb = changedBids.size();
+        int na = changedAsks.size();
+        long[] bidPrices = new long[nb], bidQuantities = new long[nb], askPrices = new long[na], askQuantities = new long[na];
+        int[] bidOrders = new int[nb], askOrders = new int[na];
+        drain(changedBids, bidPrices, bidQuantities, bidOrders);
+        drain(changedAsks, askPrices, askQuantities, askOrders);
+
+        long bid = bestBid == null ? FixedPoint.NULL : bestBid.getPrice();
+        long bidQty = bestBid == null ? 0 : bestBid.getTotalQuantity();
+        long ask = bestAsk == null ? FixedPoint.NULL : bestAsk.getPrice();
+        long askQty = bestAsk == null ? 0 : bestAsk.getTotalQuantity();
+        boolean topChanged = !trades.isEmpty() || bid != publishedBid || bidQty != publishedBidQuantity
+                || ask != publishedAsk || askQty != publishedAskQuantity;
+        publishedBid = bid;
+        publishedBidQuantity = bidQty;
+        publishedAsk = ask;
+        publishedAskQuantity = askQty;
+        return new BookUpdate(stockId, ++updateSequence, false, topChanged, bid, bidQty, ask, askQty, lastPrice,
+                bidPrices, bidQuantities, bidOrders, askPrices, askQuantities, askOrders, trades, time.now(stockId));
+    }
+
+    /** Oublie les changements notés (aucun abonné). */
+    void discardChanges() {
+        for (PriceLevel l : changedBids) l.changed = false;
+        for (PriceLevel l : changedAsks) l.changed = false;
+        changedBids.clear();
+        changedAsks.clear();
+    }
+
+    private static void drain(List<PriceLevel> changed, long[] prices, long[] quantities, int[] orders) {
+        for (int i = 0; i < changed.size(); i++) {
+            PriceLevel l = changed.get(i);
+            l.changed = false;
+            prices[i] = l.getPrice();
+            quantities[i] = l.getTotalQuantity();
+            orders[i] = l.getOrderCount();
+        }
+        changed.clear();
+    }
+
+    /** Profondeur agrégée courante (levels niveaux par côté, 0 = tous) à la séquence de la dernière mise à jour. */
+    public BookUpdate depthSnapshot(int levels, LocalDateTime time) {
+        int nb = levels > 0 ? Math.min(levels, bids.size()) : bids.size();
+        int na = levels > 0 ? Math.min(levels, asks.size()) : asks.size();
+        long[] bidPrices = new long[nb], bidQuantities = new long[nb], askPrices = new long[na], askQuantities = new long[na];
+        int[] bidOrders = new int[nb], askOrders = new int[na];
+        copy(bids, bidPrices, bidQuantities, bidOrders);
+        copy(asks, askPrices, askQuantities, askOrders);
+        return new BookUpdate(stockId, updateSequence, true, true,
+                bestBid == null ? FixedPoint.NULL : bestBid.getPrice(), bestBid == null ? 0 : bestBid.getTotalQuantity(),
+                bestAsk == null ? FixedPoint.NULL : bestAsk.getPrice(), bestAsk == null ? 0 : bestAsk.getTotalQuantity(),
+                lastPrice, bidPrices, bidQuantities, bidOrders, askPrices, askQuantities, askOrders,
+                List.of(), time);
+    }
+
+    private static void copy(NavigableMap<Long, PriceLevel> side, long[] prices, long[] quantities, int[] orders) {
+        Iterator<PriceLevel> it = side.values().iterator();
+        for (int i = 0; i < prices.length; i++) {
+            PriceLevel l = it.next();
+            prices[i] = l.getPrice();
+            quantities[i] = l.getTotalQuantity();
+            orders[i] = l.getOrderCount();
+        }
+    }
+
+    private void refreshBest(boolean buySide) {
+        if (buySide) {
+            Map.Entry<Long, PriceLevel> e = bids.firstEntry();
+            bestBid = e == null ? null : e.getValue();
+        } else {
+            Map.Entry<Long, PriceLevel> e = asks.firstEntry();
+            bestAsk = e == null ? null : e.getValue();
+        }
+    }
+
+    private static boolean crosses(RestingOrder taker, long makerPrice) {
+        if (taker.getPrice() == FixedPoint.NULL) return true;     // MARKET sans borne
+        return taker.isBuy() ? taker.getPrice() >= makerPrice : taker.getPrice() <= makerPrice;
+    }
+}
@@ -0,0 +1,10 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+/**
+ * Abonné au flux de marché du moteur. Appelé sur le thread du séquenceur, dans l'ordre des
+ * mises à jour de chaque symbole : l'implémentation doit seulement publier, sans I/O ni blocage.
+ */
+public interface MarketDataListener {
+
+    void onBookUpdate(BookUpdate update);
+}
@@ -0,0 +1,14 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.time.LocalDateTime;
+
+/**
+ * Heure de marché d'un symbole, qui horodate le flux publié par les séquenceurs. Heure réelle tant que
+ * l'horloge simulée des marchés n'est pas installée. Appelée sur le thread du séquenceur : sans I/O ni verrou.
+ */
+public interface MarketTime {
+
+    MarketTime SYSTEM = stockId -> LocalDateTime.now();
+
+    LocalDateTime now(Long stockId);
+}
@@ -0,0 +1,25 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+
+import java.util.List;
+
+/**
+ * Résultat du traitement d'un ordre entrant : exécutions + makers touchés,
+ * à répercuter en base par la couche service.
+ */
+@Getter
+@AllArgsConstructor
+public class MatchResult {
+
+    private final RestingOrder taker;
+    private final OrderStatus takerStatus;
+    private final List<Fill> fills;
+    private final List<RestingOrder> touchedMakers;
+
+    public boolean hasFills() {
+        return !fills.isEmpty();
+    }
+}
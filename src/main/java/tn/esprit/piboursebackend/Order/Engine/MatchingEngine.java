@@ -0,0 +1,345 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Repository.OrderRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moteur de matching en mémoire : un carnet résident par Stock.
+ * Chaque symbole est affecté à un séquenceur mono-écrivain (un thread par shard) ;
+ * les producteurs publient des commandes dans sa file sans verrou.
+ * Les carnets sont la source de vérité pour le matching ; la base ne sert qu'à la persistance.
+ * Le journal d'événements est le point de durabilité : au redémarrage on le rejoue plutôt que
+ * de relire les ordres ouverts en base (qui ne sert qu'à l'amorçage d'un journal vide).
+ * Des snapshots périodiques des carnets bornent le rejeu à la fin du journal.
+ * Entre reconstruction et démarrage des séquenceurs, les étapes de reprise (RecoveryStep) remettent
+ * la base et les états dérivés en phase avec les carnets.
+ */
+@Service
+public class MatchingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchingEngine.class);
+
+    private final OrderRepository orderRepository;
+    private final MatchingSequencer[] sequencers;
+    private final Map<Long, Long> locator = new ConcurrentHashMap<>();
+    private final List<MarketDataListener> marketDataListeners = new CopyOnWriteArrayList<>();
+    private final List<ExecutionSink> executionListeners = new CopyOnWriteArrayList<>();
+    private final TradingHalts halts = new TradingHalts();
+    private final JournalStore journalStore;    // null si la journalisation est désactivée
+    private final ObjectProvider<RecoveryStep> recoverySteps;
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile MarketTime marketTime = MarketTime.SYSTEM;
+    private volatile boolean started;
+
+    public MatchingEngine(OrderRepository orderRepository,
+                          ExecutionSink executionSink,
+                          ObjectProvider<RecoveryStep> recoverySteps,
+                          @Value("${pibourse.matching.shards:0}") int shards,
+                          @Value("${pibourse.matching.queue-capacity:65536}") int queueCapacity,
+                          @Value("${pibourse.journal.enabled:true}") boolean journalEnabled,
+                          @Value("${pibourse.journal.dir:journal}") String journalDir,
+                          @Value("${pibourse.journal.segment-size:67108864}") int segmentSize,
+                          @Value("${pibourse.journal.fsync:false}") boolean fsync,
+                          @Value("${pibourse.snapshot.retain:2}") int retainedSnapshots) {
+        this.orderRepository = orderRepository;
+        this.recoverySteps = recoverySteps;
+        this.journalStore = journalEnabled
+                ? new JournalStore(Path.of(journalDir), segmentSize, fsync, retainedSnapshots) : null;
+        int n = shards > 0 ? shards : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.sequencers = new MatchingSequencer[n];
+        for (int i = 0; i < n; i++) {
+            sequencers[i] = new MatchingSequencer(i, queueCapacity, new ObservedSink(executionSink, executionListeners),
+                    locator, marketDataListeners, halts);
+        }
+    }
+
+    // Reconstruction des carnets (snapshot + fin du journal, ou base si journal vide), étapes de reprise,
+    // puis démarrage des séquenceurs
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildBooks() {
+        int open;
+        if (journalStore == null) {
+            open = loadFromDatabase();
+        } else {
+            try {
+                long t0 = System.nanoTime();
+                JournalReplayer replayer = new JournalReplayer();
+                JournalStore.Recovery recovery = journalStore.recover(replayer);
+                EventJournal[] journals = journalStore.openWriters(sequencers.length);
+                for (int i = 0; i < sequencers.length; i++) {
+                    sequencers[i].attachJournal(journals[i]);
+                }
+                if (recovery.isEmpty()) {
+                    open = loadFromDatabase();
+                } else {
+                    for (LimitOrderBook book : replayer.getBooks().values()) {
+                        sequencerFor(book.getStockId()).adopt(book);
+                        book.orders().forEach(o -> locator.put(o.getOrderId(), book.getStockId()));
+                    }
+                    open = replayer.openOrders();
+                    log.info("Recovered {} orders from snapshot {} and {} journal records ({} trades) in {} ms",
+                            recovery.restoredOrders(), recovery.snapshot(), recovery.records(), replayer.getTrades(),
+                            (System.nanoTime() - t0) / 1_000_000);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Journal replay failed", e);
+            }
+        }
+        List<RestingOrder> recovered = new ArrayList<>(open);
+        for (MatchingSequencer s : sequencers) {
+            s.books().values().forEach(book -> recovered.addAll(book.orders()));
+        }
+        recoverySteps.orderedStream().forEach(step -> step.onBooksRecovered(recovered));
+        for (MatchingSequencer s : sequencers) {
+            s.start();
+        }
+        started = true;
+        log.info("Order books rebuilt: {} open orders, {} matching sequencers", open, sequencers.length);
+    }
+
+    // Amorçage depuis la base ; les ordres chargés sont tracés dans le journal (REST) pour les rejeux suivants
+    private int loadFromDatabase() {
+        List<Order> open = orderRepository.findOpenOrdersForBook();
+        for (Order o : open) {
+            Long stockId = o.getStock().getId();
+            MatchingSequencer sequencer = sequencerFor(stockId);
+            RestingOrder order = RestingOrder.from(o);
+            sequencer.bookFor(stockId).rest(order);
+            if (sequencer.journal() != null) {
+                sequencer.journal().appendOrder(JournalRecord.Type.REST, order);
+            }
+            locator.put(o.getId(), stockId);
+        }
+        for (MatchingSequencer s : sequencers) {
+            if (s.journal() != null) s.journal().commit();
+        }
+        return open.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        snapshotWriter.shutdown();
+        snapshotWriter.awaitTermination(30, TimeUnit.SECONDS);
+        for (MatchingSequencer s : sequencers) {
+            s.stop();
+        }
+        if (started && journalStore != null) {
+            // Séquenceurs arrêtés et files vidées : snapshot final pour un redémarrage sans rejeu
+            try {
+                ByteBuffer[] images = new ByteBuffer[sequencers.length];
+                for (int i = 0; i < sequencers.length; i++) {
+                    images[i] = sequencers[i].snapshotImage();
+                }
+                journalStore.writeSnapshot(images);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Shutdown snapshot failed, next start will replay the journal", e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pibourse.snapshot.interval-ms:300000}",
+            initialDelayString = "${pibourse.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        if (!started || journalStore == null) return;
+        snapshot().exceptionally(e -> {
+            log.error("Periodic book snapshot failed", e);
+            return null;
+        });
+    }
+
+    /**
+     * Snapshot des carnets sans arrêter le matching : chaque séquenceur copie ses carnets entre
+     * deux commandes, l'écriture sur disque se fait ensuite sur le thread snapshot-writer.
+     */
+    public CompletableFuture<Path> snapshot() {
+        if (journalStore == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Journalisation désactivée"));
+        }
+        OrderCommand[] commands = new OrderCommand[sequencers.length];
+        for (int i = 0; i < sequencers.length; i++) {
+            commands[i] = OrderCommand.snapshot();
+            sequencers[i].publish(commands[i]);
+        }
+        return CompletableFuture.allOf(Arrays.stream(commands).map(OrderCommand::getResult)
+                        .toArray(CompletableFuture[]::new))
+                .thenApplyAsync(v -> {
+                    try {
+                        Path dir = journalStore.writeSnapshot(Arrays.stream(commands)
+                                .map(OrderCommand::getSnapshot).toArray(ByteBuffer[]::new));
+                        log.info("Book snapshot written to {}", dir);
+                        return dir;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, snapshotWriter);
+    }
+
+    /**
+     * Observateur des résultats d'exécution, appelé après la persistance sur le thread du séquenceur :
+     * il doit seulement déposer l'événement, sans attendre.
+     */
+    public void addExecutionListener(ExecutionSink listener) {
+        executionListeners.add(listener);
+    }
+
+    /** Abonnement au flux de marché ; à faire avant le démarrage des séquenceurs de préférence. */
+    public void addMarketDataListener(MarketDataListener listener) {
+        marketDataListeners.add(listener);
+    }
+
+    /** Sonde de mesure des séquenceurs ; avant leur démarrage. */
+    public void setProbe(MatchingProbe probe) {
+        for (MatchingSequencer s : sequencers) {
+            s.attachProbe(probe);
+        }
+    }
+
+    /** Horloge qui horodate le flux de marché ; peut être installée séquenceurs démarrés. */
+    public void setMarketTime(MarketTime marketTime) {
+        this.marketTime = marketTime;
+        for (MatchingSequencer s : sequencers) {
+            s.attachMarketTime(marketTime);
+        }
+    }
+
+    public MarketTime getMarketTime() {
+        return marketTime;
+    }
+
+    public int shards() {
+        return sequencers.length;
+    }
+
+    public int queueDepth(int shard) {
+        return sequencers[shard].queueDepth();
+    }
+
+    /** Profondeur agrégée d'un symbole, cohérente avec la séquence des mises à jour publiées. */
+    public CompletableFuture<BookUpdate> depth(Long stockId, int levels) {
+        OrderCommand command = OrderCommand.depth(stockId, levels);
+        sequencerFor(stockId).publish(command);
+        return command.getResult().thenApply(v -> command.getDepth());
+    }
+
+    public TradingHalts halts() {
+        return halts;
+    }
+
+    public JournalStore journalStore() {
+        return journalStore;
+    }
+
+    /** Symbole d'un ordre actuellement au carnet, null s'il est inconnu ou clôturé. */
+    public Long locate(Long orderId) {
+        return locator.get(orderId);
+    }
+
+    public CompletableFuture<MatchResult> submit(Order order) {
+        return publish(OrderCommand.newOrder(order));
+    }
+
+    /** Ordre au marché borné par son prix de protection (FixedPoint.NULL = sans borne). */
+    public CompletableFuture<MatchResult> submitMarket(Order order, long protectionPrice) {
+        return publish(OrderCommand.newMarketOrder(order, protectionPrice));
+    }
+
+    public CompletableFuture<MatchResult> cancel(Long stockId, Long orderId) {
+        return publish(OrderCommand.cancel(stockId, orderId));
+    }
+
+    public CompletableFuture<MatchResult> amend(Long stockId, Long orderId, BigDecimal newPrice, BigDecimal newQuantity) {
+        return publish(OrderCommand.amend(stockId, orderId, newPrice, newQuantity));
+    }
+
+    /**
+     * Expire les ordres DAY des symboles donnés (clôture de séance) sur tous les séquenceurs.
+     * @return nombre d'ordres expirés
+     */
+    public CompletableFuture<Integer> expireDayOrders(Set<Long> stockIds) {
+        OrderCommand[] commands = new OrderCommand[sequencers.length];
+        for (int i = 0; i < sequencers.length; i++) {
+            commands[i] = OrderCommand.expireDay(stockIds);
+            sequencers[i].publish(commands[i]);
+        }
+        return CompletableFuture.allOf(Arrays.stream(commands).map(OrderCommand::getResult)
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(v -> Arrays.stream(commands).mapToInt(OrderCommand::getExpiredCount).sum());
+    }
+
+    private CompletableFuture<MatchResult> publish(OrderCommand command) {
+        sequencerFor(command.getStockId()).publish(command);
+        return command.getResult();
+    }
+
+    MatchingSequencer sequencerFor(Long stockId) {
+        return sequencers[(int) Math.floorMod(stockId, (long) sequencers.length)];
+    }
+
+    // Persistance d'abord (elle seule freine le séquenceur), puis les observateurs ; une erreur d'observateur est isolée
+    private static final class ObservedSink implements ExecutionSink {
+
+        private final ExecutionSink primary;
+        private final List<ExecutionSink> listeners;
+
+        ObservedSink(ExecutionSink primary, List<ExecutionSink> listeners) {
+            this.primary = primary;
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void onResult(OrderCommand command, MatchResult result) {
+            primary.onResult(command, result);
+            for (ExecutionSink listener : listeners) {
+                try {
+                    listener.onResult(command, result);
+                } catch (RuntimeException e) {
+                    log.warn("Execution listener failed on stock {}", command.getStockId(), e);
+                }
+            }
+        }
+
+        @Override
+        public void onExpired(List<RestingOrder> expired) {
+            primary.onExpired(expired);
+            for (ExecutionSink listener : listeners) {
+                try {
+                    listener.onExpired(expired);
+                } catch (RuntimeException e) {
+                    log.warn("Execution listener failed on expiry", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+/**
+ * Mesures d'une commande d'ordre (NEW / CANCEL / AMEND) relevées par le séquenceur.
+ * Appelée sur le thread du séquenceur après chaque commande : enregistrer sans allouer ni bloquer.
+ */
+public interface MatchingProbe {
+
+    MatchingProbe NONE = (stockId, queuedNanos, matchNanos, serviceNanos, fills) -> { };
+
+    /**
+     * @param queuedNanos  attente dans la file du séquenceur (publication -> prise en charge)
+     * @param matchNanos   traitement par le carnet seul
+     * @param serviceNanos traitement complet : journal, carnet, persistance différée, observateurs, flux de marché
+     */
+    void onCommand(Long stockId, long queuedNanos, long matchNanos, long serviceNanos, int fills);
+}
@@ -0,0 +1,393 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Séquenceur mono-écrivain : un thread dédié consomme la file de commandes et est le seul
+ * à modifier les carnets des symboles qui lui sont affectés. Aucun verrou sur le chemin de matching.
+ * Chaque commande est journalisée une fois appliquée sans erreur, suivie de ses trades ; une commande
+ * qui échoue n'entre donc jamais au journal. Les producteurs ne sont acquittés qu'une fois le lot drainé
+ * validé dans le journal (commit groupé), et rien ne sort du séquenceur avant ce commit : écriture
+ * différée, risque pré-négociation, audit, surveillance et flux de marché reçoivent les résultats du lot
+ * juste avant l'acquittement, avec l'état des ordres figé à leur commande. Si le journal échoue (écriture
+ * ou commit), le shard s'arrête : le lot en cours et toutes les commandes suivantes sont refusés sans que
+ * personne n'en ait rien vu.
+ */
+public class MatchingSequencer implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchingSequencer.class);
+
+    private static final int DRAIN_BATCH = 256;
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long PARK_NANOS = 50_000;
+
+    private final int shard;
+    private final RingBuffer<OrderCommand> queue;
+    private final ExecutionSink sink;
+    private final Map<Long, LimitOrderBook> books = new HashMap<>();
+    private final Map<Long, Long> locator;      // orderId -> stockId des ordres au carnet, partagé
+    private final List<MarketDataListener> listeners;
+    private final TradingHalts halts;
+    private final List<Outcome> pending = new ArrayList<>(DRAIN_BATCH);
+    private EventJournal journal;
+    private MatchingProbe probe = MatchingProbe.NONE;
+    private volatile MarketTime marketTime = MarketTime.SYSTEM;
+    private RuntimeException journalFailure;    // thread du séquenceur ; non null = shard arrêté
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public MatchingSequencer(int shard, int queueCapacity, ExecutionSink sink, Map<Long, Long> locator,
+                             List<MarketDataListener> listeners, TradingHalts halts) {
+        this.shard = shard;
+        this.locator = locator;
+        this.listeners = listeners;
+        this.halts = halts;
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.sink = sink;
+    }
+
+    /** Avant démarrage uniquement : ensuite seul le thread du séquenceur touche aux carnets. */
+    LimitOrderBook bookFor(Long stockId) {
+        return books.computeIfAbsent(stockId, id -> {
+            LimitOrderBook book = new LimitOrderBook(id);
+            book.trackChanges(true);
+            return book;
+        });
+    }
+
+    Map<Long, LimitOrderBook> books() {
+        return books;
+    }
+
+    /** Avant démarrage uniquement : carnet reconstruit par rejeu du journal. */
+    void adopt(LimitOrderBook book) {
+        book.trackChanges(true);
+        book.discardChanges();
+        books.put(book.getStockId(), book);
+    }
+
+    /** Avant démarrage uniquement. */
+    void attachJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    EventJournal journal() {
+        return journal;
+    }
+
+    /** Avant démarrage uniquement. */
+    void attachProbe(MatchingProbe probe) {
+        this.probe = probe;
+    }
+
+    void attachMarketTime(MarketTime marketTime) {
+        this.marketTime = marketTime;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        books.values().forEach(LimitOrderBook::discardChanges);     // chargement initial : pas un delta
+        running = true;
+        thread = new Thread(this, "matching-" + shard);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Closing journal of shard {} failed", shard, e);
+            }
+        }
+    }
+
+    /** Publie une commande ; temporise tant que la file est pleine (back-pressure). */
+    public void publish(OrderCommand command) {
+        command.setPublishedAt(System.nanoTime());
+        while (!queue.offer(command)) {
+            Thread.onSpinWait();
+            LockSupport.parkNanos(1_000);
+        }
+        LockSupport.unpark(thread);
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running || queue.size() > 0) {
+            int n = queue.drain(this::handle, DRAIN_BATCH);
+            if (n > 0) {
+                idle = 0;
+                acknowledge();
+            } else if (++idle > SPINS_BEFORE_PARK) {
+                LockSupport.parkNanos(PARK_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void handle(OrderCommand command) {
+        if (journalFailure != null) {
+            command.getResult().completeExceptionally(shardStopped());
+            return;
+        }
+        if (command.getType() == OrderCommand.Type.EXPIRE_DAY) {
+            expireDay(command);
+            return;
+        }
+        if (command.getType() == OrderCommand.Type.SNAPSHOT) {
+            snapshot(command);
+            return;
+        }
+        if (command.getType() == OrderCommand.Type.DEPTH) {
+            command.setDepth(bookFor(command.getStockId()).depthSnapshot(command.getDepthLevels(),
+                    marketTime.now(command.getStockId())));
+            defer(command, null);
+            return;
+        }
+        try {
+            // Symbole suspendu : ni journalisé ni appliqué, le rejeu reste déterministe
+            if (command.getType() != OrderCommand.Type.CANCEL && halts.isHalted(command.getStockId())) {
+                rejectHalted(command);
+                return;
+            }
+            long start = System.nanoTime();
+            long remaining = command.getType() == OrderCommand.Type.NEW ? command.getOrder().getRemainingQuantity() : 0;
+            MatchResult result = apply(command);
+            long matchNanos = System.nanoTime() - start;
+            if (!journal(command, remaining, result)) {
+                defer(command, null);
+                return;
+            }
+            if (result != null) {
+                track(result);
+                result = freeze(result);
+            }
+            BookUpdate update = drainUpdate(bookFor(command.getStockId()), result == null ? List.of() : result.getFills());
+            pending.add(new Outcome(command, result, result != null, List.of(), update == null ? List.of() : List.of(update)));
+            probe.onCommand(command.getStockId(), start - command.getPublishedAt(), matchNanos,
+                    System.nanoTime() - start, result == null ? 0 : result.getFills().size());
+        } catch (RuntimeException e) {
+            log.error("Matching command {} on stock {} failed", command.getType(), command.getStockId(), e);
+            command.getResult().completeExceptionally(e);
+        }
+    }
+
+    private void rejectHalted(OrderCommand command) {
+        if (command.getType() == OrderCommand.Type.NEW) {
+            defer(command, new MatchResult(command.getOrder(), OrderStatus.REJECTED, List.of(), List.of()));
+        } else {
+            command.getResult().completeExceptionally(
+                    new IllegalStateException("Cotation suspendue : " + command.getStockId()));
+        }
+    }
+
+    private void expireDay(OrderCommand command) {
+        try {
+            List<RestingOrder> expired = new ArrayList<>();
+            for (LimitOrderBook book : books.values()) {
+                if (command.getStockIds() == null || command.getStockIds().contains(book.getStockId())) {
+                    expired.addAll(book.expireDayOrders());
+                }
+            }
+            expired.forEach(o -> locator.remove(o.getOrderId()));
+            List<BookUpdate> updates = new ArrayList<>();
+            if (!expired.isEmpty()) {
+                if (journal != null) {
+                    try {
+                        journal.appendExpired(expired);
+                    } catch (RuntimeException e) {
+                        journalFailed(e);
+                        defer(command, null);
+                        return;
+                    }
+                }
+                for (LimitOrderBook book : books.values()) {
+                    BookUpdate update = drainUpdate(book, List.of());
+                    if (update != null) updates.add(update);
+                }
+            }
+            command.setExpiredCount(expired.size());
+            pending.add(new Outcome(command, null, false, expired, updates));
+        } catch (RuntimeException e) {
+            log.error("DAY order expiry failed on shard {}", shard, e);
+            command.getResult().completeExceptionally(e);
+        }
+    }
+
+    // Seule la copie des carnets en tampon se fait ici ; crc et écriture disque sur un autre thread
+    private void snapshot(OrderCommand command) {
+        try {
+            command.setSnapshot(snapshotImage());
+            defer(command, null);
+        } catch (RuntimeException e) {
+            log.error("Book snapshot failed on shard {}", shard, e);
+            command.getResult().completeExceptionally(e);
+        }
+    }
+
+    /** Image des carnets à la dernière séquence journalisée (thread du séquenceur, ou après stop()). */
+    ByteBuffer snapshotImage() {
+        return BookSnapshot.encode(books.values(), journal == null ? 0 : journal.lastSequence());
+    }
+
+    // Delta figé tout de suite (le carnet continue d'évoluer), publié seulement après le commit
+    private BookUpdate drainUpdate(LimitOrderBook book, List<Fill> trades) {
+        if (listeners.isEmpty()) {
+            book.discardChanges();
+            return null;
+        }
+        return book.drainUpdate(trades, marketTime);
+    }
+
+    private void publishMarketData(BookUpdate update) {
+        for (MarketDataListener listener : listeners) {
+            try {
+                listener.onBookUpdate(update);
+            } catch (RuntimeException e) {
+                log.warn("Market data listener failed on stock {}", update.getStockId(), e);
+            }
+        }
+    }
+
+    // Après apply : seules les commandes appliquées sont journalisées ; false si le journal a échoué
+    private boolean journal(OrderCommand command, long remaining, MatchResult result) {
+        if (journal == null) return true;
+        try {
+            switch (command.getType()) {
+                case NEW -> journal.appendOrder(JournalRecord.Type.NEW, command.getOrder(), remaining);
+                case CANCEL -> journal.appendCancel(command.getStockId(), command.getOrderId());
+                case AMEND -> journal.appendAmend(command.getStockId(), command.getOrderId(),
+                        command.getNewPrice(), command.getNewQuantity());
+                default -> { }
+            }
+            if (result != null && result.hasFills()) {
+                LocalDateTime now = LocalDateTime.now();
+                for (Fill fill : result.getFills()) {
+                    journal.appendTrade(result.getTaker().getStockId(), fill, now);
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            journalFailed(e);
+            return false;
+        }
+    }
+
+    private void journalFailed(RuntimeException e) {
+        if (journalFailure == null) {
+            log.error("Journal of shard {} failed, shard stopped: commands are no longer acknowledged", shard, e);
+            journalFailure = e;
+        }
+    }
+
+    private IllegalStateException shardStopped() {
+        return new IllegalStateException("Journal du shard " + shard + " indisponible, commande non enregistrée",
+                journalFailure);
+    }
+
+    // Commande sans effet à diffuser (lecture, refus)
+    private void defer(OrderCommand command, MatchResult result) {
+        pending.add(new Outcome(command, result, false, List.of(), List.of()));
+    }
+
+    // Commit groupé : un seul point de durabilité par lot drainé, puis diffusion et acquittement, dans l'ordre
+    // (en cas d'échec rien n'est durable ni diffusé : tout le lot est refusé et le shard s'arrête)
+    private void acknowledge() {
+        if (journal != null && journalFailure == null) {
+            try {
+                journal.commit();
+            } catch (RuntimeException e) {
+                journalFailed(e);
+            }
+        }
+        for (Outcome outcome : pending) {
+            if (journalFailure != null) {
+                outcome.command().getResult().completeExceptionally(shardStopped());
+                continue;
+            }
+            dispatch(outcome);
+            outcome.command().getResult().complete(outcome.result());
+        }
+        pending.clear();
+    }
+
+    // La commande est durable : un consommateur en échec est signalé mais ne la fait pas refuser
+    private void dispatch(Outcome outcome) {
+        try {
+            if (outcome.applied()) sink.onResult(outcome.command(), outcome.result());
+            if (!outcome.expired().isEmpty()) sink.onExpired(outcome.expired());
+        } catch (RuntimeException e) {
+            log.error("Execution sink failed on {} for stock {}", outcome.command().getType(),
+                    outcome.command().getStockId(), e);
+        }
+        outcome.updates().forEach(this::publishMarketData);
+    }
+
+    // Le lot est diffusé après son commit : une commande suivante du lot a pu toucher les mêmes ordres
+    private static MatchResult freeze(MatchResult result) {
+        List<RestingOrder> makers = new ArrayList<>(result.getTouchedMakers().size());
+        for (RestingOrder maker : result.getTouchedMakers()) {
+            makers.add(maker.freeze());
+        }
+        return new MatchResult(result.getTaker().freeze(), result.getTakerStatus(), result.getFills(), makers);
+    }
+
+    private void track(MatchResult result) {
+        RestingOrder taker = result.getTaker();
+        if (taker.isResting()) {
+            locator.put(taker.getOrderId(), taker.getStockId());
+        } else {
+            locator.remove(taker.getOrderId());
+        }
+        for (RestingOrder maker : result.getTouchedMakers()) {
+            if (!maker.isResting()) locator.remove(maker.getOrderId());
+        }
+    }
+
+    /** Commande traitée en attente du commit ; applied = résultat à transmettre au sink. */
+    private record Outcome(OrderCommand command, MatchResult result, boolean applied, List<RestingOrder> expired,
+                           List<BookUpdate> updates) {
+    }
+
+    private MatchResult apply(OrderCommand command) {
+        LimitOrderBook book = bookFor(command.getStockId());
+        switch (command.getType()) {
+            case NEW:
+                return book.process(command.getOrder());
+            case CANCEL: {
+                RestingOrder removed = book.cancel(command.getOrderId());
+                return removed == null ? null
+                        : new MatchResult(removed, OrderStatus.CANCELLED, List.of(), List.of());
+            }
+            case AMEND:
+                return book.amend(command.getOrderId(), command.getNewPrice(), command.getNewQuantity());
+            default:
+                throw new IllegalArgumentException("Commande inconnue : " + command.getType());
+        }
+    }
+}
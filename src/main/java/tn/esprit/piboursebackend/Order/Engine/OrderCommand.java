@@ -0,0 +1,95 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Commande publiée dans la file d'un séquenceur : nouvel ordre, annulation, modification,
+ * expiration des ordres DAY en fin de séance, capture d'un snapshot des carnets ou de la profondeur d'un symbole.
+ * Le résultat est rendu au producteur via {@link #getResult()} une fois la commande traitée.
+ */
+@Getter
+public class OrderCommand {
+
+    public enum Type { NEW, CANCEL, AMEND, EXPIRE_DAY, SNAPSHOT, DEPTH }
+
+    private final Type type;
+    private final Long stockId;
+    private final Long orderId;
+    private final RestingOrder order;       // NEW
+    private final long newPrice;            // AMEND (FixedPoint.NULL = inchangé)
+    private final long newQuantity;         // AMEND, quantité totale (FixedPoint.NULL = inchangée)
+    private final Set<Long> stockIds;       // EXPIRE_DAY : symboles de la séance clôturée
+    private final CompletableFuture<MatchResult> result = new CompletableFuture<>();
+    private int expiredCount;               // EXPIRE_DAY, renseigné par le séquenceur
+    private ByteBuffer snapshot;            // SNAPSHOT, image des carnets du shard
+    private int depthLevels;                // DEPTH, niveaux par côté (0 = tous)
+    private BookUpdate depth;               // DEPTH, renseigné par le séquenceur
+    private long publishedAt;               // System.nanoTime() à la publication (attente en file)
+
+    private OrderCommand(Type type, Long stockId, Long orderId, RestingOrder order,
+                         long newPrice, long newQuantity, Set<Long> stockIds) {
+        this.type = type;
+        this.stockId = stockId;
+        this.orderId = orderId;
+        this.order = order;
+        this.newPrice = newPrice;
+        this.newQuantity = newQuantity;
+        this.stockIds = stockIds;
+    }
+
+    public static OrderCommand newOrder(Order order) {
+        // Conversion en virgule fixe côté producteur : le séquenceur ne manipule jamais de BigDecimal
+        return new OrderCommand(Type.NEW, order.getStock().getId(), order.getId(), RestingOrder.from(order),
+                FixedPoint.NULL, FixedPoint.NULL, null);
+    }
+
+    /** Ordre au marché qui ne balaie pas le carnet au-delà de protectionPrice (virgule fixe). */
+    public static OrderCommand newMarketOrder(Order order, long protectionPrice) {
+        return new OrderCommand(Type.NEW, order.getStock().getId(), order.getId(),
+                RestingOrder.from(order, protectionPrice), FixedPoint.NULL, FixedPoint.NULL, null);
+    }
+
+    public static OrderCommand cancel(Long stockId, Long orderId) {
+        return new OrderCommand(Type.CANCEL, stockId, orderId, null, FixedPoint.NULL, FixedPoint.NULL, null);
+    }
+
+    public static OrderCommand amend(Long stockId, Long orderId, BigDecimal newPrice, BigDecimal newQuantity) {
+        return new OrderCommand(Type.AMEND, stockId, orderId, null, FixedPoint.of(newPrice), FixedPoint.of(newQuantity), null);
+    }
+
+    public static OrderCommand expireDay(Set<Long> stockIds) {
+        return new OrderCommand(Type.EXPIRE_DAY, null, null, null, FixedPoint.NULL, FixedPoint.NULL, stockIds);
+    }
+
+    public static OrderCommand snapshot() {
+        return new OrderCommand(Type.SNAPSHOT, null, null, null, FixedPoint.NULL, FixedPoint.NULL, null);
+    }
+
+    public static OrderCommand depth(Long stockId, int levels) {
+        OrderCommand command = new OrderCommand(Type.DEPTH, stockId, null, null, FixedPoint.NULL, FixedPoint.NULL, null);
+        command.depthLevels = levels;
+        return command;
+    }
+
+    void setDepth(BookUpdate depth) {
+        this.depth = depth;
+    }
+
+    void setSnapshot(ByteBuffer snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    void setExpiredCount(int expiredCount) {
+        this.expiredCount = expiredCount;
+    }
+
+    void setPublishedAt(long publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+}
@@ -0,0 +1,201 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contrôle pré-négociation en mémoire : liquidités disponibles et titres disponibles par joueur.
+ * Un ordre accepté réserve, par CAS et sans aller en base, le montant (achat : prix x quantité)
+ * ou les titres (vente) ; la réservation est convertie au fil des exécutions puis libérée pour le
+ * reliquat quand l'ordre quitte le carnet. Disponible = solde - réservations en cours.
+ * Les résultats arrivent des séquenceurs (un par groupe de symboles) : tout est atomique.
+ */
+public class PreTradeRisk implements ExecutionSink {
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // --- Soldes ---
+
+    /** Mouvement de liquidités (dépôt > 0, retrait < 0), virgule fixe. */
+    public void credit(long playerId, long amount) {
+        account(playerId).cash.addAndGet(amount);
+    }
+
+    /** Mouvement de titres hors marché (chargement initial), virgule fixe. */
+    public void creditShares(long playerId, long stockId, long quantity) {
+        account(playerId).shares(stockId).addAndGet(quantity);
+    }
+
+    public long availableCash(long playerId) {
+        Account a = accounts.get(playerId);
+        return a == null ? 0 : a.cash.get();
+    }
+
+    public long availableShares(long playerId, long stockId) {
+        Account a = accounts.get(playerId);
+        AtomicLong s = a == null ? null : a.shares.get(stockId);
+        return s == null ? 0 : s.get();
+    }
+
+    // --- Réservations, côté appelant ---
+
+    /**
+     * Réserve prix unitaire x quantité (achat) ou la quantité (vente) pour un nouvel ordre.
+     * force = réservation sans contrôle (ordres déjà au carnet au redémarrage).
+     */
+    public boolean reserve(long orderId, long playerId, long stockId, OrderSide side, long unitPrice, long quantity,
+                           boolean force) {
+        Account account = account(playerId);
+        Reservation r = new Reservation(account, stockId, side, unitPrice);
+        long amount = r.amount(unitPrice, quantity);
+        if (!take(r.pool(), amount, force)) return false;
+        r.held.set(amount);
+        r.quantity = quantity;
+        reservations.put(orderId, r);
+        return true;
+    }
+
+    /**
+     * Modification : complète la réservation jusqu'au nouveau besoin (majorant : quantité totale),
+     * rien si elle suffit. FixedPoint.NULL = prix ou quantité inchangés.
+     */
+    public boolean extend(long orderId, long unitPrice, long quantity) {
+        Reservation r = reservations.get(orderId);
+        if (r == null) return true;
+        long price = unitPrice == FixedPoint.NULL ? r.unitPrice : unitPrice;
+        long extra = r.amount(price, quantity == FixedPoint.NULL ? r.quantity : quantity) - r.held.get();
+        if (extra <= 0) return true;
+        if (!take(r.pool(), extra, false)) return false;
+        r.held.addAndGet(extra);
+        return true;
+    }
+
+    /**
+     * Modification refusée ou échouée : rend ce qu'extend a pris au-delà du besoin de l'ordre au carnet.
+     * Par CAS, le séquenceur pouvant convertir la réservation au même moment.
+     */
+    public void revertExtension(long orderId) {
+        Reservation r = reservations.get(orderId);
+        if (r == null) return;
+        long required = r.amount(r.unitPrice, r.quantity);
+        long held;
+        do {
+            held = r.held.get();
+            if (held <= required) return;
+        } while (!r.held.compareAndSet(held, required));
+        r.pool().addAndGet(held - required);
+    }
+
+    /** Ordre refusé ou jamais arrivé au carnet : tout est rendu. */
+    public void release(long orderId) {
+        Reservation r = reservations.remove(orderId);
+        if (r != null) r.pool().addAndGet(r.held.getAndSet(0));
+    }
+
+    public int openReservations() {
+        return reservations.size();
+    }
+
+    private static boolean take(AtomicLong pool, long amount, boolean force) {
+        if (force) {
+            pool.addAndGet(-amount);
+            return true;
+        }
+        long available;
+        do {
+            available = pool.get();
+            if (available < amount) return false;
+        } while (!pool.compareAndSet(available, available - amount));
+        return true;
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onResult(OrderCommand command, MatchResult result) {
+        for (Fill fill : result.getFills()) {
+            Reservation buy = reservations.get(fill.getBuyOrderId());
+            if (buy != null) {
+                long reserved = FixedPoint.multiply(buy.unitPrice, fill.getQuantity());
+                buy.held.addAndGet(-reserved);
+                buy.account.cash.addAndGet(reserved - FixedPoint.multiply(fill.getPrice(), fill.getQuantity()));
+                buy.account.shares(buy.stockId).addAndGet(fill.getQuantity());
+            }
+            Reservation sell = reservations.get(fill.getSellOrderId());
+            if (sell != null) {
+                sell.held.addAndGet(-fill.getQuantity());
+                sell.account.cash.addAndGet(FixedPoint.multiply(fill.getPrice(), fill.getQuantity()));
+            }
+        }
+        reconcile(result.getTaker());
+        for (RestingOrder maker : result.getTouchedMakers()) {
+            reconcile(maker);
+        }
+    }
+
+    @Override
+    public void onExpired(List<RestingOrder> expired) {
+        for (RestingOrder o : expired) {
+            release(o.getOrderId());
+        }
+    }
+
+    // Ramène la réservation au besoin du reliquat au carnet (prix courant après modification)
+    private void reconcile(RestingOrder order) {
+        Reservation r = reservations.get(order.getOrderId());
+        if (r == null) return;
+        if (!order.isResting()) {
+            release(order.getOrderId());
+            return;
+        }
+        if (r.side == OrderSide.BUY && order.getPrice() != FixedPoint.NULL) r.unitPrice = order.getPrice();
+        r.quantity = order.getRemainingQuantity();
+        long surplus = r.held.get() - r.amount(r.unitPrice, order.getRemainingQuantity());
+        if (surplus != 0) {
+            r.held.addAndGet(-surplus);
+            r.pool().addAndGet(surplus);
+        }
+    }
+
+    private Account account(long playerId) {
+        return accounts.computeIfAbsent(playerId, id -> new Account());
+    }
+
+    private static final class Account {
+        final AtomicLong cash = new AtomicLong();
+        final Map<Long, AtomicLong> shares = new ConcurrentHashMap<>();
+
+        AtomicLong shares(long stockId) {
+            return shares.computeIfAbsent(stockId, id -> new AtomicLong());
+        }
+    }
+
+    private static final class Reservation {
+        final Account account;
+        final long stockId;
+        final OrderSide side;
+        final AtomicLong held = new AtomicLong();
+        volatile long unitPrice;
+        volatile long quantity;         // reliquat couvert par la réservation
+
+        Reservation(Account account, long stockId, OrderSide side, long unitPrice) {
+            this.account = account;
+            this.stockId = stockId;
+            this.side = side;
+            this.unitPrice = unitPrice;
+        }
+
+        AtomicLong pool() {
+            return side == OrderSide.BUY ? account.cash : account.shares(stockId);
+        }
+
+        long amount(long unitPrice, long quantity) {
+            return side == OrderSide.BUY ? FixedPoint.multiply(unitPrice, quantity) : quantity;
+        }
+    }
+}
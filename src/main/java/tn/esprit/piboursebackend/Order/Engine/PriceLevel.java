@@ -0,0 +1,58 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+
+/**
+ * Un niveau de prix du carnet : file FIFO des ordres au même prix,
+ * avec la quantité agrégée maintenue à chaque ajout/retrait.
+ */
+@Getter
+public class PriceLevel {
+
+    private final long price;
+    private long totalQuantity;
+    private int orderCount;
+
+    private RestingOrder head;
+    private RestingOrder tail;
+
+    boolean changed;                        // déjà listé dans les changements du carnet
+
+    PriceLevel(long price) {
+        this.price = price;
+    }
+
+    void append(RestingOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        orderCount++;
+        totalQuantity = FixedPoint.add(totalQuantity, order.getRemainingQuantity());
+    }
+
+    void remove(RestingOrder order) {
+        if (order.prev == null) head = order.next; else order.prev.next = order.next;
+        if (order.next == null) tail = order.prev; else order.next.prev = order.prev;
+        order.prev = null;
+        order.next = null;
+        order.level = null;
+        orderCount--;
+        totalQuantity = FixedPoint.subtract(totalQuantity, order.getRemainingQuantity());
+    }
+
+    // Exécution ou réduction de quantité d'un ordre du niveau : garde l'agrégat à jour
+    void reduce(RestingOrder order, long qty) {
+        order.reduce(qty);
+        totalQuantity = FixedPoint.subtract(totalQuantity, qty);
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+}
@@ -0,0 +1,13 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.util.List;
+
+/**
+ * Étape de reprise exécutée une fois les carnets reconstruits, avant que les séquenceurs n'appliquent
+ * la moindre commande (les commandes publiées entre-temps attendent). Étapes triées par @Order.
+ * Les ordres reçus sont ceux des carnets : à lire pendant l'appel, sans les conserver.
+ */
+public interface RecoveryStep {
+
+    void onBooksRecovered(List<RestingOrder> openOrders);
+}
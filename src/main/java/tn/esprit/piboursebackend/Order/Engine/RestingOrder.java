@@ -0,0 +1,118 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import lombok.Getter;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vue mémoire d'un ordre dans le carnet. Prix et quantités en virgule fixe ({@link FixedPoint}).
+ * Chaînée dans la file FIFO de son niveau de prix (prev/next) pour un retrait en O(1).
+ */
+@Getter
+public class RestingOrder {
+
+    private final Long orderId;
+    private final Long stockId;
+    private final OrderSide side;
+    private final OrderType type;
+    private final TimeInForce tif;
+    private final long price;                // MARKET : prix de protection, FixedPoint.NULL si sans borne
+    private long quantity;
+    private final LocalDateTime createdAt;
+    private final Long playerId;             // propriétaire, null si inconnu
+
+    private long remainingQuantity;
+
+    // Chaînage intrusif dans le PriceLevel
+    RestingOrder prev;
+    RestingOrder next;
+    PriceLevel level;
+    private boolean frozenResting;           // copie figée : au carnet au moment de la copie
+
+    public RestingOrder(Long orderId, Long stockId, OrderSide side, OrderType type, TimeInForce tif,
+                        long price, long quantity, long remainingQuantity, LocalDateTime createdAt) {
+        this(orderId, stockId, side, type, tif, price, quantity, remainingQuantity, createdAt, null);
+    }
+
+    public RestingOrder(Long orderId, Long stockId, OrderSide side, OrderType type, TimeInForce tif,
+                        long price, long quantity, long remainingQuantity, LocalDateTime createdAt, Long playerId) {
+        this.orderId = orderId;
+        this.stockId = stockId;
+        this.side = side;
+        this.type = type;
+        this.tif = tif;
+        this.price = price;
+        this.quantity = quantity;
+        this.remainingQuantity = remainingQuantity;
+        this.createdAt = createdAt;
+        this.playerId = playerId;
+    }
+
+    // Frontière JPA -> moteur : seule conversion BigDecimal -> long
+    public static RestingOrder from(Order order) {
+        return from(order, FixedPoint.of(order.getPrice()));
+    }
+
+    /** Ordre au marché borné : price = prix de protection, au-delà duquel il ne balaie pas le carnet. */
+    static RestingOrder from(Order order, long price) {
+        BigDecimal remaining = order.getRemainingQuantity() != null
+                ? order.getRemainingQuantity() : order.getQuantity();
+        return new RestingOrder(order.getId(), order.getStock().getId(), order.getSide(), order.getType(),
+                order.getTif(), price, FixedPoint.of(order.getQuantity()),
+                FixedPoint.of(remaining), order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now(),
+                order.getPlayer() != null ? order.getPlayer().getId() : null);
+    }
+
+    // Copie hors carnet de l'état courant : diffusée après le commit, quand l'original a pu évoluer
+    RestingOrder freeze() {
+        RestingOrder copy = new RestingOrder(orderId, stockId, side, type, tif, price, quantity, remainingQuantity,
+                createdAt, playerId);
+        copy.frozenResting = isResting();
+        return copy;
+    }
+
+    void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    void reduce(long qty) {
+        remainingQuantity = FixedPoint.subtract(remainingQuantity, qty);
+    }
+
+    public boolean isFilled() {
+        return remainingQuantity <= 0;
+    }
+
+    public boolean isResting() {
+        return level != null || frozenResting;
+    }
+
+    public boolean isBuy() {
+        return side == OrderSide.BUY;
+    }
+
+    public BigDecimal priceDecimal() {
+        return FixedPoint.toBigDecimal(price);
+    }
+
+    public BigDecimal quantityDecimal() {
+        return FixedPoint.toBigDecimal(quantity);
+    }
+
+    public BigDecimal remainingDecimal() {
+        return FixedPoint.toBigDecimal(remainingQuantity);
+    }
+
+    // Statut dérivé des quantités (l'annulation est gérée par l'appelant)
+    public OrderStatus fillStatus() {
+        if (isFilled()) return OrderStatus.FILLED;
+        if (remainingQuantity < quantity) return OrderStatus.PARTIALLY_FILLED;
+        return OrderStatus.PENDING;
+    }
+}
@@ -0,0 +1,80 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * File bornée sans verrou, multi-producteurs / consommateur unique.
+ * Chaque case porte un numéro de séquence (schéma Vyukov) : les producteurs réservent
+ * une case par CAS sur la queue, le consommateur avance seul sur la tête.
+ */
+public final class RingBuffer<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** @return false si la file est pleine (à l'appelant de temporiser). */
+    public boolean offer(E e) {
+        long pos;
+        while (true) {
+            pos = tail.get();
+            long seq = sequences.getAcquire((int) pos & mask);
+            long dif = seq - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+            } else if (dif < 0) {
+                return false;
+            }
+        }
+        int idx = (int) pos & mask;
+        buffer[idx] = e;
+        sequences.setRelease(idx, pos + 1);
+        return true;
+    }
+
+    /** Consommateur unique uniquement. */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head;
+        int idx = (int) h & mask;
+        if (sequences.getAcquire(idx) != h + 1) return null;
+        E e = (E) buffer[idx];
+        buffer[idx] = null;
+        sequences.setRelease(idx, h + buffer.length);
+        head = h + 1;
+        return e;
+    }
+
+    /** Consommateur unique uniquement. */
+    public int drain(Consumer<E> consumer, int limit) {
+        int n = 0;
+        E e;
+        while (n < limit && (e = poll()) != null) {
+            consumer.accept(e);
+            n++;
+        }
+        return n;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
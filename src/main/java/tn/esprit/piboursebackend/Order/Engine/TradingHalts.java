@@ -0,0 +1,34 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suspensions de cotation par symbole. Posées par le suivi des coupe-circuits, lues sans verrou
+ * par les séquenceurs avant chaque nouvel ordre ou modification : une lecture de map, rien de plus.
+ * Une suspension dure jusqu'à sa levée explicite : l'échéance, en heure simulée du marché du symbole,
+ * est surveillée par celui qui l'a posée ; UNTIL_CLOSE n'est levée qu'à la clôture.
+ */
+public class TradingHalts {
+
+    public static final long UNTIL_CLOSE = Long.MAX_VALUE;
+
+    private final Map<Long, Long> haltedUntil = new ConcurrentHashMap<>();     // stockId -> ms simulées
+
+    public boolean isHalted(Long stockId) {
+        return !haltedUntil.isEmpty() && haltedUntil.containsKey(stockId);
+    }
+
+    public void halt(Long stockId, long untilMillis) {
+        haltedUntil.merge(stockId, untilMillis, Math::max);
+    }
+
+    public boolean resume(Long stockId) {
+        return haltedUntil.remove(stockId) != null;
+    }
+
+    /** Copie des suspensions en cours (échues comprises tant qu'elles n'ont pas été levées). */
+    public Map<Long, Long> current() {
+        return Map.copyOf(haltedUntil);
+    }
+}
@@ -2,29 +2,33 @@ package tn.esprit.piboursebackend.Order.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
+
+/**
+ * Trace d'audit, écrite uniquement par AuditLogWriter (batch JDBC, jamais via JPA) : lignes
+ * immuables, d'où l'absence de @Version. Le détail est un enregistrement binaire compact
+ * (voir AuditDetails), lisible via AuditDetails.describe.
+ */
 @Entity
+@Getter
+@NoArgsConstructor
 public class AuditLog {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Version
-    private Long version;
-
     @Column(nullable = false, length = 160)
     private String actor;   // identifiant joueur / module
 
     @Column(nullable = false, length = 80)
     private String action;  // ORDER_PLACED, TRADE_EXECUTED, ...
 
-    @Column(length = 2000)
-    private String details; // JSON / description
+    @Column(length = 64)
+    private byte[] payload; // détail binaire versionné
 
-    @CreationTimestamp
+    // Heure de l'événement (moteur), pas de l'écriture différée
     @Column(nullable = false, updatable = false)
     private LocalDateTime timestamp;
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package tn.esprit.piboursebackend.Order.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Séquence applicative : prochaine valeur libre d'une famille d'identifiants (orders, trades...).
+ * Réservée par blocs par IdAllocator, d'où un seul aller-retour base par bloc.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdBlock {
+
+    @Id
+    @Column(length = 40)
+    private String name;
+
+    @Column(nullable = false)
+    private Long nextValue;
+}
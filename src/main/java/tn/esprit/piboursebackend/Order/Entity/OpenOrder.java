@@ -0,0 +1,40 @@
+package tn.esprit.piboursebackend.Order.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ordre au carnet (PENDING / PARTIALLY_FILLED) : table réduite au carnet vivant, tenue par
+ * OrderExecutionWriter dans la transaction qui écrit l'ordre. La ligne apparaît quand l'ordre reste
+ * au carnet et disparaît à son passage à un état terminal ; orders garde l'historique complet.
+ * Les lectures du carnet ne dépendent ainsi que de sa taille, pas du nombre d'ordres passés.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "open_orders",
+        indexes = @Index(name = "idx_open_orders_book", columnList = "stock_id, side, price, created_at"))
+public class OpenOrder {
+
+    @Id
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Long stockId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderSide side;
+
+    @Column(nullable = false, precision = 19, scale = 6)
+    private BigDecimal price;
+
+    // Priorité temporelle, recopiée de orders.created_at
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
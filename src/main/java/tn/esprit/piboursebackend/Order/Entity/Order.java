@@ -2,22 +2,24 @@ package tn.esprit.piboursebackend.Order.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Player.Entities.Player;
 
 import javax.sound.midi.Instrument;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 @Entity
+@Table(name = "orders") // "order" est un mot réservé MySQL ; carnet vivant : OpenOrder
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Order {
 
  private static final int SCALE = 6;
 
+ // Identifiant attribué par blocs (IdAllocator) à l'entrée de l'ordre : pas d'IDENTITY,
+ // ce qui permet les inserts JDBC en batch
  @Id
- @GeneratedValue(strategy = GenerationType.IDENTITY)
  private Long id;
 
  // Evite les écrasements concurrents
@@ -28,6 +30,11 @@ public class Order {
  @JoinColumn(name = "stock_id", nullable = false)
  private Stock stock;
 
+ // Donneur d'ordre (facultatif pour les ordres système / simulés)
+ @ManyToOne(fetch = FetchType.LAZY)
+ @JoinColumn(name = "player_id")
+ private Player player;
+
  @Enumerated(EnumType.STRING)
  @Column(nullable = false, length = 10)
  private OrderType type; // MARKET / LIMIT
@@ -58,7 +65,7 @@ public class Order {
  @Column(nullable = false, precision = 19, scale = 6)
  private BigDecimal remainingQuantity;
 
- @CreationTimestamp
+ // Heure d'entrée dans le moteur (priorité FIFO), pas l'heure d'écriture différée
  @Column(nullable = false, updatable = false)
  private LocalDateTime createdAt;
 
@@ -71,6 +78,7 @@ public class Order {
   // Defaults métier
   if (status == null) status = OrderStatus.PENDING;
   if (tif == null) tif = TimeInForce.DAY;
+  if (createdAt == null) createdAt = LocalDateTime.now();
 
   // Normalisation décimales
   quantity = scale(quantity);
@@ -2,35 +2,45 @@ package tn.esprit.piboursebackend.Order.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
 import tn.esprit.piboursebackend.Marche.Entity.Stock;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+
+/**
+ * Exécution. Sous MySQL la table est partitionnée par période d'executed_at (TradePartitionManager)
+ * et les périodes anciennes partent en archive (TradeArchiver) ; lecture des deux via TradeHistory.
+ * Pas de clés étrangères : MySQL refuse de partitionner une table qui en porte.
+ */
 @Entity
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = {
+        @Index(name = "idx_trade_stock_executed", columnList = "stock_id, executed_at"),
+        @Index(name = "idx_trade_buy_order", columnList = "buy_order_id"),
+        @Index(name = "idx_trade_sell_order", columnList = "sell_order_id")
+})
 public class Trade {
 
     private static final int SCALE = 6;
 
+    // Identifiant attribué par blocs (IdAllocator) : inserts JDBC en batch possibles
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Version
     private Long version;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
-    @JoinColumn(name = "stock_id", nullable = false)
+    @JoinColumn(name = "stock_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Stock stock;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
-    @JoinColumn(name = "buy_order_id", nullable = false)
+    @JoinColumn(name = "buy_order_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Order buyOrder;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
-    @JoinColumn(name = "sell_order_id", nullable = false)
+    @JoinColumn(name = "sell_order_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Order sellOrder;
 
     @Column(nullable = false, precision = 19, scale = 6)
@@ -39,12 +49,13 @@ public class Trade {
     @Column(nullable = false, precision = 19, scale = 6)
     private BigDecimal quantity;
 
-    @CreationTimestamp
+    // Heure d'exécution dans le moteur, l'écriture en base étant différée
     @Column(nullable = false, updatable = false)
     private LocalDateTime executedAt;
 
     @PrePersist
     public void onPersist() {
+        if (executedAt == null) executedAt = LocalDateTime.now();
         if (price != null)    price    = price.setScale(SCALE, RoundingMode.HALF_UP);
         if (quantity != null) quantity = quantity.setScale(SCALE, RoundingMode.HALF_UP);
     }
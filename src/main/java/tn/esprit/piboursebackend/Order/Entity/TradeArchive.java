@@ -0,0 +1,39 @@
+package tn.esprit.piboursebackend.Order.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Période de trades archivée par TradeArchiver : fichier colonnes compressé sur disque, bornes
+ * [periodStart, periodEnd). La plus grande periodEnd est l'horizon : les trades plus anciens ne sont
+ * plus en table, seulement dans les fichiers (et agrégés par joueur dans TradeRollup).
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeArchive {
+
+    @Id
+    private LocalDate periodStart;
+
+    @Column(nullable = false)
+    private LocalDate periodEnd;
+
+    // Relatif à pibourse.trades.archive.dir
+    @Column(nullable = false, length = 100)
+    private String fileName;
+
+    private long tradeCount;
+    private long fileBytes;
+
+    // Plus grand id archivé : IdAllocator ne doit jamais le réattribuer
+    private long maxTradeId;
+
+    private LocalDateTime archivedAt;
+}
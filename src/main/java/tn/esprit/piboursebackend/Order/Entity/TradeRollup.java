@@ -0,0 +1,45 @@
+package tn.esprit.piboursebackend.Order.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Quantité et montant échangés par (période archivée, joueur, titre, sens), écrits avec l'archive :
+ * les agrégats par joueur (contrôle pré-négociation, scoring crédit) restent exacts sans relire les fichiers.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(indexes = @Index(name = "idx_trade_rollup_player", columnList = "player_id, stock_id"))
+public class TradeRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "player_id", nullable = false)
+    private Long playerId;
+
+    @Column(name = "stock_id", nullable = false)
+    private Long stockId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 4)
+    private OrderSide side;
+
+    @Column(nullable = false, precision = 19, scale = 6)
+    private BigDecimal quantity;
+
+    // prix x quantité, sans arrondi (même échelle que SUM(t.price * t.quantity))
+    @Column(nullable = false, precision = 38, scale = 12)
+    private BigDecimal amount;
+}
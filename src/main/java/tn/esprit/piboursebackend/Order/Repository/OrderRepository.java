@@ -1,15 +1,11 @@
 package tn.esprit.piboursebackend.Order.Repository;
 
-import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import tn.esprit.piboursebackend.Marche.Entity.Stock;
 import tn.esprit.piboursebackend.Order.Entity.Order;
-import tn.esprit.piboursebackend.Order.Entity.OrderSide;
-import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
 
 import java.util.Collection;
 import java.util.List;
@@ -18,72 +14,64 @@ import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
 
+    // Vues en lecture seule du carnet, servies par open_orders (ordres PENDING / PARTIALLY_FILLED
+    // uniquement) : le matching se fait dans les séquenceurs mémoire, aucun verrou sur les ordres.
+
     // Taker = BUY -> on prend les SELL (asks) au meilleur prix puis FIFO
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("""
-      SELECT o FROM Order o
-       WHERE o.stock = :stock
-         AND o.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.SELL
-         AND (o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PENDING
-              OR o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PARTIALLY_FILLED)
-         AND o.price IS NOT NULL
-       ORDER BY o.price ASC, o.createdAt ASC
+      SELECT o FROM OpenOrder oo JOIN Order o ON o.id = oo.orderId
+       WHERE oo.stockId = :stockId
+         AND oo.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.SELL
+       ORDER BY oo.price ASC, oo.createdAt ASC
     """)
-    List<Order> findAsksForMatching(@Param("stock") Stock stock);
+    List<Order> findAsksForMatching(@Param("stockId") Long stockId, Pageable page);
 
     // Taker = SELL -> on prend les BUY (bids) au meilleur prix puis FIFO
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("""
-      SELECT o FROM Order o
-       WHERE o.stock = :stock
-         AND o.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.BUY
-         AND (o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PENDING
-              OR o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PARTIALLY_FILLED)
-         AND o.price IS NOT NULL
-       ORDER BY o.price DESC, o.createdAt ASC
+      SELECT o FROM OpenOrder oo JOIN Order o ON o.id = oo.orderId
+       WHERE oo.stockId = :stockId
+         AND oo.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.BUY
+       ORDER BY oo.price DESC, oo.createdAt ASC
     """)
-    List<Order> findBidsForMatching(@Param("stock") Stock stock);
-
+    List<Order> findBidsForMatching(@Param("stockId") Long stockId, Pageable page);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // Par symbole : colonne normalisée (index idx_stock_symbol_key), seul le paramètre est mis en majuscules
     @Query("""
-      SELECT o FROM Order o
-        JOIN o.stock s
-       WHERE UPPER(s.symbol) = UPPER(:symbol)
-         AND o.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.SELL
-         AND (o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PENDING
-              OR o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PARTIALLY_FILLED)
-         AND o.price IS NOT NULL
-       ORDER BY o.price ASC, o.createdAt ASC
+      SELECT o FROM Stock s
+        JOIN OpenOrder oo ON oo.stockId = s.id
+        JOIN Order o ON o.id = oo.orderId
+       WHERE s.symbolKey = UPPER(TRIM(:symbol))
+         AND oo.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.SELL
+       ORDER BY oo.price ASC, oo.createdAt ASC
     """)
     List<Order> findAsksForMatchingBySymbol(@Param("symbol") String symbol);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("""
-      SELECT o FROM Order o
-        JOIN o.stock s
-       WHERE UPPER(s.symbol) = UPPER(:symbol)
-         AND o.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.BUY
-         AND (o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PENDING
-              OR o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PARTIALLY_FILLED)
-         AND o.price IS NOT NULL
-       ORDER BY o.price DESC, o.createdAt ASC
+      SELECT o FROM Stock s
+        JOIN OpenOrder oo ON oo.stockId = s.id
+        JOIN Order o ON o.id = oo.orderId
+       WHERE s.symbolKey = UPPER(TRIM(:symbol))
+         AND oo.side = tn.esprit.piboursebackend.Order.Entity.OrderSide.BUY
+       ORDER BY oo.price DESC, oo.createdAt ASC
     """)
     List<Order> findBidsForMatchingBySymbol(@Param("symbol") String symbol);
 
+    // Reconstruction des carnets mémoire au démarrage : lecture simple, ordre d'arrivée
+    @Query("""
+      SELECT o FROM OpenOrder oo JOIN Order o ON o.id = oo.orderId
+        JOIN FETCH o.stock
+       ORDER BY oo.createdAt ASC, oo.orderId ASC
+    """)
+    List<Order> findOpenOrdersForBook();
 
-    List<Order> findTop50ByStockAndSideAndStatusInOrderByPriceDescCreatedAtAsc(
-            Stock stock, OrderSide side, Collection<OrderStatus> statuses);
-
-    List<Order> findTop50ByStockAndSideAndStatusInOrderByPriceAscCreatedAtAsc(
-            Stock stock, OrderSide side, Collection<OrderStatus> statuses);
+    // Amorçage de IdAllocator sur une base existante
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM Order o")
+    long findMaxId();
 
+    // Vérification du journal : état persisté d'un lot d'ordres (id, statut, reliquat)
+    @Query("SELECT o.id, o.status, o.remainingQuantity FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatesByIdIn(@Param("ids") Collection<Long> ids);
 
-    @Query("""
-      SELECT COUNT(o) FROM Order o
-       WHERE o.stock = :stock
-         AND (o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PENDING
-              OR o.status = tn.esprit.piboursebackend.Order.Entity.OrderStatus.PARTIALLY_FILLED)
-    """)
-    long countOpenByStock(@Param("stock") Stock stock);
+    @Query("SELECT COUNT(oo) FROM OpenOrder oo WHERE oo.stockId = :stockId")
+    long countOpenByStock(@Param("stockId") Long stockId);
 }
@@ -0,0 +1,24 @@
+package tn.esprit.piboursebackend.Order.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Order.Entity.TradeArchive;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TradeArchiveRepository extends JpaRepository<TradeArchive, LocalDate> {
+
+    // Horizon d'archivage : avant, les trades ne sont plus en table
+    @Query("SELECT MAX(a.periodEnd) FROM TradeArchive a")
+    Optional<LocalDate> findHorizon();
+
+    // Périodes recoupant [from, to], dans l'ordre chronologique
+    List<TradeArchive> findByPeriodEndGreaterThanAndPeriodStartLessThanEqualOrderByPeriodStartAsc(LocalDate from, LocalDate to);
+
+    // Période archivée précédant une date (remontée de "latest")
+    Optional<TradeArchive> findFirstByPeriodStartLessThanOrderByPeriodStartDesc(LocalDate before);
+}
@@ -1,20 +1,84 @@
 package tn.esprit.piboursebackend.Order.Repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Order.Dto.TradeResponse;
 import tn.esprit.piboursebackend.Order.Entity.Trade;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TradeRepository extends JpaRepository<Trade, Long> {
 
-    // Dernières transactions d’un instrument (pour "last price", ticker, etc.)
-    List<Trade> findTop50ByStockOrderByExecutedAtDesc(Stock stock);
+    // Dernières transactions d’un instrument encore en table (depuis l’horizon d’archivage)
+    @Query("""
+      SELECT new tn.esprit.piboursebackend.Order.Dto.TradeResponse(t.id, t.stock.id, t.buyOrder.id, t.sellOrder.id,
+             t.price, t.quantity, t.executedAt) FROM Trade t
+       WHERE t.stock.id = :stockId AND t.executedAt >= :since
+       ORDER BY t.executedAt DESC, t.id DESC
+    """)
+    List<TradeResponse> findLatest(@Param("stockId") Long stockId, @Param("since") LocalDateTime since, Pageable page);
 
     // Historique sur intervalle (graphique intraday/journalier)
-    List<Trade> findByStockAndExecutedAtBetweenOrderByExecutedAtAsc(
-            Stock stock, LocalDateTime from, LocalDateTime to);
+    @Query("""
+      SELECT new tn.esprit.piboursebackend.Order.Dto.TradeResponse(t.id, t.stock.id, t.buyOrder.id, t.sellOrder.id,
+             t.price, t.quantity, t.executedAt) FROM Trade t
+       WHERE t.stock.id = :stockId AND t.executedAt >= :from AND t.executedAt <= :to
+       ORDER BY t.executedAt ASC, t.id ASC
+    """)
+    List<TradeResponse> findRange(@Param("stockId") Long stockId, @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    // Amorçage de IdAllocator sur une base existante (ids archivés compris)
+    @Query(value = """
+      SELECT GREATEST(COALESCE((SELECT MAX(t.id) FROM trade t), 0),
+                      COALESCE((SELECT MAX(a.max_trade_id) FROM trade_archive a), 0))
+    """, nativeQuery = true)
+    long findMaxId();
+
+    // Vérification du journal : nombre et volume des trades par couple (acheteur, vendeur).
+    // Une branche par index (idx_trade_buy_order, idx_trade_sell_order) plutôt qu'un OR qui parcourt
+    // la table ; la seconde écarte les couples déjà comptés par la première
+    @Query("""
+      SELECT t.buyOrder.id, t.sellOrder.id, COUNT(t), SUM(t.quantity) FROM Trade t
+       WHERE t.buyOrder.id IN :ids
+       GROUP BY t.buyOrder.id, t.sellOrder.id
+      UNION ALL
+      SELECT t.buyOrder.id, t.sellOrder.id, COUNT(t), SUM(t.quantity) FROM Trade t
+       WHERE t.sellOrder.id IN :ids AND t.buyOrder.id NOT IN :ids
+       GROUP BY t.buyOrder.id, t.sellOrder.id
+    """)
+    List<Object[]> sumByOrderPairs(@Param("ids") Collection<Long> ids);
+
+    // Contrôle pré-négociation : quantités et montants achetés / vendus par (joueur, titre).
+    // Une seule requête : trades en table depuis l'horizon + agrégats des périodes archivées,
+    // cohérente même si TradeArchiver avance l'horizon en parallèle
+    @Query(value = """
+      SELECT x.player_id, x.stock_id, SUM(x.quantity), SUM(x.amount) FROM (
+        SELECT o.player_id, t.stock_id, t.quantity, t.price * t.quantity AS amount
+          FROM trade t JOIN orders o ON o.id = t.buy_order_id
+         WHERE o.player_id IS NOT NULL
+           AND t.executed_at >= (SELECT COALESCE(MAX(a.period_end), DATE '1970-01-01') FROM trade_archive a)
+        UNION ALL
+        SELECT r.player_id, r.stock_id, r.quantity, r.amount FROM trade_rollup r WHERE r.side = 'BUY'
+      ) x GROUP BY x.player_id, x.stock_id
+    """, nativeQuery = true)
+    List<Object[]> sumBoughtByPlayer();
+
+    @Query(value = """
+      SELECT x.player_id, x.stock_id, SUM(x.quantity), SUM(x.amount) FROM (
+        SELECT o.player_id, t.stock_id, t.quantity, t.price * t.quantity AS amount
+          FROM trade t JOIN orders o ON o.id = t.sell_order_id
+         WHERE o.player_id IS NOT NULL
+           AND t.executed_at >= (SELECT COALESCE(MAX(a.period_end), DATE '1970-01-01') FROM trade_archive a)
+        UNION ALL
+        SELECT r.player_id, r.stock_id, r.quantity, r.amount FROM trade_rollup r WHERE r.side = 'SELL'
+      ) x GROUP BY x.player_id, x.stock_id
+    """, nativeQuery = true)
+    List<Object[]> sumSoldByPlayer();
 }
@@ -0,0 +1,74 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Détail binaire des traces d'audit, à la place d'un JSON libre : un octet de version puis des champs
+ * de taille fixe (prix et quantités en virgule fixe, énumérations par ordinal).
+ * ORDER_PLACED (36 octets) : version, orderId, stockId, side, type, tif, price, quantity.
+ * TRADE_EXECUTED (41 octets) : version, stockId, buyOrderId, sellOrderId, price, quantity.
+ */
+public final class AuditDetails {
+
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+    public static final String TRADE_EXECUTED = "TRADE_EXECUTED";
+
+    private static final byte VERSION = 1;
+    private static final OrderSide[] SIDES = OrderSide.values();
+    private static final OrderType[] TYPES = OrderType.values();
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+
+    private AuditDetails() {
+    }
+
+    public static byte[] orderPlaced(RestingOrder o) {
+        return ByteBuffer.allocate(36)
+                .put(VERSION)
+                .putLong(o.getOrderId())
+                .putLong(o.getStockId())
+                .put((byte) o.getSide().ordinal())
+                .put((byte) o.getType().ordinal())
+                .put((byte) o.getTif().ordinal())
+                .putLong(o.getPrice())
+                .putLong(o.getQuantity())
+                .array();
+    }
+
+    public static byte[] tradeExecuted(Long stockId, Fill fill) {
+        return ByteBuffer.allocate(41)
+                .put(VERSION)
+                .putLong(stockId)
+                .putLong(fill.getBuyOrderId())
+                .putLong(fill.getSellOrderId())
+                .putLong(fill.getPrice())
+                .putLong(fill.getQuantity())
+                .array();
+    }
+
+    /** Forme lisible d'un détail, pour la consultation et le support. */
+    public static String describe(String action, byte[] payload) {
+        if (payload == null || payload.length == 0) return "";
+        ByteBuffer b = ByteBuffer.wrap(payload);
+        byte version = b.get();
+        if (version != VERSION) return "version " + version + " (" + payload.length + " bytes)";
+        return switch (action) {
+            case ORDER_PLACED -> "order " + b.getLong() + " stock " + b.getLong() + " " + SIDES[b.get()] + " "
+                    + TYPES[b.get()] + " " + TIFS[b.get()] + " price " + decimal(b.getLong())
+                    + " quantity " + decimal(b.getLong());
+            case TRADE_EXECUTED -> "stock " + b.getLong() + " buy order " + b.getLong() + " sell order "
+                    + b.getLong() + " price " + decimal(b.getLong()) + " quantity " + decimal(b.getLong());
+            default -> payload.length + " bytes";
+        };
+    }
+
+    private static String decimal(long fixed) {
+        return FixedPoint.isNull(fixed) ? "MARKET" : FixedPoint.toBigDecimal(fixed).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,289 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.piboursebackend.Order.Engine.ExecutionSink;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.OrderCommand;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Engine.RingBuffer;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal d'audit hors du chemin critique : les séquenceurs déposent ORDER_PLACED et TRADE_EXECUTED
+ * dans une file bornée sans verrou, sans jamais attendre (file pleine = événement perdu et compté).
+ * Un thread dédié les écrit par batch JDBC (inserts multi-lignes via rewriteBatchedStatements).
+ * Si la base échoue ou prend du retard (file à moitié pleine), les batchs sont ajoutés à un fichier
+ * local de débord ; il est rejoué dans l'ordre, par lots, dès que la base répond et que la file est
+ * basse, puis vidé. La position de rejeu est notée à côté du fichier pour reprendre après un arrêt.
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO audit_log (actor, action, payload, timestamp) VALUES (?, ?, ?, ?)";
+    private static final String ENGINE_ACTOR = "engine";
+    private static final String[] ACTIONS = {AuditDetails.ORDER_PLACED, AuditDetails.TRADE_EXECUTED};
+
+    // Événement figé ; playerId 0 = sans joueur
+    private record Event(byte action, long time, long playerId, byte[] payload) {
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final RingBuffer<Event> queue;
+    private final int spillThreshold;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long retryIntervalNanos;
+    private final Path spillFile;
+    private final Path offsetFile;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter written;
+    private final Counter spilled;
+    private final Counter dropped;
+
+    private boolean spilling;           // thread d'écriture uniquement
+    private long replayOffset;
+    private long nextReplay;
+    private volatile boolean running;
+    private Thread thread;
+
+    public AuditLogWriter(MatchingEngine matchingEngine, JdbcTemplate jdbcTemplate, MeterRegistry registry,
+                          @Value("${pibourse.audit.enabled:true}") boolean enabled,
+                          @Value("${pibourse.audit.queue-capacity:65536}") int queueCapacity,
+                          @Value("${pibourse.audit.batch-size:500}") int batchSize,
+                          @Value("${pibourse.audit.flush-interval-ms:200}") long flushIntervalMs,
+                          @Value("${pibourse.audit.retry-interval-ms:5000}") long retryIntervalMs,
+                          @Value("${pibourse.audit.spill-dir:audit-spill}") String spillDir) {
+        this.matchingEngine = matchingEngine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.spillThreshold = queueCapacity / 2;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(retryIntervalMs);
+        this.spillFile = Path.of(spillDir, "audit.spill");
+        this.offsetFile = Path.of(spillDir, "audit.offset");
+        this.flushTimer = Timer.builder("pibourse.audit.flush")
+                .description("Audit batch insert")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("pibourse.audit.batch.size")
+                .description("Audit events per batch")
+                .register(registry);
+        this.written = Counter.builder("pibourse.audit.written").description("Audit events inserted").register(registry);
+        this.spilled = Counter.builder("pibourse.audit.spilled").description("Audit events spilled to disk").register(registry);
+        this.dropped = Counter.builder("pibourse.audit.dropped").description("Audit events dropped, queue full").register(registry);
+        Gauge.builder("pibourse.audit.queue.depth", queue, RingBuffer::size)
+                .description("Audit events waiting for the writer")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        if (Files.exists(spillFile)) {
+            // Débord laissé par l'exécution précédente : rejoué avant toute écriture directe
+            spilling = true;
+            replayOffset = Files.exists(offsetFile) ? ByteBuffer.wrap(Files.readAllBytes(offsetFile)).getLong() : 0;
+            log.info("Audit spill file found ({} bytes, replay from {})", Files.size(spillFile), replayOffset);
+        }
+        running = true;
+        thread = new Thread(this::run, "audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+        matchingEngine.addExecutionListener(new Listener());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (thread == null) return;
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    // --- Thread du séquenceur : aucune attente ---
+
+    private final class Listener implements ExecutionSink {
+
+        @Override
+        public void onResult(OrderCommand command, MatchResult result) {
+            long now = System.currentTimeMillis();
+            RestingOrder taker = result.getTaker();
+            if (command.getType() == OrderCommand.Type.NEW && result.getTakerStatus() != OrderStatus.REJECTED) {
+                long player = taker.getPlayerId() == null ? 0 : taker.getPlayerId();
+                offer(new Event((byte) 0, now, player, AuditDetails.orderPlaced(taker)));
+            }
+            for (Fill fill : result.getFills()) {
+                offer(new Event((byte) 1, now, 0, AuditDetails.tradeExecuted(taker.getStockId(), fill)));
+            }
+        }
+
+        @Override
+        public void onExpired(List<RestingOrder> expired) {
+        }
+
+        private void offer(Event event) {
+            if (!queue.offer(event)) dropped.increment();
+        }
+    }
+
+    // --- Thread d'écriture ---
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        long firstAt = 0;
+        while (running || queue.size() > 0) {
+            Event event = queue.poll();
+            if (event != null) {
+                if (batch.isEmpty()) firstAt = System.nanoTime();
+                batch.add(event);
+                if (batch.size() >= batchSize) flush(batch);
+            } else if (!batch.isEmpty() && System.nanoTime() - firstAt >= flushIntervalNanos) {
+                flush(batch);
+            } else if (spilling && System.nanoTime() >= nextReplay) {
+                replay();
+            } else {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+        if (!batch.isEmpty()) flush(batch);
+    }
+
+    private void flush(List<Event> batch) {
+        batchSizes.record(batch.size());
+        if (!spilling && queue.size() < spillThreshold) {
+            try {
+                insert(batch);
+                batch.clear();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Audit batch of {} events failed, spilling to {}", batch.size(), spillFile, e);
+            }
+        } else if (!spilling) {
+            log.warn("Audit queue backlog of {} events, spilling to {}", queue.size(), spillFile);
+        }
+        if (!spilling) {
+            spilling = true;
+            nextReplay = System.nanoTime() + retryIntervalNanos;
+        }
+        spill(batch);
+        batch.clear();
+    }
+
+    private void insert(List<Event> batch) {
+        long start = System.nanoTime();
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, e) -> {
+            ps.setString(1, e.playerId() == 0 ? ENGINE_ACTOR : "player:" + e.playerId());
+            ps.setString(2, ACTIONS[e.action()]);
+            ps.setBytes(3, e.payload());
+            ps.setTimestamp(4, new Timestamp(e.time()));
+        });
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        written.increment(batch.size());
+    }
+
+    // Enregistrement : action (1), heure (8), joueur (8), longueur (1), détail
+    private void spill(List<Event> batch) {
+        int size = 0;
+        for (Event e : batch) size += 18 + e.payload().length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Event e : batch) {
+            buffer.put(e.action()).putLong(e.time()).putLong(e.playerId())
+                    .put((byte) e.payload().length).put(e.payload());
+        }
+        buffer.flip();
+        try {
+            Files.createDirectories(spillFile.getParent());
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            spilled.increment(batch.size());
+        } catch (IOException e) {
+            log.error("Audit spill failed, {} events lost", batch.size(), e);
+            dropped.increment(batch.size());
+        }
+    }
+
+    // Rejoue le débord par lots ; s'interrompt si la base échoue ou si la file remonte
+    private void replay() {
+        try {
+            if (!replaySpill()) {
+                nextReplay = System.nanoTime() + retryIntervalNanos;
+                return;
+            }
+            Files.delete(spillFile);
+            Files.deleteIfExists(offsetFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Audit spill replay failed at offset {}, retrying later: {}", replayOffset, e.toString());
+            nextReplay = System.nanoTime() + retryIntervalNanos;
+            return;
+        }
+        log.info("Audit spill file replayed, writing directly again");
+        spilling = false;
+        replayOffset = 0;
+    }
+
+    // true si tout le fichier est rejoué
+    private boolean replaySpill() throws IOException {
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(batchSize * (18 + 255));
+            List<Event> events = new ArrayList<>(batchSize);
+            while (replayOffset < channel.size()) {
+                if (queue.size() >= spillThreshold / 2) return false;
+                buffer.clear();
+                channel.read(buffer, replayOffset);
+                buffer.flip();
+                events.clear();
+                int consumed = 0;
+                while (events.size() < batchSize && buffer.remaining() >= 18) {
+                    byte action = buffer.get();
+                    long time = buffer.getLong();
+                    long player = buffer.getLong();
+                    int length = buffer.get() & 0xFF;
+                    if (buffer.remaining() < length) break;
+                    byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    events.add(new Event(action, time, player, payload));
+                    consumed = buffer.position();
+                }
+                if (events.isEmpty()) break;        // fin tronquée (arrêt brutal pendant un ajout)
+                insert(events);
+                replayOffset += consumed;
+                Files.write(offsetFile, ByteBuffer.allocate(8).putLong(replayOffset).array());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import tn.esprit.piboursebackend.Order.Dto.OrderRequest;
+import tn.esprit.piboursebackend.Order.Dto.OrderResponse;
+
+import java.math.BigDecimal;
+
+public interface IOrderService {
+    OrderResponse placeOrder(OrderRequest request);
+    OrderResponse cancelOrder(Long orderId);
+    OrderResponse amendOrder(Long orderId, BigDecimal newPrice, BigDecimal newQuantity);
+}
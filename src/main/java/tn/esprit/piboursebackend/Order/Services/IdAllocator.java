@@ -0,0 +1,76 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.piboursebackend.Order.Entity.IdBlock;
+import tn.esprit.piboursebackend.Order.Repository.IdBlockRepository;
+import tn.esprit.piboursebackend.Order.Repository.OrderRepository;
+import tn.esprit.piboursebackend.Order.Repository.TradeRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Attribution d'identifiants par blocs (optimiseur "pooled") : un bloc de N valeurs est réservé
+ * en base dans une transaction courte, puis distribué en mémoire. Remplace IDENTITY sur
+ * Order/Trade, qui empêchait tout batch JDBC et imposait un insert synchrone pour connaître l'id.
+ */
+@Component
+public class IdAllocator {
+
+    public static final String ORDERS = "orders";
+    public static final String TRADES = "trades";
+
+    private final IdBlockRepository idBlockRepository;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+    private final Map<String, LongSupplier> seeds;
+    private final Map<String, Range> ranges = new ConcurrentHashMap<>();
+
+    public IdAllocator(IdBlockRepository idBlockRepository,
+                       OrderRepository orderRepository,
+                       TradeRepository tradeRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${pibourse.ids.block-size:1000}") int blockSize) {
+        this.idBlockRepository = idBlockRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        // Première utilisation sur une base existante : on repart après le plus grand id
+        this.seeds = Map.of(
+                ORDERS, () -> orderRepository.findMaxId() + 1,
+                TRADES, () -> tradeRepository.findMaxId() + 1);
+    }
+
+    public long next(String name) {
+        Range range = ranges.computeIfAbsent(name, n -> new Range());
+        synchronized (range) {
+            if (range.next > range.last) {
+                long start = reserve(name);
+                range.next = start;
+                range.last = start + blockSize - 1;
+            }
+            return range.next++;
+        }
+    }
+
+    private long reserve(String name) {
+        return requiresNew.execute(status -> {
+            IdBlock block = idBlockRepository.findForUpdate(name)
+                    .orElseGet(() -> new IdBlock(name, seeds.getOrDefault(name, () -> 1L).getAsLong()));
+            long start = block.getNextValue();
+            block.setNextValue(start + blockSize);
+            idBlockRepository.save(block);
+            return start;
+        });
+    }
+
+    private static final class Range {
+        long next = 1;
+        long last = 0;
+    }
+}
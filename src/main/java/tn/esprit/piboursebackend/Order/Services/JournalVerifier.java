@@ -0,0 +1,324 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Order.Dto.JournalVerificationReport;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.JournalRecord;
+import tn.esprit.piboursebackend.Order.Engine.JournalReplayer;
+import tn.esprit.piboursebackend.Order.Engine.JournalStore;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.RecoveryStep;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.Trade;
+import tn.esprit.piboursebackend.Order.Repository.OrderRepository;
+import tn.esprit.piboursebackend.Order.Repository.TradeRepository;
+import tn.esprit.piboursebackend.Player.Entities.Player;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outil de rejeu : reconstruit les carnets (dernier snapshot + journal), dans des carnets indépendants
+ * des séquenceurs, et compare l'état attendu de chaque ordre et les trades aux tables Order/Trade.
+ * La persistance étant différée, lancer de préférence à marché calme (quelques ms de retard possibles).
+ * Réparation : au démarrage, avant toute commande (RecoveryStep), les événements journalisés mais encore
+ * en file d'écriture au moment d'un crash sont réécrits : ordres absents insérés, états en retard
+ * remis à jour (ids attribués, donc idempotent), trades manquants d'un couple acheteur/vendeur ajoutés
+ * (les derniers du journal : l'écriture différée suit l'ordre du séquenceur), open_orders recalé.
+ * Une base en avance sur le journal ne se répare pas : l'écart reste signalé.
+ */
+@Service
+@org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)     // avant le chargement des soldes, qui lit les trades en base
+public class JournalVerifier implements RecoveryStep {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalVerifier.class);
+
+    private static final int CHUNK = 1000;
+    private static final int MAX_MISMATCHES = 100;
+
+    private static final String UPDATE_ORDER_SQL = """
+            UPDATE orders
+               SET status = ?, price = ?, quantity = ?, remaining_quantity = ?,
+                   updated_at = ?, version = version + 1
+             WHERE id = ?
+            """;
+    private static final String DELETE_OPEN_SQL = "DELETE FROM open_orders WHERE order_id = ?";
+    private static final String INSERT_OPEN_SQL =
+            "INSERT INTO open_orders (order_id, stock_id, side, price, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final MatchingEngine matchingEngine;
+    private final OrderRepository orderRepository;
+    private final TradeRepository tradeRepository;
+    private final IdAllocator idAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final boolean repairOnStart;
+
+    public JournalVerifier(MatchingEngine matchingEngine, OrderRepository orderRepository,
+                           TradeRepository tradeRepository, IdAllocator idAllocator, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${pibourse.journal.repair-on-start:true}") boolean repairOnStart) {
+        this.matchingEngine = matchingEngine;
+        this.orderRepository = orderRepository;
+        this.tradeRepository = tradeRepository;
+        this.idAllocator = idAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        // Appelé pendant la reconstruction (transaction en lecture seule) : écriture dans sa propre transaction
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.repairOnStart = repairOnStart;
+    }
+
+    public JournalVerificationReport verify() {
+        return check(false);
+    }
+
+    /** Vérifie puis réécrit ce qui manque en base ; le rapport décrit l'état avant réparation. */
+    public JournalVerificationReport repair() {
+        return check(true);
+    }
+
+    @Override
+    public void onBooksRecovered(List<RestingOrder> openOrders) {
+        if (!repairOnStart || matchingEngine.journalStore() == null) return;
+        try {
+            JournalVerificationReport report = repair();
+            if (!report.isConsistent()) {
+                log.warn("Database reconciled with the journal at startup: {} mismatches, first ones: {}",
+                        report.getMismatchCount(), report.getMismatches());
+            }
+        } catch (RuntimeException e) {
+            log.error("Startup reconciliation of the database with the journal failed, run it again"
+                    + " from /journal/repair", e);
+        }
+    }
+
+    private JournalVerificationReport check(boolean repair) {
+        JournalStore store = matchingEngine.journalStore();
+        if (store == null) {
+            throw new IllegalStateException("Journalisation désactivée (pibourse.journal.enabled=false)");
+        }
+
+        Map<Long, Expected> orders = new HashMap<>();
+        Set<Long> born = new HashSet<>();                       // ordres créés dans le journal
+        Map<Pair, List<JournalRecord>> trades = new HashMap<>(); // (acheteur, vendeur) -> trades, dans l'ordre
+        JournalReplayer replayer = new JournalReplayer((r, result) -> {
+            if (r.getType() == JournalRecord.Type.TRADE) {
+                trades.computeIfAbsent(new Pair(r.getBuyOrderId(), r.getSellOrderId()), k -> new ArrayList<>()).add(r);
+            } else if (result != null) {
+                track(r, result, orders, born);
+            }
+        });
+        JournalStore.Recovery recovery;
+        try {
+            recovery = store.recover(replayer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        int[] count = {0};
+        Repairs repairs = new Repairs();
+        checkOrders(orders, mismatches, count, repairs);
+        int pairs = checkTrades(born, trades, mismatches, count, repairs);
+        if (repair && !repairs.isEmpty()) {
+            tx.executeWithoutResult(status -> write(orders, repairs));
+            log.warn("Journal repair: {} orders inserted, {} orders updated, {} trades inserted",
+                    repairs.absent.size(), repairs.stale.size(), repairs.trades.size());
+        }
+
+        return JournalVerificationReport.builder()
+                .snapshotOrders(recovery.restoredOrders())
+                .records(recovery.records())
+                .commands(replayer.getCommands())
+                .trades(replayer.getTrades())
+                .books(replayer.getBooks().size())
+                .openOrders(replayer.openOrders())
+                .ordersChecked(orders.size())
+                .tradePairsChecked(pairs)
+                .mismatchCount(count[0])
+                .mismatches(mismatches)
+                .build();
+    }
+
+    // Même règle que OrderExecutionWriter : un IOC/FOK/MARKET sans exécution n'a pas de ligne en base
+    private static void track(JournalRecord r, MatchResult result, Map<Long, Expected> orders, Set<Long> born) {
+        RestingOrder taker = result.getTaker();
+        if (r.getType() != JournalRecord.Type.NEW || taker.isResting() || result.hasFills()) {
+            orders.put(taker.getOrderId(), Expected.of(taker, result.getTakerStatus()));
+            if (r.getType() == JournalRecord.Type.NEW) born.add(taker.getOrderId());
+        }
+        for (RestingOrder maker : result.getTouchedMakers()) {
+            orders.put(maker.getOrderId(), Expected.of(maker, maker.fillStatus()));
+        }
+    }
+
+    private void checkOrders(Map<Long, Expected> orders, List<String> mismatches, int[] count, Repairs repairs) {
+        List<Long> ids = new ArrayList<>(orders.keySet());
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHUNK));
+            Set<Long> found = new HashSet<>();
+            for (Object[] row : orderRepository.findStatesByIdIn(chunk)) {
+                Long id = (Long) row[0];
+                found.add(id);
+                Expected expected = orders.get(id);
+                OrderStatus status = (OrderStatus) row[1];
+                long remaining = FixedPoint.of((BigDecimal) row[2]);
+                if (status != expected.status() || remaining != expected.remaining()) {
+                    report(mismatches, count, "Ordre " + id + " : base " + status + "/" + FixedPoint.toString(remaining)
+                            + ", journal " + expected.status() + "/" + FixedPoint.toString(expected.remaining()));
+                    repairs.stale.add(id);
+                }
+            }
+            for (Long id : chunk) {
+                if (!found.contains(id)) {
+                    report(mismatches, count, "Ordre " + id + " absent de la base");
+                    repairs.absent.add(id);
+                }
+            }
+        }
+    }
+
+    private int checkTrades(Set<Long> born, Map<Pair, List<JournalRecord>> journal, List<String> mismatches,
+                            int[] count, Repairs repairs) {
+        Map<Pair, long[]> database = new HashMap<>();
+        List<Long> ids = new ArrayList<>(born);
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            for (Object[] row : tradeRepository.sumByOrderPairs(ids.subList(from, Math.min(ids.size(), from + CHUNK)))) {
+                database.put(new Pair((Long) row[0], (Long) row[1]),
+                        new long[]{(Long) row[2], FixedPoint.of((BigDecimal) row[3])});
+            }
+        }
+        // Seuls les couples impliquant un ordre né dans le journal sont forcément postérieurs à son début
+        Set<Pair> pairs = new HashSet<>(database.keySet());
+        journal.keySet().stream().filter(p -> born.contains(p.buy()) || born.contains(p.sell())).forEach(pairs::add);
+        for (Pair p : pairs) {
+            List<JournalRecord> records = journal.getOrDefault(p, List.of());
+            long volume = records.stream().mapToLong(JournalRecord::getQuantity).sum();
+            long[] actual = database.getOrDefault(p, new long[2]);
+            if (records.size() != actual[0] || volume != actual[1]) {
+                report(mismatches, count, "Trades " + p.buy() + "/" + p.sell() + " : base " + actual[0] + " x "
+                        + FixedPoint.toString(actual[1]) + ", journal " + records.size() + " x " + FixedPoint.toString(volume));
+                // Réparable seulement si la base a exactement les premiers trades du couple
+                List<JournalRecord> missing = records.subList((int) Math.min(actual[0], records.size()), records.size());
+                if (!missing.isEmpty()
+                        && actual[1] + missing.stream().mapToLong(JournalRecord::getQuantity).sum() == volume) {
+                    repairs.trades.addAll(missing);
+                }
+            }
+        }
+        return pairs.size();
+    }
+
+    private void write(Map<Long, Expected> orders, Repairs repairs) {
+        for (Long id : repairs.absent) {
+            Expected e = orders.get(id);
+            RestingOrder o = e.order();
+            em.persist(Order.builder()
+                    .id(id)
+                    .stock(em.getReference(Stock.class, o.getStockId()))
+                    .player(o.getPlayerId() == null ? null : em.getReference(Player.class, o.getPlayerId()))
+                    .side(o.getSide())
+                    .type(o.getType())
+                    .tif(o.getTif())
+                    .status(e.status())
+                    .price(FixedPoint.toBigDecimal(o.getPrice()))
+                    .quantity(FixedPoint.toBigDecimal(e.quantity()))
+                    .remainingQuantity(FixedPoint.toBigDecimal(e.remaining()))
+                    .createdAt(o.getCreatedAt())
+                    .build());
+        }
+        for (JournalRecord t : repairs.trades) {
+            em.persist(Trade.builder()
+                    .id(idAllocator.next(IdAllocator.TRADES))
+                    .stock(em.getReference(Stock.class, t.getStockId()))
+                    .buyOrder(em.getReference(Order.class, t.getBuyOrderId()))
+                    .sellOrder(em.getReference(Order.class, t.getSellOrderId()))
+                    .price(FixedPoint.toBigDecimal(t.getPrice()))
+                    .quantity(FixedPoint.toBigDecimal(t.getQuantity()))
+                    .executedAt(t.getTime())
+                    .build());
+        }
+        em.flush();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPDATE_ORDER_SQL, repairs.stale, CHUNK, (ps, id) -> {
+            Expected e = orders.get(id);
+            ps.setString(1, e.status().name());
+            ps.setBigDecimal(2, FixedPoint.toBigDecimal(e.order().getPrice()));
+            ps.setBigDecimal(3, FixedPoint.toBigDecimal(e.quantity()));
+            ps.setBigDecimal(4, FixedPoint.toBigDecimal(e.remaining()));
+            ps.setTimestamp(5, now);
+            ps.setLong(6, id);
+        });
+
+        // Carnet vivant des ordres réparés : supprimé puis reposé s'ils sont encore ouverts
+        List<Long> touched = new ArrayList<>(repairs.absent);
+        touched.addAll(repairs.stale);
+        jdbcTemplate.batchUpdate(DELETE_OPEN_SQL, touched, CHUNK, (ps, id) -> ps.setLong(1, id));
+        List<Long> open = touched.stream().filter(id -> orders.get(id).isOpen()).toList();
+        jdbcTemplate.batchUpdate(INSERT_OPEN_SQL, open, CHUNK, (ps, id) -> {
+            RestingOrder o = orders.get(id).order();
+            ps.setLong(1, id);
+            ps.setLong(2, o.getStockId());
+            ps.setString(3, o.getSide().name());
+            ps.setBigDecimal(4, FixedPoint.toBigDecimal(o.getPrice()));
+            ps.setTimestamp(5, Timestamp.valueOf(o.getCreatedAt()));
+        });
+    }
+
+    private static void report(List<String> mismatches, int[] count, String message) {
+        count[0]++;
+        if (mismatches.size() < MAX_MISMATCHES) mismatches.add(message);
+    }
+
+    // État figé au moment de l'événement : le RestingOrder continue d'évoluer pendant le rejeu
+    private record Expected(RestingOrder order, OrderStatus status, long quantity, long remaining) {
+
+        static Expected of(RestingOrder order, OrderStatus status) {
+            return new Expected(order, status, order.getQuantity(), order.getRemainingQuantity());
+        }
+
+        boolean isOpen() {
+            return (status == OrderStatus.PENDING || status == OrderStatus.PARTIALLY_FILLED) && order.getPrice() != FixedPoint.NULL;
+        }
+    }
+
+    private record Pair(Long buy, Long sell) {}
+
+    private static final class Repairs {
+        final List<Long> absent = new ArrayList<>();
+        final List<Long> stale = new ArrayList<>();
+        final List<JournalRecord> trades = new ArrayList<>();
+
+        boolean isEmpty() {
+            return absent.isEmpty() && stale.isEmpty() && trades.isEmpty();
+        }
+    }
+}
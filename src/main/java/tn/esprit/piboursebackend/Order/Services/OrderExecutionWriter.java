@@ -0,0 +1,482 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.hibernate.exception.JDBCConnectionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Order.Engine.ExecutionSink;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.OrderCommand;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Engine.RingBuffer;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+import tn.esprit.piboursebackend.Order.Entity.Trade;
+import tn.esprit.piboursebackend.Player.Entities.Player;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Persistance différée (write-behind) des résultats du moteur.
+ * Le séquenceur publie des événements figés (nouvel ordre, delta d'état, trade) dans une file bornée ;
+ * un thread d'écriture les regroupe et les écrit en batch JDBC : inserts via JPA (ids attribués
+ * par IdAllocator, donc batchables), mises à jour d'état fusionnées par ordre puis envoyées
+ * en un seul batchUpdate. Si la base prend du retard, la file se remplit et freine les séquenceurs.
+ * Frontière moteur -> JPA : les valeurs en virgule fixe ne redeviennent BigDecimal qu'ici.
+ * Le carnet vivant (open_orders) suit dans la même transaction : ligne ajoutée quand un ordre reste
+ * au carnet, reprise du prix sur modification, suppression au passage à un état terminal.
+ * Un batch en échec transitoire (verrou, délai, connexion perdue) est réessayé indéfiniment avec un délai
+ * croissant : la file bornée se remplit et freine les séquenceurs le temps que la base revienne.
+ * Une erreur permanente (contrainte, valeur trop longue...) ne se corrige pas en réessayant : le batch est
+ * coupé en deux jusqu'à isoler l'événement fautif, écarté avec une erreur au log (dead letter) pour que
+ * le reste passe. Une mise à jour d'état qui ne touche aucune ligne est signalée de la même façon.
+ * Métriques : durée d'écriture d'un batch, taille des batchs, profondeur de la file, nouvelles tentatives,
+ * événements écartés.
+ */
+@Component
+public class OrderExecutionWriter implements ExecutionSink {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExecutionWriter.class);
+
+    private static final long FIRST_BACKOFF_MS = 100;
+
+    private static final String UPDATE_ORDER_SQL = """
+            UPDATE orders
+               SET status = ?, price = ?, quantity = ?, remaining_quantity = ?,
+                   updated_at = ?, version = version + 1
+             WHERE id = ?
+            """;
+
+    private static final String INSERT_OPEN_SQL =
+            "INSERT INTO open_orders (order_id, stock_id, side, price, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String REPRICE_OPEN_SQL = "UPDATE open_orders SET price = ? WHERE order_id = ?";
+    private static final String DELETE_OPEN_SQL = "DELETE FROM open_orders WHERE order_id = ?";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator idAllocator;
+    private final TransactionTemplate tx;
+    private final RingBuffer<ExecutionEvent> queue;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long maxBackoffMs;
+    private final long shutdownTimeoutMs;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter tradesWritten;
+    private final Counter retries;
+    private final Counter deadLetters;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public OrderExecutionWriter(JdbcTemplate jdbcTemplate, IdAllocator idAllocator,
+                                PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                @Value("${pibourse.persistence.queue-capacity:65536}") int queueCapacity,
+                                @Value("${pibourse.persistence.flush-size:500}") int flushSize,
+                                @Value("${pibourse.persistence.flush-interval-ms:20}") long flushIntervalMs,
+                                @Value("${pibourse.persistence.max-backoff-ms:5000}") long maxBackoffMs,
+                                @Value("${pibourse.persistence.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.maxBackoffMs = maxBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flushTimer = Timer.builder("pibourse.persistence.flush")
+                .description("Write-behind batch transaction")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("pibourse.persistence.batch.size")
+                .description("Events per write-behind batch")
+                .publishPercentiles(0.5, 0.99)
+                .serviceLevelObjectives(1, 10, 100, flushSize)
+                .register(registry);
+        this.tradesWritten = Counter.builder("pibourse.persistence.trades")
+                .description("Trades written to the database")
+                .register(registry);
+        this.retries = Counter.builder("pibourse.persistence.retries")
+                .description("Write-behind batch attempts that failed and were retried")
+                .register(registry);
+        this.deadLetters = Counter.builder("pibourse.persistence.dead.letters")
+                .description("Write-behind events dropped after a permanent error or a missing order row")
+                .register(registry);
+        Gauge.builder("pibourse.persistence.queue.depth", queue, RingBuffer::size)
+                .description("Events waiting for the write-behind thread")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "execution-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(shutdownTimeoutMs);
+        if (thread.isAlive()) {
+            // Base toujours indisponible : les commandes restent au journal, JournalVerifier signalera l'écart
+            log.error("Execution writer still retrying at shutdown, {} events not yet persisted", queue.size());
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    // --- Côté séquenceur : on fige l'état courant, sans I/O ---
+
+    @Override
+    public void onResult(OrderCommand command, MatchResult result) {
+        RestingOrder taker = result.getTaker();
+        if (command.getType() == OrderCommand.Type.NEW) {
+            // IOC/FOK/MARKET sans exécution : aucune ligne en base
+            if (taker.isResting() || result.hasFills()) {
+                publish(ExecutionEvent.newOrder(taker, result.getTakerStatus()));
+            }
+        } else if (command.getType() == OrderCommand.Type.AMEND) {
+            publish(ExecutionEvent.amend(taker, result.getTakerStatus()));
+        } else {
+            publish(ExecutionEvent.delta(taker, result.getTakerStatus()));
+        }
+        for (RestingOrder maker : result.getTouchedMakers()) {
+            publish(ExecutionEvent.delta(maker, maker.fillStatus()));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Fill fill : result.getFills()) {
+            publish(ExecutionEvent.trade(taker.getStockId(), fill, now));
+        }
+    }
+
+    @Override
+    public void onExpired(List<RestingOrder> expired) {
+        for (RestingOrder o : expired) {
+            publish(ExecutionEvent.delta(o, OrderStatus.CANCELLED));
+        }
+    }
+
+    private void publish(ExecutionEvent event) {
+        while (!queue.offer(event)) {
+            // Back-pressure : la base est en retard, on freine le séquenceur
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    // --- Thread d'écriture ---
+
+    private void run() {
+        List<ExecutionEvent> batch = new ArrayList<>(flushSize);
+        long firstAt = 0;
+        while (running || queue.size() > 0) {
+            ExecutionEvent event = queue.poll();
+            if (event != null) {
+                if (batch.isEmpty()) firstAt = System.nanoTime();
+                batch.add(event);
+                if (batch.size() >= flushSize) flush(batch);
+            } else if (!batch.isEmpty() && System.nanoTime() - firstAt >= flushIntervalNanos) {
+                flush(batch);
+            } else {
+                LockSupport.parkNanos(100_000);
+            }
+        }
+        if (!batch.isEmpty()) flush(batch);
+    }
+
+    private void flush(List<ExecutionEvent> batch) {
+        batchSizes.record(batch.size());
+        writeOrSplit(batch);
+        batch.clear();
+    }
+
+    // Erreur permanente : moitié par moitié, dans l'ordre, jusqu'à l'événement fautif
+    private void writeOrSplit(List<ExecutionEvent> batch) {
+        RuntimeException failure = writeRetrying(batch);
+        if (failure == null) return;
+        if (batch.size() == 1) {
+            deadLetter(batch.get(0), failure.toString());
+            return;
+        }
+        log.warn("Execution batch of {} events rejected, splitting it to isolate the faulty event: {}",
+                batch.size(), failure.toString());
+        int half = batch.size() / 2;
+        writeOrSplit(batch.subList(0, half));
+        writeOrSplit(batch.subList(half, batch.size()));
+    }
+
+    // Rejoué entier (transaction annulée) tant que l'erreur est transitoire ; null si écrit, sinon l'erreur permanente
+    private RuntimeException writeRetrying(List<ExecutionEvent> batch) {
+        long backoff = FIRST_BACKOFF_MS;
+        List<ExecutionEvent> lost = new ArrayList<>();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                lost.clear();
+                long start = System.nanoTime();
+                Integer trades = tx.execute(status -> write(batch, lost));
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (trades != null) tradesWritten.increment(trades);
+                lost.forEach(e -> deadLetter(e, "no orders row"));
+                if (attempt > 1) log.info("Execution batch of {} events written after {} attempts", batch.size(), attempt);
+                return null;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) return e;
+                retries.increment();
+                if (attempt == 1) {
+                    log.warn("Execution batch of {} events failed, retrying until the database recovers", batch.size(), e);
+                } else {
+                    log.warn("Execution batch of {} events failed (attempt {}, queue {}): {}",
+                            batch.size(), attempt, queue.size(), e.toString());
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    // Verrou, délai, connexion : la même écriture peut réussir plus tard. Les exceptions JPA ne sont pas
+    // traduites par Spring ici, on remonte donc aussi les causes JDBC (état SQL 08 = connexion)
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException || t instanceof CannotCreateTransactionException
+                    || t instanceof JDBCConnectionException || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deadLetter(ExecutionEvent e, String reason) {
+        deadLetters.increment();
+        log.error("Execution event dropped ({}): {} order={} stock={} status={} price={} quantity={} remaining={}"
+                        + " buy={} sell={}", reason, e.kind, e.orderId, e.stockId, e.status, FixedPoint.toString(e.price),
+                FixedPoint.toString(e.quantity), FixedPoint.toString(e.remaining), e.buyOrderId, e.sellOrderId);
+    }
+
+    // Renvoie le nombre de trades écrits ; lost reçoit les mises à jour d'état sans ligne en base
+    private int write(List<ExecutionEvent> batch, List<ExecutionEvent> lost) {
+        Map<Long, Order> inserts = new LinkedHashMap<>();
+        Map<Long, ExecutionEvent> updates = new LinkedHashMap<>();
+        Set<Long> repriced = new HashSet<>();
+        List<ExecutionEvent> trades = new ArrayList<>();
+
+        for (ExecutionEvent e : batch) {
+            switch (e.kind) {
+                case NEW_ORDER -> inserts.put(e.orderId, toOrder(e));
+                case DELTA, AMEND -> {
+                    // Fusion : un ordre créé dans ce batch est inséré directement dans son dernier état
+                    Order pending = inserts.get(e.orderId);
+                    if (pending != null) {
+                        applyDelta(pending, e);
+                    } else {
+                        updates.put(e.orderId, e);
+                        if (e.kind == ExecutionEvent.Kind.AMEND) repriced.add(e.orderId);
+                    }
+                }
+                case TRADE -> trades.add(e);
+            }
+        }
+
+        inserts.values().forEach(em::persist);
+        for (ExecutionEvent t : trades) {
+            em.persist(Trade.builder()
+                    .id(idAllocator.next(IdAllocator.TRADES))
+                    .stock(em.getReference(Stock.class, t.stockId))
+                    .buyOrder(em.getReference(Order.class, t.buyOrderId))
+                    .sellOrder(em.getReference(Order.class, t.sellOrderId))
+                    .price(FixedPoint.toBigDecimal(t.price))
+                    .quantity(FixedPoint.toBigDecimal(t.quantity))
+                    .executedAt(t.time)
+                    .build());
+        }
+        em.flush();
+
+        if (!updates.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<ExecutionEvent> deltas = new ArrayList<>(updates.values());
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_ORDER_SQL, deltas, deltas.size(), (ps, d) -> {
+                ps.setString(1, d.status.name());
+                ps.setBigDecimal(2, FixedPoint.toBigDecimal(d.price));
+                ps.setBigDecimal(3, FixedPoint.toBigDecimal(d.quantity));
+                ps.setBigDecimal(4, FixedPoint.toBigDecimal(d.remaining));
+                ps.setTimestamp(5, now);
+                ps.setLong(6, d.orderId);
+            });
+            // Ligne absente (insert écarté, base en retard sur le journal) : changement d'état perdu, pas silencieux
+            for (int i = 0; i < counts[0].length; i++) {
+                if (counts[0][i] == 0) lost.add(deltas.get(i));
+            }
+        }
+        writeOpenOrders(inserts.values(), updates.values(), repriced);
+        return trades.size();
+    }
+
+    // Carnet vivant : nouveaux ordres restés au carnet, prix modifiés, ordres clôturés
+    private void writeOpenOrders(Collection<Order> inserted, Collection<ExecutionEvent> updated, Set<Long> repriced) {
+        List<Order> opened = new ArrayList<>();
+        for (Order o : inserted) {
+            if (isOpen(o.getStatus()) && o.getPrice() != null) opened.add(o);
+        }
+        List<ExecutionEvent> moved = new ArrayList<>();
+        List<Long> closed = new ArrayList<>();
+        for (ExecutionEvent d : updated) {
+            if (!isOpen(d.status)) closed.add(d.orderId);
+            else if (repriced.contains(d.orderId)) moved.add(d);
+        }
+        if (!opened.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OPEN_SQL, opened, opened.size(), (ps, o) -> {
+                ps.setLong(1, o.getId());
+                ps.setLong(2, o.getStock().getId());
+                ps.setString(3, o.getSide().name());
+                ps.setBigDecimal(4, o.getPrice());
+                ps.setTimestamp(5, Timestamp.valueOf(o.getCreatedAt()));
+            });
+        }
+        if (!moved.isEmpty()) {
+            jdbcTemplate.batchUpdate(REPRICE_OPEN_SQL, moved, moved.size(), (ps, d) -> {
+                ps.setBigDecimal(1, FixedPoint.toBigDecimal(d.price));
+                ps.setLong(2, d.orderId);
+            });
+        }
+        if (!closed.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_OPEN_SQL, closed, closed.size(), (ps, id) -> ps.setLong(1, id));
+        }
+    }
+
+    private static boolean isOpen(OrderStatus status) {
+        return status == OrderStatus.PENDING || status == OrderStatus.PARTIALLY_FILLED;
+    }
+
+    private Order toOrder(ExecutionEvent e) {
+        return Order.builder()
+                .id(e.orderId)
+                .stock(em.getReference(Stock.class, e.stockId))
+                .side(e.side)
+                .type(e.type)
+                .tif(e.tif)
+                .status(e.status)
+                .price(FixedPoint.toBigDecimal(e.price))
+                .quantity(FixedPoint.toBigDecimal(e.quantity))
+                .remainingQuantity(FixedPoint.toBigDecimal(e.remaining))
+                .createdAt(e.time)
+                .player(e.playerId == null ? null : em.getReference(Player.class, e.playerId))
+                .build();
+    }
+
+    private static void applyDelta(Order order, ExecutionEvent d) {
+        order.setStatus(d.status);
+        order.setPrice(FixedPoint.toBigDecimal(d.price));
+        order.setQuantity(FixedPoint.toBigDecimal(d.quantity));
+        order.setRemainingQuantity(FixedPoint.toBigDecimal(d.remaining));
+    }
+
+    /** Événement figé au moment de l'émission : les RestingOrder continuent d'évoluer ensuite. */
+    static final class ExecutionEvent {
+
+        enum Kind { NEW_ORDER, DELTA, AMEND, TRADE }
+
+        final Kind kind;
+        final Long orderId;
+        final Long stockId;
+        final OrderSide side;
+        final OrderType type;
+        final TimeInForce tif;
+        final OrderStatus status;
+        final long price;
+        final long quantity;
+        final long remaining;
+        final Long buyOrderId;
+        final Long sellOrderId;
+        final LocalDateTime time;
+        final Long playerId;
+
+        private ExecutionEvent(Kind kind, Long orderId, Long stockId, OrderSide side, OrderType type,
+                               TimeInForce tif, OrderStatus status, long price, long quantity, long remaining,
+                               Long buyOrderId, Long sellOrderId, LocalDateTime time, Long playerId) {
+            this.kind = kind;
+            this.orderId = orderId;
+            this.stockId = stockId;
+            this.side = side;
+            this.type = type;
+            this.tif = tif;
+            this.status = status;
+            this.price = price;
+            this.quantity = quantity;
+            this.remaining = remaining;
+            this.buyOrderId = buyOrderId;
+            this.sellOrderId = sellOrderId;
+            this.time = time;
+            this.playerId = playerId;
+        }
+
+        static ExecutionEvent newOrder(RestingOrder o, OrderStatus status) {
+            return new ExecutionEvent(Kind.NEW_ORDER, o.getOrderId(), o.getStockId(), o.getSide(), o.getType(),
+                    o.getTif(), status, o.getPrice(), o.getQuantity(), o.getRemainingQuantity(),
+                    null, null, o.getCreatedAt(), o.getPlayerId());
+        }
+
+        static ExecutionEvent delta(RestingOrder o, OrderStatus status) {
+            return new ExecutionEvent(Kind.DELTA, o.getOrderId(), o.getStockId(), null, null, null, status,
+                    o.getPrice(), o.getQuantity(), o.getRemainingQuantity(), null, null, null, null);
+        }
+
+        // Delta d'une modification : le prix a pu changer, open_orders est mis à jour
+        static ExecutionEvent amend(RestingOrder o, OrderStatus status) {
+            return new ExecutionEvent(Kind.AMEND, o.getOrderId(), o.getStockId(), null, null, null, status,
+                    o.getPrice(), o.getQuantity(), o.getRemainingQuantity(), null, null, null, null);
+        }
+
+        static ExecutionEvent trade(Long stockId, Fill fill, LocalDateTime time) {
+            return new ExecutionEvent(Kind.TRADE, null, stockId, null, null, null, null,
+                    fill.getPrice(), fill.getQuantity(), 0, fill.getBuyOrderId(), fill.getSellOrderId(), time, null);
+        }
+    }
+}
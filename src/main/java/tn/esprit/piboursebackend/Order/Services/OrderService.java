@@ -0,0 +1,175 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.stereotype.Service;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Marche.Repository.StockRepository;
+import tn.esprit.piboursebackend.Order.Dto.OrderRequest;
+import tn.esprit.piboursebackend.Order.Dto.OrderResponse;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+import tn.esprit.piboursebackend.Player.Entities.Player;
+import tn.esprit.piboursebackend.Player.Repositories.PlayerRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Service
+public class OrderService implements IOrderService {
+
+    private final StockRepository stockRepository;
+    private final MatchingEngine matchingEngine;
+    private final IdAllocator idAllocator;
+    private final PlayerRepository playerRepository;
+    private final PreTradeRiskService preTradeRisk;
+    private final TradingMetrics metrics;
+
+    public OrderService(StockRepository stockRepository, MatchingEngine matchingEngine, IdAllocator idAllocator,
+                        PlayerRepository playerRepository, PreTradeRiskService preTradeRisk, TradingMetrics metrics) {
+        this.stockRepository = stockRepository;
+        this.matchingEngine = matchingEngine;
+        this.idAllocator = idAllocator;
+        this.playerRepository = playerRepository;
+        this.preTradeRisk = preTradeRisk;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public OrderResponse placeOrder(OrderRequest request) {
+        long receivedAt = System.nanoTime();
+        validate(request);
+        Stock stock = stockRepository.findById(request.getStockId())
+                .orElseThrow(() -> new EntityNotFoundException("Stock introuvable : " + request.getStockId()));
+        Player player = request.getPlayerId() == null ? null : playerRepository.findById(request.getPlayerId())
+                .orElseThrow(() -> new EntityNotFoundException("Joueur introuvable : " + request.getPlayerId()));
+
+        Order order = Order.builder()
+                .stock(stock)
+                .player(player)
+                .side(request.getSide())
+                .type(request.getType())
+                .tif(request.getTif() != null ? request.getTif() : TimeInForce.DAY)
+                .price(request.getType() == OrderType.MARKET ? null : request.getPrice())
+                .quantity(request.getQuantity())
+                .remainingQuantity(request.getQuantity())
+                .build();
+        // Id attribué en mémoire : l'insert est différé, et n'a lieu que si l'ordre reste au carnet ou trade
+        order.setId(idAllocator.next(IdAllocator.ORDERS));
+        order.setCreatedAt(LocalDateTime.now());
+
+        // Liquidités ou titres réservés en mémoire avant d'entrer dans la file du séquenceur
+        long protectionPrice;
+        try {
+            protectionPrice = preTradeRisk.reserve(order);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Montant de l'ordre hors limites");
+        }
+
+        // Le séquenceur du symbole décide ; on attend l'acquittement, pas l'écriture en base
+        MatchResult result;
+        try {
+            result = (protectionPrice == FixedPoint.NULL ? matchingEngine.submit(order)
+                    : matchingEngine.submitMarket(order, protectionPrice)).join();
+        } catch (RuntimeException e) {
+            preTradeRisk.release(order.getId());
+            throw e;
+        }
+        if (result.getTakerStatus() == OrderStatus.REJECTED) preTradeRisk.release(order.getId());
+        metrics.recordEntry(stock.getId(), System.nanoTime() - receivedAt);
+        return toResponse(order, result);
+    }
+
+    @Override
+    public OrderResponse cancelOrder(Long orderId) {
+        Long stockId = locateOpenOrder(orderId);
+        MatchResult result = matchingEngine.cancel(stockId, orderId).join();
+        if (result == null) {
+            throw new IllegalStateException("Ordre déjà clôturé : " + orderId);
+        }
+        return toResponse(stockId, result);
+    }
+
+    @Override
+    public OrderResponse amendOrder(Long orderId, BigDecimal newPrice, BigDecimal newQuantity) {
+        if (newQuantity != null && newQuantity.signum() <= 0) {
+            throw new IllegalArgumentException("La quantité doit être strictement positive");
+        }
+        if (newPrice != null && newPrice.signum() <= 0) {
+            throw new IllegalArgumentException("Le prix doit être strictement positif");
+        }
+        checkRepresentable(newPrice, "prix");
+        checkRepresentable(newQuantity, "quantité");
+        Long stockId = locateOpenOrder(orderId);
+        try {
+            preTradeRisk.extend(orderId, newPrice, newQuantity);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Montant de l'ordre hors limites");
+        }
+        // Modification refusée (ordre clôturé, cotation suspendue, shard arrêté) : la majoration est rendue
+        MatchResult result;
+        try {
+            result = matchingEngine.amend(stockId, orderId, newPrice, newQuantity).join();
+        } catch (RuntimeException e) {
+            preTradeRisk.revertExtension(orderId);
+            throw e;
+        }
+        if (result == null) {
+            preTradeRisk.revertExtension(orderId);
+            throw new IllegalStateException("Ordre déjà clôturé : " + orderId);
+        }
+        return toResponse(stockId, result);
+    }
+
+    // Le carnet mémoire fait foi : l'ordre peut ne pas encore être écrit en base
+    private Long locateOpenOrder(Long orderId) {
+        Long stockId = matchingEngine.locate(orderId);
+        if (stockId == null) {
+            throw new EntityNotFoundException("Aucun ordre ouvert avec l'id " + orderId);
+        }
+        return stockId;
+    }
+
+    private static OrderResponse toResponse(Order order, MatchResult result) {
+        return toResponse(order.getStock().getId(), result);
+    }
+
+    private static OrderResponse toResponse(Long stockId, MatchResult result) {
+        RestingOrder taker = result.getTaker();
+        return new OrderResponse(taker.getOrderId(), stockId, taker.getSide(), taker.getType(), taker.getTif(),
+                result.getTakerStatus(), taker.priceDecimal(), taker.quantityDecimal(), taker.remainingDecimal(),
+                result.getFills().size());
+    }
+
+    private static void validate(OrderRequest r) {
+        if (r.getStockId() == null || r.getSide() == null || r.getType() == null) {
+            throw new IllegalArgumentException("stockId, side et type sont obligatoires");
+        }
+        if (r.getQuantity() == null || r.getQuantity().signum() <= 0) {
+            throw new IllegalArgumentException("La quantité doit être strictement positive");
+        }
+        if (r.getType() == OrderType.LIMIT && (r.getPrice() == null || r.getPrice().signum() <= 0)) {
+            throw new IllegalArgumentException("Un ordre LIMIT exige un prix strictement positif");
+        }
+        checkRepresentable(r.getQuantity(), "quantité");
+        if (r.getType() == OrderType.LIMIT) {
+            checkRepresentable(r.getPrice(), "prix");
+            if (!FixedPoint.fitsProduct(r.getPrice(), r.getQuantity())) {
+                throw new IllegalArgumentException("Montant de l'ordre hors limites");
+            }
+        }
+    }
+
+    // Le moteur travaille en virgule fixe à 6 décimales : pas d'arrondi silencieux ni de dépassement
+    private static void checkRepresentable(BigDecimal value, String field) {
+        if (value != null && !FixedPoint.fits(value)) {
+            throw new IllegalArgumentException("Valeur de " + field + " non représentable (6 décimales au plus, "
+                    + FixedPoint.toString(FixedPoint.MAX_INPUT) + " maximum) : " + value.toPlainString());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.PreTradeRisk;
+import tn.esprit.piboursebackend.Order.Engine.RecoveryStep;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Repository.TradeRepository;
+import tn.esprit.piboursebackend.Player.Entities.Transaction;
+import tn.esprit.piboursebackend.Player.Repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Branche le contrôle pré-négociation (PreTradeRisk) sur le moteur et la base.
+ * Au démarrage, une fois les carnets reconstruits et avant toute commande (RecoveryStep, après la
+ * réparation de la base) : liquidités = dépôts - retraits + ventes - achats, titres = achetés - vendus,
+ * puis réservation des ordres des carnets reconstruits. Tant que ce n'est pas fait, les ordres sont refusés.
+ * Ensuite tout se passe en mémoire : réservation
+ * avant soumission, conversion / libération sur les résultats des séquenceurs.
+ * Un ordre sans joueur n'est pas contrôlé. Un achat au marché réserve au meilleur prix vendeur
+ * (à défaut le dernier prix) majoré de la marge configurée, et ce prix borne son exécution dans le moteur :
+ * il ne peut pas coûter plus que sa réservation.
+ */
+@Service
+public class PreTradeRiskService implements MarketDataListener, RecoveryStep {
+
+    private static final Logger log = LoggerFactory.getLogger(PreTradeRiskService.class);
+
+    private final MatchingEngine matchingEngine;
+    private final TransactionRepository transactionRepository;
+    private final TradeRepository tradeRepository;
+    private final boolean enabled;
+    private final BigDecimal marketCollar;
+    private final PreTradeRisk gate = new PreTradeRisk();
+    private final Map<Long, Long> referencePrices = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public PreTradeRiskService(MatchingEngine matchingEngine, TransactionRepository transactionRepository,
+                               TradeRepository tradeRepository,
+                               @Value("${pibourse.pretrade.enabled:true}") boolean enabled,
+                               @Value("${pibourse.pretrade.market-collar-percent:10}") BigDecimal marketCollarPercent) {
+        this.matchingEngine = matchingEngine;
+        this.transactionRepository = transactionRepository;
+        this.tradeRepository = tradeRepository;
+        this.enabled = enabled;
+        this.marketCollar = BigDecimal.ONE.add(marketCollarPercent.movePointLeft(2));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        matchingEngine.addExecutionListener(gate);
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void onBooksRecovered(List<RestingOrder> openOrders) {
+        if (!enabled) return;
+        for (Object[] row : transactionRepository.sumCashByPlayer()) {
+            gate.credit((Long) row[0], FixedPoint.of(BigDecimal.valueOf(((Number) row[1]).doubleValue())));
+        }
+        for (Object[] row : tradeRepository.sumBoughtByPlayer()) {
+            gate.creditShares((Long) row[0], (Long) row[1], FixedPoint.of((BigDecimal) row[2]));
+            gate.credit((Long) row[0], -FixedPoint.of((BigDecimal) row[3]));
+        }
+        for (Object[] row : tradeRepository.sumSoldByPlayer()) {
+            gate.creditShares((Long) row[0], (Long) row[1], -FixedPoint.of((BigDecimal) row[2]));
+            gate.credit((Long) row[0], FixedPoint.of((BigDecimal) row[3]));
+        }
+        int open = 0;
+        for (RestingOrder o : openOrders) {
+            if (o.getPlayerId() == null) continue;
+            gate.reserve(o.getOrderId(), o.getPlayerId(), o.getStockId(), o.getSide(),
+                    o.getPrice(), o.getRemainingQuantity(), true);
+            open++;
+        }
+        loaded = true;
+        log.info("Pre-trade risk loaded, {} open orders reserved", open);
+    }
+
+    /**
+     * Réserve liquidités ou titres pour un nouvel ordre ; IllegalStateException si insuffisant.
+     * @return prix de protection d'un achat au marché (virgule fixe), FixedPoint.NULL sinon
+     */
+    public long reserve(Order order) {
+        if (!enabled || order.getPlayer() == null) return FixedPoint.NULL;
+        checkLoaded();
+        long quantity = FixedPoint.of(order.getQuantity());
+        long unitPrice = 0;
+        if (order.getSide() == OrderSide.BUY) {
+            unitPrice = order.getPrice() != null ? FixedPoint.of(order.getPrice()) : marketReference(order.getStock().getId());
+        }
+        if (!gate.reserve(order.getId(), order.getPlayer().getId(), order.getStock().getId(), order.getSide(),
+                unitPrice, quantity, false)) {
+            throw new IllegalStateException(order.getSide() == OrderSide.BUY
+                    ? "Liquidités insuffisantes pour cet ordre" : "Titres insuffisants pour cet ordre");
+        }
+        return order.getSide() == OrderSide.BUY && order.getType() == OrderType.MARKET ? unitPrice : FixedPoint.NULL;
+    }
+
+    /** Majoration de la réservation avant une modification (nouvelle quantité totale au nouveau prix). */
+    public void extend(Long orderId, BigDecimal newPrice, BigDecimal newQuantity) {
+        if (!enabled) return;
+        checkLoaded();
+        if (!gate.extend(orderId, newPrice == null ? FixedPoint.NULL : FixedPoint.of(newPrice),
+                newQuantity == null ? FixedPoint.NULL : FixedPoint.of(newQuantity))) {
+            throw new IllegalStateException("Réserve insuffisante pour cette modification");
+        }
+    }
+
+    /** Modification refusée ou échouée : la majoration prise par extend est rendue. */
+    public void revertExtension(Long orderId) {
+        if (enabled) gate.revertExtension(orderId);
+    }
+
+    /** Ordre refusé avant d'atteindre le carnet. */
+    public void release(Long orderId) {
+        if (enabled) gate.release(orderId);
+    }
+
+    /** Dépôts et retraits enregistrés après le démarrage. */
+    public void onTransaction(Transaction t) {
+        // Avant le chargement, le mouvement sera lu en base avec les autres
+        if (!enabled || !loaded || t.getPlayer() == null || t.getPlayer().getId() == null) return;
+        long amount = FixedPoint.of(BigDecimal.valueOf(t.getAmount()));
+        if ("DEPOSIT".equals(t.getType())) {
+            gate.credit(t.getPlayer().getId(), amount);
+        } else if ("WITHDRAW".equals(t.getType())) {
+            gate.credit(t.getPlayer().getId(), -amount);
+        }
+    }
+
+    public BigDecimal availableCash(Long playerId) {
+        return FixedPoint.toBigDecimal(gate.availableCash(playerId));
+    }
+
+    // Soldes pas encore chargés : tout paraîtrait insuffisant, ou une réservation se perdrait au chargement
+    private void checkLoaded() {
+        if (!loaded) throw new IllegalStateException("Reprise du moteur en cours, réessayer dans un instant");
+    }
+
+    private long marketReference(Long stockId) {
+        Long reference = referencePrices.get(stockId);
+        if (reference == null) {
+            throw new IllegalStateException("Aucun prix de référence pour un achat au marché : " + stockId);
+        }
+        return FixedPoint.of(FixedPoint.toBigDecimal(reference).multiply(marketCollar));
+    }
+
+    // --- Thread du séquenceur : prix de référence des achats au marché ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        long reference = update.getBestAsk() != FixedPoint.NULL ? update.getBestAsk() : update.getLastPrice();
+        if (reference != FixedPoint.NULL) referencePrices.put(update.getStockId(), reference);
+    }
+}
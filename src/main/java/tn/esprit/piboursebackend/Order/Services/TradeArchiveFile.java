@@ -0,0 +1,231 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import tn.esprit.piboursebackend.Order.Dto.TradeResponse;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Fichier d'archive d'une période de trades, en colonnes compressées.
+ * Les lignes arrivent triées par (titre, executed_at, id) ; chaque titre forme un bloc indépendant
+ * où les colonnes id, ordre acheteur, ordre vendeur, prix, quantité et heure (µs) se suivent,
+ * chacune en deltas zigzag varint, le tout compressé (deflate). Lire un titre ne décompresse que son bloc.
+ * Format : MAGIC VERSION | blocs | répertoire (titre, offset, longueur, lignes, heure min, heure max, crc)
+ *          | offset du répertoire (8) | entrées (4) | lignes (8) | MAGIC (4)
+ */
+final class TradeArchiveFile {
+
+    private static final int MAGIC = 0x54434F4C;           // "TCOL"
+    private static final byte VERSION = 1;
+    private static final int COLUMNS = 6;
+    private static final int ENTRY_BYTES = 8 + 8 + 4 + 4 + 8 + 8 + 4;
+    private static final int TRAILER_BYTES = 8 + 4 + 8 + 4;
+
+    private TradeArchiveFile() {
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /** Écriture séquentielle ; un appel à finish() rend le fichier durable (fsync). */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        private final long[][] columns = new long[COLUMNS][1024];
+        private long stockId = Long.MIN_VALUE;
+        private int rows;                                   // lignes du bloc courant
+        private int entries;
+        private long totalRows;
+        private long maxId;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(5).putInt(MAGIC).put(VERSION).flip();
+            while (header.hasRemaining()) channel.write(header);
+        }
+
+        void add(long id, long stockId, long buyOrderId, long sellOrderId, long price, long quantity, long micros)
+                throws IOException {
+            if (stockId != this.stockId) {
+                flushBlock();
+                this.stockId = stockId;
+            }
+            if (rows == columns[0].length) {
+                for (int c = 0; c < COLUMNS; c++) columns[c] = Arrays.copyOf(columns[c], rows * 2);
+            }
+            columns[0][rows] = id;
+            columns[1][rows] = buyOrderId;
+            columns[2][rows] = sellOrderId;
+            columns[3][rows] = price;
+            columns[4][rows] = quantity;
+            columns[5][rows] = micros;
+            rows++;
+            maxId = Math.max(maxId, id);
+        }
+
+        long rows() {
+            return totalRows + rows;
+        }
+
+        long maxId() {
+            return maxId;
+        }
+
+        /** Écrit le dernier bloc, le répertoire et la fin de fichier ; renvoie la taille du fichier. */
+        long finish() throws IOException {
+            flushBlock();
+            long directoryOffset = channel.position();
+            write(ByteBuffer.wrap(directory.toByteArray()));
+            write(ByteBuffer.allocate(TRAILER_BYTES).putLong(directoryOffset).putInt(entries)
+                    .putLong(totalRows).putInt(MAGIC).flip());
+            channel.force(true);
+            return channel.position();
+        }
+
+        private void flushBlock() throws IOException {
+            if (rows == 0) return;
+            ByteArrayOutputStream block = new ByteArrayOutputStream(rows * 8);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(block, new Deflater(Deflater.BEST_SPEED))) {
+                byte[] scratch = new byte[10];
+                for (long[] column : columns) {
+                    long previous = 0;
+                    for (int i = 0; i < rows; i++) {
+                        out.write(scratch, 0, varint(scratch, column[i] - previous));
+                        previous = column[i];
+                    }
+                }
+            }
+            byte[] bytes = block.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            long offset = channel.position();
+            write(ByteBuffer.wrap(bytes));
+            directory.writeBytes(ByteBuffer.allocate(ENTRY_BYTES).putLong(stockId).putLong(offset)
+                    .putInt(bytes.length).putInt(rows).putLong(columns[5][0]).putLong(columns[5][rows - 1])
+                    .putInt((int) crc.getValue()).array());
+            entries++;
+            totalRows += rows;
+            rows = 0;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Trades d'un titre dont l'heure est dans [from, to], dans l'ordre du fichier (heure, id). */
+    static List<TradeResponse> read(Path path, Long stockId, LocalDateTime from, LocalDateTime to) throws IOException {
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        List<TradeResponse> trades = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer trailer = readFully(channel, channel.size() - TRAILER_BYTES, TRAILER_BYTES);
+            long directoryOffset = trailer.getLong();
+            int entries = trailer.getInt();
+            trailer.getLong();
+            if (trailer.getInt() != MAGIC || readFully(channel, 0, 5).getInt() != MAGIC) {
+                throw new IOException("Not a trade archive: " + path);
+            }
+            ByteBuffer directory = readFully(channel, directoryOffset, entries * ENTRY_BYTES);
+            for (int e = 0; e < entries; e++) {
+                long blockStock = directory.getLong();
+                long offset = directory.getLong();
+                int length = directory.getInt();
+                int rows = directory.getInt();
+                long minMicros = directory.getLong();
+                long maxMicros = directory.getLong();
+                int crc = directory.getInt();
+                if (blockStock != stockId || maxMicros < fromMicros || minMicros > toMicros) continue;
+                decode(path, readFully(channel, offset, length), rows, crc, stockId, fromMicros, toMicros, trades);
+            }
+        }
+        return trades;
+    }
+
+    private static void decode(Path path, ByteBuffer block, int rows, int expectedCrc, Long stockId,
+                               long fromMicros, long toMicros, List<TradeResponse> trades) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(block.duplicate());
+        if ((int) crc.getValue() != expectedCrc) throw new IOException("Corrupted trade archive block in " + path);
+        long[][] columns = new long[COLUMNS][rows];
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(block.array(), block.arrayOffset(), block.remaining())))) {
+            for (long[] column : columns) {
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    previous += readVarint(in);
+                    column[i] = previous;
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            long micros = columns[5][i];
+            if (micros < fromMicros || micros > toMicros) continue;
+            trades.add(new TradeResponse(columns[0][i], stockId, columns[1][i], columns[2][i],
+                    FixedPoint.toBigDecimal(columns[3][i]), FixedPoint.toBigDecimal(columns[4][i]), fromMicros(micros)));
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Truncated trade archive");
+        }
+        return buffer.flip();
+    }
+
+    // Zigzag + varint : les deltas (souvent petits, parfois négatifs) tiennent en 1 à 3 octets
+    private static int varint(byte[] out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        int n = 0;
+        while ((v & ~0x7FL) != 0) {
+            out[n++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[n++] = (byte) v;
+        return n;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Truncated trade archive block");
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IOException("Malformed varint in trade archive");
+    }
+}
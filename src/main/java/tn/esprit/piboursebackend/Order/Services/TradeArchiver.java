@@ -0,0 +1,163 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Entity.TradeArchive;
+import tn.esprit.piboursebackend.Order.Repository.TradeArchiveRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Archivage roulant des trades : chaque période (jour ou mois) terminée depuis plus de retention-days
+ * est exportée dans un fichier colonnes compressé (TradeArchiveFile), puis, dans une même transaction,
+ * agrégée par joueur dans trade_rollup et enregistrée dans trade_archive, ce qui avance l'horizon.
+ * Ce n'est qu'ensuite que ses lignes quittent la table (DROP PARTITION sous MySQL) : un arrêt entre
+ * les deux est rattrapé au passage suivant, les lectures filtrant déjà sur l'horizon.
+ * Chaque passage commence par l'entretien des partitions à venir, archivage désactivé ou non.
+ */
+@Component
+public class TradeArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeArchiver.class);
+
+    private static final String EXPORT_SQL = """
+            SELECT id, stock_id, buy_order_id, sell_order_id, price, quantity, executed_at FROM trade
+             WHERE executed_at >= ? AND executed_at < ?
+             ORDER BY stock_id, executed_at, id
+            """;
+
+    private static final String ROLLUP_SQL = """
+            INSERT INTO trade_rollup (period_start, player_id, stock_id, side, quantity, amount)
+            SELECT ?, o.player_id, t.stock_id, '%1$s', SUM(t.quantity), SUM(t.price * t.quantity)
+              FROM trade t JOIN orders o ON o.id = t.%2$s
+             WHERE o.player_id IS NOT NULL AND t.executed_at >= ? AND t.executed_at < ?
+             GROUP BY o.player_id, t.stock_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TradeArchiveRepository archiveRepository;
+    private final TradePartitionManager partitions;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final TradePeriod period;
+    private final int retentionDays;
+    private final Path dir;
+    private final Counter archived;
+
+    public TradeArchiver(JdbcTemplate jdbcTemplate, TradeArchiveRepository archiveRepository,
+                         TradePartitionManager partitions, PlatformTransactionManager transactionManager,
+                         MeterRegistry registry,
+                         @Value("${pibourse.trades.archive.enabled:true}") boolean enabled,
+                         @Value("${pibourse.trades.partition:DAY}") TradePeriod period,
+                         @Value("${pibourse.trades.archive.retention-days:30}") int retentionDays,
+                         @Value("${pibourse.trades.archive.dir:trade-archive}") String dir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveRepository = archiveRepository;
+        this.partitions = partitions;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.period = period;
+        this.retentionDays = retentionDays;
+        this.dir = Path.of(dir);
+        this.archived = Counter.builder("pibourse.trades.archived")
+                .description("Trades moved from the trade table to archive files")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${pibourse.trades.maintenance-interval-ms:3600000}")
+    public synchronized void maintain() {
+        LocalDate today = LocalDate.now();
+        try {
+            partitions.ensure(today);
+            if (!enabled) return;
+            LocalDate cutoff = today.minusDays(retentionDays);
+            while (true) {
+                LocalDate horizon = horizon();
+                Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(executed_at) FROM trade WHERE executed_at >= ?",
+                        Timestamp.class, Timestamp.valueOf(horizon.atStartOfDay()));
+                if (oldest == null) break;
+                LocalDate start = period.start(oldest.toLocalDateTime().toLocalDate());
+                LocalDate end = period.next(start);
+                if (end.isAfter(cutoff)) break;
+                archive(start.isBefore(horizon) ? horizon : start, end);
+            }
+            archiveRepository.findHorizon().ifPresent(partitions::purgeBefore);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Trade archiving failed, retrying at next run: {}", e.toString());
+        }
+    }
+
+    /** Chemin d'un fichier d'archive enregistré dans trade_archive. */
+    public Path resolve(TradeArchive archive) {
+        return dir.resolve(archive.getFileName());
+    }
+
+    private LocalDate horizon() {
+        return archiveRepository.findHorizon().orElse(LocalDate.of(1970, 1, 1));
+    }
+
+    private void archive(LocalDate start, LocalDate end) throws IOException {
+        long t0 = System.nanoTime();
+        Timestamp from = Timestamp.valueOf(start.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(end.atStartOfDay());
+        Files.createDirectories(dir);
+        String fileName = "trades-" + start + ".tcol";
+        Path file = dir.resolve(fileName);
+        Path tmp = dir.resolve(fileName + ".tmp");
+
+        long rows;
+        long bytes;
+        long maxId;
+        try (TradeArchiveFile.Writer writer = new TradeArchiveFile.Writer(tmp)) {
+            jdbcTemplate.query(EXPORT_SQL, rs -> {
+                try {
+                    writer.add(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                            FixedPoint.of(rs.getBigDecimal(5)), FixedPoint.of(rs.getBigDecimal(6)),
+                            TradeArchiveFile.toMicros(rs.getTimestamp(7).toLocalDateTime()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, from, to);
+            bytes = writer.finish();
+            rows = writer.rows();
+            maxId = writer.maxId();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Agrégats et horizon ensemble : les sommes par joueur ne comptent jamais une période deux fois
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update(ROLLUP_SQL.formatted("BUY", "buy_order_id"), start, from, to);
+            jdbcTemplate.update(ROLLUP_SQL.formatted("SELL", "sell_order_id"), start, from, to);
+            archiveRepository.save(TradeArchive.builder()
+                    .periodStart(start)
+                    .periodEnd(end)
+                    .fileName(fileName)
+                    .tradeCount(rows)
+                    .fileBytes(bytes)
+                    .maxTradeId(maxId)
+                    .archivedAt(LocalDateTime.now())
+                    .build());
+        });
+        archived.increment(rows);
+        log.info("Archived {} trades of [{}, {}) into {} ({} bytes) in {} ms", rows, start, end, file, bytes,
+                (System.nanoTime() - t0) / 1_000_000);
+    }
+}
@@ -0,0 +1,99 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import tn.esprit.piboursebackend.Order.Dto.TradeResponse;
+import tn.esprit.piboursebackend.Order.Entity.TradeArchive;
+import tn.esprit.piboursebackend.Order.Repository.TradeArchiveRepository;
+import tn.esprit.piboursebackend.Order.Repository.TradeRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lecture des trades d'un titre sur les deux niveaux : table (depuis l'horizon d'archivage, index
+ * (stock_id, executed_at)) puis fichiers d'archive des périodes antérieures.
+ * Si TradeArchiver avance l'horizon pendant la lecture, celle-ci est refaite : une période ne peut
+ * ni manquer ni apparaître deux fois.
+ */
+@Service
+public class TradeHistory {
+
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+    private static final Comparator<TradeResponse> BY_TIME =
+            Comparator.comparing(TradeResponse::getExecutedAt).thenComparing(TradeResponse::getId);
+
+    private final TradeRepository tradeRepository;
+    private final TradeArchiveRepository archiveRepository;
+    private final TradeArchiver archiver;
+
+    public TradeHistory(TradeRepository tradeRepository, TradeArchiveRepository archiveRepository,
+                        TradeArchiver archiver) {
+        this.tradeRepository = tradeRepository;
+        this.archiveRepository = archiveRepository;
+        this.archiver = archiver;
+    }
+
+    /** Les limit dernières transactions du titre, de la plus récente à la plus ancienne. */
+    public List<TradeResponse> latest(Long stockId, int limit) {
+        while (true) {
+            LocalDate horizon = horizon();
+            List<TradeResponse> trades = new ArrayList<>(
+                    tradeRepository.findLatest(stockId, horizon.atStartOfDay(), PageRequest.of(0, limit)));
+            LocalDate before = horizon;
+            while (trades.size() < limit) {
+                Optional<TradeArchive> archive = archiveRepository.findFirstByPeriodStartLessThanOrderByPeriodStartDesc(before);
+                if (archive.isEmpty()) break;
+                List<TradeResponse> older = read(archive.get(), stockId, null, null);
+                older.sort(BY_TIME.reversed());
+                trades.addAll(older.subList(0, Math.min(older.size(), limit - trades.size())));
+                before = archive.get().getPeriodStart();
+            }
+            if (horizon.equals(horizon())) return trades;
+        }
+    }
+
+    /** Transactions du titre entre from et to (inclus), dans l'ordre chronologique. */
+    public List<TradeResponse> between(Long stockId, LocalDateTime from, LocalDateTime to) {
+        while (true) {
+            LocalDate horizon = horizon();
+            LocalDateTime live = horizon.atStartOfDay();
+            List<TradeResponse> trades = new ArrayList<>();
+            if (from.isBefore(live)) {
+                for (TradeArchive archive : archiveRepository
+                        .findByPeriodEndGreaterThanAndPeriodStartLessThanEqualOrderByPeriodStartAsc(from.toLocalDate(), to.toLocalDate())) {
+                    if (archive.getPeriodEnd().isAfter(horizon)) break;
+                    trades.addAll(read(archive, stockId, from, to));
+                }
+                trades.sort(BY_TIME);
+            }
+            if (!to.isBefore(live)) {
+                trades.addAll(tradeRepository.findRange(stockId, from.isBefore(live) ? live : from, to));
+            }
+            if (horizon.equals(horizon())) return trades;
+        }
+    }
+
+    private LocalDate horizon() {
+        return archiveRepository.findHorizon().orElse(EPOCH);
+    }
+
+    private List<TradeResponse> read(TradeArchive archive, Long stockId, LocalDateTime from, LocalDateTime to) {
+        if (archive.getTradeCount() == 0) return new ArrayList<>();
+        // Bornes ramenées à la période (null = toute la période)
+        LocalDateTime start = archive.getPeriodStart().atStartOfDay();
+        LocalDateTime end = archive.getPeriodEnd().atStartOfDay();
+        try {
+            return TradeArchiveFile.read(archiver.resolve(archive), stockId,
+                    from == null || from.isBefore(start) ? start : from, to == null || to.isAfter(end) ? end : to);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Partitions de la table trade par période d'executed_at (RANGE COLUMNS), sous MySQL uniquement.
+ * Première passe : suppression des clés étrangères et clé primaire (id, executed_at), exigences du
+ * partitionnement MySQL, puis une partition par période depuis le plus vieux trade. Ensuite on garde
+ * "ahead" périodes d'avance en découpant la partition pmax, et on supprime (DROP PARTITION, sans
+ * parcourir les lignes) les périodes passées sous l'horizon d'archivage.
+ * Sur un autre SGBD (H2 du profil simulation) la table reste simple et purgeBefore fait un DELETE.
+ */
+@Component
+public class TradePartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TradePartitionManager.class);
+
+    private static final String MAXVALUE = "pmax";
+    private static final DateTimeFormatter NAME = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TradePeriod period;
+    private final int ahead;
+    private volatile Boolean supported;
+
+    /** Partition nommée p&lt;début&gt;, bornes [start, end) ; end = null pour pmax. */
+    record Partition(String name, LocalDate start, LocalDate end) {
+    }
+
+    public TradePartitionManager(JdbcTemplate jdbcTemplate,
+                                 @Value("${pibourse.trades.partition:DAY}") TradePeriod period,
+                                 @Value("${pibourse.trades.partitions-ahead:7}") int ahead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.period = period;
+        this.ahead = Math.max(1, ahead);
+    }
+
+    public boolean isSupported() {
+        if (supported == null) {
+            supported = "MySQL".equals(jdbcTemplate.execute(
+                    (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName()));
+        }
+        return supported;
+    }
+
+    /** Partitionne la table au premier passage, puis crée les périodes à venir jusqu'à today + ahead. */
+    public void ensure(LocalDate today) {
+        if (!isSupported()) return;
+        LocalDate until = period.start(today);
+        for (int i = 0; i < ahead; i++) until = period.next(until);
+        List<Partition> partitions = partitions();
+        if (partitions.isEmpty()) {
+            convert(period.start(today), until);
+            return;
+        }
+        LocalDate last = null;
+        for (Partition p : partitions) if (p.end() != null) last = p.end();
+        if (last == null) last = period.start(today);
+        if (!last.isBefore(until)) return;
+        StringJoiner parts = new StringJoiner(", ");
+        for (LocalDate start = last; start.isBefore(until); start = period.next(start)) {
+            parts.add(definition(start, period.next(start)));
+        }
+        jdbcTemplate.execute("ALTER TABLE trade REORGANIZE PARTITION " + MAXVALUE + " INTO (" + parts
+                + ", PARTITION " + MAXVALUE + " VALUES LESS THAN (MAXVALUE))");
+        log.info("Trade partitions extended up to {}", until);
+    }
+
+    /** Retire de la table les trades antérieurs à horizon : partitions entières, puis reliquat éventuel. */
+    public void purgeBefore(LocalDate horizon) {
+        if (isSupported()) {
+            List<String> dropped = new ArrayList<>();
+            for (Partition p : partitions()) {
+                if (p.end() != null && !p.end().isAfter(horizon)) dropped.add(p.name());
+            }
+            if (!dropped.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE trade DROP PARTITION " + String.join(", ", dropped));
+                log.info("Dropped archived trade partitions {}", dropped);
+            }
+        }
+        jdbcTemplate.update("DELETE FROM trade WHERE executed_at < ?", Timestamp.valueOf(horizon.atStartOfDay()));
+    }
+
+    List<Partition> partitions() {
+        return jdbcTemplate.query("""
+                SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'trade' AND PARTITION_NAME IS NOT NULL
+                 ORDER BY PARTITION_ORDINAL_POSITION
+                """, (rs, i) -> {
+            String name = rs.getString(1);
+            String bound = rs.getString(2);             // '2026-10-18 00:00:00' ou MAXVALUE
+            LocalDate end = bound == null || bound.startsWith("MAXVALUE") ? null
+                    : LocalDate.parse(bound.replace("'", "").substring(0, 10));
+            LocalDate start = name.equals(MAXVALUE) ? null : LocalDate.parse(name.substring(1), NAME);
+            return new Partition(name, start, end);
+        });
+    }
+
+    private void convert(LocalDate current, LocalDate until) {
+        long start = System.nanoTime();
+        for (String fk : jdbcTemplate.queryForList("""
+                SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'trade' AND CONSTRAINT_TYPE = 'FOREIGN KEY'
+                """, String.class)) {
+            jdbcTemplate.execute("ALTER TABLE trade DROP FOREIGN KEY `" + fk + "`");
+        }
+        List<String> primary = jdbcTemplate.queryForList("""
+                SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'trade' AND CONSTRAINT_NAME = 'PRIMARY'
+                """, String.class);
+        if (!primary.contains("executed_at")) {
+            jdbcTemplate.execute("ALTER TABLE trade DROP PRIMARY KEY, ADD PRIMARY KEY (id, executed_at)");
+        }
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(executed_at) FROM trade", Timestamp.class);
+        LocalDate first = oldest == null ? current : period.start(oldest.toLocalDateTime().toLocalDate());
+        if (first.isAfter(current)) first = current;
+        StringJoiner parts = new StringJoiner(", ");
+        int count = 0;
+        for (LocalDate p = first; p.isBefore(until); p = period.next(p)) {
+            parts.add(definition(p, period.next(p)));
+            count++;
+        }
+        parts.add("PARTITION " + MAXVALUE + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE trade PARTITION BY RANGE COLUMNS(executed_at) (" + parts + ")");
+        log.info("Trade table partitioned by {} from {}: {} partitions in {} ms", period, first, count + 1,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String definition(LocalDate start, LocalDate end) {
+        return "PARTITION p" + start.format(NAME) + " VALUES LESS THAN ('" + end + " 00:00:00')";
+    }
+}
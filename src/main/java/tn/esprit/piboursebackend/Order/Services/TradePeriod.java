@@ -0,0 +1,17 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import java.time.LocalDate;
+
+/** Granularité des partitions de la table trade et des fichiers d'archive. */
+public enum TradePeriod {
+    DAY, MONTH;
+
+    public LocalDate start(LocalDate date) {
+        return this == DAY ? date : date.withDayOfMonth(1);
+    }
+
+    /** Début de la période suivante = borne exclue de celle qui commence à start. */
+    public LocalDate next(LocalDate start) {
+        return this == DAY ? start.plusDays(1) : start.plusMonths(1);
+    }
+}
@@ -0,0 +1,105 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Engine.MatchingProbe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Métriques du chemin d'un ordre, exportées par /actuator/prometheus :
+ * - pibourse.order.entry : réception -> acquittement (validation, contrôle pré-négociation, file, matching, journal)
+ * - pibourse.matching.queue / .match / .service : attente en file, carnet seul, commande complète sur le séquenceur
+ * - pibourse.matching.fills : exécutions (rate() = exécutions par seconde)
+ * - pibourse.matching.queue.depth : profondeur de la file de chaque séquenceur
+ * Durées enregistrées dans des LatencyRecorder (HdrHistogram), percentiles sur la dernière fenêtre.
+ * Les mesures d'un symbole sont créées à sa première commande puis réutilisées : l'enregistrement
+ * n'alloue pas. Environ 250 Ko par symbole ; per-stock=false regroupe tous les symboles sous stock="all".
+ */
+@Component
+public class TradingMetrics implements MatchingProbe {
+
+    private final MeterRegistry registry;
+    private final MatchingEngine matchingEngine;
+    private final boolean perStock;
+    private final double[] percentiles;
+    private final long windowMs;
+    private final Map<Long, StockMeters> stocks = new ConcurrentHashMap<>();
+    private final StockMeters all;       // per-stock=false
+
+    public TradingMetrics(MeterRegistry registry, MatchingEngine matchingEngine,
+                          @Value("${pibourse.metrics.per-stock:true}") boolean perStock,
+                          @Value("${pibourse.metrics.percentiles:0.5,0.99,0.999}") double[] percentiles,
+                          @Value("${pibourse.metrics.window-ms:10000}") long windowMs) {
+        this.registry = registry;
+        this.matchingEngine = matchingEngine;
+        this.perStock = perStock;
+        this.percentiles = percentiles;
+        this.windowMs = windowMs;
+        this.all = perStock ? null : new StockMeters("all");
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.setProbe(this);
+        for (int shard = 0; shard < matchingEngine.shards(); shard++) {
+            int s = shard;
+            Gauge.builder("pibourse.matching.queue.depth", matchingEngine, e -> e.queueDepth(s))
+                    .tag("shard", String.valueOf(s))
+                    .description("Commands waiting in the sequencer queue")
+                    .register(registry);
+        }
+    }
+
+    /** Durée réception -> acquittement d'un nouvel ordre. */
+    public void recordEntry(Long stockId, long nanos) {
+        meters(stockId).entry.record(nanos);
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onCommand(Long stockId, long queuedNanos, long matchNanos, long serviceNanos, int fills) {
+        StockMeters m = meters(stockId);
+        m.queue.record(queuedNanos);
+        m.match.record(matchNanos);
+        m.service.record(serviceNanos);
+        if (fills > 0) m.fills.increment(fills);
+    }
+
+    private StockMeters meters(Long stockId) {
+        if (!perStock) return all;
+        StockMeters m = stocks.get(stockId);
+        return m != null ? m : stocks.computeIfAbsent(stockId, id -> new StockMeters(String.valueOf(id)));
+    }
+
+    private LatencyRecorder timer(String name, String description, String stock) {
+        return LatencyRecorder.register(registry, name, description, Tags.of("stock", stock), percentiles, windowMs);
+    }
+
+    private final class StockMeters {
+        final LatencyRecorder entry;
+        final LatencyRecorder queue;
+        final LatencyRecorder match;
+        final LatencyRecorder service;
+        final Counter fills;
+
+        StockMeters(String stock) {
+            entry = timer("pibourse.order.entry", "Order receipt to engine acknowledgement", stock);
+            queue = timer("pibourse.matching.queue", "Wait in the sequencer queue", stock);
+            match = timer("pibourse.matching.match", "Order book processing", stock);
+            service = timer("pibourse.matching.service", "Whole command on the sequencer thread", stock);
+            fills = Counter.builder("pibourse.matching.fills")
+                    .description("Executions produced by the engine")
+                    .tag("stock", stock)
+                    .register(registry);
+        }
+    }
+}
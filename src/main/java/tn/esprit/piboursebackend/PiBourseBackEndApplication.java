@@ -2,8 +2,10 @@ package tn.esprit.piboursebackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PiBourseBackEndApplication {
 
     public static void main(String[] args) {
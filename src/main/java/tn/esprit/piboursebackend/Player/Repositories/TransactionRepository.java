@@ -2,8 +2,19 @@ package tn.esprit.piboursebackend.Player.Repositories;
 
 import tn.esprit.piboursebackend.Player.Entities.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    // Dépôts - retraits par joueur (liquidités du contrôle pré-négociation)
+    @Query("""
+      SELECT t.player.id, SUM(CASE WHEN t.type = 'DEPOSIT' THEN t.amount ELSE -t.amount END) FROM Transaction t
+       WHERE t.player IS NOT NULL AND t.type IN ('DEPOSIT', 'WITHDRAW')
+       GROUP BY t.player.id
+    """)
+    List<Object[]> sumCashByPlayer();
 }
@@ -1,5 +1,6 @@
 package tn.esprit.piboursebackend.Player.Services;
 
+import tn.esprit.piboursebackend.Order.Services.PreTradeRiskService;
 import tn.esprit.piboursebackend.Player.Entities.Transaction;
 import tn.esprit.piboursebackend.Player.Repositories.TransactionRepository;
 import org.springframework.stereotype.Service;
@@ -8,9 +9,11 @@ import java.util.List;
 @Service
 public class TransactionService {
     private final TransactionRepository transactionRepository;
+    private final PreTradeRiskService preTradeRisk;
 
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository, PreTradeRiskService preTradeRisk) {
         this.transactionRepository = transactionRepository;
+        this.preTradeRisk = preTradeRisk;
     }
 
     public List<Transaction> getAllTransactions() {
@@ -18,6 +21,8 @@ public class TransactionService {
     }
 
     public Transaction createTransaction(Transaction transaction) {
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        preTradeRisk.onTransaction(saved);
+        return saved;
     }
 }
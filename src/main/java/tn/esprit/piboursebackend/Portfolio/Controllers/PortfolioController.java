@@ -0,0 +1,32 @@
+package tn.esprit.piboursebackend.Portfolio.Controllers;
+
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioValuation;
+import tn.esprit.piboursebackend.Portfolio.Dto.RiskMetrics;
+import tn.esprit.piboursebackend.Portfolio.Services.PortfolioValuationService;
+import tn.esprit.piboursebackend.Portfolio.Services.RiskService;
+
+@RestController
+@RequestMapping("/portfolios")
+public class PortfolioController {
+
+    private final PortfolioValuationService valuationService;
+    private final RiskService riskService;
+
+    public PortfolioController(PortfolioValuationService valuationService, RiskService riskService) {
+        this.valuationService = valuationService;
+        this.riskService = riskService;
+    }
+
+    // Valorisation au dernier prix, servie par l'index mémoire
+    @GetMapping("/{portfolioId}/valuation")
+    public PortfolioValuation valuation(@PathVariable Long portfolioId) {
+        return valuationService.valuation(portfolioId);
+    }
+
+    // VaR historique / Monte Carlo et Sharpe du dernier calcul périodique
+    @GetMapping("/{portfolioId}/risk")
+    public RiskMetrics risk(@PathVariable Long portfolioId) {
+        return riskService.metrics(portfolioId);
+    }
+}
@@ -0,0 +1,13 @@
+package tn.esprit.piboursebackend.Portfolio.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Valeur de marché d'un portefeuille par titre, photographiée pour un calcul de risque. */
+@Getter
+@AllArgsConstructor
+public class PortfolioExposure {
+    private Long portfolioId;
+    private long[] stockIds;
+    private double[] values;
+}
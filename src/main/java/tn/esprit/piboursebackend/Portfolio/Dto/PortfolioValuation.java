@@ -0,0 +1,16 @@
+package tn.esprit.piboursebackend.Portfolio.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class PortfolioValuation {
+    private Long portfolioId;
+    private BigDecimal totalValue;
+    private BigDecimal unrealizedPnL;
+    private LocalDateTime updatedAt;    // dernier tick appliqué
+}
@@ -0,0 +1,18 @@
+package tn.esprit.piboursebackend.Portfolio.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/** Projection minimale d'une position pour l'index de valorisation. */
+@Getter
+@AllArgsConstructor
+public class PositionHolding {
+    private Long positionId;
+    private Long portfolioId;
+    private Long stockId;
+    private Integer quantity;
+    private BigDecimal averagePrice;
+    private BigDecimal currentValue;
+}
@@ -0,0 +1,18 @@
+package tn.esprit.piboursebackend.Portfolio.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class RiskMetrics {
+    private Long portfolioId;
+    private BigDecimal totalValue;
+    private BigDecimal historicalVaR;   // perte à 1 jour au seuil de confiance
+    private BigDecimal monteCarloVaR;   // perte sur l'horizon, rendements rééchantillonnés
+    private BigDecimal sharpeRatio;     // annualisé
+    private LocalDateTime computedAt;
+}
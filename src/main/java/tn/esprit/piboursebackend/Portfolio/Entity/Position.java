@@ -19,7 +19,11 @@ public class Position {
     private Integer quantity;
     private BigDecimal averagePrice;
     private BigDecimal currentValue;
-    @OneToOne(optional = false, fetch = FetchType.LAZY)
+    private BigDecimal unrealizedPnL;   // currentValue - quantité x prix moyen, tenu par PortfolioValuationService
+
+    // Plusieurs joueurs détiennent le même titre
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id")
     private Stock stock;
 
     // ✅ Correct: each Position belongs to ONE Portfolio (not a list)
@@ -5,8 +5,10 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import lombok.*;
 
-import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+
 @Entity
 @Getter
 @Setter
@@ -18,15 +20,72 @@ public class RiskEngine {
     @GeneratedValue
     private int  riskEngineId;
 
+    private static final int TRADING_DAYS = 252;
+
     // === Domain methods ===
-    public BigDecimal calculateVaR(Portfolio portfolio) {
-        // Example logic (placeholder)
-        return BigDecimal.valueOf(0.05).multiply(portfolio.getTotalValue());
+    // Rendements journaliers (log) en double[] : boucles simples que le JIT vectorise
+
+    /** Rendements du portefeuille : somme des rendements des count titres pondérée par leur valeur. */
+    public double[] portfolioReturns(double[][] stockReturns, double[] values, int count, double[] out) {
+        Arrays.fill(out, 0);
+        double total = 0;
+        for (int i = 0; i < count; i++) total += values[i];
+        if (total == 0) return out;
+        for (int i = 0; i < count; i++) {
+            double[] r = stockReturns[i];
+            if (r == null) continue;
+            double w = values[i] / total;
+            for (int t = 0; t < out.length; t++) {
+                out[t] += w * r[t];
+            }
+        }
+        return out;
     }
 
-    public BigDecimal calculateSharpeRatio(Portfolio portfolio) {
-        // Example logic
-        return BigDecimal.ONE;
+    /** VaR historique à 1 jour : perte au quantile (1 - confidence) des rendements observés. */
+    public double calculateVaR(double[] returns, double value, double confidence, double[] scratch) {
+        if (returns.length == 0) return 0;
+        System.arraycopy(returns, 0, scratch, 0, returns.length);
+        Arrays.sort(scratch, 0, returns.length);
+        return loss(scratch[quantile(returns.length, confidence)], value);
+    }
+
+    /** VaR Monte Carlo sur horizonDays jours : trajectoires tirées parmi les rendements historiques. */
+    public double calculateMonteCarloVaR(double[] returns, double value, double confidence, int horizonDays,
+                                         SplittableRandom random, double[] paths) {
+        if (returns.length == 0 || paths.length == 0) return 0;
+        for (int p = 0; p < paths.length; p++) {
+            double sum = 0;
+            for (int d = 0; d < horizonDays; d++) {
+                sum += returns[random.nextInt(returns.length)];
+            }
+            paths[p] = sum;
+        }
+        Arrays.sort(paths);
+        return loss(paths[quantile(paths.length, confidence)], value);
+    }
+
+    /** Ratio de Sharpe annualisé ; riskFreeRate annuel. 0 si les rendements sont constants. */
+    public double calculateSharpeRatio(double[] returns, double riskFreeRate) {
+        int n = returns.length;
+        if (n < 2) return 0;
+        double sum = 0;
+        for (double r : returns) sum += r;
+        double mean = sum / n;
+        double squares = 0;
+        for (double r : returns) squares += (r - mean) * (r - mean);
+        double std = Math.sqrt(squares / (n - 1));
+        if (std == 0) return 0;
+        return (mean * TRADING_DAYS - riskFreeRate) / (std * Math.sqrt(TRADING_DAYS));
+    }
+
+    private static int quantile(int n, double confidence) {
+        return Math.min(n - 1, (int) Math.floor((1 - confidence) * n));
+    }
+
+    // Rendement log -> perte en valeur, jamais négative
+    private static double loss(double logReturn, double value) {
+        return Math.max(0, -Math.expm1(logReturn) * value);
     }
 
  /*   public BigDecimal assessCreditRisk(Player player) {
@@ -0,0 +1,9 @@
+package tn.esprit.piboursebackend.Portfolio.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Portfolio.Entity.Portfolio;
+
+@Repository
+public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
+}
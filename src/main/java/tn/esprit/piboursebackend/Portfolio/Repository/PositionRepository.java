@@ -0,0 +1,17 @@
+package tn.esprit.piboursebackend.Portfolio.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import tn.esprit.piboursebackend.Portfolio.Dto.PositionHolding;
+import tn.esprit.piboursebackend.Portfolio.Entity.Position;
+
+import java.util.List;
+
+@Repository
+public interface PositionRepository extends JpaRepository<Position, Long> {
+
+    @Query("SELECT new tn.esprit.piboursebackend.Portfolio.Dto.PositionHolding(p.positionId, p.portfolio.portfolioId, "
+            + "p.stock.id, p.quantity, p.averagePrice, p.currentValue) FROM Position p")
+    List<PositionHolding> findAllHoldings();
+}
@@ -0,0 +1,250 @@
+package tn.esprit.piboursebackend.Portfolio.Services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioExposure;
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioValuation;
+import tn.esprit.piboursebackend.Portfolio.Dto.PositionHolding;
+import tn.esprit.piboursebackend.Portfolio.Entity.Portfolio;
+import tn.esprit.piboursebackend.Portfolio.Entity.Position;
+import tn.esprit.piboursebackend.Portfolio.Repository.PortfolioRepository;
+import tn.esprit.piboursebackend.Portfolio.Repository.PositionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Valorisation mark-to-market incrémentale des portefeuilles.
+ * Les positions sont indexées par titre : un changement de dernier prix ne revalorise que les
+ * positions de ce titre et applique la différence au total de chaque portefeuille concerné,
+ * au lieu de tout recalculer (joueurs x positions) à chaque tick. Valeurs en virgule fixe,
+ * lues en mémoire ; Position.currentValue / unrealizedPnL et Portfolio.totalValue / unrealizedPnL
+ * sont recopiés périodiquement par lots.
+ * L'index des positions (quantité, prix moyen) est chargé au démarrage seulement : aucun traitement ne
+ * modifie les positions en cours de route ; une position changée en base n'est prise en compte
+ * qu'au redémarrage suivant.
+ */
+@Service
+public class PortfolioValuationService implements MarketDataListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioValuationService.class);
+
+    private final MatchingEngine matchingEngine;
+    private final PositionRepository positionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final int batchSize;
+    private final Map<Long, StockHoldings> byStock = new ConcurrentHashMap<>();
+    private final Map<Long, Holding> byPosition = new ConcurrentHashMap<>();
+    private final Map<Long, Valuation> portfolios = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyPositions = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyPortfolios = ConcurrentHashMap.newKeySet();
+
+    public PortfolioValuationService(MatchingEngine matchingEngine, PositionRepository positionRepository,
+                                     PortfolioRepository portfolioRepository,
+                                     @Value("${pibourse.valuation.batch-size:500}") int batchSize) {
+        this.matchingEngine = matchingEngine;
+        this.positionRepository = positionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.addMarketDataListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        List<PositionHolding> holdings = positionRepository.findAllHoldings();
+        for (PositionHolding h : holdings) {
+            track(h.getPositionId(), h.getPortfolioId(), h.getStockId(), h.getQuantity(), h.getAveragePrice(),
+                    h.getCurrentValue());
+        }
+        log.info("Valuation index loaded: {} positions in {} portfolios", holdings.size(), portfolios.size());
+    }
+
+    public PortfolioValuation valuation(Long portfolioId) {
+        Valuation v = portfolios.get(portfolioId);
+        if (v == null) throw new EntityNotFoundException("Portefeuille introuvable");
+        return PortfolioValuation.builder()
+                .portfolioId(portfolioId)
+                .totalValue(FixedPoint.toBigDecimal(v.total.get()))
+                .unrealizedPnL(FixedPoint.toBigDecimal(v.unrealized.get()))
+                .updatedAt(v.updatedAt)
+                .build();
+    }
+
+    /** Valeur courante de chaque position, regroupée par portefeuille (entrée du calcul de risque). */
+    public List<PortfolioExposure> exposures() {
+        Map<Long, Map<Long, Long>> values = new HashMap<>();
+        for (Map.Entry<Long, StockHoldings> e : byStock.entrySet()) {
+            StockHoldings stock = e.getValue();
+            synchronized (stock) {
+                for (Holding h : stock.holdings) {
+                    values.computeIfAbsent(h.portfolioId, id -> new HashMap<>()).merge(e.getKey(), h.value, Long::sum);
+                }
+            }
+        }
+        List<PortfolioExposure> exposures = new ArrayList<>(values.size());
+        for (Map.Entry<Long, Map<Long, Long>> p : values.entrySet()) {
+            long[] stockIds = new long[p.getValue().size()];
+            double[] amounts = new double[stockIds.length];
+            int i = 0;
+            for (Map.Entry<Long, Long> v : p.getValue().entrySet()) {
+                stockIds[i] = v.getKey();
+                amounts[i++] = (double) v.getValue() / FixedPoint.ONE;
+            }
+            exposures.add(new PortfolioExposure(p.getKey(), stockIds, amounts));
+        }
+        return exposures;
+    }
+
+    // Au chargement : valorisée au dernier prix connu du titre, sinon à la valeur en base, sinon au prix moyen
+    private void track(Long positionId, Long portfolioId, Long stockId, Integer quantity, BigDecimal averagePrice,
+                       BigDecimal currentValue) {
+        StockHoldings stock = byStock.computeIfAbsent(stockId, id -> new StockHoldings());
+        Valuation portfolio = portfolios.computeIfAbsent(portfolioId, id -> new Valuation());
+        synchronized (stock) {
+            Holding h = byPosition.get(positionId);
+            if (h == null) {
+                if (quantity == null || quantity == 0) return;
+                h = new Holding(positionId, portfolioId, portfolio);
+                stock.holdings.add(h);
+                byPosition.put(positionId, h);
+            }
+            h.quantity = quantity == null ? 0 : quantity;
+            h.averagePrice = averagePrice == null ? 0 : FixedPoint.of(averagePrice);
+            if (h.quantity == 0) {
+                stock.holdings.remove(h);
+                byPosition.remove(positionId);
+                revalue(h, 0, 0);
+            } else if (stock.lastPrice != FixedPoint.NULL) {
+                reprice(h, stock.lastPrice);
+            } else if (currentValue != null) {
+                revalue(h, FixedPoint.of(currentValue), FixedPoint.of(currentValue) - h.averagePrice * h.quantity);
+            } else {
+                reprice(h, h.averagePrice);
+            }
+        }
+    }
+
+    // --- Thread du séquenceur ---
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        long price = update.getLastPrice();
+        if (update.getTrades().isEmpty() || price == FixedPoint.NULL) return;
+        StockHoldings stock = byStock.computeIfAbsent(update.getStockId(), id -> new StockHoldings());
+        synchronized (stock) {
+            if (price == stock.lastPrice) return;
+            stock.lastPrice = price;
+            for (Holding h : stock.holdings) {
+                reprice(h, price);
+                h.portfolio.updatedAt = update.getTime();
+            }
+        }
+    }
+
+    private void reprice(Holding h, long price) {
+        long value = price * h.quantity;
+        revalue(h, value, value - h.averagePrice * h.quantity);
+    }
+
+    // Sous le verrou du titre : seule la différence touche le total du portefeuille
+    private void revalue(Holding h, long value, long unrealized) {
+        if (value == h.value && unrealized == h.unrealized) return;
+        h.portfolio.total.addAndGet(value - h.value);
+        h.portfolio.unrealized.addAndGet(unrealized - h.unrealized);
+        h.value = value;
+        h.unrealized = unrealized;
+        dirtyPositions.add(h.positionId);
+        dirtyPortfolios.add(h.portfolioId);
+    }
+
+    // --- Recopie en base ---
+
+    @Scheduled(fixedDelayString = "${pibourse.valuation.flush-interval-ms:5000}")
+    @Transactional
+    public void flush() {
+        List<Long> positionIds = drain(dirtyPositions);
+        for (int i = 0; i < positionIds.size(); i += batchSize) {
+            List<Position> positions = positionRepository.findAllById(positionIds.subList(i, Math.min(i + batchSize, positionIds.size())));
+            for (Position p : positions) {
+                Holding h = byPosition.get(p.getPositionId());
+                if (h == null) continue;
+                p.setCurrentValue(FixedPoint.toBigDecimal(h.value));
+                p.setUnrealizedPnL(FixedPoint.toBigDecimal(h.unrealized));
+            }
+            positionRepository.saveAll(positions);
+        }
+        List<Long> portfolioIds = drain(dirtyPortfolios);
+        for (int i = 0; i < portfolioIds.size(); i += batchSize) {
+            List<Portfolio> batch = portfolioRepository.findAllById(portfolioIds.subList(i, Math.min(i + batchSize, portfolioIds.size())));
+            for (Portfolio p : batch) {
+                Valuation v = portfolios.get(p.getPortfolioId());
+                p.setTotalValue(FixedPoint.toBigDecimal(v.total.get()));
+                p.setUnrealizedPnL(FixedPoint.toBigDecimal(v.unrealized.get()));
+            }
+            portfolioRepository.saveAll(batch);
+        }
+    }
+
+    private static List<Long> drain(Set<Long> dirty) {
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+
+    /** Positions d'un titre et son dernier prix ; modifiées sous le verrou de l'objet. */
+    private static final class StockHoldings {
+        final List<Holding> holdings = new ArrayList<>();
+        long lastPrice = FixedPoint.NULL;
+    }
+
+    private static final class Holding {
+        final Long positionId;
+        final Long portfolioId;
+        final Valuation portfolio;
+        long quantity;
+        long averagePrice;
+        volatile long value;
+        volatile long unrealized;
+
+        Holding(Long positionId, Long portfolioId, Valuation portfolio) {
+            this.positionId = positionId;
+            this.portfolioId = portfolioId;
+            this.portfolio = portfolio;
+        }
+    }
+
+    /** Totaux d'un portefeuille, modifiés par différences depuis plusieurs séquenceurs. */
+    private static final class Valuation {
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong unrealized = new AtomicLong();
+        volatile LocalDateTime updatedAt;
+    }
+}
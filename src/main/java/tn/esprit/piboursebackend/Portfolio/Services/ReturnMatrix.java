@@ -0,0 +1,74 @@
+package tn.esprit.piboursebackend.Portfolio.Services;
+
+import tn.esprit.piboursebackend.Marche.Dto.ClosePoint;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rendements journaliers (log) par titre, alignés sur les mêmes dates : une ligne double[] par titre,
+ * construite une fois par jour à partir des barres D1 et partagée en lecture par tous les calculs.
+ * Un titre sans cotation un jour donné garde sa clôture précédente (rendement nul).
+ */
+public final class ReturnMatrix {
+
+    private final Map<Long, double[]> returns;
+    private final int length;
+    private final LocalDate asOf;
+
+    public ReturnMatrix(Map<Long, double[]> returns, int length, LocalDate asOf) {
+        this.returns = returns;
+        this.length = length;
+        this.asOf = asOf;
+    }
+
+    /** Garde les days + 1 dernières dates de cotation : days rendements par titre. */
+    public static ReturnMatrix fromCloses(List<ClosePoint> closes, int days, LocalDate asOf) {
+        TreeMap<LocalDate, Integer> dates = new TreeMap<>();
+        for (ClosePoint c : closes) dates.put(c.getDateTime().toLocalDate(), 0);
+        while (dates.size() > days + 1) dates.pollFirstEntry();
+        int i = 0;
+        for (Map.Entry<LocalDate, Integer> e : dates.entrySet()) e.setValue(i++);
+
+        Map<Long, double[]> prices = new HashMap<>();
+        for (ClosePoint c : closes) {
+            Integer d = dates.get(c.getDateTime().toLocalDate());
+            if (d == null || c.getClosePrice() == null || c.getClosePrice().signum() <= 0) continue;
+            prices.computeIfAbsent(c.getStockId(), id -> new double[dates.size()])[d] = c.getClosePrice().doubleValue();
+        }
+        int length = Math.max(0, dates.size() - 1);
+        Map<Long, double[]> returns = new HashMap<>();
+        for (Map.Entry<Long, double[]> e : prices.entrySet()) {
+            double[] p = e.getValue();
+            double[] r = new double[length];
+            double previous = 0;
+            for (int t = 0; t < p.length; t++) {
+                if (p[t] == 0) p[t] = previous;
+                if (t > 0 && previous > 0) r[t - 1] = Math.log(p[t] / previous);
+                previous = p[t];
+            }
+            returns.put(e.getKey(), r);
+        }
+        return new ReturnMatrix(returns, length, asOf);
+    }
+
+    /** null si le titre n'a pas d'historique. */
+    public double[] returns(long stockId) {
+        return returns.get(stockId);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int stocks() {
+        return returns.size();
+    }
+
+    public LocalDate asOf() {
+        return asOf;
+    }
+}
@@ -0,0 +1,124 @@
+package tn.esprit.piboursebackend.Portfolio.Services;
+
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioExposure;
+import tn.esprit.piboursebackend.Portfolio.Dto.RiskMetrics;
+import tn.esprit.piboursebackend.Portfolio.Entity.RiskEngine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un calcul de risque sur un ensemble de portefeuilles, découpé en tranches fork-join.
+ * Chaque tranche réutilise ses tableaux de travail ; passé l'échéance, les portefeuilles restants
+ * ne sont pas calculés (comptés dans skipped) pour tenir le budget de latence.
+ */
+public class RiskRun {
+
+    private static final int SLICE = 64;
+
+    public record Settings(double confidence, int horizonDays, int paths, double riskFreeRate, long seed) {
+    }
+
+    public record Result(RiskMetrics[] metrics, int skipped) {
+    }
+
+    private final RiskEngine engine = new RiskEngine();
+    private final ReturnMatrix matrix;
+    private final Settings settings;
+
+    public RiskRun(ReturnMatrix matrix, Settings settings) {
+        this.matrix = matrix;
+        this.settings = settings;
+    }
+
+    /** metrics[i] correspond à exposures.get(i), null si non calculé avant l'échéance. */
+    public Result run(List<PortfolioExposure> exposures, ForkJoinPool pool, long deadlineNanos) {
+        RiskMetrics[] out = new RiskMetrics[exposures.size()];
+        AtomicInteger skipped = new AtomicInteger();
+        pool.invoke(new Slice(exposures, out, 0, exposures.size(), deadlineNanos, skipped));
+        return new Result(out, skipped.get());
+    }
+
+    private RiskMetrics evaluate(PortfolioExposure e, Buffers b, LocalDateTime now) {
+        long[] stockIds = e.getStockIds();
+        double[] values = e.getValues();
+        double[][] rows = b.rows(stockIds.length);
+        double total = 0;
+        for (int i = 0; i < stockIds.length; i++) {
+            rows[i] = matrix.returns(stockIds[i]);
+            total += values[i];
+        }
+        double[] returns = engine.portfolioReturns(rows, values, stockIds.length, b.returns);
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ e.getPortfolioId());
+        return RiskMetrics.builder()
+                .portfolioId(e.getPortfolioId())
+                .totalValue(money(total))
+                .historicalVaR(money(engine.calculateVaR(returns, total, settings.confidence(), b.scratch)))
+                .monteCarloVaR(money(engine.calculateMonteCarloVaR(returns, total, settings.confidence(),
+                        settings.horizonDays(), random, b.paths)))
+                .sharpeRatio(BigDecimal.valueOf(engine.calculateSharpeRatio(returns, settings.riskFreeRate()))
+                        .setScale(4, RoundingMode.HALF_UP))
+                .computedAt(now)
+                .build();
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private final class Slice extends RecursiveAction {
+        private final List<PortfolioExposure> exposures;
+        private final RiskMetrics[] out;
+        private final int from;
+        private final int to;
+        private final long deadline;
+        private final AtomicInteger skipped;
+
+        Slice(List<PortfolioExposure> exposures, RiskMetrics[] out, int from, int to, long deadline, AtomicInteger skipped) {
+            this.exposures = exposures;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+            this.skipped = skipped;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SLICE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Slice(exposures, out, from, mid, deadline, skipped),
+                        new Slice(exposures, out, mid, to, deadline, skipped));
+                return;
+            }
+            Buffers buffers = new Buffers();
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = from; i < to; i++) {
+                if (System.nanoTime() > deadline) {
+                    skipped.addAndGet(to - i);
+                    return;
+                }
+                out[i] = evaluate(exposures.get(i), buffers, now);
+            }
+        }
+    }
+
+    /** Tableaux de travail d'une tranche, réutilisés d'un portefeuille à l'autre. */
+    private final class Buffers {
+        final double[] returns = new double[matrix.length()];
+        final double[] scratch = new double[matrix.length()];
+        final double[] paths = new double[settings.paths()];
+        double[][] rows = new double[16][];
+
+        double[][] rows(int n) {
+            if (rows.length < n) rows = new double[n][];
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package tn.esprit.piboursebackend.Portfolio.Services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tn.esprit.piboursebackend.Marche.Entity.CandleInterval;
+import tn.esprit.piboursebackend.Marche.Repository.PriceHistoryRepository;
+import tn.esprit.piboursebackend.Portfolio.Dto.PortfolioExposure;
+import tn.esprit.piboursebackend.Portfolio.Dto.RiskMetrics;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VaR historique, VaR Monte Carlo et ratio de Sharpe de tous les portefeuilles, recalculés
+ * périodiquement. La matrice de rendements (barres D1 de PriceHistory) est reconstruite une fois
+ * par jour ; les expositions viennent de l'index de valorisation en mémoire. Le calcul est réparti
+ * sur un pool fork-join dédié et borné par un budget de latence : les portefeuilles non traités
+ * à temps gardent leur résultat précédent.
+ */
+@Service
+public class RiskService {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskService.class);
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PortfolioValuationService valuationService;
+    private final RiskRun.Settings settings;
+    private final int historyDays;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final Map<Long, RiskMetrics> latest = new ConcurrentHashMap<>();
+    private volatile ReturnMatrix matrix;
+
+    public RiskService(PriceHistoryRepository priceHistoryRepository, PortfolioValuationService valuationService,
+                       @Value("${pibourse.risk.history-days:250}") int historyDays,
+                       @Value("${pibourse.risk.confidence:0.95}") double confidence,
+                       @Value("${pibourse.risk.horizon-days:10}") int horizonDays,
+                       @Value("${pibourse.risk.mc-paths:2000}") int paths,
+                       @Value("${pibourse.risk.risk-free-rate:0.03}") double riskFreeRate,
+                       @Value("${pibourse.risk.parallelism:0}") int parallelism,
+                       @Value("${pibourse.risk.budget-ms:5000}") long budgetMs) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.valuationService = valuationService;
+        this.historyDays = historyDays;
+        this.settings = new RiskRun.Settings(confidence, horizonDays, paths, riskFreeRate, 42L);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public RiskMetrics metrics(Long portfolioId) {
+        RiskMetrics m = latest.get(portfolioId);
+        if (m == null) throw new EntityNotFoundException("Aucun calcul de risque pour ce portefeuille");
+        return m;
+    }
+
+    @Scheduled(fixedDelayString = "${pibourse.risk.interval-ms:60000}")
+    public void refresh() {
+        long start = System.nanoTime();
+        ReturnMatrix m = returnMatrix();
+        List<PortfolioExposure> exposures = valuationService.exposures();
+        if (exposures.isEmpty()) return;
+        RiskRun.Result result = new RiskRun(m, settings).run(exposures, pool, start + budgetNanos);
+        for (RiskMetrics metrics : result.metrics()) {
+            if (metrics != null) latest.put(metrics.getPortfolioId(), metrics);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (result.skipped() > 0) {
+            log.warn("Risk run over budget: {} of {} portfolios skipped after {} ms", result.skipped(), exposures.size(), elapsedMs);
+        } else {
+            log.info("Risk run: {} portfolios, {} stocks x {} days in {} ms", exposures.size(), m.stocks(), m.length(), elapsedMs);
+        }
+    }
+
+    // Reconstruite au premier calcul de la journée
+    private ReturnMatrix returnMatrix() {
+        ReturnMatrix m = matrix;
+        LocalDate today = LocalDate.now();
+        if (m == null || !m.asOf().equals(today)) {
+            // Marge pour les week-ends et jours fériés : on ne garde que les historyDays + 1 dernières dates
+            m = ReturnMatrix.fromCloses(priceHistoryRepository.findCloses(CandleInterval.D1,
+                    today.minusDays(historyDays * 2L).atStartOfDay()), historyDays, today);
+            matrix = m;
+        }
+        return m;
+    }
+}
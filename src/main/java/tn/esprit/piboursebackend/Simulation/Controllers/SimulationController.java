@@ -0,0 +1,26 @@
+package tn.esprit.piboursebackend.Simulation.Controllers;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.piboursebackend.Simulation.Dto.SimulationReport;
+import tn.esprit.piboursebackend.Simulation.Services.LoadSimulator;
+
+@RestController
+@RequestMapping("/simulation")
+@Profile("simulation")
+public class SimulationController {
+
+    private final LoadSimulator loadSimulator;
+
+    public SimulationController(LoadSimulator loadSimulator) {
+        this.loadSimulator = loadSimulator;
+    }
+
+    // Lance une simulation et renvoie le rapport (bloquant)
+    @PostMapping("/run")
+    public SimulationReport run(@RequestParam(defaultValue = "100000") long actions,
+                                @RequestParam(defaultValue = "4") int threads,
+                                @RequestParam(defaultValue = "42") long seed) throws InterruptedException {
+        return loadSimulator.run(actions, threads, seed);
+    }
+}
@@ -0,0 +1,32 @@
+package tn.esprit.piboursebackend.Simulation.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class SimulationReport {
+    private long seed;
+    private int threads;
+    private int stocks;
+    private int bots;
+    private long orders;                // nouveaux ordres soumis
+    private long cancels;               // annulations soumises
+    private long rejected;              // refus (contrôle pré-négociation, cotation suspendue)
+    private long cancelMisses;          // annulations d'ordres déjà clôturés
+    private long fills;                 // exécutions produites par le moteur
+    private long elapsedMillis;
+    private double throughputPerSecond; // actions (ordres + annulations) par seconde
+    private double p50Micros;
+    private double p99Micros;
+    private double p999Micros;
+    private double maxMicros;
+    private long violations;            // invariants du matching et de la base non respectés
+    private List<String> violationSamples;
+
+    public boolean isPassed() {
+        return violations == 0;
+    }
+}
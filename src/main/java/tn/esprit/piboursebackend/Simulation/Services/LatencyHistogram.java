@@ -0,0 +1,59 @@
+package tn.esprit.piboursebackend.Simulation.Services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences log-linéaire (principe HdrHistogram) : 128 sous-cases par puissance de 2,
+ * erreur relative &lt; 1 %, enregistrement sans verrou depuis plusieurs threads, taille fixe.
+ * Valeurs en nanosecondes.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_COUNT);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos)));
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        return total;
+    }
+
+    /** Valeur au quantile q (0..1), milieu de la sous-case ; 0 si vide. */
+    public long percentile(double q) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return value(i);
+        }
+        return value(counts.length() - 1);
+    }
+
+    public long max() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) return value(i);
+        }
+        return 0;
+    }
+
+    static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((v >>> shift) - SUB_COUNT);
+    }
+
+    static long value(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long low = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+        return low + ((1L << shift) >>> 1);
+    }
+}
@@ -0,0 +1,233 @@
+package tn.esprit.piboursebackend.Simulation.Services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tn.esprit.piboursebackend.Order.Dto.OrderResponse;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Services.IOrderService;
+import tn.esprit.piboursebackend.Simulation.Dto.SimulationReport;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Générateur de charge du profil "simulation" : des threads de charge rejouent chacun un flux
+ * OrderFlowGenerator (graine + numéro du thread, bots répartis entre threads) à travers le chemin
+ * d'entrée normal des ordres (IOrderService), en mesurant la latence de chaque appel.
+ * Le rapport donne débit, p50 / p99 / p99.9, et les invariants violés : ceux du matching, vérifiés
+ * en ligne, puis ceux de la base une fois les écritures différées terminées (nombre de trades,
+ * quantité exécutée de chaque ordre = somme de ses trades, open_orders = ordres ouverts de orders).
+ * Avec un seul thread la suite d'actions est entièrement reproductible pour une graine donnée.
+ */
+@Service
+@Profile("simulation")
+public class LoadSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadSimulator.class);
+
+    private static final String FILLED_MISMATCH_SQL = """
+            SELECT COUNT(*) FROM orders o
+              LEFT JOIN (SELECT order_id, SUM(quantity) AS filled FROM (
+                           SELECT buy_order_id AS order_id, quantity FROM trade
+                           UNION ALL
+                           SELECT sell_order_id, quantity FROM trade) legs
+                          GROUP BY order_id) t ON t.order_id = o.id
+             WHERE o.quantity - o.remaining_quantity <> COALESCE(t.filled, 0)
+            """;
+
+    // Ordres ouverts absents de open_orders, ou clôturés encore présents
+    private static final String OPEN_MISMATCH_SQL = """
+            SELECT COUNT(*) FROM orders o LEFT JOIN open_orders oo ON oo.order_id = o.id
+             WHERE (o.status IN ('PENDING', 'PARTIALLY_FILLED')) <> (oo.order_id IS NOT NULL)
+            """;
+
+    private final IOrderService orderService;
+    private final MatchingEngine matchingEngine;
+    private final SimulationSeeder seeder;
+    private final JdbcTemplate jdbcTemplate;
+    private final MatchingInvariants invariants = new MatchingInvariants();
+    private final double cancelRatio;
+    private final double marketRatio;
+    private final BigDecimal basePrice;
+    private final BigDecimal tick;
+    private final int spreadTicks;
+    private final int maxQuantity;
+    private final long settleTimeoutMs;
+
+    public LoadSimulator(IOrderService orderService, MatchingEngine matchingEngine, SimulationSeeder seeder,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${pibourse.simulation.cancel-ratio:0.2}") double cancelRatio,
+                         @Value("${pibourse.simulation.market-ratio:0.1}") double marketRatio,
+                         @Value("${pibourse.simulation.base-price:100}") BigDecimal basePrice,
+                         @Value("${pibourse.simulation.tick:0.01}") BigDecimal tick,
+                         @Value("${pibourse.simulation.spread-ticks:20}") int spreadTicks,
+                         @Value("${pibourse.simulation.max-quantity:100}") int maxQuantity,
+                         @Value("${pibourse.simulation.settle-timeout-ms:30000}") long settleTimeoutMs) {
+        this.orderService = orderService;
+        this.matchingEngine = matchingEngine;
+        this.seeder = seeder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cancelRatio = cancelRatio;
+        this.marketRatio = marketRatio;
+        this.basePrice = basePrice;
+        this.tick = tick;
+        this.spreadTicks = spreadTicks;
+        this.maxQuantity = maxQuantity;
+        this.settleTimeoutMs = settleTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        matchingEngine.addExecutionListener(invariants);
+        matchingEngine.addMarketDataListener(invariants);
+    }
+
+    /** Soumet actions (ordres + annulations) réparties sur threads ; une simulation à la fois. */
+    public synchronized SimulationReport run(long actions, int threads, long seed) throws InterruptedException {
+        long[] stocks = seeder.stockIds();
+        long[] bots = seeder.playerIds();
+        int workers = Math.max(1, Math.min(threads, bots.length));
+        Long tradesBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trade", Long.class);
+        invariants.reset();
+        LatencyHistogram latency = new LatencyHistogram();
+        Counters counters = new Counters();
+
+        log.info("Simulation started: {} actions, {} threads, seed {}", actions, workers, seed);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> new Thread(r, "simulation"));
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            long share = actions / workers + (w < actions % workers ? 1 : 0);
+            OrderFlowGenerator generator = new OrderFlowGenerator(new OrderFlowGenerator.Settings(
+                    seed * 31 + w, stocks, botsOf(bots, w, workers), cancelRatio, marketRatio, basePrice, tick,
+                    spreadTicks, maxQuantity));
+            futures.add(pool.submit(() -> drive(generator, share, latency, counters)));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation worker failed", e.getCause());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long violations = invariants.violations();
+        List<String> samples = new ArrayList<>(invariants.samples());
+        violations += checkDatabase(tradesBefore == null ? 0 : tradesBefore, samples);
+
+        long done = counters.orders.get() + counters.cancels.get();
+        SimulationReport report = SimulationReport.builder()
+                .seed(seed)
+                .threads(workers)
+                .stocks(stocks.length)
+                .bots(bots.length)
+                .orders(counters.orders.get())
+                .cancels(counters.cancels.get())
+                .rejected(counters.rejected.get())
+                .cancelMisses(counters.cancelMisses.get())
+                .fills(invariants.fills())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .throughputPerSecond(done * 1e9 / elapsedNanos)
+                .p50Micros(latency.percentile(0.50) / 1000.0)
+                .p99Micros(latency.percentile(0.99) / 1000.0)
+                .p999Micros(latency.percentile(0.999) / 1000.0)
+                .maxMicros(latency.max() / 1000.0)
+                .violations(violations)
+                .violationSamples(samples)
+                .build();
+        log.info("Simulation done: {} orders, {} cancels, {} rejected, {} fills in {} ms, {} actions/s, "
+                        + "latency p50 {} us, p99 {} us, p99.9 {} us, {} invariant violations",
+                report.getOrders(), report.getCancels(), report.getRejected(), report.getFills(),
+                report.getElapsedMillis(), Math.round(report.getThroughputPerSecond()), report.getP50Micros(),
+                report.getP99Micros(), report.getP999Micros(), violations);
+        return report;
+    }
+
+    private void drive(OrderFlowGenerator generator, long actions, LatencyHistogram latency, Counters counters) {
+        for (long i = 0; i < actions; i++) {
+            OrderFlowGenerator.Action action = generator.next();
+            long t0 = System.nanoTime();
+            try {
+                if (action.cancelOrderId() != null) {
+                    counters.cancels.incrementAndGet();
+                    orderService.cancelOrder(action.cancelOrderId());
+                } else {
+                    counters.orders.incrementAndGet();
+                    OrderResponse response = orderService.placeOrder(action.order());
+                    if (response.getStatus() == OrderStatus.REJECTED) {
+                        counters.rejected.incrementAndGet();
+                    } else if (response.getStatus() == OrderStatus.PENDING
+                            || response.getStatus() == OrderStatus.PARTIALLY_FILLED) {
+                        generator.resting(response.getId());
+                    }
+                }
+            } catch (EntityNotFoundException e) {
+                counters.cancelMisses.incrementAndGet();            // exécuté entre-temps
+            } catch (IllegalStateException e) {
+                if (action.cancelOrderId() != null) counters.cancelMisses.incrementAndGet();
+                else counters.rejected.incrementAndGet();           // liquidités / titres insuffisants
+            }
+            latency.record(System.nanoTime() - t0);
+        }
+    }
+
+    // Attend la fin des écritures différées (un trade en base par exécution), puis contrôle les quantités
+    private long checkDatabase(long tradesBefore, List<String> samples) throws InterruptedException {
+        long expected = tradesBefore + invariants.fills();
+        long deadline = System.currentTimeMillis() + settleTimeoutMs;
+        Long trades;
+        Long mismatched;
+        Long misplaced;
+        while (true) {
+            trades = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trade", Long.class);
+            mismatched = jdbcTemplate.queryForObject(FILLED_MISMATCH_SQL, Long.class);
+            misplaced = jdbcTemplate.queryForObject(OPEN_MISMATCH_SQL, Long.class);
+            boolean settled = trades != null && trades >= expected && mismatched != null && mismatched == 0
+                    && misplaced != null && misplaced == 0;
+            if (settled || System.currentTimeMillis() >= deadline) break;
+            Thread.sleep(50);
+        }
+
+        long violations = 0;
+        if (trades == null || trades != expected) {
+            violations++;
+            samples.add("database: " + trades + " trades written, " + expected + " expected");
+        }
+        if (mismatched != null && mismatched > 0) {
+            violations += mismatched;
+            samples.add("database: " + mismatched + " orders whose filled quantity differs from their trades");
+        }
+        if (misplaced != null && misplaced > 0) {
+            violations += misplaced;
+            samples.add("database: " + misplaced + " orders whose open_orders row disagrees with their status");
+        }
+        return violations;
+    }
+
+    private static long[] botsOf(long[] bots, int worker, int workers) {
+        long[] mine = new long[(bots.length - worker + workers - 1) / workers];
+        for (int i = 0; i < mine.length; i++) mine[i] = bots[worker + i * workers];
+        return mine;
+    }
+
+    private static final class Counters {
+        final AtomicLong orders = new AtomicLong();
+        final AtomicLong cancels = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong cancelMisses = new AtomicLong();
+    }
+}
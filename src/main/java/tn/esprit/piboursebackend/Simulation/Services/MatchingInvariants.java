@@ -0,0 +1,119 @@
+package tn.esprit.piboursebackend.Simulation.Services;
+
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.ExecutionSink;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MarketDataListener;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.OrderCommand;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invariants du matching vérifiés en ligne, sur les threads des séquenceurs, pour chaque résultat :
+ * - exécution au prix du maker, dans la limite du taker, meilleurs prix d'abord
+ * - quantités positives, quantité exécutée d'un nouvel ordre = quantité - reliquat
+ * - FOK exécuté en totalité ou pas du tout, IOC / MARKET jamais au carnet
+ * - carnet jamais croisé (meilleur achat &lt; meilleure vente) après chaque mise à jour
+ */
+public class MatchingInvariants implements ExecutionSink, MarketDataListener {
+
+    private static final int MAX_SAMPLES = 20;
+
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong violations = new AtomicLong();
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final Queue<String> samples = new ConcurrentLinkedQueue<>();
+
+    public void reset() {
+        fills.set(0);
+        violations.set(0);
+        sampled.set(0);
+        samples.clear();
+    }
+
+    public long fills() {
+        return fills.get();
+    }
+
+    public long violations() {
+        return violations.get();
+    }
+
+    public List<String> samples() {
+        return new ArrayList<>(samples);
+    }
+
+    @Override
+    public void onResult(OrderCommand command, MatchResult result) {
+        RestingOrder taker = result.getTaker();
+        List<Fill> executed = result.getFills();
+        fills.addAndGet(executed.size());
+        long filled = 0;
+        long previous = FixedPoint.NULL;
+        for (int i = 0; i < executed.size(); i++) {
+            Fill fill = executed.get(i);
+            RestingOrder maker = result.getTouchedMakers().get(i);
+            filled += fill.getQuantity();
+            if (fill.getQuantity() <= 0) fail("non-positive fill quantity", taker);
+            if (fill.getPrice() != maker.getPrice()) fail("fill away from maker price", taker);
+            if (taker.getPrice() != FixedPoint.NULL
+                    && (taker.isBuy() ? fill.getPrice() > taker.getPrice() : fill.getPrice() < taker.getPrice())) {
+                fail("fill through taker limit", taker);
+            }
+            if (previous != FixedPoint.NULL && (taker.isBuy() ? fill.getPrice() < previous : fill.getPrice() > previous)) {
+                fail("price priority broken", taker);
+            }
+            if (maker.getRemainingQuantity() < 0) fail("negative maker remaining", maker);
+            previous = fill.getPrice();
+        }
+        if (command.getType() != OrderCommand.Type.NEW) return;
+
+        if (taker.getRemainingQuantity() < 0) fail("negative taker remaining", taker);
+        if (filled != taker.getQuantity() - taker.getRemainingQuantity()) fail("filled quantity mismatch", taker);
+        OrderStatus status = result.getTakerStatus();
+        if (taker.getTif() == TimeInForce.FOK && status != OrderStatus.REJECTED
+                && !(status == OrderStatus.FILLED || (status == OrderStatus.CANCELLED && executed.isEmpty()))) {
+            fail("partial FOK", taker);
+        }
+        if ((taker.getTif() == TimeInForce.IOC || taker.getTif() == TimeInForce.FOK || taker.getType() == OrderType.MARKET)
+                && taker.isResting()) {
+            fail("IOC/FOK/MARKET left on the book", taker);
+        }
+    }
+
+    @Override
+    public void onExpired(List<RestingOrder> expired) {
+        for (RestingOrder o : expired) {
+            if (o.getTif() != TimeInForce.DAY) fail("non-DAY order expired", o);
+        }
+    }
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        if (update.getBestBid() != FixedPoint.NULL && update.getBestAsk() != FixedPoint.NULL
+                && update.getBestBid() >= update.getBestAsk()) {
+            fail("crossed book " + FixedPoint.toBigDecimal(update.getBestBid()) + " >= "
+                    + FixedPoint.toBigDecimal(update.getBestAsk()), update.getStockId());
+        }
+    }
+
+    private void fail(String what, RestingOrder order) {
+        fail(what + " (order " + order.getOrderId() + ")", order.getStockId());
+    }
+
+    private void fail(String what, Long stockId) {
+        violations.incrementAndGet();
+        if (sampled.incrementAndGet() <= MAX_SAMPLES) samples.add("stock " + stockId + ": " + what);
+    }
+}
@@ -0,0 +1,83 @@
+package tn.esprit.piboursebackend.Simulation.Services;
+
+import tn.esprit.piboursebackend.Order.Dto.OrderRequest;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Flux d'ordres pseudo-aléatoire reproductible (même graine = même suite d'actions) pour un groupe
+ * de bots : annulations d'ordres encore ouverts, ordres au marché (IOC / FOK) et à cours limité
+ * (DAY / GTC / IOC / FOK) autour d'un prix médian fixe par titre. Un tiers environ des ordres
+ * limités franchit le milieu et s'exécute, le reste garnit le carnet.
+ * Non thread-safe : un générateur par thread de charge.
+ */
+public final class OrderFlowGenerator {
+
+    public record Settings(long seed, long[] stockIds, long[] playerIds, double cancelRatio, double marketRatio,
+                           BigDecimal basePrice, BigDecimal tick, int spreadTicks, int maxQuantity) {
+    }
+
+    /** Action suivante : un nouvel ordre, ou l'annulation de cancelOrderId. */
+    public record Action(OrderRequest order, Long cancelOrderId) {
+    }
+
+    private static final TimeInForce[] LIMIT_TIFS = {TimeInForce.DAY, TimeInForce.DAY, TimeInForce.GTC,
+            TimeInForce.GTC, TimeInForce.IOC, TimeInForce.FOK};
+    private static final TimeInForce[] MARKET_TIFS = {TimeInForce.IOC, TimeInForce.FOK};
+
+    private final Settings settings;
+    private final SplittableRandom random;
+    private final BigDecimal[] mids;
+    private final List<Long> open = new ArrayList<>();     // ordres au carnet de ce groupe de bots
+
+    public OrderFlowGenerator(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+        this.mids = new BigDecimal[settings.stockIds().length];
+        for (int i = 0; i < mids.length; i++) {
+            // Médian propre au titre, à ±10 % du prix de base, arrondi au pas de cotation
+            int offset = random.nextInt(-10, 11);
+            mids[i] = settings.basePrice().multiply(BigDecimal.valueOf(100 + offset)).movePointLeft(2)
+                    .divideToIntegralValue(settings.tick()).multiply(settings.tick());
+        }
+    }
+
+    public Action next() {
+        if (!open.isEmpty() && random.nextDouble() < settings.cancelRatio()) {
+            int i = random.nextInt(open.size());
+            Long id = open.get(i);
+            open.set(i, open.get(open.size() - 1));
+            open.remove(open.size() - 1);
+            return new Action(null, id);
+        }
+        int s = random.nextInt(settings.stockIds().length);
+        OrderRequest r = new OrderRequest();
+        r.setStockId(settings.stockIds()[s]);
+        r.setPlayerId(settings.playerIds()[random.nextInt(settings.playerIds().length)]);
+        r.setSide(random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL);
+        r.setQuantity(BigDecimal.valueOf(1 + random.nextInt(settings.maxQuantity())));
+        if (random.nextDouble() < settings.marketRatio()) {
+            r.setType(OrderType.MARKET);
+            r.setTif(MARKET_TIFS[random.nextInt(MARKET_TIFS.length)]);
+        } else {
+            r.setType(OrderType.LIMIT);
+            r.setTif(LIMIT_TIFS[random.nextInt(LIMIT_TIFS.length)]);
+            // Achat dans [médian - spread, médian + spread/2], vente symétrique
+            int ticks = random.nextInt(-settings.spreadTicks(), settings.spreadTicks() / 2 + 1);
+            BigDecimal delta = settings.tick().multiply(BigDecimal.valueOf(ticks));
+            r.setPrice(r.getSide() == OrderSide.BUY ? mids[s].add(delta) : mids[s].subtract(delta));
+        }
+        return new Action(r, null);
+    }
+
+    /** Ordre resté au carnet : candidat à une annulation ultérieure. */
+    public void resting(Long orderId) {
+        open.add(orderId);
+    }
+}
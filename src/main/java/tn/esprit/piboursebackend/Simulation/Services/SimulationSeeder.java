@@ -0,0 +1,124 @@
+package tn.esprit.piboursebackend.Simulation.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Univers du profil "simulation", écrit en JDBC dans la base embarquée avant le chargement des
+ * services (ApplicationStartedEvent précède ApplicationReadyEvent) : un marché, des titres SIM0001…,
+ * des bots bot-1… avec un dépôt initial et une dotation en titres. La dotation est une vraie
+ * exécution passée (ordre d'achat du bot contre un ordre de vente « maison » sans joueur), pour que
+ * le contrôle pré-négociation la retrouve dans ses agrégats comme n'importe quel achat.
+ */
+@Component
+@Profile("simulation")
+public class SimulationSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationSeeder.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int stocks;
+    private final int bots;
+    private final BigDecimal cashPerBot;
+    private final BigDecimal sharesPerBot;
+    private final BigDecimal basePrice;
+
+    public SimulationSeeder(JdbcTemplate jdbcTemplate,
+                            @Value("${pibourse.simulation.stocks:20}") int stocks,
+                            @Value("${pibourse.simulation.bots:200}") int bots,
+                            @Value("${pibourse.simulation.cash-per-bot:1000000}") BigDecimal cashPerBot,
+                            @Value("${pibourse.simulation.shares-per-bot:10000}") BigDecimal sharesPerBot,
+                            @Value("${pibourse.simulation.base-price:100}") BigDecimal basePrice) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stocks = stocks;
+        this.bots = bots;
+        this.cashPerBot = cashPerBot;
+        this.sharesPerBot = sharesPerBot;
+        this.basePrice = basePrice;
+    }
+
+    public long[] stockIds() {
+        return LongStream.rangeClosed(1, stocks).toArray();
+    }
+
+    public long[] playerIds() {
+        return LongStream.rangeClosed(1, bots).toArray();
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void seed() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock", Integer.class);
+        if (existing != null && existing > 0) return;
+        long start = System.nanoTime();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        // Stock impose un Position et un Portfolio (one-to-one obligatoires) : inutiles ici
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            jdbcTemplate.update("INSERT INTO market (id, \"current_date\", is_open, time_compression_ratio) VALUES (1, ?, TRUE, 1)", now);
+            List<Object[]> stockRows = new ArrayList<>();
+            for (long s = 1; s <= stocks; s++) {
+                String symbol = String.format("SIM%04d", s);
+                stockRows.add(new Object[]{s, symbol, Stock.normalize(symbol), "Simulated " + s, s, s});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO stock (id, symbol, symbol_key, company_name, sector, position_position_id, portfolio_portfolio_id, market_id)
+                    VALUES (?, ?, ?, ?, 'SIMULATION', ?, ?, 1)
+                    """, stockRows);
+
+            // Le dépôt couvre aussi l'achat de la dotation, débité par le contrôle pré-négociation
+            BigDecimal deposit = cashPerBot.add(sharesPerBot.multiply(basePrice).multiply(BigDecimal.valueOf(stocks)));
+            List<Object[]> players = new ArrayList<>();
+            List<Object[]> deposits = new ArrayList<>();
+            for (long p = 1; p <= bots; p++) {
+                players.add(new Object[]{p, "bot-" + p, "bot-" + p + "@simulation.local"});
+                deposits.add(new Object[]{deposit.doubleValue(), p});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO player (id, username, email, role) VALUES (?, ?, ?, 'ROLE_PLAYER')", players);
+            jdbcTemplate.batchUpdate("INSERT INTO transaction (type, amount, player_id) VALUES ('DEPOSIT', ?, ?)", deposits);
+
+            // Dotation : par titre un ordre de vente maison, par (bot, titre) un achat exécuté contre lui
+            List<Object[]> orders = new ArrayList<>();
+            List<Object[]> trades = new ArrayList<>();
+            BigDecimal houseQuantity = sharesPerBot.multiply(BigDecimal.valueOf(bots));
+            long orderId = 0;
+            long tradeId = 0;
+            for (long s = 1; s <= stocks; s++) {
+                long houseOrder = ++orderId;
+                orders.add(new Object[]{houseOrder, s, null, "SELL", houseQuantity, now});
+                for (long p = 1; p <= bots; p++) {
+                    long buyOrder = ++orderId;
+                    orders.add(new Object[]{buyOrder, s, p, "BUY", sharesPerBot, now});
+                    trades.add(new Object[]{++tradeId, s, buyOrder, houseOrder, basePrice, sharesPerBot, now});
+                }
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO orders (id, version, stock_id, player_id, type, side, tif, status, price,
+                                        quantity, remaining_quantity, created_at, updated_at)
+                    VALUES (?, 0, ?, ?, 'MARKET', ?, 'IOC', 'FILLED', NULL, ?, 0, ?, CURRENT_TIMESTAMP)
+                    """, orders);
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO trade (id, version, stock_id, buy_order_id, sell_order_id, price, quantity, executed_at)
+                    VALUES (?, 0, ?, ?, ?, ?, ?, ?)
+                    """, trades);
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+        log.info("Simulation universe seeded: {} stocks, {} bots in {} ms", stocks, bots,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,34 @@
+package tn.esprit.piboursebackend.Simulation;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+import tn.esprit.piboursebackend.Simulation.Dto.SimulationReport;
+import tn.esprit.piboursebackend.Simulation.Services.LoadSimulator;
+
+/**
+ * Lancement hors ligne du générateur de charge : application complète sur la base embarquée H2
+ * (profil "simulation"), sans serveur web, une simulation puis arrêt. Code de sortie 1 si un
+ * invariant est violé.
+ *   mvn spring-boot:run -Dspring-boot.run.main-class=tn.esprit.piboursebackend.Simulation.SimulationApplication \
+ *       -Dspring-boot.run.arguments="--pibourse.simulation.actions=200000 --pibourse.simulation.threads=8"
+ */
+public class SimulationApplication {
+
+    public static void main(String[] args) throws InterruptedException {
+        SpringApplication app = new SpringApplication(PiBourseBackEndApplication.class);
+        app.setAdditionalProfiles("simulation");
+        app.setWebApplicationType(WebApplicationType.NONE);
+        ConfigurableApplicationContext context = app.run(args);
+
+        Environment env = context.getEnvironment();
+        SimulationReport report = context.getBean(LoadSimulator.class).run(
+                env.getProperty("pibourse.simulation.actions", Long.class, 100_000L),
+                env.getProperty("pibourse.simulation.threads", Integer.class, 4),
+                env.getProperty("pibourse.simulation.seed", Long.class, 42L));
+        report.getViolationSamples().forEach(v -> System.err.println("VIOLATION " + v));
+        System.exit(SpringApplication.exit(context, () -> report.isPassed() ? 0 : 1));
+    }
+}
@@ -0,0 +1,319 @@
+-- Schéma de référence (V1) : celui que ddl-auto=update produisait jusqu'ici.
+-- Une base existante est marquée V1 sans exécution (spring.flyway.baseline-on-migrate) ;
+-- les évolutions suivantes passent toutes par des migrations.
+-- trade : clé (id, executed_at) et aucune clé étrangère, exigences du partitionnement MySQL
+-- (partitions créées à l'exécution par TradePartitionManager).
+
+create table anomaly (
+    severity decimal(38,2),
+    detected_at datetime(6),
+    id bigint not null auto_increment,
+    player_id bigint,
+    stock_id bigint,
+    description varchar(255),
+    type varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table audit_log (
+    id bigint not null auto_increment,
+    timestamp datetime(6) not null,
+    payload varbinary(64),
+    action varchar(80) not null,
+    actor varchar(160) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table circuit_breaker (
+    active bit,
+    drop_percentage decimal(38,2),
+    pause_duration_minutes integer,
+    id bigint not null auto_increment,
+    stock_id bigint,
+    triggered_at datetime(6),
+    level varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table id_block (
+    next_value bigint not null,
+    name varchar(40) not null,
+    primary key (name)
+) engine=InnoDB;
+
+create table loan (
+    amount decimal(38,2),
+    delay_days integer not null,
+    due_date date,
+    duration_months integer not null,
+    interest_rate float(53) not null,
+    loan_risk_score float(53) not null,
+    penalty_amount decimal(38,2),
+    repayment_date date,
+    start_date date,
+    total_to_repay decimal(38,2),
+    id bigint not null auto_increment,
+    player_id bigint,
+    status varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table loan_accrual_checkpoint (
+    run_date date not null,
+    finished_at datetime(6),
+    last_loan_id bigint not null,
+    max_loan_id bigint not null,
+    rows_scanned bigint not null,
+    rows_updated bigint not null,
+    started_at datetime(6),
+    primary key (run_date)
+) engine=InnoDB;
+
+create table market (
+    is_open bit,
+    time_compression_ratio decimal(38,2),
+    `current_date` datetime(6),
+    id bigint not null auto_increment,
+    primary key (id)
+) engine=InnoDB;
+
+create table order_book (
+    current_price decimal(38,2),
+    liquidity decimal(38,2),
+    spread decimal(38,2),
+    id bigint not null auto_increment,
+    stock_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    price decimal(19,6),
+    quantity decimal(19,6) not null,
+    remaining_quantity decimal(19,6) not null,
+    created_at datetime(6) not null,
+    id bigint not null,
+    player_id bigint,
+    stock_id bigint not null,
+    updated_at datetime(6) not null,
+    version bigint,
+    side enum ('BUY','SELL') not null,
+    status enum ('CANCELLED','FILLED','PARTIALLY_FILLED','PENDING','REJECTED') not null,
+    tif enum ('DAY','FOK','GTC','IOC') not null,
+    type enum ('LIMIT','MARKET') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table player (
+    id bigint not null auto_increment,
+    email varchar(255),
+    password varchar(255),
+    username varchar(255),
+    role enum ('ROLE_ADMIN','ROLE_PLAYER'),
+    primary key (id)
+) engine=InnoDB;
+
+create table portfolio (
+    realized_pnl decimal(38,2),
+    total_value decimal(38,2),
+    unrealized_pnl decimal(38,2),
+    portfolio_id bigint not null,
+    stock_id bigint not null,
+    primary key (portfolio_id)
+) engine=InnoDB;
+
+create table portfolio_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into portfolio_seq values ( 1 );
+
+create table position (
+    average_price decimal(38,2),
+    current_value decimal(38,2),
+    quantity integer,
+    unrealized_pnl decimal(38,2),
+    portfolio_id bigint not null,
+    position_id bigint not null,
+    stock_id bigint not null,
+    primary key (position_id)
+) engine=InnoDB;
+
+create table position_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into position_seq values ( 1 );
+
+create table price_history (
+    close_price decimal(38,2),
+    high_price decimal(38,2),
+    low_price decimal(38,2),
+    open_price decimal(38,2),
+    date_time datetime(6),
+    id bigint not null auto_increment,
+    stock_id bigint,
+    volume bigint,
+    bar_interval enum ('D1','H1','M1','M5','S1'),
+    primary key (id)
+) engine=InnoDB;
+
+create table risk_engine_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into risk_engine_seq values ( 1 );
+
+create table risk_engine (
+    risk_engine_id integer not null,
+    primary key (risk_engine_id)
+) engine=InnoDB;
+
+create table stock (
+    market_cap decimal(38,2),
+    id bigint not null auto_increment,
+    market_id bigint,
+    portfolio_portfolio_id bigint not null,
+    position_position_id bigint not null,
+    company_name varchar(255),
+    sector varchar(255),
+    symbol varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table trade (
+    price decimal(19,6) not null,
+    quantity decimal(19,6) not null,
+    buy_order_id bigint not null,
+    executed_at datetime(6) not null,
+    id bigint not null,
+    sell_order_id bigint not null,
+    stock_id bigint not null,
+    version bigint,
+    primary key (id, executed_at)
+) engine=InnoDB;
+
+create table trade_archive (
+    period_end date not null,
+    period_start date not null,
+    archived_at datetime(6),
+    file_bytes bigint not null,
+    max_trade_id bigint not null,
+    trade_count bigint not null,
+    file_name varchar(100) not null,
+    primary key (period_start)
+) engine=InnoDB;
+
+create table trade_rollup (
+    amount decimal(38,12) not null,
+    period_start date not null,
+    quantity decimal(19,6) not null,
+    id bigint not null auto_increment,
+    player_id bigint not null,
+    stock_id bigint not null,
+    side enum ('BUY','SELL') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table transaction (
+    amount float(53) not null,
+    id bigint not null auto_increment,
+    player_id bigint,
+    type varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+alter table order_book 
+   add constraint UK9xsb5s92p2558e4vck0oip3o unique (stock_id);
+
+alter table portfolio 
+   add constraint UKeeu4j8eu67mngiqwg26e298s0 unique (stock_id);
+
+alter table price_history 
+   add constraint uk_price_history_bar unique (stock_id, bar_interval, date_time);
+
+alter table stock 
+   add constraint UK9hp46wa3fu5qtc3y43rga0f79 unique (portfolio_portfolio_id);
+
+alter table stock 
+   add constraint UKk11n88kna8t23e7p05p61scfo unique (position_position_id);
+
+create index idx_trade_stock_executed 
+   on trade (stock_id, executed_at);
+
+create index idx_trade_rollup_player 
+   on trade_rollup (player_id, stock_id);
+
+alter table anomaly 
+   add constraint FKeyikuoc8x2qg3ouc6fmxspscw 
+   foreign key (player_id) 
+   references player (id);
+
+alter table anomaly 
+   add constraint FKprvni4odvsxesyunvvp9p18po 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table circuit_breaker 
+   add constraint FKawehfst4vd5yskmgckkxiyqig 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table loan 
+   add constraint FKpwycqs89c8m1fta7dgvndnrmq 
+   foreign key (player_id) 
+   references player (id);
+
+alter table order_book 
+   add constraint FKsjuoiunxofw1x4hm3af7voje7 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table orders 
+   add constraint FK76ub07dv7n5wxg95av9ssegy5 
+   foreign key (player_id) 
+   references player (id);
+
+alter table orders 
+   add constraint FKgdlofa3c2yxg6sj0pslq9ev8f 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table portfolio 
+   add constraint FKh151m4qty8qt66189nv40hae2 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table position 
+   add constraint FKfasqiaxvlw3whr2epqledio52 
+   foreign key (portfolio_id) 
+   references portfolio (portfolio_id);
+
+alter table position 
+   add constraint FKj9dsrjvkpfpr66kriopmweagf 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table price_history 
+   add constraint FKn86rtbn9d18olwtey7fcs1ip9 
+   foreign key (stock_id) 
+   references stock (id);
+
+alter table stock 
+   add constraint FKf3ly3l47s9gd3fof4p4t4blu8 
+   foreign key (portfolio_portfolio_id) 
+   references portfolio (portfolio_id);
+
+alter table stock 
+   add constraint FKni2wcq8mdtnalmio6m33urblr 
+   foreign key (position_position_id) 
+   references position (position_id);
+
+alter table stock 
+   add constraint FKqkljcdurtmoxxm5k8ktfwytmm 
+   foreign key (market_id) 
+   references market (id);
+
+alter table transaction 
+   add constraint FKehx3kh0o76jdyxi8vltic0bvy 
+   foreign key (player_id) 
+   references player (id);
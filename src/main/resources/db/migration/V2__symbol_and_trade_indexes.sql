@@ -0,0 +1,9 @@
+-- Symbole normalisé (majuscules, sans espaces), tenu à jour par Stock : la recherche par symbole
+-- compare la colonne telle quelle, UPPER() ne porte plus que sur le paramètre
+alter table stock add column symbol_key varchar(255);
+update stock set symbol_key = upper(trim(symbol));
+create index idx_stock_symbol_key on stock (symbol_key);
+
+-- Trades d'un ordre (vérification du journal, quantités exécutées par ordre)
+create index idx_trade_buy_order on trade (buy_order_id);
+create index idx_trade_sell_order on trade (sell_order_id);
@@ -0,0 +1,17 @@
+-- Carnet vivant séparé de l'historique : une ligne par ordre PENDING / PARTIALLY_FILLED,
+-- tenue par OrderExecutionWriter ; les requêtes de carnet ne parcourent plus les ordres clôturés
+-- et la table d'historique n'a aucun index de carnet à maintenir
+create table open_orders (
+    order_id bigint not null,
+    stock_id bigint not null,
+    side enum ('BUY','SELL') not null,
+    price decimal(19,6) not null,
+    created_at datetime(6) not null,
+    primary key (order_id)
+) engine=InnoDB;
+
+create index idx_open_orders_book on open_orders (stock_id, side, price, created_at);
+
+insert into open_orders (order_id, stock_id, side, price, created_at)
+select id, stock_id, side, price, created_at from orders
+ where status in ('PENDING', 'PARTIALLY_FILLED') and price is not null;
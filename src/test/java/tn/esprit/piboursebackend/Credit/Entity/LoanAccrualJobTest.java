@@ -0,0 +1,97 @@
+package tn.esprit.piboursebackend.Credit.Entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reprise de l'arrêté des prêts : un passage interrompu après une vague partiellement écrite au-delà
+ * de son point de reprise repart du point de reprise, et le résultat est celui d'un passage complet.
+ */
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40",
+        "pibourse.credit.accrual.chunk-size=10",
+        "pibourse.credit.accrual.parallelism=2"})
+@ActiveProfiles("simulation")
+class LoanAccrualJobTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2026, 6, 15);
+    private static final String STATE_SQL = """
+            SELECT CONCAT(id, ' ', total_to_repay, ' ', delay_days, ' ', penalty_amount, ' ', status)
+              FROM loan WHERE id >= ? ORDER BY id
+            """;
+
+    @Autowired
+    private LoanAccrualJob job;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void resumedRunMatchesAnUninterruptedOne() {
+        long first = insertLoans(100);
+        job.accrue(AS_OF);
+        List<String> expected = state(first);
+        assertTrue(expected.stream().anyMatch(s -> s.endsWith(" LATE")));
+
+        // Arrêt simulé : point de reprise au 40e prêt, vague suivante écrite jusqu'au 55e seulement
+        long checkpoint = first + 39;
+        jdbcTemplate.update("""
+                UPDATE loan SET total_to_repay = NULL, delay_days = 0, penalty_amount = NULL, status = 'APPROVED'
+                 WHERE id > ?
+                """, first + 54);
+        jdbcTemplate.update("""
+                UPDATE loan_accrual_checkpoint SET last_loan_id = ?, finished_at = NULL, rows_scanned = 0, rows_updated = 0
+                 WHERE run_date = ?
+                """, checkpoint, Date.valueOf(AS_OF));
+        long pending = count("SELECT COUNT(*) FROM loan WHERE id > ? AND status IN ('APPROVED', 'LATE')", checkpoint);
+
+        job.resume();
+
+        assertEquals(expected, state(first));
+        LoanAccrualJob.Run run = job.lastRun();
+        assertEquals(pending, run.rowsScanned());
+        assertEquals(pending, count("SELECT rows_scanned FROM loan_accrual_checkpoint WHERE run_date = ?",
+                Date.valueOf(AS_OF)));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT finished_at FROM loan_accrual_checkpoint WHERE run_date = ?",
+                Object.class, Date.valueOf(AS_OF)));
+
+        // Passage terminé : un nouveau déclenchement du même jour ne touche à rien
+        assertSame(run, job.accrue(AS_OF));
+        assertEquals(expected, state(first));
+    }
+
+    // Échéances étalées de part et d'autre de la date d'arrêté : une partie passe en retard
+    private long insertLoans(int count) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("""
+                    INSERT INTO loan (amount, delay_days, due_date, duration_months, interest_rate, loan_risk_score,
+                                      start_date, status)
+                    VALUES (?, 0, ?, 12, 0.05, 0, ?, 'APPROVED')
+                    """, 1000 + i * 10, Date.valueOf(AS_OF.plusDays(10 - i % 30)),
+                    Date.valueOf(AS_OF.minusYears(1)));
+        }
+        return count("SELECT MAX(id) FROM loan") - count + 1;
+    }
+
+    private List<String> state(long first) {
+        return jdbcTemplate.queryForList(STATE_SQL, String.class, first);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,73 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyDetectorTest {
+
+    @Test
+    void windowForgetsSecondsAsTheyLeave() {
+        AnomalyDetector.Window window = new AnomalyDetector.Window(3);
+        window.add(10, 1);
+        window.add(11, 2);
+        window.add(12, 3);
+        assertEquals(6, window.total(12));
+
+        assertEquals(5, window.total(13));
+        assertEquals(3, window.total(14));
+        assertEquals(0, window.total(15));
+    }
+
+    @Test
+    void windowJumpAndLateEvent() {
+        AnomalyDetector.Window window = new AnomalyDetector.Window(3);
+        window.add(100, 5);
+        // Saut bien plus long que la fenêtre : tout est oublié, une seule fois
+        assertEquals(0, window.total(1_000));
+
+        // Événement en retard : compté dans le seau courant, pas dans un seau déjà sorti
+        window.add(999, 4);
+        assertEquals(4, window.total(998));
+        assertEquals(4, window.total(1_002));
+        assertEquals(0, window.total(1_003));
+    }
+
+    @Test
+    void spoofingCountsOnlyCancelsStillInTheWindow() {
+        List<AnomalyDetector.Finding> findings = new ArrayList<>();
+        AnomalyDetector detector = new AnomalyDetector(
+                new AnomalyDetector.Settings(10, 5, 2, 10, 300, 5, 5, 60_000, 100), findings::add);
+        for (int s = 0; s < 4; s++) detector.onCancel(s * 1000L, 1, 7);
+
+        detector.onCancel(20_000, 1, 7);
+        assertTrue(findings.isEmpty());
+
+        for (int i = 0; i < 4; i++) detector.onCancel(20_500, 1, 7);
+        assertEquals(1, findings.size());
+        assertEquals(AnomalyDetector.Type.SPOOFING, findings.get(0).type());
+        assertEquals(5.0, findings.get(0).severity());
+    }
+
+    @Test
+    void idlePlayersAreEvictedWhenTheTableIsFull() {
+        AnomalyDetector detector = new AnomalyDetector(
+                new AnomalyDetector.Settings(60, 20, 10, 10, 300, 5, 5, 60_000, 2), f -> { });
+        detector.onOrder(0, 1, 1);
+        detector.onOrder(0, 1, 2);
+
+        // Table pleine, joueurs encore actifs : le troisième n'est pas suivi
+        detector.onOrder(30_000, 1, 3);
+        assertEquals(1, detector.untracked());
+        assertEquals(2, detector.trackedPlayers());
+
+        // Une fenêtre plus tard, les deux premiers sont inactifs et libèrent leur place
+        detector.onOrder(61_000, 1, 3);
+        assertEquals(1, detector.untracked());
+        assertEquals(1, detector.trackedPlayers());
+    }
+}
@@ -0,0 +1,110 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.piboursebackend.Marche.Dto.MarketDataMessage;
+import tn.esprit.piboursebackend.Order.Engine.BookUpdate;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MatchingEngine;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DepthCacheTest {
+
+    private static final Long STOCK = 3L;
+
+    // Demandes de snapshot faites au moteur, complétées par le test
+    private final BlockingQueue<CompletableFuture<BookUpdate>> snapshots = new LinkedBlockingQueue<>();
+
+    private final DepthCache cache = new DepthCache(new MatchingEngine(null, null, null, 1, 16, false, "", 0, false, 0) {
+        @Override
+        public CompletableFuture<BookUpdate> depth(Long stockId, int levels) {
+            CompletableFuture<BookUpdate> snapshot = new CompletableFuture<>();
+            snapshots.add(snapshot);
+            return snapshot;
+        }
+    }, null, null);
+
+    @Test
+    void deltasOlderThanTheSnapshotAreSkipped() throws InterruptedException {
+        cache.onBookUpdate(delta(1, 100, 5));
+        cache.onBookUpdate(delta(2, 100, 8));
+        cache.onBookUpdate(delta(3, 101, 2));
+        // Le snapshot inclut déjà les deltas 1 et 2
+        nextSnapshot().complete(snapshot(2, 100, 8));
+
+        MarketDataMessage depth = cache.depth(STOCK, 0);
+        assertEquals(3, depth.getSequence());
+        assertEquals(List.of(level(101, 2), level(100, 8)), prices(depth));
+        assertEquals(FixedPoint.toBigDecimal(FixedPoint.of(10)), cache.liquidity(STOCK));
+
+        // Delta rejoué ou en double : ignoré
+        cache.onBookUpdate(delta(3, 101, 0));
+        assertEquals(List.of(level(101, 2), level(100, 8)), prices(cache.depth(STOCK, 0)));
+    }
+
+    @Test
+    void missingDeltaReseedsTheView() throws InterruptedException {
+        cache.onBookUpdate(delta(5, 100, 5));
+        nextSnapshot().complete(snapshot(5, 100, 5));
+        cache.onBookUpdate(delta(6, 99, 1));
+        assertEquals(6, cache.depth(STOCK, 0).getSequence());
+
+        // Le delta 7 n'est jamais arrivé : le 8 n'est pas appliqué, un nouveau snapshot est demandé
+        cache.onBookUpdate(delta(8, 100, 0));
+        CompletableFuture<BookUpdate> reseed = nextSnapshot();
+        cache.onBookUpdate(delta(9, 98, 4));
+        reseed.complete(snapshot(8, 99, 1, 97, 3));
+
+        MarketDataMessage depth = cache.depth(STOCK, 0);
+        assertEquals(9, depth.getSequence());
+        assertEquals(List.of(level(99, 1), level(98, 4), level(97, 3)), prices(depth));
+        assertTrue(snapshots.isEmpty());
+    }
+
+    private CompletableFuture<BookUpdate> nextSnapshot() throws InterruptedException {
+        CompletableFuture<BookUpdate> snapshot = snapshots.poll(5, TimeUnit.SECONDS);
+        assertNotNull(snapshot, "no snapshot requested");
+        return snapshot;
+    }
+
+    // Côté achat seulement : prix, quantité (unités) ; quantité 0 = niveau retiré
+    private static BookUpdate delta(long sequence, long price, long quantity) {
+        return update(sequence, false, price, quantity);
+    }
+
+    private static BookUpdate snapshot(long sequence, long... levels) {
+        return update(sequence, true, levels);
+    }
+
+    private static BookUpdate update(long sequence, boolean snapshot, long... levels) {
+        int n = levels.length / 2;
+        long[] prices = new long[n];
+        long[] quantities = new long[n];
+        int[] orders = new int[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = FixedPoint.of(levels[2 * i]);
+            quantities[i] = FixedPoint.of(levels[2 * i + 1]);
+            orders[i] = quantities[i] == 0 ? 0 : 1;
+        }
+        return new BookUpdate(STOCK, sequence, snapshot, true, FixedPoint.NULL, 0, FixedPoint.NULL, 0,
+                FixedPoint.NULL, prices, quantities, orders, new long[0], new long[0], new int[0], List.of(),
+                LocalDateTime.now());
+    }
+
+    private static String level(long price, long quantity) {
+        return FixedPoint.toBigDecimal(FixedPoint.of(price)) + "x" + FixedPoint.toBigDecimal(FixedPoint.of(quantity));
+    }
+
+    private static List<String> prices(MarketDataMessage depth) {
+        return depth.getBids().stream().map(l -> l.getPrice() + "x" + l.getQuantity()).toList();
+    }
+}
@@ -0,0 +1,114 @@
+package tn.esprit.piboursebackend.Marche.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void deadlinesBeyondOneTurnWaitTheirRounds() {
+        // 8 cases de 10 ms : un tour = 80 ms
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, START);
+        wheel.schedule(START + 25, "a");
+        wheel.schedule(START + 25 + 80, "b");
+        wheel.schedule(START + 25 + 3 * 80, "c");
+        List<String> fired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(START + 19, fired::add));
+        assertEquals(1, wheel.advance(START + 29, fired::add));
+        assertEquals(List.of("a"), fired);
+        // Même case au tour suivant : b seulement
+        assertEquals(1, wheel.advance(START + 109, fired::add));
+        assertEquals(List.of("a", "b"), fired);
+        assertEquals(1, wheel.size());
+        assertEquals(0, wheel.advance(START + 259, fired::add));
+        assertEquals(1, wheel.advance(START + 260, fired::add));
+        assertEquals(List.of("a", "b", "c"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void wrapsAroundTheWheelManyTimesInOrder() {
+        TimerWheel<Long> wheel = new TimerWheel<>(1, 16, START);
+        for (long d = 300; d >= 0; d -= 7) wheel.schedule(START + d, d);
+        List<Long> fired = new ArrayList<>();
+
+        // Avance par pas irréguliers, bien au-delà de la taille de la roue
+        for (long now = START; now <= START + 300; now += 13) wheel.advance(now, fired::add);
+        wheel.advance(START + 300, fired::add);
+
+        List<Long> expected = new ArrayList<>();
+        for (long d = 300 % 7; d <= 300; d += 7) expected.add(d);
+        assertEquals(expected, fired);
+    }
+
+    @Test
+    void pastDeadlineFiresOnTheNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, START);
+        wheel.advance(START + 505, t -> { });
+        wheel.schedule(START + 100, "late");
+        List<String> fired = new ArrayList<>();
+
+        // Le tick 50 est déjà traité : l'échéance part avec le tick 51
+        assertEquals(0, wheel.advance(START + 509, fired::add));
+        assertEquals(1, wheel.advance(START + 510, fired::add));
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, START);
+        TimerWheel.Timeout<String> first = wheel.schedule(START + 30, "first");
+        TimerWheel.Timeout<String> middle = wheel.schedule(START + 30, "middle");
+        wheel.schedule(START + 30, "last");
+
+        assertTrue(middle.cancel());
+        assertFalse(middle.cancel());
+        assertEquals(2, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 30, fired::add);
+        assertEquals(List.of("first", "last"), fired);
+        assertFalse(first.cancel());
+    }
+
+    @Test
+    void taskRescheduledFromFireRunsOnLaterTicks() {
+        TimerWheel<Runnable> wheel = new TimerWheel<>(10, 8, START);
+        List<Long> runs = new ArrayList<>();
+        // Échéance récurrente : se replanifie à échéance + 50 ms, même quand la roue a déjà dépassé
+        Runnable[] task = new Runnable[1];
+        long[] deadline = {START + 20};
+        task[0] = () -> {
+            runs.add(deadline[0] - START);
+            deadline[0] += 50;
+            wheel.schedule(deadline[0], task[0]);
+        };
+        wheel.schedule(deadline[0], task[0]);
+
+        // Un seul advance couvre plusieurs échéances : chaque replanification encore dans la période part aussi
+        assertEquals(5, wheel.advance(START + 229, Runnable::run));
+        assertEquals(List.of(20L, 70L, 120L, 170L, 220L), runs);
+        assertEquals(1, wheel.size());
+
+        // Replanifiée dans le tick qui vient de tourner : pas de nouvel appel dans le même advance
+        TimerWheel<Runnable> fresh = new TimerWheel<>(10, 8, START);
+        List<String> order = new ArrayList<>();
+        fresh.schedule(START + 10, () -> {
+            order.add("first");
+            fresh.schedule(START + 10, () -> order.add("again"));
+        });
+        assertEquals(1, fresh.advance(START + 10, Runnable::run));
+        assertEquals(List.of("first"), order);
+        assertEquals(1, fresh.advance(START + 20, Runnable::run));
+        assertEquals(List.of("first", "again"), order);
+    }
+}
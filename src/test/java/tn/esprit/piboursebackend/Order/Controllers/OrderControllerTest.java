@@ -0,0 +1,53 @@
+package tn.esprit.piboursebackend.Order.Controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tn.esprit.piboursebackend.Order.Services.OrderService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Prix et quantités non représentables en virgule fixe : refusés en 400 avant tout accès au moteur
+ * (le service est construit sans dépendances, la validation doit suffire).
+ */
+class OrderControllerTest {
+
+    private final MockMvc mvc = MockMvcBuilders
+            .standaloneSetup(new OrderController(new OrderService(null, null, null, null, null, null)))
+            .build();
+
+    @Test
+    void overPrecisePriceIsBadRequest() throws Exception {
+        place("{\"stockId\":1,\"side\":\"BUY\",\"type\":\"LIMIT\",\"price\":10.1234567,\"quantity\":1}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void oversizedQuantityIsBadRequest() throws Exception {
+        place("{\"stockId\":1,\"side\":\"SELL\",\"type\":\"MARKET\",\"quantity\":1e25}")
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void overflowingNotionalIsBadRequest() throws Exception {
+        place("{\"stockId\":1,\"side\":\"BUY\",\"type\":\"LIMIT\",\"price\":1000000000,\"quantity\":1000000000}")
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void overPreciseAmendIsBadRequest() throws Exception {
+        mvc.perform(put("/orders/1").contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":0.0000001}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions place(String body) throws Exception {
+        return mvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+}
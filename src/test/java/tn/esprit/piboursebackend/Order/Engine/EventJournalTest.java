@@ -0,0 +1,96 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventJournalTest {
+
+    // Annulation : 8 d'en-tête + 9 de séquence/type + 16 de charge utile
+    private static final int CANCEL_RECORD = EventJournal.HEADER + EventJournal.RECORD_HEADER + EventJournal.CANCEL_SIZE;
+    private static final int SEGMENT = 3 * CANCEL_RECORD + 1;
+
+    @Test
+    void fullSegmentRollsToTheNextSequence(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = EventJournal.open(dir, SEGMENT, false)) {
+            for (long id = 1; id <= 7; id++) journal.appendCancel(1L, id);
+            journal.commit();
+        }
+
+        assertEquals(List.of("00000000000000000001.log", "00000000000000000004.log", "00000000000000000007.log"),
+                JournalReader.segments(dir).stream().map(p -> p.getFileName().toString()).toList());
+        List<Long> orders = new ArrayList<>();
+        assertEquals(7, JournalReader.read(dir, r -> orders.add(r.getOrderId())));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), orders);
+
+        // Reprise : on continue dans le dernier segment, à la séquence suivante
+        try (EventJournal journal = EventJournal.open(dir, SEGMENT, false)) {
+            assertEquals(7, journal.lastSequence());
+            assertEquals(8, journal.appendCancel(1L, 8L));
+            journal.commit();
+        }
+        assertEquals(8, JournalReader.read(dir, 5, r -> { }));
+    }
+
+    @Test
+    void crcMismatchBeforeTheLastSegmentIsCorruption(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = EventJournal.open(dir, SEGMENT, false)) {
+            for (long id = 1; id <= 5; id++) journal.appendCancel(1L, id);
+            journal.commit();
+        }
+        corrupt(JournalReader.segments(dir).get(0), CANCEL_RECORD + 20);
+
+        assertThrows(IllegalStateException.class, () -> JournalReader.read(dir, r -> { }));
+    }
+
+    @Test
+    void tornTailIsCutAndOverwrittenOnReopen(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = EventJournal.open(dir, 1 << 16, false)) {
+            for (long id = 1; id <= 3; id++) journal.appendCancel(1L, id);
+            journal.commit();
+        }
+        // Crash pendant l'écriture du 3e enregistrement : longueur posée, contenu incomplet
+        Path segment = JournalReader.segments(dir).get(0);
+        corrupt(segment, 2 * CANCEL_RECORD + 20);
+
+        List<Long> orders = new ArrayList<>();
+        assertEquals(2, JournalReader.read(dir, r -> orders.add(r.getOrderId())));
+        assertEquals(List.of(1L, 2L), orders);
+
+        try (EventJournal journal = EventJournal.open(dir, 1 << 16, false)) {
+            assertEquals(2, journal.lastSequence());
+            assertEquals(3, journal.appendCancel(1L, 30L));
+            journal.commit();
+        }
+        orders.clear();
+        assertEquals(3, JournalReader.read(dir, r -> orders.add(r.getOrderId())));
+        assertEquals(List.of(1L, 2L, 30L), orders);
+    }
+
+    @Test
+    void recordLargerThanASegmentIsRefused(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = EventJournal.open(dir, CANCEL_RECORD + 1, false)) {
+            journal.appendCancel(1L, 1L);
+            assertThrows(IllegalStateException.class, () -> journal.appendAmend(1L, 1L, 0, 0));
+        }
+    }
+
+    private static void corrupt(Path segment, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x5A));
+            channel.write(b.rewind(), position);
+        }
+    }
+}
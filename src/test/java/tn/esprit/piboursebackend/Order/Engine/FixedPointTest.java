@@ -0,0 +1,73 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointTest {
+
+    @Test
+    void conversionRoundsHalfUpAtSixDecimals() {
+        assertEquals(1_234_568L, FixedPoint.of(new BigDecimal("1.2345675")));
+        assertEquals(1_234_567L, FixedPoint.of(new BigDecimal("1.2345674")));
+        assertEquals(-1_234_568L, FixedPoint.of(new BigDecimal("-1.2345675")));
+        assertEquals(new BigDecimal("1.500000"), FixedPoint.toBigDecimal(FixedPoint.of(new BigDecimal("1.5"))));
+        assertEquals(FixedPoint.NULL, FixedPoint.of((BigDecimal) null));
+        assertNull(FixedPoint.toBigDecimal(FixedPoint.NULL));
+    }
+
+    @Test
+    void conversionOverflowThrows() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.of(new BigDecimal("10000000000000")));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.of(Long.MAX_VALUE / FixedPoint.ONE + 1));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.subtract(Long.MIN_VALUE + 1, 2));
+    }
+
+    @Test
+    void multiplyRoundsHalfUp() {
+        assertEquals(FixedPoint.of(6), FixedPoint.multiply(FixedPoint.of(2), FixedPoint.of(3)));
+        // 0.000001 x 0.5 = 0.0000005 -> 0.000001 ; le signe est respecté
+        assertEquals(1L, FixedPoint.multiply(1L, 500_000L));
+        assertEquals(-1L, FixedPoint.multiply(-1L, 500_000L));
+        assertEquals(0L, FixedPoint.multiply(1L, 499_999L));
+    }
+
+    @Test
+    void toUnitsRoundsHalfUp() {
+        assertEquals(1L, FixedPoint.toUnits(FixedPoint.of(new BigDecimal("0.5"))));
+        assertEquals(0L, FixedPoint.toUnits(FixedPoint.of(new BigDecimal("0.499999"))));
+        assertEquals(3L, FixedPoint.toUnits(FixedPoint.of(new BigDecimal("2.75"))));
+        assertEquals(-3L, FixedPoint.toUnits(FixedPoint.of(new BigDecimal("-2.5"))));
+    }
+
+    @Test
+    void multiplyBeyondSixtyFourBitIntermediate() {
+        // produit brut hors 64 bits, résultat représentable : chemin BigInteger
+        long price = FixedPoint.of(50_000);
+        long quantity = FixedPoint.of(1_000_000);
+        assertEquals(FixedPoint.of(50_000_000_000L), FixedPoint.multiply(price, quantity));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiply(FixedPoint.of(10_000_000), FixedPoint.of(10_000_000)));
+    }
+
+    @Test
+    void fitsRejectsExtraPrecisionAndOversizedValues() {
+        assertTrue(FixedPoint.fits(new BigDecimal("12.123456")));
+        assertTrue(FixedPoint.fits(new BigDecimal("12.1234560000")));
+        assertTrue(FixedPoint.fits(FixedPoint.toBigDecimal(FixedPoint.MAX_INPUT)));
+        assertFalse(FixedPoint.fits(new BigDecimal("12.1234567")));
+        assertFalse(FixedPoint.fits(new BigDecimal("1000000000.000001")));
+        assertFalse(FixedPoint.fits(new BigDecimal("1E+30")));
+        assertFalse(FixedPoint.fits(null));
+
+        assertTrue(FixedPoint.fitsProduct(new BigDecimal("1000000"), new BigDecimal("1000000")));
+        assertFalse(FixedPoint.fitsProduct(new BigDecimal("1000000000"), new BigDecimal("1000000000")));
+    }
+}
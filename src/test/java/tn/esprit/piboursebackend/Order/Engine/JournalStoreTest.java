@@ -0,0 +1,134 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalStoreTest {
+
+    private static final long STOCK = 7L;
+    private static final int SEGMENT = 4096;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 9, 0);
+
+    private final Random random = new Random(42);
+    private long nextId = 1;
+
+    @Test
+    void snapshotPlusTailGivesTheLiveBook(@TempDir Path dir) throws IOException {
+        JournalStore store = new JournalStore(dir, SEGMENT, false, 2);
+        EventJournal journal = store.openWriters(1)[0];
+        LimitOrderBook live = new LimitOrderBook(STOCK);
+
+        trade(live, journal, 300);
+        store.writeSnapshot(new ByteBuffer[]{BookSnapshot.encode(List.of(live), journal.lastSequence())});
+        long covered = journal.lastSequence();
+        trade(live, journal, 300);
+        journal.close();
+
+        JournalReplayer replayer = new JournalReplayer();
+        JournalStore.Recovery recovery = new JournalStore(dir, SEGMENT, false, 2).recover(replayer);
+
+        assertNotNull(recovery.snapshot());
+        assertEquals(journal.lastSequence() - covered, recovery.records());
+        assertEquals(describe(live), describe(replayer.getBooks().get(STOCK)));
+    }
+
+    @Test
+    void snapshotsPruneOlderSegmentsAndGenerations(@TempDir Path dir) throws IOException {
+        JournalStore first = new JournalStore(dir, SEGMENT, false, 2);
+        EventJournal journal = first.openWriters(1)[0];
+        LimitOrderBook live = new LimitOrderBook(STOCK);
+        trade(live, journal, 300);
+        journal.close();
+
+        // Redémarrage avec deux shards : nouvelle génération, l'ancienne reste jusqu'au premier snapshot
+        JournalReplayer replayer = new JournalReplayer();
+        JournalStore second = new JournalStore(dir, SEGMENT, false, 2);
+        second.recover(replayer);
+        EventJournal[] journals = second.openWriters(2);
+        assertEquals(2, second.generations().size());
+
+        LimitOrderBook book = replayer.getBooks().get(STOCK);
+        for (int s = 0; s < 3; s++) {
+            trade(book, journals[1], 200);
+            second.writeSnapshot(new ByteBuffer[]{
+                    BookSnapshot.encode(List.of(), journals[0].lastSequence()),
+                    BookSnapshot.encode(List.of(book), journals[1].lastSequence())});
+        }
+        trade(book, journals[1], 50);
+        for (EventJournal j : journals) j.close();
+
+        List<Path> generations = second.generations();
+        assertEquals(1, generations.size());
+        assertTrue(generations.get(0).getFileName().toString().endsWith("-shards-2"));
+        try (Stream<Path> snapshots = Files.list(generations.get(0))) {
+            assertEquals(2, snapshots.filter(p -> p.getFileName().toString().startsWith("snapshot-")).count());
+        }
+        // Le premier segment du shard actif n'est plus couvert que par des snapshots supprimés
+        List<Path> segments = JournalReader.segments(generations.get(0).resolve("shard-1"));
+        assertTrue(JournalReader.firstSequence(segments.get(0)) > 1);
+
+        JournalReplayer recovered = new JournalReplayer();
+        new JournalStore(dir, SEGMENT, false, 2).recover(recovered);
+        assertEquals(describe(book), describe(recovered.getBooks().get(STOCK)));
+    }
+
+    // Même enchaînement que le séquenceur : ordre journalisé avec son reliquat d'entrée, puis ses trades
+    private void trade(LimitOrderBook book, EventJournal journal, int orders) {
+        for (int i = 0; i < orders; i++) {
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            TimeInForce tif = random.nextInt(10) == 0 ? TimeInForce.IOC : TimeInForce.GTC;
+            long price = FixedPoint.of(95 + random.nextInt(11));
+            long quantity = FixedPoint.of(1 + random.nextInt(20));
+            long id = nextId++;
+            RestingOrder order = new RestingOrder(id, STOCK, side, OrderType.LIMIT, tif, price, quantity, quantity,
+                    T0.plusSeconds(id), 100L + id % 5);
+            journal.appendOrder(JournalRecord.Type.NEW, order, quantity);
+            MatchResult result = book.process(order);
+            for (Fill fill : result.getFills()) {
+                journal.appendTrade(STOCK, fill, T0.plusSeconds(id));
+            }
+            if (i % 7 == 0 && book.size() > 0) {
+                RestingOrder victim = book.orders().iterator().next();
+                if (book.cancel(victim.getOrderId()) != null) journal.appendCancel(STOCK, victim.getOrderId());
+            }
+        }
+        journal.commit();
+    }
+
+    private static List<String> describe(LimitOrderBook book) {
+        List<String> lines = new ArrayList<>();
+        describe(book.bids(), "B", lines);
+        describe(book.asks(), "S", lines);
+        return lines;
+    }
+
+    private static void describe(NavigableMap<Long, PriceLevel> side, String code, List<String> lines) {
+        for (Map.Entry<Long, PriceLevel> e : side.entrySet()) {
+            StringBuilder line = new StringBuilder(code).append(' ').append(FixedPoint.toString(e.getKey())).append(':');
+            for (RestingOrder o = e.getValue().getHead(); o != null; o = o.next) {
+                line.append(' ').append(o.getOrderId()).append('/').append(FixedPoint.toString(o.getRemainingQuantity()))
+                        .append('/').append(o.getPlayerId());
+            }
+            lines.add(line.toString());
+        }
+    }
+}
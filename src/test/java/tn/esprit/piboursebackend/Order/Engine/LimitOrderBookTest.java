@@ -0,0 +1,306 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carnet seul, sans Spring : priorité prix puis temps, exécutions partielles, annulation et modification,
+ * puis sémantique des TimeInForce (FOK, IOC, MARKET, expiration DAY).
+ */
+class LimitOrderBookTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 10, 0);
+
+    private final LimitOrderBook book = new LimitOrderBook(1L);
+    private long nextId = 1;
+
+    @Test
+    void bestPriceFirstThenArrivalOrder() {
+        long first = sell(101, 5);
+        long cheaper = sell(100, 5);
+        long second = sell(101, 5);
+
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.GTC, 101, 12));
+
+        assertEquals(List.of(cheaper, first, second), makerIds(result));
+        assertEquals(List.of(FixedPoint.of(100), FixedPoint.of(101), FixedPoint.of(101)),
+                result.getFills().stream().map(Fill::getPrice).toList());
+        assertEquals(OrderStatus.FILLED, result.getTakerStatus());
+        assertEquals(FixedPoint.of(3), book.get(second).getRemainingQuantity());
+        assertEquals(FixedPoint.of(3), book.bestAsk().getTotalQuantity());
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void fillsAtMakerPriceAndStopsAtLimit() {
+        sell(100, 5);
+        sell(102, 5);
+
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.GTC, 101, 8));
+
+        assertEquals(1, result.getFills().size());
+        assertEquals(FixedPoint.of(100), result.getFills().get(0).getPrice());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, result.getTakerStatus());
+        // le reliquat reste au carnet à son prix limite
+        assertEquals(FixedPoint.of(101), book.bestBid().getPrice());
+        assertEquals(FixedPoint.of(3), book.bestBid().getTotalQuantity());
+        assertEquals(FixedPoint.of(102), book.bestAsk().getPrice());
+    }
+
+    @Test
+    void partialFillKeepsMakerAtHeadOfLevel() {
+        long maker = buy(100, 10);
+        long behind = buy(100, 4);
+
+        MatchResult result = book.process(order(OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC, 100, 6));
+
+        assertEquals(List.of(maker), makerIds(result));
+        assertEquals(OrderStatus.PARTIALLY_FILLED, book.get(maker).fillStatus());
+        assertEquals(FixedPoint.of(4), book.get(maker).getRemainingQuantity());
+        assertSame(book.get(maker), book.bestBid().getHead());
+        assertEquals(FixedPoint.of(8), book.bestBid().getTotalQuantity());
+        assertEquals(2, book.bestBid().getOrderCount());
+        assertTrue(book.get(behind).isResting());
+    }
+
+    @Test
+    void cancelRemovesOrderAndEmptyLevel() {
+        long low = buy(99, 5);
+        long high = buy(100, 5);
+
+        RestingOrder cancelled = book.cancel(high);
+
+        assertEquals(high, cancelled.getOrderId());
+        assertNull(book.get(high));
+        assertEquals(FixedPoint.of(99), book.bestBid().getPrice());
+        assertEquals(1, book.bids().size());
+        assertNull(book.cancel(high));
+        assertSame(book.get(low), book.bestBid().getHead());
+    }
+
+    @Test
+    void reducingQuantityKeepsPriority() {
+        long first = sell(100, 10);
+        long second = sell(100, 10);
+
+        MatchResult amended = book.amend(first, FixedPoint.NULL, FixedPoint.of(4));
+
+        assertEquals(OrderStatus.PENDING, amended.getTakerStatus());
+        assertSame(book.get(first), book.bestAsk().getHead());
+        assertEquals(FixedPoint.of(14), book.bestAsk().getTotalQuantity());
+
+        MatchResult taken = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.GTC, 100, 4));
+        assertEquals(List.of(first), makerIds(taken));
+        assertSame(book.get(second), book.bestAsk().getHead());
+    }
+
+    @Test
+    void increasingQuantityLosesPriority() {
+        long first = sell(100, 10);
+        long second = sell(100, 10);
+
+        book.amend(first, FixedPoint.NULL, FixedPoint.of(12));
+
+        assertSame(book.get(second), book.bestAsk().getHead());
+        assertEquals(FixedPoint.of(12), book.get(first).getRemainingQuantity());
+        assertEquals(FixedPoint.of(22), book.bestAsk().getTotalQuantity());
+    }
+
+    @Test
+    void repricingLosesPriorityAndCanCross() {
+        buy(99, 5);
+        long ask = sell(101, 5);
+        long other = sell(101, 5);
+
+        // même prix rendu au carnet : passe derrière l'ordre suivant
+        book.amend(ask, FixedPoint.of(102), FixedPoint.NULL);
+        assertSame(book.get(other), book.bestAsk().getHead());
+        assertEquals(FixedPoint.of(102), book.get(ask).getPrice());
+
+        // un prix qui traverse le spread s'exécute immédiatement
+        MatchResult crossed = book.amend(ask, FixedPoint.of(99), FixedPoint.NULL);
+        assertEquals(OrderStatus.FILLED, crossed.getTakerStatus());
+        assertEquals(FixedPoint.of(99), crossed.getFills().get(0).getPrice());
+        assertNull(book.bestBid());
+        assertNull(book.get(ask));
+    }
+
+    @Test
+    void amendingBelowFilledQuantityCancels() {
+        long maker = sell(100, 10);
+        book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.GTC, 100, 6));
+
+        MatchResult amended = book.amend(maker, FixedPoint.NULL, FixedPoint.of(6));
+
+        assertEquals(OrderStatus.CANCELLED, amended.getTakerStatus());
+        assertNull(book.get(maker));
+        assertNull(book.bestAsk());
+        assertNull(book.amend(maker, FixedPoint.NULL, FixedPoint.of(20)));
+    }
+
+    @Test
+    void fokWithoutEnoughLiquidityLeavesBookUntouched() {
+        long a = sell(100, 5);
+        long b = sell(101, 5);
+        sell(103, 50);
+
+        // 12 demandés à 102 : seulement 10 disponibles à prix compatible
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.FOK, 102, 12));
+
+        assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+        assertTrue(result.getFills().isEmpty());
+        assertFalse(result.getTaker().isResting());
+        assertEquals(FixedPoint.of(5), book.get(a).getRemainingQuantity());
+        assertEquals(FixedPoint.of(5), book.get(b).getRemainingQuantity());
+        assertEquals(3, book.size());
+        assertEquals(FixedPoint.of(100), book.bestAsk().getPrice());
+        assertNull(book.bestBid());
+    }
+
+    @Test
+    void fokWithEnoughLiquidityFillsCompletely() {
+        sell(100, 5);
+        long b = sell(101, 5);
+
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.FOK, 101, 8));
+
+        assertEquals(OrderStatus.FILLED, result.getTakerStatus());
+        assertEquals(2, result.getFills().size());
+        assertEquals(FixedPoint.of(2), book.get(b).getRemainingQuantity());
+    }
+
+    @Test
+    void iocRemainderIsCancelledNotRested() {
+        sell(100, 5);
+
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.IOC, 100, 8));
+
+        assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+        assertEquals(1, result.getFills().size());
+        assertEquals(FixedPoint.of(3), result.getTaker().getRemainingQuantity());
+        assertFalse(result.getTaker().isResting());
+        assertNull(book.get(result.getTaker().getOrderId()));
+        assertNull(book.bestBid());
+        assertNull(book.bestAsk());
+    }
+
+    @Test
+    void marketOrderSweepsLevelsAndDropsRemainder() {
+        sell(100, 5);
+        sell(110, 5);
+
+        MatchResult result = book.process(order(OrderSide.BUY, OrderType.MARKET, TimeInForce.DAY, 0, 15));
+
+        assertEquals(List.of(FixedPoint.of(100), FixedPoint.of(110)),
+                result.getFills().stream().map(Fill::getPrice).toList());
+        assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+        assertEquals(FixedPoint.of(5), result.getTaker().getRemainingQuantity());
+        assertEquals(0, book.size());
+        assertNull(book.bestBid());
+    }
+
+    @Test
+    void protectedMarketOrderStopsAtItsPrice() {
+        sell(100, 5);
+        sell(110, 5);
+        sell(120, 5);
+
+        RestingOrder taker = new RestingOrder(nextId++, 1L, OrderSide.BUY, OrderType.MARKET, TimeInForce.DAY,
+                FixedPoint.of(110), FixedPoint.of(15), FixedPoint.of(15), T0);
+        MatchResult result = book.process(taker);
+
+        assertEquals(List.of(FixedPoint.of(100), FixedPoint.of(110)),
+                result.getFills().stream().map(Fill::getPrice).toList());
+        assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+        assertEquals(FixedPoint.of(5), result.getTaker().getRemainingQuantity());
+        assertEquals(1, book.size());
+        assertEquals(FixedPoint.of(120), book.bestAsk().getPrice());
+    }
+
+    @Test
+    void marketOrderOnEmptySideIsCancelled() {
+        MatchResult result = book.process(order(OrderSide.SELL, OrderType.MARKET, TimeInForce.GTC, 0, 1));
+
+        assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+        assertTrue(result.getFills().isEmpty());
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void expireDayOrdersKeepsGtcAndPriority() {
+        long day1 = restLimit(OrderSide.BUY, TimeInForce.DAY, 100, 5);
+        long gtc1 = buy(100, 5);
+        long day2 = restLimit(OrderSide.BUY, TimeInForce.DAY, 101, 5);
+        long gtc2 = buy(100, 7);
+        long day3 = restLimit(OrderSide.SELL, TimeInForce.DAY, 105, 5);
+
+        List<RestingOrder> expired = book.expireDayOrders();
+
+        assertEquals(List.of(day2, day1, day3), expired.stream().map(RestingOrder::getOrderId).toList());
+        assertEquals(2, book.size());
+        assertNull(book.bestAsk());
+        assertEquals(FixedPoint.of(100), book.bestBid().getPrice());
+        assertEquals(1, book.bids().size());
+        assertSame(book.get(gtc1), book.bestBid().getHead());
+        assertSame(book.get(gtc2), book.bestBid().getTail());
+        assertEquals(FixedPoint.of(12), book.bestBid().getTotalQuantity());
+        assertTrue(book.expireDayOrders().isEmpty());
+    }
+
+    @Test
+    void filledOrCancelledDayOrdersAreNotExpiredTwice() {
+        long filled = restLimit(OrderSide.SELL, TimeInForce.DAY, 100, 5);
+        long cancelled = restLimit(OrderSide.SELL, TimeInForce.DAY, 101, 5);
+        long kept = restLimit(OrderSide.SELL, TimeInForce.DAY, 102, 5);
+        book.process(order(OrderSide.BUY, OrderType.LIMIT, TimeInForce.IOC, 100, 5));
+        book.cancel(cancelled);
+
+        List<RestingOrder> expired = book.expireDayOrders();
+
+        assertEquals(List.of(kept), expired.stream().map(RestingOrder::getOrderId).toList());
+        assertNull(book.get(filled));
+        assertEquals(0, book.size());
+    }
+
+    private long buy(long price, long quantity) {
+        return restLimit(OrderSide.BUY, price, quantity);
+    }
+
+    private long sell(long price, long quantity) {
+        return restLimit(OrderSide.SELL, price, quantity);
+    }
+
+    private long restLimit(OrderSide side, long price, long quantity) {
+        return restLimit(side, TimeInForce.GTC, price, quantity);
+    }
+
+    private long restLimit(OrderSide side, TimeInForce tif, long price, long quantity) {
+        RestingOrder o = order(side, OrderType.LIMIT, tif, price, quantity);
+        MatchResult result = book.process(o);
+        assertTrue(result.getFills().isEmpty(), "setup order should not cross");
+        return o.getOrderId();
+    }
+
+    private RestingOrder order(OrderSide side, OrderType type, TimeInForce tif, long price, long quantity) {
+        long id = nextId++;
+        long p = type == OrderType.MARKET ? FixedPoint.NULL : FixedPoint.of(price);
+        return new RestingOrder(id, 1L, side, type, tif, p, FixedPoint.of(quantity), FixedPoint.of(quantity),
+                T0.plusSeconds(id));
+    }
+
+    private static List<Long> makerIds(MatchResult result) {
+        return result.getFills().stream().map(Fill::getMakerOrderId).toList();
+    }
+}
@@ -0,0 +1,124 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchingSequencerTest {
+
+    private static final long STOCK = 1L;
+
+    // Une annulation (33 octets) tient dans le segment, un nouvel ordre (80 octets) jamais
+    private static final int TINY_SEGMENT = 72;
+
+    private final List<String> sunk = new CopyOnWriteArrayList<>();
+    private final List<BookUpdate> published = new CopyOnWriteArrayList<>();
+
+    @Test
+    void resultsLeaveTheSequencerAfterTheCommit(@TempDir Path dir) throws Exception {
+        MatchingSequencer sequencer = sequencer(dir, 1 << 20);
+        sequencer.bookFor(STOCK).process(resting(1L));
+
+        OrderCommand cancel = OrderCommand.cancel(STOCK, 1L);
+        sequencer.publish(cancel);
+        sequencer.start();
+        try {
+            MatchResult result = cancel.getResult().get(5, TimeUnit.SECONDS);
+            assertEquals(OrderStatus.CANCELLED, result.getTakerStatus());
+            // Diffusion faite avant l'acquittement, donc déjà visible ici
+            assertEquals(List.of("CANCEL"), sunk);
+            assertEquals(1, published.size());
+            assertEquals(1, sequencer.journal().lastSequence());
+        } finally {
+            sequencer.stop();
+        }
+    }
+
+    @Test
+    void journalFailureHidesTheWholeBatch(@TempDir Path dir) throws Exception {
+        MatchingSequencer sequencer = sequencer(dir, TINY_SEGMENT);
+        sequencer.bookFor(STOCK).process(resting(1L));
+
+        // Publiées avant démarrage : un seul lot drainé, l'annulation est écrite, le nouvel ordre non
+        OrderCommand cancel = OrderCommand.cancel(STOCK, 1L);
+        OrderCommand order = OrderCommand.newOrder(newOrder(2L));
+        sequencer.publish(cancel);
+        sequencer.publish(order);
+        sequencer.start();
+        try {
+            assertStopped(cancel);
+            assertStopped(order);
+
+            OrderCommand next = OrderCommand.cancel(STOCK, 1L);
+            sequencer.publish(next);
+            assertStopped(next);
+
+            assertTrue(sunk.isEmpty());
+            assertTrue(published.isEmpty());
+        } finally {
+            sequencer.stop();
+        }
+    }
+
+    private MatchingSequencer sequencer(Path dir, int segmentSize) throws Exception {
+        ExecutionSink sink = new ExecutionSink() {
+            @Override
+            public void onResult(OrderCommand command, MatchResult result) {
+                sunk.add(command.getType().name());
+            }
+
+            @Override
+            public void onExpired(List<RestingOrder> expired) {
+                sunk.add("EXPIRE_DAY");
+            }
+        };
+        MarketDataListener listener = published::add;
+        MatchingSequencer sequencer = new MatchingSequencer(0, 64, sink, new HashMap<>(), List.of(listener),
+                new TradingHalts());
+        sequencer.attachJournal(EventJournal.open(dir, segmentSize, false));
+        return sequencer;
+    }
+
+    private static void assertStopped(OrderCommand command) {
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> command.getResult().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    private static RestingOrder resting(long id) {
+        return new RestingOrder(id, STOCK, OrderSide.BUY, OrderType.LIMIT, TimeInForce.DAY,
+                FixedPoint.of(10), FixedPoint.of(1), FixedPoint.of(1), LocalDateTime.now());
+    }
+
+    private static Order newOrder(long id) {
+        return Order.builder()
+                .id(id)
+                .stock(Stock.builder().id(STOCK).build())
+                .side(OrderSide.SELL)
+                .type(OrderType.LIMIT)
+                .tif(TimeInForce.DAY)
+                .price(BigDecimal.valueOf(20))
+                .quantity(BigDecimal.ONE)
+                .remainingQuantity(BigDecimal.ONE)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package tn.esprit.piboursebackend.Order.Engine;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreTradeRiskTest {
+
+    private static final long PLAYER = 1L;
+    private static final long STOCK = 10L;
+
+    @Test
+    void revertedBuyExtensionGivesCashBack() {
+        PreTradeRisk risk = new PreTradeRisk();
+        risk.credit(PLAYER, FixedPoint.of(1_000));
+        assertTrue(risk.reserve(1L, PLAYER, STOCK, OrderSide.BUY, FixedPoint.of(10), FixedPoint.of(20), false));
+        assertEquals(FixedPoint.of(800), risk.availableCash(PLAYER));
+
+        // 20 -> 50 au même prix : 300 de plus réservés, puis modification refusée par le moteur
+        assertTrue(risk.extend(1L, FixedPoint.NULL, FixedPoint.of(50)));
+        assertEquals(FixedPoint.of(500), risk.availableCash(PLAYER));
+        risk.revertExtension(1L);
+        assertEquals(FixedPoint.of(800), risk.availableCash(PLAYER));
+
+        // Rien à rendre deux fois ; la réservation d'origine reste due
+        risk.revertExtension(1L);
+        assertEquals(FixedPoint.of(800), risk.availableCash(PLAYER));
+        assertEquals(1, risk.openReservations());
+    }
+
+    @Test
+    void revertedSellExtensionGivesSharesBack() {
+        PreTradeRisk risk = new PreTradeRisk();
+        risk.creditShares(PLAYER, STOCK, FixedPoint.of(100));
+        assertTrue(risk.reserve(1L, PLAYER, STOCK, OrderSide.SELL, 0, FixedPoint.of(40), false));
+
+        assertTrue(risk.extend(1L, FixedPoint.NULL, FixedPoint.of(90)));
+        assertEquals(FixedPoint.of(10), risk.availableShares(PLAYER, STOCK));
+        risk.revertExtension(1L);
+        assertEquals(FixedPoint.of(60), risk.availableShares(PLAYER, STOCK));
+    }
+
+    @Test
+    void marketBuyNeverCostsMoreThanItsReservation() {
+        PreTradeRisk risk = new PreTradeRisk();
+        risk.credit(PLAYER, FixedPoint.of(1_100));
+        LimitOrderBook book = new LimitOrderBook(STOCK);
+        book.process(new RestingOrder(1L, STOCK, OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC,
+                FixedPoint.of(100), FixedPoint.of(5), FixedPoint.of(5), LocalDateTime.now()));
+        book.process(new RestingOrder(2L, STOCK, OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC,
+                FixedPoint.of(500), FixedPoint.of(5), FixedPoint.of(5), LocalDateTime.now()));
+
+        // Meilleur vendeur 100, marge 10 % : réservé 110 x 10, et 110 borne le balayage
+        long protection = FixedPoint.of(110);
+        assertTrue(risk.reserve(3L, PLAYER, STOCK, OrderSide.BUY, protection, FixedPoint.of(10), false));
+        RestingOrder taker = new RestingOrder(3L, STOCK, OrderSide.BUY, OrderType.MARKET, TimeInForce.IOC,
+                protection, FixedPoint.of(10), FixedPoint.of(10), LocalDateTime.now(), PLAYER);
+        MatchResult result = book.process(taker);
+        risk.onResult(null, result);
+
+        assertEquals(1, result.getFills().size());
+        assertEquals(FixedPoint.of(600), risk.availableCash(PLAYER));
+        assertEquals(FixedPoint.of(5), risk.availableShares(PLAYER, STOCK));
+        assertEquals(0, risk.openReservations());
+    }
+}
@@ -0,0 +1,116 @@
+package tn.esprit.piboursebackend.Order.Repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plans d'exécution (EXPLAIN, H2 du profil simulation, schéma des migrations Flyway) des requêtes
+ * de carnet (open_orders) et d'historique : chacune doit passer par son index et non par un parcours de table.
+ * Le SQL expliqué est celui qu'envoient réellement OrderRepository / TradeRepository, capté par
+ * un StatementInspector Hibernate, puis rejoué avec les mêmes paramètres.
+ */
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "tn.esprit.piboursebackend.Order.Repository.IndexPlanTest$CapturedSql"})
+@ActiveProfiles("simulation")
+class IndexPlanTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 2, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    // Sans statistiques H2 peut retenir le premier index qui couvre la colonne filtrée
+    @BeforeEach
+    void analyze() {
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void asksAndBidsUseOpenOrdersIndex() {
+        assertUses("idx_open_orders_book", sql(() -> orderRepository.findAsksForMatching(1L, PageRequest.of(0, 10))),
+                1L, 10);
+        assertUses("idx_open_orders_book", sql(() -> orderRepository.findBidsForMatching(1L, PageRequest.of(0, 10))),
+                1L, 10);
+    }
+
+    @Test
+    void symbolLookupUsesNormalizedColumn() {
+        String plan = assertUses("idx_stock_symbol_key",
+                sql(() -> orderRepository.findAsksForMatchingBySymbol(" sim0001 ")), " sim0001 ");
+        assertTrue(plan.contains("idx_open_orders_book"), plan);
+    }
+
+    @Test
+    void openOrderCountStaysOnOpenOrders() {
+        String plan = assertUses("idx_open_orders_book", sql(() -> orderRepository.countOpenByStock(1L)), 1L);
+        assertFalse(plan.contains("\"orders\""), plan);
+    }
+
+    @Test
+    void tradeHistoryUsesStockTimeIndex() {
+        assertUses("idx_trade_stock_executed", sql(() -> tradeRepository.findLatest(1L, FROM, PageRequest.of(0, 50))),
+                1L, Timestamp.valueOf(FROM), 50);
+        assertUses("idx_trade_stock_executed", sql(() -> tradeRepository.findRange(1L, FROM, TO)),
+                1L, Timestamp.valueOf(FROM), Timestamp.valueOf(TO));
+    }
+
+    @Test
+    void tradesOfAnOrderUseOrderIndexes() {
+        String plan = assertUses("idx_trade_buy_order", sql(() -> tradeRepository.sumByOrderPairs(List.of(1L, 2L, 3L))),
+                1L, 2L, 3L, 1L, 2L, 3L, 1L, 2L, 3L);
+        assertTrue(plan.contains("idx_trade_sell_order"), plan);
+    }
+
+    // Dernière requête envoyée par ce thread pendant l'appel au dépôt
+    private static String sql(Runnable call) {
+        CapturedSql.LAST.remove();
+        call.run();
+        String sql = CapturedSql.LAST.get();
+        assertNotNull(sql, "no statement captured");
+        return sql;
+    }
+
+    private String assertUses(String index, String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args).toLowerCase(Locale.ROOT);
+        assertTrue(plan.contains(index), () -> "expected " + index + " in plan:\n" + plan);
+        return plan;
+    }
+
+    /** Garde le SQL de la dernière requête du thread appelant (les threads de fond ne s'y mêlent pas). */
+    public static class CapturedSql implements StatementInspector {
+
+        static final ThreadLocal<String> LAST = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            LAST.set(sql);
+            return sql;
+        }
+    }
+}
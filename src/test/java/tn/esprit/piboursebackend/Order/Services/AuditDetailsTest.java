@@ -0,0 +1,55 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuditDetailsTest {
+
+    @Test
+    void orderPlacedRoundTrip() {
+        RestingOrder limit = new RestingOrder(42L, 7L, OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC,
+                FixedPoint.of(new BigDecimal("10.50")), FixedPoint.of(new BigDecimal("3.25")),
+                FixedPoint.of(new BigDecimal("3.25")), LocalDateTime.now());
+        byte[] payload = AuditDetails.orderPlaced(limit);
+
+        assertEquals(36, payload.length);
+        assertEquals("order 42 stock 7 SELL LIMIT GTC price 10.5 quantity 3.25",
+                AuditDetails.describe(AuditDetails.ORDER_PLACED, payload));
+
+        RestingOrder market = new RestingOrder(43L, 7L, OrderSide.BUY, OrderType.MARKET, TimeInForce.IOC,
+                FixedPoint.NULL, FixedPoint.of(2), FixedPoint.of(2), LocalDateTime.now());
+        assertEquals("order 43 stock 7 BUY MARKET IOC price MARKET quantity 2",
+                AuditDetails.describe(AuditDetails.ORDER_PLACED, AuditDetails.orderPlaced(market)));
+    }
+
+    @Test
+    void tradeExecutedRoundTrip() {
+        // Taker vendeur : l'acheteur est le maker
+        Fill fill = new Fill(9L, 5L, OrderSide.SELL, FixedPoint.of(new BigDecimal("99.125")), FixedPoint.of(4));
+        byte[] payload = AuditDetails.tradeExecuted(7L, fill);
+
+        assertEquals(41, payload.length);
+        assertEquals("stock 7 buy order 5 sell order 9 price 99.125 quantity 4",
+                AuditDetails.describe(AuditDetails.TRADE_EXECUTED, payload));
+    }
+
+    @Test
+    void unknownVersionOrActionIsNotDecoded() {
+        byte[] payload = AuditDetails.tradeExecuted(7L, new Fill(1L, 2L, OrderSide.BUY, FixedPoint.of(1), FixedPoint.of(1)));
+        assertEquals("41 bytes", AuditDetails.describe("ORDER_AMENDED", payload));
+
+        payload[0] = 2;
+        assertEquals("version 2 (41 bytes)", AuditDetails.describe(AuditDetails.TRADE_EXECUTED, payload));
+        assertEquals("", AuditDetails.describe(AuditDetails.TRADE_EXECUTED, null));
+    }
+}
@@ -0,0 +1,92 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+import tn.esprit.piboursebackend.Simulation.Services.LoadSimulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Débord de l'audit : base indisponible, les événements partent dans le fichier local puis sont rejoués
+ * une seule fois, dans l'ordre, dès que la table répond de nouveau.
+ */
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40",
+        "pibourse.audit.flush-interval-ms=20",
+        "pibourse.audit.retry-interval-ms=100"})
+@ActiveProfiles("simulation")
+class AuditLogWriterTest {
+
+    private static Path spillDir;
+
+    @DynamicPropertySource
+    static void spillDir(DynamicPropertyRegistry registry) throws IOException {
+        spillDir = Files.createTempDirectory("audit-spill");
+        registry.add("pibourse.audit.spill-dir", spillDir::toString);
+    }
+
+    @Autowired
+    private LoadSimulator simulator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void spilledEventsAreReplayedOnceTheDatabaseIsBack() throws InterruptedException {
+        Path spill = spillDir.resolve("audit.spill");
+        jdbcTemplate.execute("ALTER TABLE audit_log RENAME TO audit_log_down");
+        try {
+            assertTrue(simulator.run(500, 2, 11).getFills() > 0);
+            await(() -> counter("pibourse.audit.spilled") > 0 && Files.exists(spill));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE audit_log_down RENAME TO audit_log");
+        }
+
+        await(() -> !Files.exists(spill));
+        assertFalse(Files.exists(spillDir.resolve("audit.offset")));
+        assertEquals(0, counter("pibourse.audit.dropped"));
+        long rows = count("SELECT COUNT(*) FROM audit_log");
+        assertEquals((long) counter("pibourse.audit.written"), rows);
+        // Rejeu sans doublon : un seul ORDER_PLACED par ordre
+        assertEquals(count("SELECT COUNT(*) FROM audit_log WHERE action = 'ORDER_PLACED'"),
+                count("SELECT COUNT(DISTINCT payload) FROM audit_log WHERE action = 'ORDER_PLACED'"));
+        byte[] first = jdbcTemplate.queryForObject(
+                "SELECT payload FROM audit_log WHERE action = 'ORDER_PLACED' ORDER BY id LIMIT 1", byte[].class);
+        assertTrue(AuditDetails.describe(AuditDetails.ORDER_PLACED, first).startsWith("order "));
+    }
+
+    private double counter(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 20_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            LockSupport.parkNanos(20_000_000);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import tn.esprit.piboursebackend.Order.Dto.JournalVerificationReport;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+import tn.esprit.piboursebackend.Simulation.Services.LoadSimulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Réparation : ce que le journal a et la base non (trades et ordres perdus avec la file d'écriture
+ * différée, état en retard, ligne open_orders manquante) est réécrit, puis la vérification est propre.
+ */
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40",
+        "pibourse.journal.enabled=true"})
+@ActiveProfiles("simulation")
+class JournalVerifierTest {
+
+    @DynamicPropertySource
+    static void journalDir(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("journal").toString();
+        registry.add("pibourse.journal.dir", () -> dir);
+    }
+
+    @Autowired
+    private LoadSimulator simulator;
+
+    @Autowired
+    private JournalVerifier verifier;
+
+    @Autowired
+    private OrderExecutionWriter writer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repairRewritesWhatTheWriteBehindLost() throws InterruptedException {
+        assertTrue(simulator.run(2000, 2, 7).getFills() > 0);
+        awaitWriter();
+        assertTrue(verifier.verify().isConsistent());
+
+        long trades = count("SELECT COUNT(*) FROM trade");
+        List<Long> lastTrades = jdbcTemplate.queryForList("SELECT id FROM trade ORDER BY id DESC LIMIT 5", Long.class);
+        lastTrades.forEach(id -> jdbcTemplate.update("DELETE FROM trade WHERE id = ?", id));
+        Long filled = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM orders WHERE status = 'FILLED'", Long.class);
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ?", filled);
+        Long open = jdbcTemplate.queryForObject("SELECT MAX(order_id) FROM open_orders", Long.class);
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", open);
+        jdbcTemplate.update("DELETE FROM open_orders WHERE order_id = ?", open);
+
+        JournalVerificationReport before = verifier.repair();
+        assertFalse(before.isConsistent());
+
+        assertTrue(verifier.verify().isConsistent());
+        assertEquals(trades, count("SELECT COUNT(*) FROM trade"));
+        assertEquals(1, count("SELECT COUNT(*) FROM orders WHERE id = ? AND status = 'FILLED'", filled));
+        assertEquals(1, count("SELECT COUNT(*) FROM open_orders WHERE order_id = ?", open));
+    }
+
+    private void awaitWriter() {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (writer.queueDepth() > 0) {
+            assertTrue(System.nanoTime() < deadline, "write-behind did not catch up");
+            LockSupport.parkNanos(10_000_000);
+        }
+        // Dernier batch éventuellement en cours d'écriture
+        LockSupport.parkNanos(500_000_000);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
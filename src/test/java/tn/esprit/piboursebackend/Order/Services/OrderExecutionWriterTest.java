@@ -0,0 +1,145 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.piboursebackend.Marche.Entity.Stock;
+import tn.esprit.piboursebackend.Order.Engine.Fill;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+import tn.esprit.piboursebackend.Order.Engine.MatchResult;
+import tn.esprit.piboursebackend.Order.Engine.OrderCommand;
+import tn.esprit.piboursebackend.Order.Engine.RestingOrder;
+import tn.esprit.piboursebackend.Order.Entity.Order;
+import tn.esprit.piboursebackend.Order.Entity.OrderSide;
+import tn.esprit.piboursebackend.Order.Entity.OrderStatus;
+import tn.esprit.piboursebackend.Order.Entity.OrderType;
+import tn.esprit.piboursebackend.Order.Entity.TimeInForce;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Écriture différée face aux erreurs : une erreur permanente n'écarte que l'événement fautif,
+ * une mise à jour sans ligne est signalée, seules les erreurs transitoires sont réessayées.
+ */
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40"})
+@ActiveProfiles("simulation")
+class OrderExecutionWriterTest {
+
+    private static final long UNKNOWN_STOCK = 999_999L;
+
+    @Autowired
+    private OrderExecutionWriter writer;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void permanentErrorDropsOnlyTheFaultyEvent() {
+        double before = deadLetters();
+        long good = idAllocator.next(IdAllocator.ORDERS);
+        long bad = idAllocator.next(IdAllocator.ORDERS);
+
+        // Même batch : l'ordre sur un titre inconnu viole la clé étrangère, le reste doit passer
+        writer.onResult(newOrder(good, 1L), filled(good, 1L));
+        writer.onResult(newOrder(bad, UNKNOWN_STOCK), filled(bad, UNKNOWN_STOCK));
+
+        await(() -> count("SELECT COUNT(*) FROM trade WHERE buy_order_id IN (?, ?)", good, bad) == 2);
+        assertEquals(before + 1, deadLetters());
+        assertEquals(1, count("SELECT COUNT(*) FROM orders WHERE id = ?", good));
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE id = ?", bad));
+    }
+
+    @Test
+    void updateOfMissingOrderIsReported() {
+        double before = deadLetters();
+        long missing = idAllocator.next(IdAllocator.ORDERS);
+        RestingOrder order = resting(missing, 1L);
+
+        writer.onResult(OrderCommand.cancel(1L, missing), new MatchResult(order, OrderStatus.CANCELLED, List.of(), List.of()));
+
+        await(() -> deadLetters() >= before + 1);
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE id = ?", missing));
+    }
+
+    @Test
+    void onlyTransientErrorsAreRetried() {
+        assertTrue(OrderExecutionWriter.isTransient(new CannotAcquireLockException("lock timeout")));
+        assertTrue(OrderExecutionWriter.isTransient(new CannotGetJdbcConnectionException("pool exhausted")));
+        assertTrue(OrderExecutionWriter.isTransient(
+                new PersistenceException(new SQLTransientConnectionException("connection reset"))));
+        assertTrue(OrderExecutionWriter.isTransient(new PersistenceException(new SQLException("link failure", "08S01"))));
+
+        assertFalse(OrderExecutionWriter.isTransient(new DataIntegrityViolationException("duplicate key")));
+        assertFalse(OrderExecutionWriter.isTransient(
+                new PersistenceException(new SQLException("Data too long for column", "22001"))));
+        assertFalse(OrderExecutionWriter.isTransient(new IllegalStateException("bug")));
+    }
+
+    private static OrderCommand newOrder(long id, long stockId) {
+        return OrderCommand.newOrder(Order.builder()
+                .id(id)
+                .stock(Stock.builder().id(stockId).build())
+                .side(OrderSide.BUY)
+                .type(OrderType.LIMIT)
+                .tif(TimeInForce.IOC)
+                .price(BigDecimal.TEN)
+                .quantity(BigDecimal.ONE)
+                .remainingQuantity(BigDecimal.ONE)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    // Ordre IOC exécuté en entier ; trade sans clé étrangère, le maker n'a pas à exister en base
+    private static MatchResult filled(long id, long stockId) {
+        RestingOrder taker = resting(id, stockId);
+        Fill fill = new Fill(id, id + 1_000_000, OrderSide.BUY, FixedPoint.of(10), FixedPoint.of(1));
+        return new MatchResult(taker, OrderStatus.FILLED, List.of(fill), List.of());
+    }
+
+    private static RestingOrder resting(long id, long stockId) {
+        return new RestingOrder(id, stockId, OrderSide.BUY, OrderType.LIMIT, TimeInForce.IOC,
+                FixedPoint.of(10), FixedPoint.of(1), 0, LocalDateTime.now());
+    }
+
+    private double deadLetters() {
+        return registry.counter("pibourse.persistence.dead.letters").count();
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "write-behind did not catch up");
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+}
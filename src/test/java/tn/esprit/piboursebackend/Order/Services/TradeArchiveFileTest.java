@@ -0,0 +1,115 @@
+package tn.esprit.piboursebackend.Order.Services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tn.esprit.piboursebackend.Order.Dto.TradeResponse;
+import tn.esprit.piboursebackend.Order.Engine.FixedPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeArchiveFileTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 2, 2, 9, 0);
+
+    // id, titre, ordre acheteur, ordre vendeur, prix, quantité, heure (µs)
+    private final List<long[]> rows = new ArrayList<>();
+
+    @Test
+    void writeThenReadEachStockBack(@TempDir Path dir) throws IOException {
+        Path file = write(dir);
+
+        for (long stockId = 1; stockId <= 3; stockId++) {
+            List<TradeResponse> trades = TradeArchiveFile.read(file, stockId, T0, T0.plusDays(1));
+            List<long[]> expected = rows(stockId, Long.MIN_VALUE, Long.MAX_VALUE);
+            assertEquals(expected.size(), trades.size());
+            for (int i = 0; i < trades.size(); i++) assertSame(expected.get(i), trades.get(i));
+        }
+        assertTrue(TradeArchiveFile.read(file, 4L, T0, T0.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void timeRangeKeepsOnlyItsRows(@TempDir Path dir) throws IOException {
+        Path file = write(dir);
+        LocalDateTime from = T0.plusMinutes(10);
+        LocalDateTime to = T0.plusMinutes(20);
+
+        List<TradeResponse> trades = TradeArchiveFile.read(file, 2L, from, to);
+        List<long[]> expected = rows(2L, TradeArchiveFile.toMicros(from), TradeArchiveFile.toMicros(to));
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), trades.size());
+        for (int i = 0; i < trades.size(); i++) assertSame(expected.get(i), trades.get(i));
+        // Bloc entièrement hors de la plage : non décompressé, rien de renvoyé
+        assertTrue(TradeArchiveFile.read(file, 2L, T0.minusDays(2), T0.minusDays(1)).isEmpty());
+    }
+
+    @Test
+    void corruptedBlockOrForeignFileIsRejected(@TempDir Path dir) throws IOException {
+        Path file = write(dir);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, 10);
+            b.put(0, (byte) (b.get(0) ^ 0x5A));
+            channel.write(b.rewind(), 10);
+        }
+        // Premier bloc (titre 1) corrompu ; les autres restent lisibles
+        assertThrows(IOException.class, () -> TradeArchiveFile.read(file, 1L, T0, T0.plusDays(1)));
+        assertEquals(rows(3L, Long.MIN_VALUE, Long.MAX_VALUE).size(),
+                TradeArchiveFile.read(file, 3L, T0, T0.plusDays(1)).size());
+
+        Path foreign = dir.resolve("foreign.tcol");
+        Files.write(foreign, new byte[64]);
+        assertThrows(IOException.class, () -> TradeArchiveFile.read(foreign, 1L, T0, T0.plusDays(1)));
+    }
+
+    // Titre 2 : plus de lignes que le tampon initial, deltas négatifs (ids, prix) et grandes valeurs
+    private Path write(Path dir) throws IOException {
+        Random random = new Random(5);
+        long id = 1;
+        for (long stockId = 1; stockId <= 3; stockId++) {
+            int count = stockId == 2 ? 3000 : 50;
+            long micros = TradeArchiveFile.toMicros(T0);
+            for (int i = 0; i < count; i++) {
+                micros += random.nextInt(1_000_000);
+                long tradeId = random.nextInt(10) == 0 ? id + 1_000_000 : id;
+                long price = FixedPoint.of(100) + random.nextInt(2_000_000) - 1_000_000;
+                long quantity = stockId == 3 ? FixedPoint.MAX_INPUT : FixedPoint.of(1 + random.nextInt(50));
+                rows.add(new long[]{tradeId, stockId, 10 * id, 10 * id + 1, price, quantity, micros});
+                id++;
+            }
+        }
+        Path file = dir.resolve("trades.tcol");
+        try (TradeArchiveFile.Writer writer = new TradeArchiveFile.Writer(file)) {
+            for (long[] r : rows) writer.add(r[0], r[1], r[2], r[3], r[4], r[5], r[6]);
+            assertEquals(rows.size(), writer.rows());
+            writer.finish();
+        }
+        return file;
+    }
+
+    private List<long[]> rows(long stockId, long fromMicros, long toMicros) {
+        return rows.stream().filter(r -> r[1] == stockId && r[6] >= fromMicros && r[6] <= toMicros).toList();
+    }
+
+    private static void assertSame(long[] expected, TradeResponse trade) {
+        assertEquals(expected[0], trade.getId());
+        assertEquals(expected[1], trade.getStockId());
+        assertEquals(expected[2], trade.getBuyOrderId());
+        assertEquals(expected[3], trade.getSellOrderId());
+        assertEquals(FixedPoint.toBigDecimal(expected[4]), trade.getPrice());
+        assertEquals(FixedPoint.toBigDecimal(expected[5]), trade.getQuantity());
+        assertEquals(TradeArchiveFile.fromMicros(expected[6]), trade.getExecutedAt());
+    }
+}
@@ -0,0 +1,50 @@
+package tn.esprit.piboursebackend.Portfolio.Entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RiskEngineTest {
+
+    private final RiskEngine engine = new RiskEngine();
+
+    @Test
+    void historicalVaRTakesTheLossAtTheQuantile() {
+        // Rendements -0,050 .. +0,049 dans le désordre
+        double[] returns = new double[100];
+        for (int i = 0; i < returns.length; i++) returns[i] = ((i * 37) % 100 - 50) / 1000.0;
+        double[] scratch = new double[returns.length];
+
+        // 95 % : 6e pire rendement (indice 5), 99 % : 2e pire (indice 1)
+        assertEquals(1000 * -Math.expm1(-0.045), engine.calculateVaR(returns, 1000, 0.95, scratch), 1e-9);
+        assertEquals(1000 * -Math.expm1(-0.049), engine.calculateVaR(returns, 1000, 0.99, scratch), 1e-9);
+        // Les rendements d'entrée ne sont pas triés en place
+        assertEquals(-0.050, returns[0], 0);
+    }
+
+    @Test
+    void varIsNeverNegative() {
+        double[] gains = {0.01, 0.02, 0.03};
+        assertEquals(0, engine.calculateVaR(gains, 1000, 0.95, new double[3]), 0);
+        assertEquals(0, engine.calculateVaR(new double[0], 1000, 0.95, new double[0]), 0);
+    }
+
+    @Test
+    void sharpeIsAnnualisedWithTheSampleDeviation() {
+        // Moyenne 0,01, écart-type 0,01 x racine(2) : (0,01 x 252) / (0,01 x racine(2) x racine(252))
+        assertEquals(Math.sqrt(126), engine.calculateSharpeRatio(new double[]{0.02, 0.0}, 0), 1e-9);
+        assertEquals(0, engine.calculateSharpeRatio(new double[]{0.01, 0.01, 0.01}, 0.02), 0);
+        assertEquals(0, engine.calculateSharpeRatio(new double[]{0.01}, 0), 0);
+    }
+
+    @Test
+    void portfolioReturnsAreValueWeighted() {
+        double[][] stockReturns = {{0.04, -0.02}, null, {0.00, 0.02}};
+        double[] values = {300, 500, 100};
+        double[] out = engine.portfolioReturns(stockReturns, values, 3, new double[2]);
+
+        // Titre sans historique : compté dans la valeur totale, rendement nul
+        assertArrayEquals(new double[]{300 * 0.04 / 900, (300 * -0.02 + 100 * 0.02) / 900}, out, 1e-12);
+    }
+}
@@ -0,0 +1,44 @@
+package tn.esprit.piboursebackend.Portfolio.Services;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.piboursebackend.Marche.Dto.ClosePoint;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReturnMatrixTest {
+
+    private static final LocalDate D1 = LocalDate.of(2026, 3, 2);
+
+    @Test
+    void keepsTheLastDatesAndCarriesMissingClosesForward() {
+        List<ClosePoint> closes = List.of(
+                close(1, 0, "100"), close(1, 1, "110"), close(1, 3, "121"),
+                close(2, 0, "50"), close(2, 1, "50"), close(2, 2, "50"), close(2, 3, "25"),
+                close(3, 0, "10"),
+                close(4, 3, "80"));
+
+        ReturnMatrix matrix = ReturnMatrix.fromCloses(closes, 2, D1.plusDays(3));
+
+        // Dates gardées : J+1, J+2, J+3 ; le titre 1 n'a pas coté J+2
+        assertEquals(2, matrix.length());
+        assertArrayEquals(new double[]{0, Math.log(1.1)}, matrix.returns(1), 1e-12);
+        assertArrayEquals(new double[]{0, Math.log(0.5)}, matrix.returns(2), 1e-12);
+        // Coté seulement avant la fenêtre : aucun historique
+        assertNull(matrix.returns(3));
+        // Première cotation dans la fenêtre : pas de rendement avant elle
+        assertArrayEquals(new double[]{0, 0}, matrix.returns(4), 0);
+        assertEquals(3, matrix.stocks());
+    }
+
+    private static ClosePoint close(long stockId, int day, String price) {
+        LocalDateTime time = D1.plusDays(day).atTime(17, 30);
+        return new ClosePoint(stockId, time, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,31 @@
+package tn.esprit.piboursebackend.Simulation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.piboursebackend.PiBourseBackEndApplication;
+import tn.esprit.piboursebackend.Simulation.Dto.SimulationReport;
+import tn.esprit.piboursebackend.Simulation.Services.LoadSimulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = PiBourseBackEndApplication.class, properties = {
+        "pibourse.simulation.stocks=5",
+        "pibourse.simulation.bots=40"})
+@ActiveProfiles("simulation")
+class LoadSimulatorTest {
+
+    @Autowired
+    private LoadSimulator loadSimulator;
+
+    @Test
+    void seededFlowKeepsMatchingInvariants() throws InterruptedException {
+        SimulationReport report = loadSimulator.run(5_000, 2, 7);
+
+        assertEquals(5_000, report.getOrders() + report.getCancels());
+        assertTrue(report.getFills() > 0, "the flow should cross the spread");
+        assertEquals(0, report.getViolations(), () -> String.join("\n", report.getViolationSamples()));
+    }
+}